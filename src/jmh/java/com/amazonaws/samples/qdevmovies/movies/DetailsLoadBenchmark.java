@@ -0,0 +1,108 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of {@code /movies/{id}/details} over HTTP against the application started in
+ * this JVM, on Tomcat's platform thread pool or with the {@code virtual-threads} profile.
+ * Every benchmark thread is one client on its own keep-alive connection, so the thread
+ * count ({@code -t}) is the number of concurrent connections. Failed and timed-out
+ * requests are counted as {@code errors} rather than failing the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(1000)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g", "-Dhttp.maxConnections=20000",
+        "-Dlog4j.configurationFile=log4j2-benchmark.xml"})
+public class DetailsLoadBenchmark {
+
+    private static final int TIMEOUT_MILLIS = 10_000;
+
+    /** {@code platform} for Tomcat's thread pool, {@code virtual} for the virtual-threads profile (Java 21+). */
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    private ConfigurableApplicationContext context;
+    private String base;
+    private int movies;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SpringApplicationBuilder application = new SpringApplicationBuilder(MoviesApplication.class)
+                .properties("server.port=0", "spring.thymeleaf.cache=true",
+                        "logging.config=classpath:log4j2-benchmark.xml");
+        if ("virtual".equals(threads)) {
+            application.profiles("virtual-threads");
+        }
+        context = application.run();
+        base = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/movies/";
+        movies = context.getBean(MovieService.class).getAllMovies().size();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * One client's position in the catalog and its failed requests.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Client {
+        public long errors;
+        int next;
+        byte[] buffer = new byte[8192];
+    }
+
+    @Benchmark
+    public int movieDetails(Client client) {
+        client.next = client.next % movies + 1;
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(base + client.next + "/details").openConnection();
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            int status = connection.getResponseCode();
+            int length = 0;
+            // Read to the end so the connection goes back to the keep-alive cache
+            try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                for (int read; body != null && (read = body.read(client.buffer)) > 0; ) {
+                    length += read;
+                }
+            }
+            if (status != 200) {
+                client.errors++;
+            }
+            return length;
+        } catch (IOException e) {
+            client.errors++;
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search, lookup and genre listing over synthetic catalogs. Each invocation takes the
+ * next entry of a precomputed mix of queries or ids, so results are not constant-folded.
+ * Only the substring search benchmarks are parameterized by query shape; ranked search
+ * and suggestions run their own mixes of free-text queries and prefixes.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g", "-Dlog4j.configurationFile=log4j2-benchmark.xml"})
+public class MovieServiceBenchmark {
+
+    static final int MIX_SIZE = 1024;
+
+    @State(Scope.Benchmark)
+    public static class Catalog {
+        @Param({"10", "10000", "1000000"})
+        public int catalogSize;
+
+        @Param({"objects", "columnar"})
+        public String layout;
+
+        MovieService movieService;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            movieService = new MovieService(SyntheticCatalog.store(catalogSize, layout));
+            // About two reviews per movie, for the review aggregates behind the reviews order
+            movieService.setReviewService(new ReviewService(SyntheticCatalog.reviews(catalogSize, 2)));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Queries {
+        @Param({"name", "genre", "combined", "empty"})
+        public String queryShape;
+
+        private String[][] queries;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            queries = SyntheticCatalog.queries(queryShape, MIX_SIZE);
+        }
+
+        String[] next() {
+            next = (next + 1) & (MIX_SIZE - 1);
+            return queries[next];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class RankedQueries {
+        private String[] queries;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            queries = SyntheticCatalog.rankedQueries(MIX_SIZE);
+        }
+
+        String next() {
+            next = (next + 1) & (MIX_SIZE - 1);
+            return queries[next];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Filters {
+        private MovieFilter[] filters;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            filters = SyntheticCatalog.filters(MIX_SIZE);
+        }
+
+        MovieFilter next() {
+            next = (next + 1) & (MIX_SIZE - 1);
+            return filters[next];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Prefixes {
+        private String[] prefixes;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            prefixes = SyntheticCatalog.prefixes(MIX_SIZE);
+        }
+
+        String next() {
+            next = (next + 1) & (MIX_SIZE - 1);
+            return prefixes[next];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Ids {
+        private long[] ids;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(Catalog catalog) {
+            Random random = new Random(3);
+            ids = new long[MIX_SIZE];
+            for (int i = 0; i < ids.length; i++) {
+                // One lookup in eight misses
+                ids[i] = random.nextInt(8) == 0 ? catalog.catalogSize + 1 + i : 1 + random.nextInt(catalog.catalogSize);
+            }
+        }
+
+        long next() {
+            next = (next + 1) & (MIX_SIZE - 1);
+            return ids[next];
+        }
+    }
+
+    @Benchmark
+    public List<Movie> searchMovies(Catalog catalog, Queries queries) {
+        String[] query = queries.next();
+        return catalog.movieService.searchMovies(query[0], null, query[1]);
+    }
+
+    @Benchmark
+    public MoviePage searchMoviesPageByRating(Catalog catalog, Queries queries) {
+        String[] query = queries.next();
+        return catalog.movieService.searchMovies(query[0], null, query[1], 0,
+                MoviesController.DEFAULT_PAGE_SIZE, MovieSort.RATING);
+    }
+
+    @Benchmark
+    public MoviePage searchMoviesRanked(Catalog catalog, RankedQueries queries) {
+        return catalog.movieService.searchMovies(queries.next(), null, null, 0,
+                MoviesController.DEFAULT_PAGE_SIZE, MovieSort.RELEVANCE);
+    }
+
+    @Benchmark
+    public MoviePage searchMoviesFiltered(Catalog catalog, Filters filters) {
+        return catalog.movieService.searchMovies(filters.next(), 0, MoviesController.DEFAULT_PAGE_SIZE, MovieSort.RATING);
+    }
+
+    @Benchmark
+    public MoviePage searchMoviesByReviews(Catalog catalog, Filters filters) {
+        return catalog.movieService.searchMovies(filters.next(), 0, MoviesController.DEFAULT_PAGE_SIZE, MovieSort.REVIEWS);
+    }
+
+    @Benchmark
+    public MoviePage getMoviesPageByReviews(Catalog catalog) {
+        return catalog.movieService.getMoviesPage(0, MoviesController.DEFAULT_PAGE_SIZE, MovieSort.REVIEWS);
+    }
+
+    @Benchmark
+    public int countMoviesFiltered(Catalog catalog, Filters filters) {
+        return catalog.movieService.countMovies(filters.next());
+    }
+
+    @Benchmark
+    public List<GenreFacet> genreFacetsFiltered(Catalog catalog, Filters filters) {
+        return catalog.movieService.getGenreFacets(filters.next());
+    }
+
+    @Benchmark
+    public List<Movie> suggestMovies(Catalog catalog, Prefixes prefixes) {
+        return catalog.movieService.suggestMovies(prefixes.next(), MoviesApiController.DEFAULT_SUGGESTIONS);
+    }
+
+    @Benchmark
+    public Optional<Movie> getMovieById(Catalog catalog, Ids ids) {
+        return catalog.movieService.getMovieById(ids.next());
+    }
+
+    @Benchmark
+    public List<String> getAllGenres(Catalog catalog) {
+        return catalog.movieService.getAllGenres();
+    }
+}
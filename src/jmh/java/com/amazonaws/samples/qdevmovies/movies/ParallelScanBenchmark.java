@@ -0,0 +1,77 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches that no index narrows down, on synthetic catalogs scanned sequentially
+ * ({@code parallelism} 1) or in parallel chunks. Names of two digits have no trigram, so
+ * every movie's name is checked; the rating range is then checked per candidate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g", "-Dlog4j.configurationFile=log4j2-benchmark.xml"})
+public class ParallelScanBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int catalogSize;
+
+    @Param({"1", "2", "4"})
+    public int parallelism;
+
+    private MovieService movieService;
+    private MovieFilter[] filters;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        movieService = new MovieService(SyntheticCatalog.store(catalogSize, MovieService.COLUMNAR_STORE),
+                new ParallelScan(parallelism, MovieService.DEFAULT_PARALLEL_THRESHOLD));
+        Random random = new Random(17);
+        filters = new MovieFilter[MovieServiceBenchmark.MIX_SIZE];
+        for (int i = 0; i < filters.length; i++) {
+            double minRating = 1 + random.nextInt(30) / 10.0;
+            filters[i] = new MovieFilter.Builder()
+                    .name(String.valueOf(10 + random.nextInt(90)))
+                    .rating(minRating, minRating + 1)
+                    .build();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        movieService.stop();
+    }
+
+    private MovieFilter nextFilter() {
+        next = (next + 1) & (MovieServiceBenchmark.MIX_SIZE - 1);
+        return filters[next];
+    }
+
+    @Benchmark
+    public MoviePage searchShortName() {
+        return movieService.searchMovies(nextFilter(), 0, MoviesController.DEFAULT_PAGE_SIZE, MovieSort.CATALOG);
+    }
+
+    @Benchmark
+    public int countShortName() {
+        return movieService.countMovies(nextFilter());
+    }
+}
@@ -0,0 +1,74 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posting reviews through the journal from many threads at once, each waiting until its
+ * review is durable, into a temporary directory on the local disk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g", "-Dlog4j.configurationFile=log4j2-benchmark.xml"})
+public class ReviewJournalBenchmark {
+
+    @Param({"512"})
+    public int maxBatch;
+
+    private Path directory;
+    private ReviewJournal journal;
+    private List<Review> reviews;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("review-journal");
+        journal = new ReviewJournal(new ReviewService(new HashMap<>()), directory.toString(), 8192, maxBatch,
+                64L << 20, 4);
+        journal.start();
+        reviews = SyntheticCatalog.reviews(new Random(11), 1, 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        journal.stop();
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public Integer submitReview() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return journal.submit(1 + random.nextInt(1000), reviews.get(random.nextInt(reviews.size()))).get();
+    }
+}
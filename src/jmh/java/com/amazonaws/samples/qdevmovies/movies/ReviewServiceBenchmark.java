@@ -0,0 +1,94 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Review lookups over a synthetic review index, including movies without reviews, and
+ * review pages of a movie with very many reviews.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g", "-Dlog4j.configurationFile=log4j2-benchmark.xml"})
+public class ReviewServiceBenchmark {
+
+    @Param({"10", "10000", "1000000"})
+    public int moviesWithReviews;
+
+    @Param({"5"})
+    public int reviewsPerMovie;
+
+    private ReviewService reviewService;
+    private long[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        reviewService = new ReviewService(SyntheticCatalog.reviews(moviesWithReviews, reviewsPerMovie));
+        Random random = new Random(5);
+        ids = new long[MovieServiceBenchmark.MIX_SIZE];
+        for (int i = 0; i < ids.length; i++) {
+            // Ids past the last reviewed movie have no reviews
+            ids[i] = 1 + random.nextInt(moviesWithReviews + moviesWithReviews / 4 + 1);
+        }
+    }
+
+    @Benchmark
+    public List<Review> getReviewsForMovie() {
+        next = (next + 1) & (MovieServiceBenchmark.MIX_SIZE - 1);
+        return reviewService.getReviewsForMovie(ids[next]);
+    }
+
+    /**
+     * One movie with {@code popularReviews} reviews, paged from the start and from a cursor
+     * half way through.
+     */
+    @State(Scope.Benchmark)
+    public static class PopularMovie {
+        @Param({"300000"})
+        public int popularReviews;
+
+        ReviewService reviewService;
+        String middleCursor;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            Map<Long, List<Review>> index = new HashMap<>();
+            index.put(1L, SyntheticCatalog.reviews(new Random(7), 1, popularReviews));
+            reviewService = new ReviewService(index);
+            int page = popularReviews / 2 / MoviesApiController.DEFAULT_REVIEW_PAGE_SIZE;
+            middleCursor = reviewService.getReviewPage(1, ReviewSort.HIGHEST, page,
+                    MoviesApiController.DEFAULT_REVIEW_PAGE_SIZE).getNextCursor();
+        }
+    }
+
+    @Benchmark
+    public ReviewPage firstReviewPage(PopularMovie movie) {
+        return movie.reviewService.getReviewPage(1, ReviewSort.NEWEST, 0, MoviesApiController.DEFAULT_REVIEW_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public ReviewPage middleReviewPageByCursor(PopularMovie movie) {
+        return movie.reviewService.getReviewPage(1, ReviewSort.HIGHEST, movie.middleCursor,
+                MoviesApiController.DEFAULT_REVIEW_PAGE_SIZE);
+    }
+}
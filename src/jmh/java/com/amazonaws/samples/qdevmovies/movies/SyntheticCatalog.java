@@ -0,0 +1,212 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Deterministic generator of catalogs, reviews and query mixes for the benchmarks.
+ * Names are built from small word lists so that name and genre queries match a realistic
+ * fraction of the catalog at every size.
+ */
+final class SyntheticCatalog {
+
+    static final String[] ADJECTIVES = {
+        "Silent", "Crimson", "Lost", "Golden", "Midnight", "Broken", "Hidden", "Final",
+        "Wild", "Frozen", "Electric", "Last", "Dark", "Sunny", "Iron", "Secret"
+    };
+    static final String[] NOUNS = {
+        "River", "Empire", "Voyage", "Harbor", "Witness", "Garden", "Signal", "Frontier",
+        "Heist", "Kingdom", "Island", "Promise", "Machine", "Storm", "Treasure", "Escape"
+    };
+    static final String[] GENRES = {
+        "Drama", "Action", "Comedy", "Crime/Drama", "Sci-Fi", "Action/Sci-Fi", "Horror",
+        "Romance", "Adventure/Fantasy", "Thriller", "Documentary", "Animation"
+    };
+    private static final String[] REVIEWERS = {"Ahab", "Bonny", "Flint", "Kidd", "Morgan", "Read", "Silver", "Teach"};
+    private static final String[] AVATARS = {"🏴‍☠️", "🦜", "⚓", "🗺️"};
+
+    private SyntheticCatalog() {
+    }
+
+    static Movie movie(Random random, long id) {
+        String name = (random.nextInt(4) == 0 ? "The " : "")
+                + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " "
+                + NOUNS[random.nextInt(NOUNS.length)] + " " + id;
+        return new Movie(id, name, "Director " + random.nextInt(5_000), 1920 + random.nextInt(105),
+                GENRES[random.nextInt(GENRES.length)], "A synthetic film about the " + name.toLowerCase(),
+                70 + random.nextInt(120), 1 + random.nextInt(41) / 10.0);
+    }
+
+    /**
+     * A catalog of {@code size} movies in the given layout: {@code objects} or {@code columnar}.
+     */
+    static MovieStore store(int size, String layout) {
+        Random random = new Random(42);
+        if (MovieService.COLUMNAR_STORE.equals(layout)) {
+            ColumnarMovieStore.Builder builder = new ColumnarMovieStore.Builder();
+            for (long id = 1; id <= size; id++) {
+                builder.add(movie(random, id));
+            }
+            return builder.build();
+        }
+        List<Movie> movies = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            movies.add(movie(random, id));
+        }
+        return new ObjectMovieStore(movies);
+    }
+
+    /**
+     * Up to {@code perMovie * 2} reviews for each of the first {@code movies} ids.
+     */
+    static Map<Long, List<Review>> reviews(int movies, int perMovie) {
+        Random random = new Random(7);
+        Map<Long, List<Review>> index = new HashMap<>();
+        for (long id = 1; id <= movies; id++) {
+            index.put(id, reviews(random, id, random.nextInt(perMovie * 2 + 1)));
+        }
+        return index;
+    }
+
+    /**
+     * Exactly {@code count} reviews for movie {@code id}.
+     */
+    static List<Review> reviews(Random random, long id, int count) {
+        List<Review> reviews = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            reviews.add(new Review(REVIEWERS[random.nextInt(REVIEWERS.length)],
+                    AVATARS[random.nextInt(AVATARS.length)], 1 + random.nextInt(5),
+                    "Review " + i + " of movie " + id));
+        }
+        return reviews;
+    }
+
+    /**
+     * A cyclic mix of {@code count} search criteria of one shape. Each entry is
+     * {@code {name, genre}}; either may be {@code null}.
+     */
+    static String[][] queries(String shape, int count) {
+        Random random = new Random(11);
+        String[][] queries = new String[count][];
+        for (int i = 0; i < count; i++) {
+            String name = nameTerm(random);
+            String genre = GENRES[random.nextInt(GENRES.length)].split("/")[0].toLowerCase();
+            switch (shape) {
+                case "name":
+                    queries[i] = new String[] {name, null};
+                    break;
+                case "genre":
+                    queries[i] = new String[] {null, genre};
+                    break;
+                case "combined":
+                    queries[i] = new String[] {name, genre};
+                    break;
+                case "empty":
+                    queries[i] = new String[] {null, null};
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown query shape: " + shape);
+            }
+        }
+        return queries;
+    }
+
+    /**
+     * A cyclic mix of {@code count} free-text queries for relevance ranking: one or two
+     * catalog words, often with {@code the}, and one query in three with a typo.
+     */
+    static String[] rankedQueries(int count) {
+        Random random = new Random(13);
+        String[] queries = new String[count];
+        for (int i = 0; i < count; i++) {
+            String query = NOUNS[random.nextInt(NOUNS.length)].toLowerCase();
+            if (random.nextBoolean()) {
+                query = ADJECTIVES[random.nextInt(ADJECTIVES.length)].toLowerCase() + " " + query;
+            }
+            if (random.nextInt(3) == 0) {
+                // Drop one letter, as typed in a hurry
+                int at = 1 + random.nextInt(query.length() - 2);
+                query = query.substring(0, at) + query.substring(at + 1);
+            }
+            queries[i] = random.nextBoolean() ? "the " + query : query;
+        }
+        return queries;
+    }
+
+    /**
+     * A cyclic mix of {@code count} type-ahead prefixes, one to eight characters of a
+     * catalog word or a director, as typed keystroke by keystroke.
+     */
+    static String[] prefixes(int count) {
+        Random random = new Random(17);
+        String[] prefixes = new String[count];
+        for (int i = 0; i < count; i++) {
+            String word;
+            switch (random.nextInt(3)) {
+                case 0:
+                    word = ADJECTIVES[random.nextInt(ADJECTIVES.length)].toLowerCase();
+                    break;
+                case 1:
+                    word = NOUNS[random.nextInt(NOUNS.length)].toLowerCase();
+                    break;
+                default:
+                    word = "director " + random.nextInt(5_000);
+            }
+            prefixes[i] = word.substring(0, 1 + random.nextInt(Math.min(8, word.length())));
+        }
+        return prefixes;
+    }
+
+    /**
+     * A cyclic mix of {@code count} filters with a director or range: a decade, a
+     * director, a rating band and a duration band, each present about half the time and
+     * often combined with a genre.
+     */
+    static MovieFilter[] filters(int count) {
+        Random random = new Random(19);
+        MovieFilter[] filters = new MovieFilter[count];
+        for (int i = 0; i < count; i++) {
+            MovieFilter.Builder builder = new MovieFilter.Builder();
+            boolean any = false;
+            if (random.nextBoolean()) {
+                int decade = 1920 + 10 * random.nextInt(11);
+                builder.years(decade, decade + 9);
+                any = true;
+            }
+            if (random.nextInt(4) == 0) {
+                builder.director("Director " + random.nextInt(5_000));
+                any = true;
+            }
+            if (random.nextBoolean()) {
+                double min = 1 + random.nextInt(30) / 10.0;
+                builder.rating(min, min + 1);
+                any = true;
+            }
+            if (!any || random.nextBoolean()) {
+                int min = 70 + random.nextInt(100);
+                builder.duration(min, min + 20);
+            }
+            if (random.nextBoolean()) {
+                builder.genre(GENRES[random.nextInt(GENRES.length)].split("/")[0]);
+            }
+            filters[i] = builder.build();
+        }
+        return filters;
+    }
+
+    private static String nameTerm(Random random) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return ADJECTIVES[random.nextInt(ADJECTIVES.length)].toLowerCase();
+            case 1:
+                return NOUNS[random.nextInt(NOUNS.length)].toLowerCase();
+            default:
+                // A partial word, as typed into the search box
+                String noun = NOUNS[random.nextInt(NOUNS.length)];
+                return noun.substring(0, 4).toLowerCase();
+        }
+    }
+}
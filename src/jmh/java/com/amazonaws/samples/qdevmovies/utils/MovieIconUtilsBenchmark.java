@@ -0,0 +1,39 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Icon lookup for names with and without a dedicated icon, in mixed case as they appear
+ * in the catalog.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class MovieIconUtilsBenchmark {
+
+    private static final String[] NAMES = {
+        "The Prison Escape", "Dream Heist", "Space Wars: The Beginning", "Underground Club",
+        "The Silent River 17", "Golden Harbor 4242", "The Masked Hero", "Midnight Signal 9"
+    };
+
+    private int next;
+
+    @Benchmark
+    public String getMovieIcon() {
+        next = (next + 1) & (NAMES.length - 1);
+        return MovieIconUtils.getMovieIcon(NAMES[next]);
+    }
+}
@@ -0,0 +1,57 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 64-bit FNV-1a hashing for catalog versions and HTTP cache keys. Not cryptographic;
+ * it only has to tell catalog contents and request parameters apart.
+ */
+final class CacheKeys {
+
+    static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private CacheKeys() {
+    }
+
+    static long mix(long hash, long value) {
+        for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+            hash ^= (value >>> shift) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    static long mix(long hash, String value) {
+        if (value == null) {
+            return mix(hash, -1L);
+        }
+        hash = mix(hash, value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            hash ^= c & 0xff;
+            hash *= FNV_PRIME;
+            hash ^= c >>> 8;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Hash of request parameters independent of their order in the query string. Empty
+     * values are dropped, so {@code ?name=&genre=drama} and {@code ?genre=drama} share a key.
+     */
+    static long mixParameters(long hash, Map<String, String[]> parameters) {
+        for (Map.Entry<String, String[]> entry : new TreeMap<>(parameters).entrySet()) {
+            for (String value : entry.getValue()) {
+                if (value == null || value.isEmpty()) {
+                    continue;
+                }
+                hash = mix(hash, entry.getKey());
+                hash = mix(hash, value);
+            }
+        }
+        return hash;
+    }
+}
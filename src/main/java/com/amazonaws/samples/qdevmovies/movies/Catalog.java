@@ -0,0 +1,562 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
+/**
+ * One loaded catalog: the store plus every index derived from it. Nothing here changes
+ * after construction, so a request that reads {@link MovieService}'s current catalog once
+ * sees a consistent store and indexes for its whole duration, even if a reload publishes
+ * a new catalog meanwhile. A replaced catalog is reclaimed by the garbage collector once
+ * the last request holding it finishes.
+ *
+ * <p>Movies added, changed or deleted since the store was indexed live in a small
+ * {@link CatalogDelta} that queries merge with the store's results. An {@link Edit}
+ * copies only the delta, and once the delta outgrows {@link #compactThreshold(int)} the
+ * whole catalog is re-indexed into a new store, so the cost of a change stays
+ * proportional to the change, amortized over many edits.</p>
+ */
+final class Catalog {
+
+    static final int MIN_COMPACT_THRESHOLD = 1024;
+    /**
+     * Matches up to this many are sorted up front by {@link #scan}, rather than found by
+     * walking the presorted catalog.
+     */
+    static final int SORTED_SCAN_LIMIT = 1 << 16;
+    private static final int[] NO_ORDINALS = new int[0];
+
+    final MovieStore store;
+    final MovieSearchIndex searchIndex;
+    final MovieSortIndex sortIndex;
+    final MovieTextIndex textIndex;
+    final MovieSuggestIndex suggestIndex;
+    final MovieBitmapIndex bitmapIndex;
+    final MovieQueryPlanner planner;
+    final GenreFacets genreFacets;
+    final CatalogDelta delta;
+    final ParallelScan scan;
+    final long version;
+    final long loadedAt;
+    final long loadNanos;
+
+    /** The live movies in catalog order, materialized on first use when there is a delta. */
+    private volatile List<Movie> movies;
+
+    /**
+     * Build every index for {@code store}: search postings, sort orders, range buckets,
+     * the relevance dictionary and suggestions. Nothing is left to build on first use, so
+     * the first request after a reload or compaction does not wait, and no read takes a lock.
+     *
+     * @param loadStartNanos {@link System#nanoTime()} when loading the store started
+     * @param scan runs the scans no index narrows down
+     */
+    Catalog(MovieStore store, long loadStartNanos, ParallelScan scan) {
+        this(store, version(store), System.currentTimeMillis(), loadStartNanos, scan);
+    }
+
+    private Catalog(MovieStore store, long version, long loadedAt, long loadStartNanos, ParallelScan scan) {
+        this.store = store;
+        this.scan = scan;
+        this.searchIndex = new MovieSearchIndex(store, scan);
+        this.genreFacets = new GenreFacets(store);
+        this.sortIndex = new MovieSortIndex(store);
+        this.textIndex = new MovieTextIndex(store);
+        this.suggestIndex = new MovieSuggestIndex(store);
+        this.bitmapIndex = new MovieBitmapIndex(store, sortIndex);
+        this.planner = new MovieQueryPlanner(store, searchIndex, bitmapIndex, scan);
+        this.delta = CatalogDelta.empty(store.size());
+        this.version = version;
+        this.loadedAt = loadedAt;
+        this.loadNanos = System.nanoTime() - loadStartNanos;
+    }
+
+    private Catalog(Catalog base, CatalogDelta delta, GenreFacets genreFacets, long version) {
+        this.store = base.store;
+        this.searchIndex = base.searchIndex;
+        this.sortIndex = base.sortIndex;
+        this.textIndex = base.textIndex;
+        this.suggestIndex = base.suggestIndex;
+        this.bitmapIndex = base.bitmapIndex;
+        this.planner = base.planner;
+        this.scan = base.scan;
+        this.genreFacets = genreFacets;
+        this.delta = delta;
+        this.version = version;
+        this.loadedAt = System.currentTimeMillis();
+        this.loadNanos = base.loadNanos;
+    }
+
+    /**
+     * 64-bit FNV-1a hash over every column of every movie, so two loads of the same
+     * catalog get the same version and any edit changes it.
+     */
+    static long version(MovieStore store) {
+        long hash = CacheKeys.FNV_OFFSET;
+        for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+            hash = CacheKeys.mix(hash, store.id(ordinal));
+            hash = CacheKeys.mix(hash, store.movieName(ordinal));
+            hash = CacheKeys.mix(hash, store.director(ordinal));
+            hash = CacheKeys.mix(hash, store.description(ordinal));
+            hash = CacheKeys.mix(hash, store.year(ordinal));
+            hash = CacheKeys.mix(hash, store.genre(ordinal));
+            hash = CacheKeys.mix(hash, store.duration(ordinal));
+            hash = CacheKeys.mix(hash, Double.doubleToLongBits(store.imdbRating(ordinal)));
+        }
+        return hash;
+    }
+
+    /**
+     * Delta size above which an edit re-indexes the catalog. The square root balances the
+     * per-edit cost of copying the delta against the per-compaction cost of indexing the
+     * store.
+     */
+    static int compactThreshold(int storeSize) {
+        return Math.max(MIN_COMPACT_THRESHOLD, (int) Math.sqrt(storeSize));
+    }
+
+    int size() {
+        return store.size() + delta.sizeChange();
+    }
+
+    /**
+     * One past the highest ordinal in use, so arrays indexed by ordinal fit every movie.
+     */
+    int ordinalLimit() {
+        return delta.ordinalLimit();
+    }
+
+    /**
+     * @return the ordinal of the live movie with this id, or {@code -1} if there is none
+     */
+    int ordinalOf(long id) {
+        int ordinal = store.ordinalOf(id);
+        if (ordinal < 0) {
+            return delta.addedOrdinalOf(id);
+        }
+        int index = delta.indexOf(ordinal);
+        return index >= 0 && delta.movieAt(index) == null ? -1 : ordinal;
+    }
+
+    Movie movie(int ordinal) {
+        if (!delta.isEmpty()) {
+            int index = delta.indexOf(ordinal);
+            if (index >= 0) {
+                return delta.movieAt(index);
+            }
+        }
+        return store.get(ordinal);
+    }
+
+    /**
+     * Unmodifiable list of the live movies in catalog order.
+     */
+    List<Movie> movies() {
+        if (delta.isEmpty()) {
+            return store.asList();
+        }
+        List<Movie> list = movies;
+        if (list == null) {
+            int[] ordinals = delta.liveOrdinals(0, size());
+            list = new ArrayList<>(ordinals.length);
+            for (int ordinal : ordinals) {
+                list.add(movie(ordinal));
+            }
+            list = Collections.unmodifiableList(list);
+            movies = list;
+        }
+        return list;
+    }
+
+    /**
+     * Ordinals of the movies matching already lowercased name and genre terms, at least
+     * one of them not {@code null}, in catalog order.
+     */
+    int[] find(String lowerName, String lowerGenre) {
+        int[] matches = searchIndex.find(lowerName, lowerGenre);
+        return delta.isEmpty() ? matches : delta.merge(matches, lowerName, lowerGenre);
+    }
+
+    /**
+     * Ordinals of the movies matching every criterion of {@code filter} but the id, which
+     * has a director or range criterion, in catalog order.
+     */
+    int[] find(MovieFilter filter) {
+        OrdinalBitmap matches = planner.find(filter);
+        int[] ordinals = matches != null ? matches.toArray() : searchIndex.find(null, null);
+        return delta.isEmpty() ? ordinals : delta.merge(ordinals, filter);
+    }
+
+    /**
+     * Number of live movies matching every criterion of {@code filter} but the id, counted
+     * on the bitmaps without listing the store's matches.
+     */
+    int count(MovieFilter filter) {
+        OrdinalBitmap matches = planner.find(filter);
+        if (matches == null) {
+            return size();
+        }
+        int count = matches.andNot(delta.touched()).cardinality();
+        for (int ordinal : delta.liveOrdinals()) {
+            if (filter.matches(movie(ordinal))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Genre facets of the live movies matching every criterion of {@code filter} but the
+     * id: one intersection count per distinct genre, plus the delta's movies.
+     */
+    GenreFacets facets(MovieFilter filter) {
+        OrdinalBitmap matches = planner.find(filter);
+        if (matches == null) {
+            // Without criteria these are the catalog's own facets, already adjusted for the delta
+            return genreFacets;
+        }
+        Map<String, Integer> rawCounts = bitmapIndex.genreCounts(delta.isEmpty() ? matches : matches.andNot(delta.touched()));
+        for (int ordinal : delta.liveOrdinals()) {
+            Movie movie = movie(ordinal);
+            if (filter.matches(movie)) {
+                rawCounts.merge(movie.getGenre(), 1, Integer::sum);
+            }
+        }
+        return GenreFacets.of(rawCounts);
+    }
+
+    /**
+     * Movies relevant to the free text {@code query}, scored by {@link MovieTextIndex} and
+     * restricted to the movies matching {@code filter}, whose name is ignored. Movies in the
+     * delta are scored one by one against the store's term statistics.
+     */
+    MovieTextIndex.Hits rank(String query, MovieFilter filter) {
+        MovieFilter restriction = filter.withName(null);
+        MovieTextIndex.Query parsed = textIndex.parse(query);
+        MovieTextIndex.Hits hits = textIndex.search(parsed);
+        OrdinalBitmap allowed = restriction.isEmpty() ? null : planner.find(restriction);
+        if (allowed != null || !delta.isEmpty()) {
+            hits.retain(ordinal -> (delta.isEmpty() || delta.indexOf(ordinal) < 0)
+                    && (allowed == null || allowed.contains(ordinal)));
+        }
+        for (int ordinal : delta.liveOrdinals()) {
+            Movie movie = movie(ordinal);
+            if (restriction.matches(movie)) {
+                float score = textIndex.score(parsed, movie);
+                if (score > 0) {
+                    hits.add(ordinal, -1, score);
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Up to {@code limit} live movies with a name or director word starting with the
+     * lowercase {@code prefix}, best rated first. Movies in the delta are matched one by
+     * one and merged with the store's suggestions.
+     */
+    int[] suggest(String prefix, int limit) {
+        if (delta.isEmpty()) {
+            return suggestIndex.suggest(prefix, limit, null);
+        }
+        int[] base = suggestIndex.suggest(prefix, limit, ordinal -> delta.indexOf(ordinal) >= 0);
+        List<Integer> candidates = new ArrayList<>(base.length);
+        for (int ordinal : base) {
+            candidates.add(ordinal);
+        }
+        for (int ordinal : delta.liveOrdinals()) {
+            Movie movie = movie(ordinal);
+            if (MovieSuggestIndex.matches(movie.getMovieName().toLowerCase(), prefix)
+                    || MovieSuggestIndex.matches(movie.getDirector().toLowerCase(), prefix)) {
+                candidates.add(ordinal);
+            }
+        }
+        candidates.sort((a, b) -> {
+            int result = Double.compare(movie(b).getImdbRating(), movie(a).getImdbRating());
+            return result != 0 ? result : Integer.compare(a, b);
+        });
+        int[] ordinals = new int[Math.min(limit, candidates.size())];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = candidates.get(i);
+        }
+        return ordinals;
+    }
+
+    /**
+     * Select ordinals {@code [offset, offset + limit)} of {@code matches} under {@code sort}.
+     *
+     * @param matches ascending ordinals, or {@code null} for the whole catalog
+     */
+    int[] page(int[] matches, MovieSort sort, int offset, int limit) {
+        if (delta.isEmpty()) {
+            return sortIndex.page(matches, sort, offset, limit);
+        }
+        int total = matches != null ? matches.length : size();
+        if (offset >= total || limit <= 0) {
+            return NO_ORDINALS;
+        }
+        int end = (int) Math.min((long) offset + limit, total);
+        if (sort == MovieSort.CATALOG) {
+            return matches != null ? Arrays.copyOfRange(matches, offset, end) : delta.liveOrdinals(offset, end - offset);
+        }
+
+        // Rows untouched by the delta keep their presorted ranks; only the delta's are compared here
+        int[] dirty;
+        int[] clean;
+        if (matches == null) {
+            dirty = delta.liveOrdinals();
+            clean = sortIndex.order(sort);
+        } else {
+            int[] split = new int[matches.length];
+            int cleanCount = 0;
+            int dirtyEnd = matches.length;
+            for (int ordinal : matches) {
+                if (delta.indexOf(ordinal) >= 0) {
+                    split[--dirtyEnd] = ordinal;
+                } else {
+                    split[cleanCount++] = ordinal;
+                }
+            }
+            dirty = Arrays.copyOfRange(split, dirtyEnd, matches.length);
+            clean = sortIndex.page(Arrays.copyOf(split, cleanCount), sort, 0, end);
+        }
+        Integer[] sortedDirty = new Integer[dirty.length];
+        for (int i = 0; i < dirty.length; i++) {
+            sortedDirty[i] = dirty[i];
+        }
+        Arrays.sort(sortedDirty, (a, b) -> compare(sort, a, b));
+
+        int[] ordinals = new int[end - offset];
+        int i = 0, j = 0;
+        for (int position = 0; position < end; position++) {
+            if (matches == null) {
+                while (i < clean.length && delta.indexOf(clean[i]) >= 0) {
+                    i++;
+                }
+            }
+            int next = i < clean.length && (j == sortedDirty.length || compare(sort, clean[i], sortedDirty[j]) < 0)
+                    ? clean[i++] : sortedDirty[j++];
+            if (position >= offset) {
+                ordinals[position - offset] = next;
+            }
+        }
+        return ordinals;
+    }
+
+    /**
+     * Live ordinals matching every criterion of {@code filter} but the id, in {@code sort}
+     * order, found one at a time as they are taken. The matches are held as the planner's
+     * bitmap rather than listed, and sorted orders walk {@link MovieSortIndex}'s presorted
+     * ordinals, so memory does not grow with the number of matches. Only matches sparse
+     * enough to fit {@link #SORTED_SCAN_LIMIT} are sorted up front, and the delta's movies
+     * are sorted among themselves and merged in.
+     *
+     * @param sort an order {@link MovieSortIndex} presorts: not {@link MovieSort#REVIEWS}
+     *             or {@link MovieSort#RELEVANCE}
+     */
+    PrimitiveIterator.OfInt scan(MovieFilter filter, MovieSort sort) {
+        if (sort == MovieSort.REVIEWS || sort == MovieSort.RELEVANCE) {
+            throw new IllegalArgumentException("Sort order " + sort.getParameter() + " cannot be scanned");
+        }
+        OrdinalBitmap matches = filter.isEmpty() ? null : planner.find(filter);
+        OrdinalBitmap stale = delta.isEmpty() ? null : delta.touched();
+        if (matches != null && stale != null) {
+            matches = matches.andNot(stale);
+        }
+        PrimitiveIterator.OfInt clean;
+        if (sort == MovieSort.CATALOG) {
+            clean = matches != null ? matches.iterator() : storeRows(stale);
+        } else if (matches != null && matches.cardinality() <= SORTED_SCAN_LIMIT) {
+            clean = Arrays.stream(sortIndex.page(matches.toArray(), sort, 0, matches.cardinality())).iterator();
+        } else {
+            clean = presorted(sortIndex.order(sort), matches, stale);
+        }
+        if (stale == null) {
+            return clean;
+        }
+        List<Integer> dirty = new ArrayList<>();
+        for (int ordinal : delta.liveOrdinals()) {
+            if (filter.matches(movie(ordinal))) {
+                dirty.add(ordinal);
+            }
+        }
+        if (sort != MovieSort.CATALOG) {
+            dirty.sort((a, b) -> compare(sort, a, b));
+        }
+        return new MergedScan(sort, clean, dirty);
+    }
+
+    /**
+     * Store rows in catalog order, skipping {@code stale} ones when there are any.
+     */
+    private PrimitiveIterator.OfInt storeRows(OrdinalBitmap stale) {
+        IntStream rows = IntStream.range(0, store.size());
+        return (stale != null ? rows.filter(ordinal -> !stale.contains(ordinal)) : rows).iterator();
+    }
+
+    /**
+     * The ordinals of {@code order} in {@code matches}, or all of them when it is
+     * {@code null}, skipping {@code stale} ones when there are any.
+     */
+    private static PrimitiveIterator.OfInt presorted(int[] order, OrdinalBitmap matches, OrdinalBitmap stale) {
+        IntStream rows = Arrays.stream(order);
+        if (matches != null) {
+            return rows.filter(matches::contains).iterator();
+        }
+        return (stale != null ? rows.filter(ordinal -> !stale.contains(ordinal)) : rows).iterator();
+    }
+
+    /**
+     * Store matches and sorted delta matches, merged lazily in {@code sort} order.
+     */
+    private final class MergedScan implements PrimitiveIterator.OfInt {
+        private final MovieSort sort;
+        private final PrimitiveIterator.OfInt clean;
+        private final List<Integer> dirty;
+        private int nextDirty;
+        private int nextClean = -1;
+
+        MergedScan(MovieSort sort, PrimitiveIterator.OfInt clean, List<Integer> dirty) {
+            this.sort = sort;
+            this.clean = clean;
+            this.dirty = dirty;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextClean >= 0 || clean.hasNext() || nextDirty < dirty.size();
+        }
+
+        @Override
+        public int nextInt() {
+            if (nextClean < 0 && clean.hasNext()) {
+                nextClean = clean.nextInt();
+            }
+            if (nextDirty < dirty.size() && (nextClean < 0 || precedes(dirty.get(nextDirty), nextClean))) {
+                return dirty.get(nextDirty++);
+            }
+            if (nextClean < 0) {
+                throw new NoSuchElementException();
+            }
+            int ordinal = nextClean;
+            nextClean = -1;
+            return ordinal;
+        }
+
+        private boolean precedes(int a, int b) {
+            return sort == MovieSort.CATALOG ? a < b : compare(sort, a, b) < 0;
+        }
+    }
+
+    /**
+     * The same ordering as {@link MovieSortIndex}: the sort key, then catalog order.
+     */
+    private int compare(MovieSort sort, int a, int b) {
+        Movie x = movie(a);
+        Movie y = movie(b);
+        int result;
+        switch (sort) {
+            case RATING:
+                result = Double.compare(y.getImdbRating(), x.getImdbRating());
+                break;
+            case YEAR:
+                result = Integer.compare(y.getYear(), x.getYear());
+                break;
+            case DURATION:
+                result = Integer.compare(x.getDuration(), y.getDuration());
+                break;
+            case NAME:
+                result = String.CASE_INSENSITIVE_ORDER.compare(x.getMovieName(), y.getMovieName());
+                break;
+            default:
+                result = 0;
+        }
+        return result != 0 ? result : Integer.compare(a, b);
+    }
+
+    Edit edit() {
+        return new Edit();
+    }
+
+    /**
+     * A batch of changes staged against this catalog. Nothing is visible to readers until
+     * {@link #publish()} returns the next catalog for the caller to swap in.
+     */
+    final class Edit {
+        private final CatalogDelta.Editor editor = delta.edit(store);
+        private final Map<String, Integer> genreChanges = new HashMap<>();
+        private long nextVersion = version;
+
+        /**
+         * The live movie with this id in the catalog being built, or {@code null}.
+         */
+        Movie get(long id) {
+            return editor.get(id);
+        }
+
+        /**
+         * @return the movie replaced, or {@code null} if the id is new
+         */
+        Movie put(Movie movie) {
+            Movie previous = editor.put(movie);
+            if (previous != null) {
+                genreChanges.merge(previous.getGenre(), -1, Integer::sum);
+            }
+            genreChanges.merge(movie.getGenre(), 1, Integer::sum);
+            nextVersion = mix(CacheKeys.mix(nextVersion, movie.getId()), movie);
+            return previous;
+        }
+
+        /**
+         * @return the movie deleted, or {@code null} if there was none
+         */
+        Movie remove(long id) {
+            Movie previous = editor.remove(id);
+            if (previous != null) {
+                genreChanges.merge(previous.getGenre(), -1, Integer::sum);
+                nextVersion = CacheKeys.mix(CacheKeys.mix(nextVersion, id), "deleted");
+            }
+            return previous;
+        }
+
+        /**
+         * Build the next catalog. If the delta has grown past the compaction threshold the
+         * live movies are re-indexed into a new store of the same layout.
+         */
+        Catalog publish() {
+            CatalogDelta next = editor.build();
+            Catalog edited = new Catalog(Catalog.this, next, genreFacets.adjust(genreChanges), nextVersion);
+            if (next.entries() <= compactThreshold(store.size())) {
+                return edited;
+            }
+            long start = System.nanoTime();
+            MovieStore compacted;
+            if (store instanceof ObjectMovieStore) {
+                compacted = new ObjectMovieStore(edited.movies());
+            } else {
+                ColumnarMovieStore.Builder builder = new ColumnarMovieStore.Builder();
+                edited.movies().forEach(builder::add);
+                compacted = builder.build();
+            }
+            return new Catalog(compacted, nextVersion, edited.loadedAt, start, scan);
+        }
+
+        private long mix(long hash, Movie movie) {
+            hash = CacheKeys.mix(hash, movie.getMovieName());
+            hash = CacheKeys.mix(hash, movie.getDirector());
+            hash = CacheKeys.mix(hash, movie.getDescription());
+            hash = CacheKeys.mix(hash, movie.getYear());
+            hash = CacheKeys.mix(hash, movie.getGenre());
+            hash = CacheKeys.mix(hash, movie.getDuration());
+            return CacheKeys.mix(hash, Double.doubleToLongBits(movie.getImdbRating()));
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Movies added, changed or deleted since a {@link Catalog}'s store was indexed.
+ *
+ * <p>The delta shares the ordinal space of the store it sits on. A changed or deleted
+ * movie keeps its base ordinal, so it stays in its catalog position, and new movies get
+ * ordinals from {@code baseSize} upwards. Entries are kept sorted by ordinal; a
+ * {@code null} movie marks a deleted base movie. Like the rest of a catalog a delta never
+ * changes once built, and each edit copies it, so an edit costs time in the size of the
+ * delta rather than the catalog.</p>
+ */
+final class CatalogDelta {
+
+    private static final int[] NO_ORDINALS = new int[0];
+
+    private final int baseSize;
+    private final int[] ordinals;
+    private final Movie[] movies;
+    private final String[] lowerNames;
+    private final String[] lowerGenres;
+    private final Map<Long, Integer> addedIds;
+    private final int nextOrdinal;
+    /** Deleted base ordinals, ascending. */
+    private final int[] deleted;
+    /** Index of the first added movie in {@link #ordinals}. */
+    private final int firstAdded;
+    /** Every ordinal with an entry, so stale store rows drop out of a bitmap in one step. */
+    private final OrdinalBitmap touched;
+
+    static CatalogDelta empty(int baseSize) {
+        return new CatalogDelta(baseSize, Collections.<Integer, Movie>emptySortedMap(),
+                Collections.<Long, Integer>emptyMap(), baseSize);
+    }
+
+    CatalogDelta(int baseSize, SortedMap<Integer, Movie> entries, Map<Long, Integer> addedIds, int nextOrdinal) {
+        this.baseSize = baseSize;
+        this.ordinals = new int[entries.size()];
+        this.movies = new Movie[entries.size()];
+        this.lowerNames = new String[entries.size()];
+        this.lowerGenres = new String[entries.size()];
+        int deletedCount = 0;
+        int firstAdded = entries.size();
+        int i = 0;
+        for (Map.Entry<Integer, Movie> entry : entries.entrySet()) {
+            Movie movie = entry.getValue();
+            ordinals[i] = entry.getKey();
+            movies[i] = movie;
+            if (movie != null) {
+                lowerNames[i] = movie.getMovieName().toLowerCase();
+                lowerGenres[i] = movie.getGenre().toLowerCase();
+            } else {
+                deletedCount++;
+            }
+            if (ordinals[i] >= baseSize && firstAdded == entries.size()) {
+                firstAdded = i;
+            }
+            i++;
+        }
+        this.firstAdded = firstAdded;
+        this.deleted = new int[deletedCount];
+        for (int j = 0, n = 0; j < ordinals.length; j++) {
+            if (movies[j] == null) {
+                deleted[n++] = ordinals[j];
+            }
+        }
+        this.addedIds = addedIds;
+        this.nextOrdinal = nextOrdinal;
+        this.touched = OrdinalBitmap.of(ordinals);
+    }
+
+    boolean isEmpty() {
+        return ordinals.length == 0;
+    }
+
+    /**
+     * Number of entries, which bounds the cost of every edit and query on top of the store.
+     */
+    int entries() {
+        return ordinals.length;
+    }
+
+    /**
+     * Change in the number of live movies relative to the store.
+     */
+    int sizeChange() {
+        return (ordinals.length - firstAdded) - deleted.length;
+    }
+
+    /**
+     * @return the index of {@code ordinal} in the delta, or a negative value if the delta
+     *         has no entry for it
+     */
+    int indexOf(int ordinal) {
+        return Arrays.binarySearch(ordinals, ordinal);
+    }
+
+    Movie movieAt(int index) {
+        return movies[index];
+    }
+
+    /**
+     * One past the highest ordinal ever handed out on this store, live or not.
+     */
+    int ordinalLimit() {
+        return nextOrdinal;
+    }
+
+    /**
+     * @return the ordinal of an added movie with this id, or {@code -1}
+     */
+    int addedOrdinalOf(long id) {
+        Integer ordinal = addedIds.get(id);
+        return ordinal != null ? ordinal : -1;
+    }
+
+    /**
+     * Ordinals whose store row is replaced, deleted or never existed.
+     */
+    OrdinalBitmap touched() {
+        return touched;
+    }
+
+    /**
+     * Live ordinals of the delta (changed and added movies), ascending.
+     */
+    int[] liveOrdinals() {
+        int[] live = new int[ordinals.length - deleted.length];
+        for (int i = 0, n = 0; i < ordinals.length; i++) {
+            if (movies[i] != null) {
+                live[n++] = ordinals[i];
+            }
+        }
+        return live;
+    }
+
+    /**
+     * Combine ascending store matches with the delta: rows the delta replaced or deleted
+     * are dropped, and live delta movies are matched against the already lowercased
+     * terms, which are {@code null} to match everything.
+     */
+    int[] merge(int[] baseMatches, String lowerName, String lowerGenre) {
+        int[] out = new int[baseMatches.length + ordinals.length];
+        int i = 0, j = 0, n = 0;
+        while (i < baseMatches.length || j < ordinals.length) {
+            if (j == ordinals.length || (i < baseMatches.length && baseMatches[i] < ordinals[j])) {
+                out[n++] = baseMatches[i++];
+                continue;
+            }
+            if (i < baseMatches.length && baseMatches[i] == ordinals[j]) {
+                // The store's copy of this movie is stale
+                i++;
+            }
+            if (movies[j] != null
+                    && (lowerName == null || lowerNames[j].contains(lowerName))
+                    && (lowerGenre == null || lowerGenres[j].contains(lowerGenre))) {
+                out[n++] = ordinals[j];
+            }
+            j++;
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Like {@link #merge(int[], String, String)}, with live delta movies kept when they
+     * match {@code filter}.
+     */
+    int[] merge(int[] baseMatches, MovieFilter filter) {
+        int[] out = new int[baseMatches.length + ordinals.length];
+        int i = 0, j = 0, n = 0;
+        while (i < baseMatches.length || j < ordinals.length) {
+            if (j == ordinals.length || (i < baseMatches.length && baseMatches[i] < ordinals[j])) {
+                out[n++] = baseMatches[i++];
+                continue;
+            }
+            if (i < baseMatches.length && baseMatches[i] == ordinals[j]) {
+                i++;
+            }
+            if (movies[j] != null && filter.matches(movies[j])) {
+                out[n++] = ordinals[j];
+            }
+            j++;
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /**
+     * {@code count} live ordinals in catalog order, starting at live position
+     * {@code position}: the store's rows minus deleted ones, then the added movies.
+     */
+    int[] liveOrdinals(int position, int count) {
+        if (count <= 0) {
+            return NO_ORDINALS;
+        }
+        int[] out = new int[count];
+        int n = 0;
+        int liveBase = baseSize - deleted.length;
+        if (position < liveBase) {
+            // Every deleted ordinal at or before the candidate pushes it one further
+            int ordinal = position;
+            int d = 0;
+            while (d < deleted.length && deleted[d] <= ordinal) {
+                ordinal++;
+                d++;
+            }
+            while (n < count && ordinal < baseSize) {
+                if (d < deleted.length && deleted[d] == ordinal) {
+                    d++;
+                } else {
+                    out[n++] = ordinal;
+                }
+                ordinal++;
+            }
+        }
+        for (int a = firstAdded + Math.max(0, position + n - liveBase); n < count && a < ordinals.length; a++) {
+            out[n++] = ordinals[a];
+        }
+        return n == count ? out : Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Start a copy of this delta to change. The store is needed to resolve ids of movies
+     * the delta does not mention yet.
+     */
+    Editor edit(MovieStore store) {
+        return new Editor(store);
+    }
+
+    /**
+     * Mutable copy of a delta, private to the single writer that builds the next catalog.
+     */
+    final class Editor {
+        private final MovieStore store;
+        private final TreeMap<Integer, Movie> entries = new TreeMap<>();
+        private final Map<Long, Integer> added;
+        private int next;
+
+        private Editor(MovieStore store) {
+            this.store = store;
+            for (int i = 0; i < ordinals.length; i++) {
+                entries.put(ordinals[i], movies[i]);
+            }
+            this.added = new HashMap<>(addedIds);
+            this.next = nextOrdinal;
+        }
+
+        /**
+         * The live movie with this id, or {@code null}.
+         */
+        Movie get(long id) {
+            int ordinal = store.ordinalOf(id);
+            if (ordinal >= 0) {
+                return entries.containsKey(ordinal) ? entries.get(ordinal) : store.get(ordinal);
+            }
+            Integer addedOrdinal = added.get(id);
+            return addedOrdinal != null ? entries.get(addedOrdinal) : null;
+        }
+
+        /**
+         * Add or replace the movie with {@code movie}'s id.
+         *
+         * @return the movie it replaced, or {@code null} if the id was not live
+         */
+        Movie put(Movie movie) {
+            Movie previous = get(movie.getId());
+            int ordinal = store.ordinalOf(movie.getId());
+            if (ordinal < 0) {
+                Integer addedOrdinal = added.get(movie.getId());
+                if (addedOrdinal == null) {
+                    addedOrdinal = next++;
+                    added.put(movie.getId(), addedOrdinal);
+                }
+                ordinal = addedOrdinal;
+            }
+            entries.put(ordinal, movie);
+            return previous;
+        }
+
+        /**
+         * @return the deleted movie, or {@code null} if the id was not live
+         */
+        Movie remove(long id) {
+            Movie previous = get(id);
+            if (previous == null) {
+                return null;
+            }
+            int ordinal = store.ordinalOf(id);
+            if (ordinal >= 0) {
+                entries.put(ordinal, null);
+            } else {
+                entries.remove(added.remove(id));
+            }
+            return previous;
+        }
+
+        CatalogDelta build() {
+            return new CatalogDelta(baseSize, entries, Collections.unmodifiableMap(added), next);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@code /actuator/catalog}: {@code GET} describes the loaded catalog and reviews,
+ * {@code POST} reloads both from their sources. Only reachable over HTTP once
+ * {@code catalog} is added to {@code management.endpoints.web.exposure.include}.
+ */
+@Component
+@Endpoint(id = "catalog")
+public class CatalogEndpoint {
+
+    private final MovieService movieService;
+    private final ReviewService reviewService;
+
+    public CatalogEndpoint(MovieService movieService, ReviewService reviewService) {
+        this.movieService = movieService;
+        this.reviewService = reviewService;
+    }
+
+    @ReadOperation
+    public Map<String, Object> catalog() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("movies", movieService.getCatalogSize());
+        body.put("version", Long.toHexString(movieService.getCatalogVersion()));
+        body.put("lastModified", movieService.getCatalogLastModified());
+        body.put("reviewsVersion", Long.toHexString(reviewService.getReviewsVersion()));
+        body.put("reviewsLastModified", reviewService.getReviewsLastModified());
+        return body;
+    }
+
+    /**
+     * Reload the movies, then the reviews. A failed reload keeps the current catalog or
+     * reviews and is reported in the response.
+     */
+    @WriteOperation
+    public Map<String, Object> reload() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        try {
+            body.put("changed", movieService.reload());
+        } catch (IOException | IllegalStateException e) {
+            body.put("error", e.getMessage());
+        }
+        try {
+            reviewService.reload();
+        } catch (IOException e) {
+            body.put("reviewsError", e.getMessage());
+        }
+        body.putAll(catalog());
+        return body;
+    }
+}
@@ -0,0 +1,82 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Conditional GET support for catalog pages. The catalog only changes when it is
+ * reloaded or edited, so a page is identified by the catalog version (and review version
+ * for pages that show reviews), the release, the path and the request parameters.
+ * Requests whose {@code If-None-Match} or {@code If-Modified-Since} still match are
+ * answered with {@code 304 Not Modified} here, before the controller searches or renders
+ * anything.
+ *
+ * <p>Every response also gets the {@code Cache-Control} header configured for its
+ * endpoint, so a CDN in front of the application can serve repeat requests itself.</p>
+ */
+class CatalogHttpCacheInterceptor implements HandlerInterceptor {
+    private static final Logger logger = LogManager.getLogger(CatalogHttpCacheInterceptor.class);
+
+    private final MovieService movieService;
+    private final ReviewService reviewService;
+    private final boolean includesReviews;
+    private final String cacheControl;
+    private final long releaseHash;
+
+    /**
+     * @param includesReviews whether the endpoint's response shows reviews, so that
+     *                        reloading reviews invalidates it
+     * @param cacheControl    {@code Cache-Control} value, or empty to send none
+     * @param release         identifies the deployed templates and code
+     */
+    CatalogHttpCacheInterceptor(MovieService movieService, ReviewService reviewService,
+                                boolean includesReviews, String cacheControl, String release) {
+        this.movieService = movieService;
+        this.reviewService = reviewService;
+        this.includesReviews = includesReviews;
+        this.cacheControl = cacheControl;
+        this.releaseHash = CacheKeys.mix(CacheKeys.FNV_OFFSET, release);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            // Writes to the same paths are never cached
+            return true;
+        }
+        if (cacheControl != null && !cacheControl.trim().isEmpty()) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.trim());
+        }
+        String etag = etag(request);
+        long lastModified = lastModified();
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            logger.debug("Not modified: {} {}", request.getRequestURI(), etag);
+            return false;
+        }
+        return true;
+    }
+
+    String etag(HttpServletRequest request) {
+        long hash = CacheKeys.mix(releaseHash, movieService.getCatalogVersion());
+        if (includesReviews) {
+            hash = CacheKeys.mix(hash, reviewService.getReviewsVersion());
+        }
+        hash = CacheKeys.mix(hash, request.getRequestURI());
+        hash = CacheKeys.mixParameters(hash, request.getParameterMap());
+        return '"' + Long.toHexString(hash) + '"';
+    }
+
+    long lastModified() {
+        long lastModified = movieService.getCatalogLastModified();
+        if (includesReviews) {
+            lastModified = Math.max(lastModified, reviewService.getReviewsLastModified());
+        }
+        return lastModified;
+    }
+}
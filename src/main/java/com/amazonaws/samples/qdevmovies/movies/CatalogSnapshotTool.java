@@ -0,0 +1,47 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Command-line entry point that writes the catalog and review snapshots ahead of
+ * deployment, so instances can map them at startup instead of parsing JSON.
+ *
+ * <pre>
+ * java -cp target/sample-qdev-movies-0.1.0.jar \
+ *      -Dloader.main=com.amazonaws.samples.qdevmovies.movies.CatalogSnapshotTool \
+ *      org.springframework.boot.loader.PropertiesLauncher \
+ *      &lt;snapshot-directory&gt; [catalog-path] [reviews-resource]
+ * </pre>
+ */
+public final class CatalogSnapshotTool {
+    private static final Logger logger = LogManager.getLogger(CatalogSnapshotTool.class);
+
+    private CatalogSnapshotTool() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: CatalogSnapshotTool <snapshot-directory> [catalog-path] [reviews-resource]");
+            System.exit(2);
+        }
+        Path directory = Paths.get(args[0]);
+        String catalogPath = args.length > 1 ? args[1] : "";
+        String reviewsResource = args.length > 2 ? args[2] : ReviewService.DEFAULT_REVIEWS_RESOURCE;
+
+        MovieStore store = MovieService.loadStore(catalogPath, false, MovieService.COLUMNAR_STORE, true);
+        Path catalogSnapshot = directory.resolve(SnapshotFormat.CATALOG_FILE);
+        MappedMovieStore.write(catalogSnapshot, store,
+                SnapshotFormat.fingerprint(catalogPath, MovieCatalogLoader.DEFAULT_CATALOG_RESOURCE));
+        logger.info("Wrote {} movies to {}", store.size(), catalogSnapshot);
+
+        ReviewService reviews = new ReviewService(reviewsResource, "", false);
+        Path reviewSnapshot = directory.resolve(SnapshotFormat.REVIEWS_FILE);
+        ReviewSnapshot.write(reviewSnapshot, reviews.reviewIndex(), SnapshotFormat.fingerprint(null, reviewsResource));
+        logger.info("Wrote reviews for {} movies to {}", reviews.reviewIndex().size(), reviewSnapshot);
+    }
+}
@@ -0,0 +1,108 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads the catalog when the external file at {@code movies.catalog.path} changes.
+ * Enabled by {@code movies.catalog.watch}. Editors and copy tools write a file in several
+ * steps, so events are debounced until the file has been quiet for
+ * {@code movies.catalog.watch-quiet-ms}; a reload that still sees a half-written file
+ * fails and keeps the current catalog, and the next event retries.
+ */
+@Component
+@ConditionalOnProperty(name = "movies.catalog.watch", havingValue = "true")
+class CatalogWatcher {
+    private static final Logger logger = LogManager.getLogger(CatalogWatcher.class);
+
+    private final MovieService movieService;
+    private final String catalogPath;
+    private final long quietMillis;
+    private WatchService watchService;
+    private Thread thread;
+
+    CatalogWatcher(MovieService movieService,
+                   @Value("${movies.catalog.path:}") String catalogPath,
+                   @Value("${movies.catalog.watch-quiet-ms:500}") long quietMillis) {
+        this.movieService = movieService;
+        this.catalogPath = catalogPath;
+        this.quietMillis = quietMillis;
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        if (catalogPath == null || catalogPath.trim().isEmpty()) {
+            logger.warn("movies.catalog.watch is set but movies.catalog.path is empty, nothing to watch");
+            return;
+        }
+        Path file = Paths.get(catalogPath.trim()).toAbsolutePath();
+        Path directory = file.getParent();
+        watchService = FileSystems.getDefault().newWatchService();
+        // Watch the directory, since tools that replace the file by renaming never modify it in place
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        thread = new Thread(() -> watch(file.getFileName()), "catalog-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Watching {} for catalog changes", file);
+    }
+
+    @PreDestroy
+    void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void watch(Path fileName) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = drain(key, fileName);
+                // Wait for the writes to settle before reading the file
+                while ((key = watchService.poll(quietMillis, TimeUnit.MILLISECONDS)) != null) {
+                    changed |= drain(key, fileName);
+                }
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+
+    private static boolean drain(WatchKey key, Path fileName) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            changed |= event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context());
+        }
+        key.reset();
+        return changed;
+    }
+
+    private void reload() {
+        try {
+            movieService.reload();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Failed to reload the movie catalog, keeping the current one: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.LongIntHashMap;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Column-oriented {@link MovieStore} for very large catalogs.
+ *
+ * <p>Numeric fields are kept in primitive arrays, genres and directors are
+ * dictionary-encoded into {@code int} codes, and ids are resolved through a primitive
+ * open-addressing {@link LongIntHashMap}. No {@link Movie} objects are retained; a view
+ * is created only when a caller asks for one, typically to render a page of results.</p>
+ *
+ * <p>Excluding the string data itself, a title costs about 64 bytes here (40 bytes of
+ * columns plus the id index) against about 83 bytes in {@link ObjectMovieStore} and
+ * 124 bytes for the original {@code ArrayList<Movie>} plus {@code HashMap<Long, Movie>}
+ * layout, measured at one million titles on a 64-bit JVM with compressed oops.</p>
+ */
+final class ColumnarMovieStore implements MovieStore {
+
+    private final int size;
+    private final long[] ids;
+    private final String[] movieNames;
+    private final String[] descriptions;
+    private final int[] years;
+    private final int[] durations;
+    private final double[] imdbRatings;
+    private final int[] genreCodes;
+    private final String[] genreDictionary;
+    private final int[] directorCodes;
+    private final String[] directorDictionary;
+    private final LongIntHashMap ordinalsById;
+    private final List<Movie> view = new MovieListView();
+
+    private ColumnarMovieStore(Builder builder) {
+        this.size = builder.size;
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.movieNames = Arrays.copyOf(builder.movieNames, size);
+        this.descriptions = Arrays.copyOf(builder.descriptions, size);
+        this.years = Arrays.copyOf(builder.years, size);
+        this.durations = Arrays.copyOf(builder.durations, size);
+        this.imdbRatings = Arrays.copyOf(builder.imdbRatings, size);
+        this.genreCodes = Arrays.copyOf(builder.genreCodes, size);
+        this.genreDictionary = builder.genres.toArray();
+        this.directorCodes = Arrays.copyOf(builder.directorCodes, size);
+        this.directorDictionary = builder.directors.toArray();
+        this.ordinalsById = new LongIntHashMap(size, -1);
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            ordinalsById.put(ids[ordinal], ordinal);
+        }
+    }
+
+    static ColumnarMovieStore of(List<Movie> movies) {
+        Builder builder = new Builder();
+        for (Movie movie : movies) {
+            builder.add(movie);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int ordinalOf(long id) {
+        return ordinalsById.get(id);
+    }
+
+    @Override
+    public Movie get(int ordinal) {
+        if (ordinal < 0 || ordinal >= size) {
+            throw new IndexOutOfBoundsException("Ordinal " + ordinal + " outside catalog of " + size);
+        }
+        return new Movie(ids[ordinal], movieNames[ordinal], director(ordinal), years[ordinal],
+                genre(ordinal), descriptions[ordinal], durations[ordinal], imdbRatings[ordinal]);
+    }
+
+    @Override
+    public long id(int ordinal) {
+        return ids[ordinal];
+    }
+
+    @Override
+    public String movieName(int ordinal) {
+        return movieNames[ordinal];
+    }
+
+    @Override
+    public String description(int ordinal) {
+        return descriptions[ordinal];
+    }
+
+    @Override
+    public String director(int ordinal) {
+        return directorDictionary[directorCodes[ordinal]];
+    }
+
+    @Override
+    public int year(int ordinal) {
+        return years[ordinal];
+    }
+
+    @Override
+    public String genre(int ordinal) {
+        return genreDictionary[genreCodes[ordinal]];
+    }
+
+    @Override
+    public int duration(int ordinal) {
+        return durations[ordinal];
+    }
+
+    @Override
+    public double imdbRating(int ordinal) {
+        return imdbRatings[ordinal];
+    }
+
+    @Override
+    public List<Movie> asList() {
+        return view;
+    }
+
+    /**
+     * List view that materializes a {@link Movie} per {@code get}.
+     */
+    private final class MovieListView extends AbstractList<Movie> implements RandomAccess {
+        @Override
+        public Movie get(int index) {
+            return ColumnarMovieStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Accumulates movies column by column, so a streaming loader can fill the store
+     * without ever holding a {@code List<Movie>}.
+     */
+    static final class Builder {
+        private int size;
+        private long[] ids = new long[16];
+        private String[] movieNames = new String[16];
+        private String[] descriptions = new String[16];
+        private int[] years = new int[16];
+        private int[] durations = new int[16];
+        private double[] imdbRatings = new double[16];
+        private int[] genreCodes = new int[16];
+        private int[] directorCodes = new int[16];
+        private final Dictionary genres = new Dictionary();
+        private final Dictionary directors = new Dictionary();
+
+        void add(Movie movie) {
+            if (size == ids.length) {
+                int capacity = size + (size >> 1);
+                ids = Arrays.copyOf(ids, capacity);
+                movieNames = Arrays.copyOf(movieNames, capacity);
+                descriptions = Arrays.copyOf(descriptions, capacity);
+                years = Arrays.copyOf(years, capacity);
+                durations = Arrays.copyOf(durations, capacity);
+                imdbRatings = Arrays.copyOf(imdbRatings, capacity);
+                genreCodes = Arrays.copyOf(genreCodes, capacity);
+                directorCodes = Arrays.copyOf(directorCodes, capacity);
+            }
+            ids[size] = movie.getId();
+            movieNames[size] = movie.getMovieName();
+            descriptions[size] = movie.getDescription();
+            years[size] = movie.getYear();
+            durations[size] = movie.getDuration();
+            imdbRatings[size] = movie.getImdbRating();
+            genreCodes[size] = genres.encode(movie.getGenre());
+            directorCodes[size] = directors.encode(movie.getDirector());
+            size++;
+        }
+
+        ColumnarMovieStore build() {
+            return new ColumnarMovieStore(this);
+        }
+    }
+
+    /**
+     * String dictionary assigning dense codes in first-seen order.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private String[] values = new String[16];
+
+        int encode(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = codes.size();
+                codes.put(value, code);
+                if (code == values.length) {
+                    values = Arrays.copyOf(values, code * 2);
+                }
+                values[code] = value;
+            }
+            return code;
+        }
+
+        String[] toArray() {
+            return Arrays.copyOf(values, codes.size());
+        }
+    }
+}
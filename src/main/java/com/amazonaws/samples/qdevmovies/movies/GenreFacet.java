@@ -0,0 +1,17 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * A single genre with the number of catalog movies tagged with it.
+ */
+public class GenreFacet {
+    private final String name;
+    private final int count;
+
+    public GenreFacet(String name, int count) {
+        this.name = name;
+        this.count = count;
+    }
+
+    public String getName() { return name; }
+    public int getCount() { return count; }
+}
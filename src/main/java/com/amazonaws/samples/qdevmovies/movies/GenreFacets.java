@@ -0,0 +1,113 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Genre facets computed once per catalog and adjusted as movies change. Compound genres
+ * such as {@code Crime/Drama} are split into their component genres, and each component
+ * counts every movie that carries it, so {@code Crime/Drama} adds one to both
+ * {@code Crime} and {@code Drama}.
+ */
+final class GenreFacets {
+
+    static final String GENRE_SEPARATOR = "/";
+
+    private final Map<String, Integer> counts;
+    private final List<GenreFacet> facets;
+    private final List<String> genres;
+
+    GenreFacets(MovieStore store) {
+        this(count(store));
+    }
+
+    private GenreFacets(Map<String, Integer> counts) {
+        this.counts = counts;
+        List<GenreFacet> facetList = new ArrayList<>(counts.size());
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            facetList.add(new GenreFacet(entry.getKey(), entry.getValue()));
+        }
+        this.facets = Collections.unmodifiableList(facetList);
+        this.genres = Collections.unmodifiableList(new ArrayList<>(counts.keySet()));
+    }
+
+    /**
+     * Facets from the number of movies with each raw, possibly compound, genre.
+     */
+    static GenreFacets of(Map<String, Integer> rawCounts) {
+        return new GenreFacets(components(rawCounts));
+    }
+
+    private static Map<String, Integer> count(MovieStore store) {
+        // Count distinct raw genres first; there are far fewer of them than movies
+        Map<String, Integer> rawCounts = new HashMap<>();
+        for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+            rawCounts.merge(store.genre(ordinal), 1, Integer::sum);
+        }
+        return components(rawCounts);
+    }
+
+    private static Map<String, Integer> components(Map<String, Integer> rawCounts) {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (Map.Entry<String, Integer> entry : rawCounts.entrySet()) {
+            for (String component : split(entry.getKey())) {
+                counts.merge(component, entry.getValue(), Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Facets after adding {@code rawChanges} to the count of each raw genre, e.g.
+     * {@code -1} for the genre of a deleted movie. Costs time in the number of distinct
+     * genres, never the number of movies; genres whose count drops to zero disappear.
+     */
+    GenreFacets adjust(Map<String, Integer> rawChanges) {
+        Map<String, Integer> adjusted = new TreeMap<>(counts);
+        for (Map.Entry<String, Integer> entry : rawChanges.entrySet()) {
+            if (entry.getValue() == 0) {
+                continue;
+            }
+            for (String component : split(entry.getKey())) {
+                if (adjusted.merge(component, entry.getValue(), Integer::sum) <= 0) {
+                    adjusted.remove(component);
+                }
+            }
+        }
+        return new GenreFacets(adjusted);
+    }
+
+    /**
+     * Facets sorted by genre name.
+     */
+    List<GenreFacet> facets() {
+        return facets;
+    }
+
+    /**
+     * Component genre names sorted alphabetically.
+     */
+    List<String> genres() {
+        return genres;
+    }
+
+    /**
+     * Split a possibly compound genre into its distinct, trimmed components.
+     */
+    static Set<String> split(String genre) {
+        Set<String> components = new LinkedHashSet<>();
+        for (String part : genre.split(GENRE_SEPARATOR)) {
+            String component = part.trim();
+            if (!component.isEmpty()) {
+                components.add(component);
+            }
+        }
+        return components;
+    }
+}
@@ -0,0 +1,70 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers {@link CatalogHttpCacheInterceptor} for the catalog, search and details
+ * endpoints, HTML and JSON alike, each with its own {@code Cache-Control} header.
+ */
+@Configuration
+public class HttpCacheConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Value("${movies.http-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${movies.http-cache.release:}")
+    private String release;
+
+    @Value("${movies.http-cache.catalog:public, max-age=300}")
+    private String catalogCacheControl;
+
+    @Value("${movies.http-cache.search:public, max-age=60}")
+    private String searchCacheControl;
+
+    @Value("${movies.http-cache.details:public, max-age=300}")
+    private String detailsCacheControl;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        String deployed = release();
+        // Catalog and search pages show review summaries and can sort by review score
+        registry.addInterceptor(interceptor(true, catalogCacheControl, deployed))
+                .addPathPatterns("/movies", "/api/movies");
+        registry.addInterceptor(interceptor(true, searchCacheControl, deployed))
+                .addPathPatterns("/movies/search", "/api/movies/search");
+        registry.addInterceptor(interceptor(false, searchCacheControl, deployed))
+                .addPathPatterns("/api/movies/suggest", "/api/movies/facets");
+        registry.addInterceptor(interceptor(true, detailsCacheControl, deployed))
+                .addPathPatterns("/movies/*/details", "/api/movies/*", "/api/movies/*/reviews")
+                .excludePathPatterns("/api/movies/search", "/api/movies/suggest", "/api/movies/facets");
+    }
+
+    private CatalogHttpCacheInterceptor interceptor(boolean includesReviews, String cacheControl, String deployed) {
+        return new CatalogHttpCacheInterceptor(movieService, reviewService, includesReviews, cacheControl, deployed);
+    }
+
+    /**
+     * The configured release, else the jar's implementation version. Either changes
+     * between deploys, so clients don't keep pages rendered by old templates.
+     */
+    private String release() {
+        if (release != null && !release.trim().isEmpty()) {
+            return release.trim();
+        }
+        String version = MoviesApplication.class.getPackage().getImplementationVersion();
+        return version != null ? version : "dev";
+    }
+}
@@ -0,0 +1,246 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * {@link MovieStore} that reads movies straight out of a memory-mapped catalog snapshot.
+ *
+ * <p>Opening the store maps the file and decodes only the two small genre and director
+ * dictionaries; ids, years, durations and ratings are read from the mapping on every
+ * access, and names and descriptions are decoded only when asked for. The catalog data
+ * lives in the page cache rather than on the Java heap.</p>
+ *
+ * <p>Payload layout after the {@link SnapshotFormat} header:</p>
+ * <pre>
+ * section 0  genre dictionary      int count, strings
+ * section 1  director dictionary   int count, strings
+ * section 2  records               count x 48 bytes:
+ *                                  long id, int year, int duration, double rating,
+ *                                  long name offset, long description offset,
+ *                                  int genre code, int director code
+ * section 3  id index              count x (long id, int ordinal), sorted by id
+ * section 4  string heap           names and descriptions
+ * </pre>
+ */
+final class MappedMovieStore implements MovieStore {
+
+    static final int RECORD_SIZE = 48;
+    static final int ID_ENTRY_SIZE = 12;
+
+    private final MappedRegion region;
+    private final int size;
+    private final long recordsOffset;
+    private final long idIndexOffset;
+    private final long stringsOffset;
+    private final String[] genreDictionary;
+    private final String[] directorDictionary;
+    private final List<Movie> view = new MovieListView();
+
+    private MappedMovieStore(MappedRegion region) {
+        this.region = region;
+        this.size = region.getInt(40);
+        this.recordsOffset = section(2);
+        this.idIndexOffset = section(3);
+        this.stringsOffset = section(4);
+        this.genreDictionary = readDictionary(section(0));
+        this.directorDictionary = readDictionary(section(1));
+    }
+
+    /**
+     * Map a catalog snapshot, or return {@code null} when it is missing, stale or invalid.
+     */
+    static MappedMovieStore open(Path file, long sourceFingerprint) {
+        MappedRegion region = SnapshotFormat.open(file, SnapshotFormat.KIND_CATALOG, sourceFingerprint);
+        return region != null ? new MappedMovieStore(region) : null;
+    }
+
+    /**
+     * Write {@code store} as a catalog snapshot for the JSON source with the given fingerprint.
+     */
+    static void write(Path file, MovieStore store, long sourceFingerprint) throws IOException {
+        int size = store.size();
+        Map<String, Integer> genres = new HashMap<>();
+        Map<String, Integer> directors = new HashMap<>();
+        int[] genreCodes = new int[size];
+        int[] directorCodes = new int[size];
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            genreCodes[ordinal] = genres.computeIfAbsent(store.genre(ordinal), k -> genres.size());
+            directorCodes[ordinal] = directors.computeIfAbsent(store.director(ordinal), k -> directors.size());
+        }
+
+        SnapshotFormat.write(file, SnapshotFormat.KIND_CATALOG, sourceFingerprint, size, (out, position, sections) -> {
+            sections[0] = position.position();
+            writeDictionary(out, genres);
+            sections[1] = position.position();
+            writeDictionary(out, directors);
+
+            sections[2] = position.position();
+            long stringOffset = 0;
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                String name = store.movieName(ordinal);
+                String description = store.description(ordinal);
+                out.writeLong(store.id(ordinal));
+                out.writeInt(store.year(ordinal));
+                out.writeInt(store.duration(ordinal));
+                out.writeDouble(store.imdbRating(ordinal));
+                out.writeLong(stringOffset);
+                stringOffset += SnapshotFormat.encodedLength(name);
+                out.writeLong(stringOffset);
+                stringOffset += SnapshotFormat.encodedLength(description);
+                out.writeInt(genreCodes[ordinal]);
+                out.writeInt(directorCodes[ordinal]);
+            }
+
+            sections[3] = position.position();
+            long[] sortedIds = new long[size];
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                sortedIds[ordinal] = store.id(ordinal);
+            }
+            Arrays.sort(sortedIds);
+            for (long id : sortedIds) {
+                out.writeLong(id);
+                out.writeInt(store.ordinalOf(id));
+            }
+
+            sections[4] = position.position();
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                SnapshotFormat.writeString(out, store.movieName(ordinal));
+                SnapshotFormat.writeString(out, store.description(ordinal));
+            }
+        });
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Binary search over the sorted id index in the mapping.
+     */
+    @Override
+    public int ordinalOf(long id) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long entry = idIndexOffset + (long) mid * ID_ENTRY_SIZE;
+            long midId = region.getLong(entry);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return region.getInt(entry + Long.BYTES);
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public Movie get(int ordinal) {
+        long record = record(ordinal);
+        return new Movie(region.getLong(record), movieName(ordinal), director(ordinal), year(ordinal),
+                genre(ordinal), description(ordinal), duration(ordinal), imdbRating(ordinal));
+    }
+
+    @Override
+    public long id(int ordinal) {
+        return region.getLong(record(ordinal));
+    }
+
+    @Override
+    public String movieName(int ordinal) {
+        return region.getString(stringsOffset + region.getLong(record(ordinal) + 24));
+    }
+
+    @Override
+    public String description(int ordinal) {
+        return region.getString(stringsOffset + region.getLong(record(ordinal) + 32));
+    }
+
+    @Override
+    public String director(int ordinal) {
+        return directorDictionary[region.getInt(record(ordinal) + 44)];
+    }
+
+    @Override
+    public int year(int ordinal) {
+        return region.getInt(record(ordinal) + 8);
+    }
+
+    @Override
+    public String genre(int ordinal) {
+        return genreDictionary[region.getInt(record(ordinal) + 40)];
+    }
+
+    @Override
+    public int duration(int ordinal) {
+        return region.getInt(record(ordinal) + 12);
+    }
+
+    @Override
+    public double imdbRating(int ordinal) {
+        return region.getDouble(record(ordinal) + 16);
+    }
+
+    @Override
+    public List<Movie> asList() {
+        return view;
+    }
+
+    private long record(int ordinal) {
+        if (ordinal < 0 || ordinal >= size) {
+            throw new IndexOutOfBoundsException("Ordinal " + ordinal + " outside catalog of " + size);
+        }
+        return recordsOffset + (long) ordinal * RECORD_SIZE;
+    }
+
+    private long section(int index) {
+        return region.getLong(SnapshotFormat.SECTION_OFFSETS + index * Long.BYTES);
+    }
+
+    private String[] readDictionary(long offset) {
+        String[] values = new String[region.getInt(offset)];
+        long position = offset + Integer.BYTES;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = region.getString(position);
+            position += Integer.BYTES + region.getInt(position);
+        }
+        return values;
+    }
+
+    private static void writeDictionary(DataOutputStream out, Map<String, Integer> codes) throws IOException {
+        String[] values = new String[codes.size()];
+        for (Map.Entry<String, Integer> entry : codes.entrySet()) {
+            values[entry.getValue()] = entry.getKey();
+        }
+        out.writeInt(values.length);
+        for (String value : values) {
+            SnapshotFormat.writeString(out, value);
+        }
+    }
+
+    /**
+     * List view that materializes a {@link Movie} per {@code get}.
+     */
+    private final class MovieListView extends AbstractList<Movie> implements RandomAccess {
+        @Override
+        public Movie get(int index) {
+            return MappedMovieStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * Read-only view of a memory-mapped file addressed by absolute {@code long} offsets.
+ *
+ * <p>A single {@link MappedByteBuffer} cannot exceed 2 GB, so the file is mapped as
+ * consecutive chunks that overlap by {@link #MAX_VALUE_BYTES}. Any value that starts in a
+ * chunk therefore lies entirely inside that chunk's mapping, and reads never have to
+ * stitch bytes from two buffers. The mappings stay valid after the channel is closed.</p>
+ */
+final class MappedRegion {
+
+    static final int CHUNK_SHIFT = 30;
+    static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    static final int MAX_VALUE_BYTES = 1 << 20;
+
+    private final ByteBuffer[] chunks;
+    private final long size;
+
+    MappedRegion(FileChannel channel, long size) throws IOException {
+        this.size = size;
+        int count = (int) ((size + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+        this.chunks = new ByteBuffer[Math.max(1, count)];
+        for (int i = 0; i < chunks.length; i++) {
+            long start = (long) i << CHUNK_SHIFT;
+            long length = Math.min(CHUNK_SIZE + MAX_VALUE_BYTES, size - start);
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0, length));
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    int getInt(long position) {
+        return chunk(position).getInt(offset(position));
+    }
+
+    long getLong(long position) {
+        return chunk(position).getLong(offset(position));
+    }
+
+    double getDouble(long position) {
+        return chunk(position).getDouble(offset(position));
+    }
+
+    /**
+     * Decode a length-prefixed UTF-8 string.
+     */
+    String getString(long position) {
+        ByteBuffer chunk = chunk(position);
+        int offset = offset(position);
+        int length = chunk.getInt(offset);
+        byte[] bytes = new byte[length];
+        ByteBuffer slice = chunk.duplicate();
+        slice.position(offset + Integer.BYTES);
+        slice.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * CRC32 of {@code length} bytes starting at {@code position}.
+     */
+    long crc32(long position, long length) {
+        CRC32 crc = new CRC32();
+        long end = position + length;
+        while (position < end) {
+            ByteBuffer slice = chunk(position).duplicate();
+            int offset = offset(position);
+            int count = (int) Math.min(CHUNK_SIZE - offset, end - position);
+            slice.position(offset);
+            slice.limit(offset + count);
+            crc.update(slice);
+            position += count;
+        }
+        return crc.getValue();
+    }
+
+    private ByteBuffer chunk(long position) {
+        return chunks[(int) (position >>> CHUNK_SHIFT)];
+    }
+
+    private static int offset(long position) {
+        return (int) (position & (CHUNK_SIZE - 1));
+    }
+}
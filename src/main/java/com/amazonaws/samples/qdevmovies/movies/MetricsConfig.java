@@ -0,0 +1,24 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers {@link ViewRenderMetricsInterceptor} for the HTML pages. Search, catalog and
+ * review meters are bound by {@link MovieService} and {@link ReviewService} themselves.
+ */
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ViewRenderMetricsInterceptor(meterRegistry))
+                .addPathPatterns("/movies", "/movies/search", "/movies/*/details");
+    }
+}
@@ -0,0 +1,266 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link OrdinalBitmap} posting lists for the filterable columns of a store, so that
+ * criteria combine by set algebra and count without materializing movies.
+ *
+ * <p>Genres and directors get one bitmap per distinct value. Year, duration and rating get
+ * bucket bitmaps, built from the presorted orders of {@link MovieSortIndex}. Everything is
+ * built with the index, so a filter reads it without a lock. A bucket never splits a
+ * value, and buckets hold at least {@code size / MAX_BUCKETS} movies, so columns with few
+ * distinct values such as years and ratings get one exact bucket per value, and a range
+ * is the union of the buckets it covers. Only a bucket holding values on both sides of a
+ * bound needs its movies checked one by one.</p>
+ */
+final class MovieBitmapIndex {
+
+    static final int MAX_BUCKETS = 1024;
+
+    private final MovieStore store;
+    private final MovieSortIndex sortIndex;
+    private final int maxBuckets;
+    private final String[] genres;
+    private final String[] lowerGenres;
+    private final OrdinalBitmap[] genreBitmaps;
+    private final Map<String, OrdinalBitmap> directors;
+    /** Only written by the constructor; the final field publishes them to every reader. */
+    private final Buckets[] buckets = new Buckets[MovieSort.values().length];
+
+    MovieBitmapIndex(MovieStore store, MovieSortIndex sortIndex) {
+        this(store, sortIndex, MAX_BUCKETS);
+    }
+
+    MovieBitmapIndex(MovieStore store, MovieSortIndex sortIndex, int maxBuckets) {
+        this.store = store;
+        this.sortIndex = sortIndex;
+        this.maxBuckets = maxBuckets;
+        Map<String, MovieSearchIndex.IntList> genreLists = new LinkedHashMap<>();
+        Map<String, MovieSearchIndex.IntList> directorLists = new HashMap<>();
+        for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+            genreLists.computeIfAbsent(store.genre(ordinal), k -> new MovieSearchIndex.IntList()).add(ordinal);
+            directorLists.computeIfAbsent(store.director(ordinal).toLowerCase(), k -> new MovieSearchIndex.IntList()).add(ordinal);
+        }
+        this.genres = genreLists.keySet().toArray(new String[0]);
+        this.lowerGenres = new String[genres.length];
+        this.genreBitmaps = new OrdinalBitmap[genres.length];
+        for (int g = 0; g < genres.length; g++) {
+            lowerGenres[g] = genres[g].toLowerCase();
+            genreBitmaps[g] = OrdinalBitmap.of(genreLists.get(genres[g]).toArray());
+        }
+        this.directors = new HashMap<>(directorLists.size() * 2);
+        for (Map.Entry<String, MovieSearchIndex.IntList> entry : directorLists.entrySet()) {
+            directors.put(entry.getKey(), OrdinalBitmap.of(entry.getValue().toArray()));
+        }
+        for (MovieSort column : new MovieSort[] {MovieSort.YEAR, MovieSort.DURATION, MovieSort.RATING}) {
+            buckets[column.ordinal()] = new Buckets(column);
+        }
+    }
+
+    /**
+     * Movies whose lowercase director equals {@code lowerDirector}.
+     */
+    OrdinalBitmap director(String lowerDirector) {
+        OrdinalBitmap bitmap = directors.get(lowerDirector);
+        return bitmap != null ? bitmap : OrdinalBitmap.EMPTY;
+    }
+
+    /**
+     * Movies whose lowercase genre contains {@code lowerGenre}: the union of every
+     * matching distinct genre.
+     */
+    OrdinalBitmap genre(String lowerGenre) {
+        List<OrdinalBitmap> matching = new ArrayList<>();
+        for (int g = 0; g < genres.length; g++) {
+            if (lowerGenres[g].contains(lowerGenre)) {
+                matching.add(genreBitmaps[g]);
+            }
+        }
+        return OrdinalBitmap.or(matching);
+    }
+
+    /**
+     * Size of {@link #genre(String)}, without the union.
+     */
+    int genreCount(String lowerGenre) {
+        int count = 0;
+        for (int g = 0; g < genres.length; g++) {
+            if (lowerGenres[g].contains(lowerGenre)) {
+                count += genreBitmaps[g].cardinality();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * How many of {@code matches} carry each distinct genre, with genres that have none
+     * left out. Each count is one bitmap intersection count.
+     */
+    Map<String, Integer> genreCounts(OrdinalBitmap matches) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int g = 0; g < genres.length; g++) {
+            int count = matches.andCardinality(genreBitmaps[g]);
+            if (count > 0) {
+                counts.put(genres[g], count);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Movies whose {@code column} value lies in {@code [min, max]}.
+     *
+     * @throws IllegalArgumentException unless the column is year, duration or rating
+     */
+    Range range(MovieSort column, double min, double max) {
+        Buckets columnBuckets = buckets[column.ordinal()];
+        if (columnBuckets == null) {
+            throw new IllegalArgumentException("Not a range column: " + column);
+        }
+        return columnBuckets.range(min, max);
+    }
+
+    double value(MovieSort column, int ordinal) {
+        switch (column) {
+            case YEAR:
+                return store.year(ordinal);
+            case DURATION:
+                return store.duration(ordinal);
+            case RATING:
+                return store.imdbRating(ordinal);
+            default:
+                throw new IllegalArgumentException("Not a range column: " + column);
+        }
+    }
+
+    /**
+     * The buckets of a range: those entirely inside it, whose union is exact, and at
+     * most two straddling a bound.
+     */
+    final class Range {
+        private final MovieSort column;
+        private final double min;
+        private final double max;
+        private final List<OrdinalBitmap> inside;
+        private final List<OrdinalBitmap> straddling;
+        /** Movies in the range's buckets, an upper bound on its matches. */
+        final int estimate;
+
+        private Range(MovieSort column, double min, double max, List<OrdinalBitmap> inside, List<OrdinalBitmap> straddling) {
+            this.column = column;
+            this.min = min;
+            this.max = max;
+            this.inside = inside;
+            this.straddling = straddling;
+            int count = 0;
+            for (OrdinalBitmap bitmap : inside) {
+                count += bitmap.cardinality();
+            }
+            for (OrdinalBitmap bitmap : straddling) {
+                count += bitmap.cardinality();
+            }
+            this.estimate = count;
+        }
+
+        OrdinalBitmap bitmap() {
+            if (straddling.isEmpty()) {
+                return OrdinalBitmap.or(inside);
+            }
+            List<OrdinalBitmap> parts = new ArrayList<>(inside);
+            for (OrdinalBitmap bitmap : straddling) {
+                parts.add(bitmap.filter(this::test));
+            }
+            return OrdinalBitmap.or(parts);
+        }
+
+        boolean test(int ordinal) {
+            double value = value(column, ordinal);
+            return value >= min && value <= max;
+        }
+    }
+
+    /**
+     * One column's buckets in ascending value order.
+     */
+    private final class Buckets {
+        private final MovieSort column;
+        private final double[] lows;
+        private final double[] highs;
+        private final OrdinalBitmap[] bitmaps;
+
+        Buckets(MovieSort column) {
+            this.column = column;
+            int[] order = sortIndex.order(column);
+            // Year and rating orders are descending; buckets are built from the low end
+            boolean descending = column != MovieSort.DURATION;
+            int size = order.length;
+            int target = Math.max(1, (size + maxBuckets - 1) / maxBuckets);
+            List<Double> lowList = new ArrayList<>();
+            List<Double> highList = new ArrayList<>();
+            List<OrdinalBitmap> bitmapList = new ArrayList<>();
+            int[] scratch = new int[size];
+            int start = 0;
+            while (start < size) {
+                int end = start + 1;
+                double previous = value(column, at(order, start, descending));
+                while (end < size) {
+                    double next = value(column, at(order, end, descending));
+                    if (next != previous && end - start >= target) {
+                        break;
+                    }
+                    previous = next;
+                    end++;
+                }
+                for (int i = start; i < end; i++) {
+                    scratch[i - start] = at(order, i, descending);
+                }
+                Arrays.sort(scratch, 0, end - start);
+                lowList.add(value(column, at(order, start, descending)));
+                highList.add(previous);
+                bitmapList.add(OrdinalBitmap.of(scratch, end - start));
+                start = end;
+            }
+            this.lows = new double[lowList.size()];
+            this.highs = new double[highList.size()];
+            for (int b = 0; b < lows.length; b++) {
+                lows[b] = lowList.get(b);
+                highs[b] = highList.get(b);
+            }
+            this.bitmaps = bitmapList.toArray(new OrdinalBitmap[0]);
+        }
+
+        private int at(int[] order, int position, boolean descending) {
+            return order[descending ? order.length - 1 - position : position];
+        }
+
+        Range range(double min, double max) {
+            List<OrdinalBitmap> inside = new ArrayList<>();
+            List<OrdinalBitmap> straddling = new ArrayList<>();
+            // First bucket whose highest value reaches the minimum
+            int lo = 0;
+            int hi = highs.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (highs[mid] < min) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            for (int b = lo; b < lows.length && lows[b] <= max; b++) {
+                if (lows[b] >= min && highs[b] <= max) {
+                    inside.add(bitmaps[b]);
+                } else {
+                    straddling.add(bitmaps[b]);
+                }
+            }
+            return new Range(column, min, max, inside, straddling);
+        }
+    }
+}
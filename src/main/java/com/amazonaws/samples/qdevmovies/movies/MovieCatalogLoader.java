@@ -0,0 +1,233 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Streaming loader for the movie catalog JSON array.
+ *
+ * <p>The document is consumed element by element with a {@link JSONTokener} over a
+ * {@link Reader}, so only one movie object is in memory at a time no matter how large
+ * the file is. Catalogs can come from the classpath, a regular file, or a memory-mapped
+ * file.</p>
+ */
+final class MovieCatalogLoader {
+    private static final Logger logger = LogManager.getLogger(MovieCatalogLoader.class);
+
+    static final String DEFAULT_CATALOG_RESOURCE = "movies.json";
+    static final int PROGRESS_INTERVAL = 100_000;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private MovieCatalogLoader() {
+    }
+
+    /**
+     * Load the catalog from {@code path}, or from the bundled classpath resource when the
+     * path is empty. Failures are logged and whatever was read before the failure is kept.
+     */
+    static List<Movie> load(String path, boolean memoryMapped) {
+        List<Movie> movies = new ArrayList<>();
+        load(path, memoryMapped, movies::add);
+        return movies;
+    }
+
+    /**
+     * Stream the catalog into {@code sink} without collecting it, so stores that keep
+     * their own representation never hold a full {@code List<Movie>}.
+     */
+    static void load(String path, boolean memoryMapped, Consumer<Movie> sink) {
+        if (path == null || path.trim().isEmpty()) {
+            loadFromClasspath(DEFAULT_CATALOG_RESOURCE, sink);
+        } else {
+            loadFromFile(Paths.get(path.trim()), memoryMapped, sink);
+        }
+    }
+
+    static List<Movie> loadFromClasspath(String resource) {
+        List<Movie> movies = new ArrayList<>();
+        loadFromClasspath(resource, movies::add);
+        return movies;
+    }
+
+    private static void loadFromClasspath(String resource, Consumer<Movie> sink) {
+        try (InputStream inputStream = MovieCatalogLoader.class.getClassLoader().getResourceAsStream(resource)) {
+            if (inputStream == null) {
+                logger.warn("Movie catalog resource {} not found on the classpath", resource);
+                return;
+            }
+            readTimed(inputStream, "classpath:" + resource, sink);
+        } catch (Exception e) {
+            logger.error("Failed to load movies from JSON: {}", e.getMessage());
+        }
+    }
+
+    private static void loadFromFile(Path path, boolean memoryMapped, Consumer<Movie> sink) {
+        try (InputStream inputStream = memoryMapped ? new MappedFileInputStream(path) : Files.newInputStream(path)) {
+            readTimed(inputStream, path + (memoryMapped ? " (memory-mapped)" : ""), sink);
+        } catch (Exception e) {
+            logger.error("Failed to load movies from {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Like {@link #load(String, boolean, Consumer)}, but a missing source or malformed
+     * JSON fails instead of keeping what was read, so a reload never publishes a
+     * truncated catalog.
+     */
+    static void loadStrict(String path, boolean memoryMapped, Consumer<Movie> sink) throws IOException {
+        try {
+            if (path == null || path.trim().isEmpty()) {
+                try (InputStream inputStream = MovieCatalogLoader.class.getClassLoader()
+                        .getResourceAsStream(DEFAULT_CATALOG_RESOURCE)) {
+                    if (inputStream == null) {
+                        throw new IOException("Movie catalog resource " + DEFAULT_CATALOG_RESOURCE + " not found");
+                    }
+                    readTimed(inputStream, "classpath:" + DEFAULT_CATALOG_RESOURCE, sink);
+                }
+            } else {
+                Path file = Paths.get(path.trim());
+                try (InputStream inputStream = memoryMapped ? new MappedFileInputStream(file) : Files.newInputStream(file)) {
+                    readTimed(inputStream, file + (memoryMapped ? " (memory-mapped)" : ""), sink);
+                }
+            }
+        } catch (JSONException e) {
+            throw new IOException("Malformed movie catalog: " + e.getMessage(), e);
+        }
+    }
+
+    private static void readTimed(InputStream inputStream, String source, Consumer<Movie> sink) throws IOException {
+        long start = System.nanoTime();
+        Reader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+        int count = read(reader, sink);
+        logger.info("Loaded {} movies from {} in {} ms", count, source, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Stream a JSON array of movie objects from {@code reader} into {@code sink}.
+     *
+     * @return the number of movies read
+     */
+    static int read(Reader reader, Consumer<Movie> sink) {
+        JSONTokener tokener = new JSONTokener(reader);
+        if (tokener.nextClean() != '[') {
+            throw tokener.syntaxError("Movie catalog must be a JSON array");
+        }
+        if (tokener.nextClean() == ']') {
+            return 0;
+        }
+        tokener.back();
+
+        long start = System.nanoTime();
+        int count = 0;
+        while (true) {
+            Object value = tokener.nextValue();
+            if (!(value instanceof JSONObject)) {
+                throw tokener.syntaxError("Expected a movie object");
+            }
+            sink.accept(toMovie((JSONObject) value));
+            count++;
+            if (count % PROGRESS_INTERVAL == 0) {
+                logger.info("Loaded {} movies so far ({} ms)", count, (System.nanoTime() - start) / 1_000_000);
+            }
+
+            char separator = tokener.nextClean();
+            if (separator == ']') {
+                return count;
+            }
+            if (separator != ',') {
+                throw tokener.syntaxError("Expected ',' or ']' after movie " + count);
+            }
+        }
+    }
+
+    static Movie toMovie(JSONObject movieObj) {
+        return new Movie(
+            movieObj.getLong("id"),
+            movieObj.getString("movieName"),
+            movieObj.getString("director"),
+            movieObj.getInt("year"),
+            movieObj.getString("genre"),
+            movieObj.getString("description"),
+            movieObj.getInt("duration"),
+            movieObj.getDouble("imdbRating")
+        );
+    }
+
+    /**
+     * Sequential {@link InputStream} over a memory-mapped file. Files larger than a single
+     * mapping are read through consecutive windows, so only one window is mapped at a time.
+     */
+    static final class MappedFileInputStream extends InputStream {
+        private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+        private final FileChannel channel;
+        private final long fileSize;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        MappedFileInputStream(Path path) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.fileSize = channel.size();
+            this.window = map(0);
+        }
+
+        private MappedByteBuffer map(long position) throws IOException {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, fileSize - position));
+        }
+
+        private boolean ensureRemaining() throws IOException {
+            if (window.hasRemaining()) {
+                return true;
+            }
+            long next = windowStart + window.capacity();
+            if (next >= fileSize) {
+                return false;
+            }
+            windowStart = next;
+            window = map(next);
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return ensureRemaining() ? window.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!ensureRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, window.remaining());
+            window.get(buffer, offset, count);
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
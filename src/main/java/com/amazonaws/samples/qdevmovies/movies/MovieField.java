@@ -0,0 +1,127 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.LongFunction;
+
+/**
+ * Movie properties that can be requested through the {@code fields} parameter of the
+ * JSON API. Each field writes itself straight to a {@link JsonGenerator}.
+ */
+enum MovieField {
+    ID("id") {
+        @Override
+        void write(JsonGenerator generator, Movie movie, LongFunction<ReviewSummary> reviews) throws IOException {
+            generator.writeNumberField(name, movie.getId());
+        }
+    },
+    MOVIE_NAME("movieName") {
+        @Override
+        void write(JsonGenerator generator, Movie movie, LongFunction<ReviewSummary> reviews) throws IOException {
+            generator.writeStringField(name, movie.getMovieName());
+        }
+    },
+    DIRECTOR("director") {
+        @Override
+        void write(JsonGenerator generator, Movie movie, LongFunction<ReviewSummary> reviews) throws IOException {
+            generator.writeStringField(name, movie.getDirector());
+        }
+    },
+    YEAR("year") {
+        @Override
+        void write(JsonGenerator generator, Movie movie, LongFunction<ReviewSummary> reviews) throws IOException {
+            generator.writeNumberField(name, movie.getYear());
+        }
+    },
+    GENRE("genre") {
+        @Override
+        void write(JsonGenerator generator, Movie movie, LongFunction<ReviewSummary> reviews) throws IOException {
+            generator.writeStringField(name, movie.getGenre());
+        }
+    },
+    DESCRIPTION("description") {
+        @Override
+        void write(JsonGenerator generator, Movie movie, LongFunction<ReviewSummary> reviews) throws IOException {
+            generator.writeStringField(name, movie.getDescription());
+        }
+    },
+    DURATION("duration") {
+        @Override
+        void write(JsonGenerator generator, Movie movie, LongFunction<ReviewSummary> reviews) throws IOException {
+            generator.writeNumberField(name, movie.getDuration());
+        }
+    },
+    IMDB_RATING("imdbRating") {
+        @Override
+        void write(JsonGenerator generator, Movie movie, LongFunction<ReviewSummary> reviews) throws IOException {
+            generator.writeNumberField(name, movie.getImdbRating());
+        }
+    },
+    ICON("icon") {
+        @Override
+        void write(JsonGenerator generator, Movie movie, LongFunction<ReviewSummary> reviews) throws IOException {
+            generator.writeStringField(name, movie.getIcon());
+        }
+    },
+    REVIEW_STATS("reviewStats") {
+        @Override
+        void write(JsonGenerator generator, Movie movie, LongFunction<ReviewSummary> reviews) throws IOException {
+            ReviewSummary summary = reviews.apply(movie.getId());
+            generator.writeObjectFieldStart(name);
+            generator.writeNumberField("count", summary.getCount());
+            generator.writeNumberField("average", summary.getAverage());
+            generator.writeNumberField("score", summary.getScore());
+            generator.writeArrayFieldStart("histogram");
+            for (int count : summary.getHistogram()) {
+                generator.writeNumber(count);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    };
+
+    final String name;
+
+    MovieField(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param reviews The review aggregate of a movie id, looked up only by fields that
+     *                show it
+     */
+    abstract void write(JsonGenerator generator, Movie movie, LongFunction<ReviewSummary> reviews) throws IOException;
+
+    /**
+     * Parse a comma-separated {@code fields} parameter; a missing or blank value selects
+     * every field.
+     *
+     * @throws IllegalArgumentException for an unknown field name
+     */
+    static Set<MovieField> parse(String fields) {
+        if (fields == null || fields.trim().isEmpty()) {
+            return EnumSet.allOf(MovieField.class);
+        }
+        Set<MovieField> selected = EnumSet.noneOf(MovieField.class);
+        for (String part : fields.split(",")) {
+            String requested = part.trim();
+            if (requested.isEmpty()) {
+                continue;
+            }
+            selected.add(byName(requested));
+        }
+        return selected;
+    }
+
+    private static MovieField byName(String requested) {
+        for (MovieField field : values()) {
+            if (field.name.equals(requested)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Unknown movie field: " + requested);
+    }
+}
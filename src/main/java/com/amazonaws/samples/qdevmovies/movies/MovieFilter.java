@@ -0,0 +1,189 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * Search criteria for paged search. Text terms are trimmed and lowercased, blank ones
+ * are dropped, and every range bound is inclusive and optional. A movie must match every
+ * criterion given.
+ */
+public final class MovieFilter {
+
+    /** Matches every movie. */
+    public static final MovieFilter NONE = new Builder().build();
+
+    private final String name;
+    private final Long id;
+    private final String genre;
+    private final String director;
+    private final Integer yearFrom;
+    private final Integer yearTo;
+    private final Integer minDuration;
+    private final Integer maxDuration;
+    private final Double minRating;
+    private final Double maxRating;
+
+    private MovieFilter(Builder builder) {
+        this.name = normalize(builder.name);
+        this.id = builder.id;
+        this.genre = normalize(builder.genre);
+        this.director = normalize(builder.director);
+        this.yearFrom = builder.yearFrom;
+        this.yearTo = builder.yearTo;
+        this.minDuration = builder.minDuration;
+        this.maxDuration = builder.maxDuration;
+        this.minRating = builder.minRating;
+        this.maxRating = builder.maxRating;
+    }
+
+    private static String normalize(String term) {
+        if (term == null || term.trim().isEmpty()) {
+            return null;
+        }
+        return term.trim().toLowerCase();
+    }
+
+    /** Case-insensitive partial match on the name, lowercased, or {@code null}. */
+    public String getName() { return name; }
+    public Long getId() { return id; }
+    /** Case-insensitive partial match on the genre, lowercased, or {@code null}. */
+    public String getGenre() { return genre; }
+    /** Case-insensitive exact match on the director, lowercased, or {@code null}. */
+    public String getDirector() { return director; }
+    public Integer getYearFrom() { return yearFrom; }
+    public Integer getYearTo() { return yearTo; }
+    public Integer getMinDuration() { return minDuration; }
+    public Integer getMaxDuration() { return maxDuration; }
+    public Double getMinRating() { return minRating; }
+    public Double getMaxRating() { return maxRating; }
+
+    public boolean isEmpty() {
+        return name == null && id == null && genre == null && !hasFieldFilters();
+    }
+
+    /**
+     * Whether a director or a range is given, beyond the name, id and genre.
+     */
+    public boolean hasFieldFilters() {
+        return director != null || yearFrom != null || yearTo != null || minDuration != null
+                || maxDuration != null || minRating != null || maxRating != null;
+    }
+
+    /**
+     * The same criteria with a different name term.
+     */
+    MovieFilter withName(String name) {
+        Builder builder = new Builder().name(name).id(id).genre(genre).director(director)
+                .years(yearFrom, yearTo).duration(minDuration, maxDuration).rating(minRating, maxRating);
+        return builder.build();
+    }
+
+    /**
+     * Check a movie against every criterion.
+     */
+    boolean matches(Movie movie) {
+        return (id == null || movie.getId() == id)
+                && (name == null || movie.getMovieName().toLowerCase().contains(name))
+                && (genre == null || movie.getGenre().toLowerCase().contains(genre))
+                && (director == null || movie.getDirector().equalsIgnoreCase(director))
+                && within(movie.getYear(), yearFrom, yearTo)
+                && within(movie.getDuration(), minDuration, maxDuration)
+                && (minRating == null || movie.getImdbRating() >= minRating)
+                && (maxRating == null || movie.getImdbRating() <= maxRating);
+    }
+
+    private static boolean within(int value, Integer from, Integer to) {
+        return (from == null || value >= from) && (to == null || value <= to);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder description = new StringBuilder("{");
+        append(description, "name", name);
+        append(description, "id", id);
+        append(description, "genre", genre);
+        append(description, "director", director);
+        append(description, "yearFrom", yearFrom);
+        append(description, "yearTo", yearTo);
+        append(description, "minDuration", minDuration);
+        append(description, "maxDuration", maxDuration);
+        append(description, "minRating", minRating);
+        append(description, "maxRating", maxRating);
+        return description.append('}').toString();
+    }
+
+    private static void append(StringBuilder description, String key, Object value) {
+        if (value != null) {
+            description.append(description.length() > 1 ? ", " : "").append(key).append(": ").append(value);
+        }
+    }
+
+    public static final class Builder {
+        private String name;
+        private Long id;
+        private String genre;
+        private String director;
+        private Integer yearFrom;
+        private Integer yearTo;
+        private Integer minDuration;
+        private Integer maxDuration;
+        private Double minRating;
+        private Double maxRating;
+
+        public Builder name(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public Builder id(Long id) {
+            this.id = id;
+            return this;
+        }
+
+        public Builder genre(String genre) {
+            this.genre = genre;
+            return this;
+        }
+
+        public Builder director(String director) {
+            this.director = director;
+            return this;
+        }
+
+        public Builder years(Integer from, Integer to) {
+            this.yearFrom = from;
+            this.yearTo = to;
+            return this;
+        }
+
+        public Builder duration(Integer min, Integer max) {
+            this.minDuration = min;
+            this.maxDuration = max;
+            return this;
+        }
+
+        public Builder rating(Double min, Double max) {
+            this.minRating = min;
+            this.maxRating = max;
+            return this;
+        }
+
+        /**
+         * @throws IllegalArgumentException if a range's lower bound is above its upper
+         *                                  bound or a rating bound is not a number
+         */
+        public MovieFilter build() {
+            checkRange("year", yearFrom, yearTo);
+            checkRange("duration", minDuration, maxDuration);
+            if ((minRating != null && minRating.isNaN()) || (maxRating != null && maxRating.isNaN())) {
+                throw new IllegalArgumentException("Rating bounds must be numbers");
+            }
+            checkRange("rating", minRating, maxRating);
+            return new MovieFilter(this);
+        }
+
+        private static <T extends Comparable<T>> void checkRange(String field, T from, T to) {
+            if (from != null && to != null && from.compareTo(to) > 0) {
+                throw new IllegalArgumentException("Empty " + field + " range: " + from + " to " + to);
+            }
+        }
+    }
+}
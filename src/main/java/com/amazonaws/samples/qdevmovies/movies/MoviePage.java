@@ -0,0 +1,40 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.List;
+
+/**
+ * One page of search results together with the total number of matches.
+ */
+public class MoviePage {
+    private final List<Movie> movies;
+    private final int page;
+    private final int size;
+    private final int totalElements;
+    private final MovieSort sort;
+
+    public MoviePage(List<Movie> movies, int page, int size, int totalElements, MovieSort sort) {
+        this.movies = movies;
+        this.page = page;
+        this.size = size;
+        this.totalElements = totalElements;
+        this.sort = sort;
+    }
+
+    public List<Movie> getMovies() { return movies; }
+    public int getPage() { return page; }
+    public int getSize() { return size; }
+    public int getTotalElements() { return totalElements; }
+    public MovieSort getSort() { return sort; }
+
+    public int getTotalPages() {
+        return (int) ((totalElements + (long) size - 1) / size);
+    }
+
+    public boolean hasPrevious() {
+        return page > 0;
+    }
+
+    public boolean hasNext() {
+        return (long) (page + 1) * size < totalElements;
+    }
+}
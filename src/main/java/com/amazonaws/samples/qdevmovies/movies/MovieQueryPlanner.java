@@ -0,0 +1,215 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds the movies of a store matching a {@link MovieFilter} with director or range
+ * criteria, by set algebra over {@link OrdinalBitmap}s.
+ *
+ * <p>Every criterion becomes a predicate with an estimated match count. Director, genre
+ * and range counts come from the {@link MovieBitmapIndex} without touching a movie; a name
+ * is bounded by its rarest trigram. The planner builds the bitmap of the most selective
+ * predicate, then applies the others from most to least selective: a predicate whose
+ * bitmap is not much larger than the candidates is intersected with them word by word,
+ * anything else is checked per candidate against the store's columns, in parallel for
+ * large candidate sets as {@link ParallelScan} allows.</p>
+ */
+final class MovieQueryPlanner {
+
+    /**
+     * Predicates matching up to this many times more movies than the candidates are
+     * intersected rather than checked one candidate at a time.
+     */
+    static final int INTERSECT_RATIO = 8;
+
+    private final MovieStore store;
+    private final MovieSearchIndex searchIndex;
+    private final MovieBitmapIndex bitmapIndex;
+    private final ParallelScan scan;
+
+    MovieQueryPlanner(MovieStore store, MovieSearchIndex searchIndex, MovieBitmapIndex bitmapIndex) {
+        this(store, searchIndex, bitmapIndex, ParallelScan.SEQUENTIAL);
+    }
+
+    MovieQueryPlanner(MovieStore store, MovieSearchIndex searchIndex, MovieBitmapIndex bitmapIndex,
+                      ParallelScan scan) {
+        this.store = store;
+        this.searchIndex = searchIndex;
+        this.bitmapIndex = bitmapIndex;
+        this.scan = scan;
+    }
+
+    /**
+     * The store's movies matching every criterion of {@code filter} but the id, or
+     * {@code null} for every movie when there are no such criteria.
+     */
+    OrdinalBitmap find(MovieFilter filter) {
+        List<Predicate> plan = plan(filter);
+        if (plan.isEmpty()) {
+            return null;
+        }
+        OrdinalBitmap candidates = plan.get(0).bitmap();
+        for (int p = 1; p < plan.size() && !candidates.isEmpty(); p++) {
+            Predicate predicate = plan.get(p);
+            if (predicate.indexed() && predicate.estimate <= (long) candidates.cardinality() * INTERSECT_RATIO) {
+                candidates = candidates.and(predicate.bitmap());
+            } else {
+                candidates = scan.filter(candidates, predicate::test);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * The filter's predicates, most selective first.
+     */
+    List<Predicate> plan(MovieFilter filter) {
+        List<Predicate> plan = new ArrayList<>();
+        if (filter.getDirector() != null) {
+            plan.add(new DirectorPredicate(filter.getDirector()));
+        }
+        if (filter.getGenre() != null) {
+            plan.add(new GenrePredicate(filter.getGenre()));
+        }
+        if (filter.getName() != null) {
+            plan.add(new NamePredicate(filter.getName()));
+        }
+        if (filter.getYearFrom() != null || filter.getYearTo() != null) {
+            plan.add(range(MovieSort.YEAR, filter.getYearFrom(), filter.getYearTo()));
+        }
+        if (filter.getMinDuration() != null || filter.getMaxDuration() != null) {
+            plan.add(range(MovieSort.DURATION, filter.getMinDuration(), filter.getMaxDuration()));
+        }
+        if (filter.getMinRating() != null || filter.getMaxRating() != null) {
+            plan.add(range(MovieSort.RATING, filter.getMinRating(), filter.getMaxRating()));
+        }
+        // Stable, so equal estimates keep the directly indexed predicates first
+        plan.sort((a, b) -> Integer.compare(a.estimate, b.estimate));
+        return plan;
+    }
+
+    abstract static class Predicate {
+        final int estimate;
+
+        Predicate(int estimate) {
+            this.estimate = estimate;
+        }
+
+        /** Whether {@link #bitmap()} is built from an index rather than a scan. */
+        boolean indexed() {
+            return true;
+        }
+
+        /** The movies matching this predicate alone. */
+        abstract OrdinalBitmap bitmap();
+
+        /** Whether the movie matches; may be called from several scan threads at once. */
+        abstract boolean test(int ordinal);
+    }
+
+    private final class DirectorPredicate extends Predicate {
+        private final String director;
+        private final OrdinalBitmap matches;
+
+        DirectorPredicate(String director) {
+            this(director, bitmapIndex.director(director));
+        }
+
+        private DirectorPredicate(String director, OrdinalBitmap matches) {
+            super(matches.cardinality());
+            this.director = director;
+            this.matches = matches;
+        }
+
+        @Override
+        OrdinalBitmap bitmap() {
+            return matches;
+        }
+
+        @Override
+        boolean test(int ordinal) {
+            return store.director(ordinal).equalsIgnoreCase(director);
+        }
+    }
+
+    private final class GenrePredicate extends Predicate {
+        private final String genre;
+        /** Whether each distinct genre value matches, so probes lowercase every value once. */
+        private final Map<String, Boolean> verdicts = new ConcurrentHashMap<>();
+
+        GenrePredicate(String genre) {
+            super(bitmapIndex.genreCount(genre));
+            this.genre = genre;
+        }
+
+        @Override
+        OrdinalBitmap bitmap() {
+            return bitmapIndex.genre(genre);
+        }
+
+        @Override
+        boolean test(int ordinal) {
+            String value = store.genre(ordinal);
+            // get first: Java 8's computeIfAbsent locks the bin even when the value is there
+            Boolean verdict = verdicts.get(value);
+            if (verdict == null) {
+                verdict = value.toLowerCase().contains(genre);
+                verdicts.putIfAbsent(value, verdict);
+            }
+            return verdict;
+        }
+    }
+
+    private final class NamePredicate extends Predicate {
+        private final String name;
+
+        NamePredicate(String name) {
+            super(searchIndex.nameEstimate(name));
+            this.name = name;
+        }
+
+        @Override
+        boolean indexed() {
+            // Without a trigram the name can only be found by a scan
+            return name.length() >= MovieSearchIndex.GRAM_LENGTH;
+        }
+
+        @Override
+        OrdinalBitmap bitmap() {
+            return OrdinalBitmap.of(searchIndex.find(name, null));
+        }
+
+        @Override
+        boolean test(int ordinal) {
+            return searchIndex.nameContains(ordinal, name);
+        }
+    }
+
+    private static final class RangePredicate extends Predicate {
+        private final MovieBitmapIndex.Range range;
+
+        RangePredicate(MovieBitmapIndex.Range range) {
+            super(range.estimate);
+            this.range = range;
+        }
+
+        @Override
+        OrdinalBitmap bitmap() {
+            return range.bitmap();
+        }
+
+        @Override
+        boolean test(int ordinal) {
+            return range.test(ordinal);
+        }
+    }
+
+    private RangePredicate range(MovieSort column, Number min, Number max) {
+        return new RangePredicate(bitmapIndex.range(column,
+                min != null ? min.doubleValue() : Double.NEGATIVE_INFINITY,
+                max != null ? max.doubleValue() : Double.POSITIVE_INFINITY));
+    }
+}
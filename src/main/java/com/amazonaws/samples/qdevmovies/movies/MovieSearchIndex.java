@@ -0,0 +1,231 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable search index over a movie catalog, built once when the catalog loads.
+ * Movies are addressed by their {@link MovieStore} ordinal, so every
+ * posting list is a sorted {@code int[]} and results come back in catalog order.
+ *
+ * <p>Names are indexed by lowercase trigrams: a name query of three or more characters
+ * only has to verify the movies that contain every trigram of the query. Genres are
+ * indexed by their distinct lowercase value, which keeps genre queries proportional to
+ * the number of distinct genres rather than the number of movies.</p>
+ */
+final class MovieSearchIndex {
+
+    static final int GRAM_LENGTH = 3;
+    private static final int[] NO_ORDINALS = new int[0];
+
+    private final int size;
+    private final String[] lowerNames;
+    private final Map<Long, int[]> nameTrigrams;
+    private final Map<String, int[]> genrePostings;
+    private final ParallelScan scan;
+
+    MovieSearchIndex(MovieStore store) {
+        this(store, ParallelScan.SEQUENTIAL);
+    }
+
+    /**
+     * @param scan runs the name checks no trigram narrows down enough
+     */
+    MovieSearchIndex(MovieStore store, ParallelScan scan) {
+        this.size = store.size();
+        this.scan = scan;
+        this.lowerNames = new String[size];
+
+        Map<Long, IntList> trigramLists = new HashMap<>();
+        Map<String, IntList> genreLists = new LinkedHashMap<>();
+        Set<Long> seen = new HashSet<>();
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            String name = store.movieName(ordinal).toLowerCase();
+            lowerNames[ordinal] = name;
+
+            seen.clear();
+            for (int i = 0; i + GRAM_LENGTH <= name.length(); i++) {
+                long gram = trigram(name, i);
+                if (seen.add(gram)) {
+                    trigramLists.computeIfAbsent(gram, k -> new IntList()).add(ordinal);
+                }
+            }
+            genreLists.computeIfAbsent(store.genre(ordinal).toLowerCase(), k -> new IntList()).add(ordinal);
+        }
+
+        this.nameTrigrams = new HashMap<>(trigramLists.size() * 2);
+        for (Map.Entry<Long, IntList> entry : trigramLists.entrySet()) {
+            nameTrigrams.put(entry.getKey(), entry.getValue().toArray());
+        }
+        this.genrePostings = new LinkedHashMap<>();
+        for (Map.Entry<String, IntList> entry : genreLists.entrySet()) {
+            genrePostings.put(entry.getKey(), entry.getValue().toArray());
+        }
+    }
+
+    /**
+     * Find the ordinals of movies whose lowercase name contains {@code lowerName} and
+     * whose lowercase genre contains {@code lowerGenre}. A {@code null} term matches
+     * everything.
+     *
+     * @return matching ordinals in ascending (catalog) order
+     */
+    int[] find(String lowerName, String lowerGenre) {
+        int[] candidates = lowerGenre != null ? genreCandidates(lowerGenre) : null;
+        if (lowerName == null) {
+            return candidates != null ? candidates : allOrdinals();
+        }
+        if (lowerName.length() >= GRAM_LENGTH) {
+            int[] nameCandidates = trigramCandidates(lowerName);
+            candidates = candidates == null ? nameCandidates : intersect(candidates, nameCandidates);
+        }
+        return verifyName(candidates, lowerName);
+    }
+
+    /**
+     * Upper bound on the movies whose name contains {@code lowerName}: the shortest
+     * posting among its trigrams, or every movie when it is too short to have one.
+     */
+    int nameEstimate(String lowerName) {
+        int estimate = size;
+        for (int i = 0; i + GRAM_LENGTH <= lowerName.length(); i++) {
+            int[] posting = nameTrigrams.get(trigram(lowerName, i));
+            if (posting == null) {
+                return 0;
+            }
+            estimate = Math.min(estimate, posting.length);
+        }
+        return estimate;
+    }
+
+    boolean nameContains(int ordinal, String lowerName) {
+        return lowerNames[ordinal].contains(lowerName);
+    }
+
+    private int[] genreCandidates(String lowerGenre) {
+        int[] result = NO_ORDINALS;
+        for (Map.Entry<String, int[]> entry : genrePostings.entrySet()) {
+            if (entry.getKey().contains(lowerGenre)) {
+                result = union(result, entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Intersect the postings of every distinct trigram in the query, smallest first.
+     * The result is a superset of the true matches and still needs verification.
+     */
+    private int[] trigramCandidates(String lowerName) {
+        List<int[]> postings = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= lowerName.length(); i++) {
+            long gram = trigram(lowerName, i);
+            if (!seen.add(gram)) {
+                continue;
+            }
+            int[] posting = nameTrigrams.get(gram);
+            if (posting == null) {
+                return NO_ORDINALS;
+            }
+            postings.add(posting);
+        }
+        postings.sort((a, b) -> Integer.compare(a.length, b.length));
+        int[] result = postings.get(0);
+        for (int i = 1; i < postings.size() && result.length > 0; i++) {
+            result = intersect(result, postings.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Keep only the candidates whose name really contains the query. When there are no
+     * candidates to start from (short query, no genre) every movie is checked.
+     */
+    private int[] verifyName(int[] candidates, String lowerName) {
+        return scan.select(candidates, size, ordinal -> lowerNames[ordinal].contains(lowerName));
+    }
+
+    private int[] allOrdinals() {
+        int[] ordinals = new int[size];
+        for (int i = 0; i < size; i++) {
+            ordinals[i] = i;
+        }
+        return ordinals;
+    }
+
+    static long trigram(String s, int offset) {
+        return ((long) s.charAt(offset) << 32) | ((long) s.charAt(offset + 1) << 16) | s.charAt(offset + 2);
+    }
+
+    static int[] intersect(int[] a, int[] b) {
+        int[] out = new int[Math.min(a.length, b.length)];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                out[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    static int[] union(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        int[] out = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                out[n++] = a[i++];
+            } else if (a[i] > b[j]) {
+                out[n++] = b[j++];
+            } else {
+                out[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            out[n++] = a[i++];
+        }
+        while (j < b.length) {
+            out[n++] = b[j++];
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Minimal growable int array used while building posting lists.
+     */
+    static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -1,73 +1,438 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
+import com.amazonaws.samples.qdevmovies.utils.MovieUtils;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Scanner;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.TimeUnit;
 
 @Service
-public class MovieService {
+public class MovieService implements MeterBinder {
     private static final Logger logger = LogManager.getLogger(MovieService.class);
-    private final List<Movie> movies;
-    private final Map<Long, Movie> movieMap;
+    static final String OBJECT_STORE = "objects";
+    static final String COLUMNAR_STORE = "columnar";
+    public static final int MAX_PAGE_SIZE = 100;
+    static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 17;
+
+    /**
+     * Re-reads the catalog source for {@link #reload()}. Loads are strict, so a missing
+     * or half-written file fails instead of publishing a truncated catalog.
+     */
+    interface StoreLoader {
+        MovieStore load() throws IOException;
+    }
+
+    /**
+     * The published catalog. Every request reads this once and works on that snapshot,
+     * so a concurrent {@link #reload()} never mixes the store of one load with the
+     * indexes of another.
+     */
+    private volatile Catalog catalog;
+    private final StoreLoader reloader;
+    private final ParallelScan scan;
+    private volatile SearchMetrics metrics = SearchMetrics.NOOP;
+
+    /**
+     * Review aggregates on the catalog's ordinals. Rebuilt when the catalog gets a new
+     * store or the reviews are reloaded, and otherwise updated in place as reviews are
+     * added. With a review service every write holds its lock.
+     */
+    private volatile ReviewStats reviewStats;
+    private volatile ReviewService reviewService;
 
     public MovieService() {
-        this.movies = loadMoviesFromJson();
-        this.movieMap = new HashMap<>();
+        this(System.nanoTime(), new ObjectMovieStore(
+                MovieCatalogLoader.loadFromClasspath(MovieCatalogLoader.DEFAULT_CATALOG_RESOURCE)),
+                () -> loadStore("", false, OBJECT_STORE, true), ParallelScan.SEQUENTIAL);
+    }
+
+    /**
+     * Load the catalog from an external file when {@code movies.catalog.path} is set,
+     * otherwise from the bundled {@code movies.json}. {@code movies.catalog.store} selects
+     * the in-memory layout: {@code objects} (default) or {@code columnar}. When
+     * {@code movies.snapshot.directory} holds a snapshot that matches the JSON source, the
+     * catalog is served from that memory-mapped snapshot instead. Scans over at least
+     * {@code movies.search.parallel-threshold} movies use up to
+     * {@code movies.search.parallelism} threads, see {@link ParallelScan}.
+     */
+    @Autowired
+    public MovieService(@Value("${movies.catalog.path:}") String catalogPath,
+                        @Value("${movies.catalog.memory-mapped:false}") boolean memoryMapped,
+                        @Value("${movies.catalog.store:" + OBJECT_STORE + "}") String storeType,
+                        @Value("${movies.snapshot.directory:}") String snapshotDirectory,
+                        @Value("${movies.snapshot.write-on-startup:false}") boolean writeSnapshot,
+                        @Value("${movies.search.parallelism:0}") int parallelism,
+                        @Value("${movies.search.parallel-threshold:" + DEFAULT_PARALLEL_THRESHOLD + "}") int parallelThreshold)
+            throws IOException {
+        // Arguments are evaluated left to right, so the load time includes reading the store
+        this(System.nanoTime(), loadStore(catalogPath, memoryMapped, storeType, snapshotDirectory, writeSnapshot, false),
+                () -> loadStore(catalogPath, memoryMapped, storeType, snapshotDirectory, writeSnapshot, true),
+                new ParallelScan(parallelism, parallelThreshold));
+    }
+
+    MovieService(List<Movie> movies) {
+        this(new ObjectMovieStore(movies));
+    }
+
+    MovieService(MovieStore store) {
+        this(store, (StoreLoader) null);
+    }
+
+    /**
+     * Serve the fixed {@code store}, with scans run by {@code scan}.
+     */
+    MovieService(MovieStore store, ParallelScan scan) {
+        this(System.nanoTime(), store, null, scan);
+    }
+
+    /**
+     * Serve {@code store}, with {@link #reload()} publishing whatever {@code reloader}
+     * returns. A null reloader makes the catalog fixed.
+     */
+    MovieService(MovieStore store, StoreLoader reloader) {
+        this(System.nanoTime(), store, reloader, ParallelScan.SEQUENTIAL);
+    }
+
+    private MovieService(long loadStartNanos, MovieStore store, StoreLoader reloader, ParallelScan scan) {
+        this.catalog = new Catalog(store, loadStartNanos, scan);
+        this.reloader = reloader;
+        this.scan = scan;
+        this.reviewStats = new ReviewStats(catalog, Collections.<Long, List<Review>>emptyMap());
+    }
+
+    /**
+     * Shut down the parallel scan pool, so a closed context leaves no scan threads behind.
+     * Searches still running finish their scans; later ones scan on the request thread.
+     */
+    @PreDestroy
+    void stop() {
+        scan.close();
+    }
+
+    /**
+     * Aggregate the reviews of {@code reviewService} per movie and follow its changes.
+     * Without a review service every movie has no reviews.
+     */
+    @Autowired(required = false)
+    public synchronized void setReviewService(ReviewService reviewService) {
+        reviewService.withReviews(reviewsByMovie -> {
+            reviewService.addListener(new ReviewService.Listener() {
+                @Override
+                public void reviewsLoaded(Map<Long, List<Review>> reviewsByMovie) {
+                    reviewStats = new ReviewStats(catalog, reviewsByMovie);
+                }
+
+                @Override
+                public void reviewAdded(long movieId, Review review) {
+                    reviewStats.add(movieId, review.getRating());
+                }
+            });
+            this.reviewService = reviewService;
+            reviewStats = new ReviewStats(catalog, reviewsByMovie);
+            return null;
+        });
+    }
+
+    /**
+     * Bring the review aggregates up to the published catalog: a new store is aggregated
+     * from scratch, and movies added on the same store are appended. Callers hold the
+     * service lock, which is always taken before the review service's.
+     */
+    private void refreshReviewStats() {
+        ReviewService reviews = reviewService;
+        if (reviews == null) {
+            reviewStats = new ReviewStats(catalog, Collections.<Long, List<Review>>emptyMap());
+            return;
+        }
+        reviews.withReviews(reviewsByMovie -> {
+            Catalog current = catalog;
+            if (reviewStats.store == current.store) {
+                reviewStats.extend(current, reviewsByMovie);
+            } else {
+                reviewStats = new ReviewStats(current, reviewsByMovie);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Re-read the catalog source, build the store and every index off the request path,
+     * including the sort orders, range buckets and relevance dictionary, then publish
+     * them with a single volatile write. Requests already running keep the
+     * catalog they started with; the old one is garbage collected once they finish.
+     * If the load fails or yields no movies the current catalog stays in place.
+     * Movies added, updated or deleted since the last load are replaced by the source's.
+     *
+     * @return whether the reloaded catalog differs from the one it replaced
+     * @throws IOException if the catalog source cannot be read or parsed
+     * @throws IllegalStateException if this service was built from a fixed store
+     */
+    public synchronized boolean reload() throws IOException {
+        if (reloader == null) {
+            throw new IllegalStateException("This movie catalog cannot be reloaded");
+        }
+        long start = System.nanoTime();
+        MovieStore store = reloader.load();
+        if (store.size() == 0) {
+            throw new IOException("Reloaded movie catalog is empty, keeping the current one");
+        }
+        Catalog previous = catalog;
+        Catalog next = new Catalog(store, start, scan);
+        boolean changed = next.version != previous.version;
+        // Reloading an unchanged catalog keeps the old one, so Last-Modified and cached pages stay valid
+        if (changed) {
+            catalog = next;
+            refreshReviewStats();
+        }
+        logger.info("Reloaded {} movies in {} ms ({})", store.size(), next.loadNanos / 1_000_000,
+                changed ? "catalog changed" : "catalog unchanged");
+        return changed;
+    }
+
+    /**
+     * Add a movie whose id is not in the catalog yet.
+     *
+     * @return the added movie
+     * @throws IllegalArgumentException if the movie is not valid
+     * @throws IllegalStateException if a movie with the same id already exists
+     */
+    public synchronized Movie addMovie(Movie movie) {
+        validate(movie);
+        Catalog.Edit edit = catalog.edit();
+        if (edit.get(movie.getId()) != null) {
+            throw new IllegalStateException("Movie " + movie.getId() + " already exists");
+        }
+        edit.put(movie);
+        publish(edit);
+        logger.info("Added movie {}", movie.getId());
+        return movie;
+    }
+
+    /**
+     * Replace the movie with the same id, keeping its place in catalog order.
+     *
+     * @return the movie that was replaced, or empty if there is no movie with that id
+     * @throws IllegalArgumentException if the movie is not valid
+     */
+    public synchronized Optional<Movie> updateMovie(Movie movie) {
+        validate(movie);
+        Catalog.Edit edit = catalog.edit();
+        if (edit.get(movie.getId()) == null) {
+            return Optional.empty();
+        }
+        Movie previous = edit.put(movie);
+        publish(edit);
+        logger.info("Updated movie {}", movie.getId());
+        return Optional.of(previous);
+    }
+
+    /**
+     * @return the deleted movie, or empty if there is no movie with that id
+     */
+    public synchronized Optional<Movie> deleteMovie(long id) {
+        Catalog.Edit edit = catalog.edit();
+        Movie previous = edit.remove(id);
+        if (previous == null) {
+            return Optional.empty();
+        }
+        publish(edit);
+        logger.info("Deleted movie {}", id);
+        return Optional.of(previous);
+    }
+
+    /**
+     * Add or replace a batch of movies and publish them together, so readers see either
+     * none or all of the batch. Every movie is validated before anything changes. When
+     * the batch repeats an id, the last movie with it wins.
+     *
+     * @return the number of movies that were new to the catalog
+     * @throws IllegalArgumentException if any movie is not valid
+     */
+    public synchronized int upsertMovies(Collection<Movie> movies) {
+        for (Movie movie : movies) {
+            validate(movie);
+        }
+        long start = System.nanoTime();
+        Catalog.Edit edit = catalog.edit();
+        int added = 0;
         for (Movie movie : movies) {
-            movieMap.put(movie.getId(), movie);
+            if (edit.put(movie) == null) {
+                added++;
+            }
+        }
+        publish(edit);
+        logger.info("Upserted {} movies ({} new) in {} ms", movies.size(), added, (System.nanoTime() - start) / 1_000_000);
+        return added;
+    }
+
+    /**
+     * Swap in the edited catalog. Callers hold the service lock, so edits and reloads
+     * never build on a catalog that is about to be replaced.
+     */
+    private void publish(Catalog.Edit edit) {
+        Catalog previous = catalog;
+        Catalog next = edit.publish();
+        catalog = next;
+        refreshReviewStats();
+        if (next.store != previous.store) {
+            logger.info("Compacted {} movies into a new store in {} ms", next.size(), next.loadNanos / 1_000_000);
         }
     }
 
-    private List<Movie> loadMoviesFromJson() {
-        List<Movie> movieList = new ArrayList<>();
+    /**
+     * @throws IllegalArgumentException describing the first problem with {@code movie}
+     */
+    static void validate(Movie movie) {
+        if (movie == null) {
+            throw new IllegalArgumentException("Movie is required");
+        }
+        if (!MovieUtils.isValidMovie(movie.getMovieName(), movie.getId())) {
+            throw new IllegalArgumentException("Movie needs a positive id and a name of 1 to 200 characters");
+        }
+        if (movie.getGenre() == null || movie.getGenre().trim().isEmpty()) {
+            throw new IllegalArgumentException("Movie " + movie.getId() + " needs a genre");
+        }
+        if (movie.getDirector() == null || movie.getDescription() == null) {
+            throw new IllegalArgumentException("Movie " + movie.getId() + " needs a director and a description");
+        }
+        if (movie.getDuration() < 0 || movie.getImdbRating() < 0 || movie.getImdbRating() > 10) {
+            throw new IllegalArgumentException("Movie " + movie.getId() + " needs a non-negative duration and a rating from 0 to 10");
+        }
+    }
+
+    /**
+     * Registers the search meters along with the catalog size and how long the catalog
+     * took to load and index. Called by Spring Boot for the registry behind
+     * {@code /actuator/prometheus}; until then searches record into no-op meters.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("movies.catalog.size", this, service -> service.catalog.size())
+                .description("Number of movies in the catalog")
+                .register(registry);
+        TimeGauge.builder("movies.catalog.load", this, TimeUnit.NANOSECONDS, service -> service.catalog.loadNanos)
+                .description("Time taken to load and index the catalog")
+                .register(registry);
+        metrics = new SearchMetrics(registry);
+    }
+
+    private static MovieStore loadStore(String catalogPath, boolean memoryMapped, String storeType,
+                                        String snapshotDirectory, boolean writeSnapshot, boolean strict)
+            throws IOException {
+        if (snapshotDirectory == null || snapshotDirectory.trim().isEmpty()) {
+            return loadStore(catalogPath, memoryMapped, storeType, strict);
+        }
+        Path snapshot = Paths.get(snapshotDirectory.trim(), SnapshotFormat.CATALOG_FILE);
+        long fingerprint;
         try {
-            InputStream inputStream = getClass().getClassLoader().getResourceAsStream("movies.json");
-            if (inputStream != null) {
-                Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name());
-                String jsonContent = scanner.useDelimiter("\\A").next();
-                scanner.close();
-                
-                JSONArray moviesArray = new JSONArray(jsonContent);
-                for (int i = 0; i < moviesArray.length(); i++) {
-                    JSONObject movieObj = moviesArray.getJSONObject(i);
-                    movieList.add(new Movie(
-                        movieObj.getLong("id"),
-                        movieObj.getString("movieName"),
-                        movieObj.getString("director"),
-                        movieObj.getInt("year"),
-                        movieObj.getString("genre"),
-                        movieObj.getString("description"),
-                        movieObj.getInt("duration"),
-                        movieObj.getDouble("imdbRating")
-                    ));
-                }
+            fingerprint = SnapshotFormat.fingerprint(catalogPath, MovieCatalogLoader.DEFAULT_CATALOG_RESOURCE);
+        } catch (IOException e) {
+            logger.warn("Cannot fingerprint the movie catalog, skipping snapshot: {}", e.getMessage());
+            return loadStore(catalogPath, memoryMapped, storeType, strict);
+        }
+
+        long start = System.nanoTime();
+        MappedMovieStore mapped = MappedMovieStore.open(snapshot, fingerprint);
+        if (mapped != null) {
+            logger.info("Mapped {} movies from snapshot {} in {} ms",
+                    mapped.size(), snapshot, (System.nanoTime() - start) / 1_000_000);
+            return mapped;
+        }
+
+        MovieStore store = loadStore(catalogPath, memoryMapped, storeType, strict);
+        if (writeSnapshot) {
+            try {
+                MappedMovieStore.write(snapshot, store, fingerprint);
+                logger.info("Wrote catalog snapshot {}", snapshot);
+            } catch (IOException e) {
+                logger.warn("Failed to write catalog snapshot {}: {}", snapshot, e.getMessage());
             }
-        } catch (Exception e) {
-            logger.error("Failed to load movies from JSON: {}", e.getMessage());
         }
-        return movieList;
+        return store;
+    }
+
+    /**
+     * Load the catalog into the store layout named by {@code storeType}. A strict load
+     * throws on a missing or malformed source; otherwise the failure is logged and the
+     * movies read before it are kept.
+     */
+    static MovieStore loadStore(String catalogPath, boolean memoryMapped, String storeType, boolean strict)
+            throws IOException {
+        boolean columnar = COLUMNAR_STORE.equalsIgnoreCase(storeType);
+        if (!columnar && !OBJECT_STORE.equalsIgnoreCase(storeType)) {
+            logger.warn("Unknown movies.catalog.store '{}', using '{}'", storeType, OBJECT_STORE);
+        }
+        if (columnar) {
+            ColumnarMovieStore.Builder builder = new ColumnarMovieStore.Builder();
+            if (strict) {
+                MovieCatalogLoader.loadStrict(catalogPath, memoryMapped, builder::add);
+            } else {
+                MovieCatalogLoader.load(catalogPath, memoryMapped, builder::add);
+            }
+            return builder.build();
+        }
+        List<Movie> movies = new ArrayList<>();
+        if (strict) {
+            MovieCatalogLoader.loadStrict(catalogPath, memoryMapped, movies::add);
+        } else {
+            MovieCatalogLoader.load(catalogPath, memoryMapped, movies::add);
+        }
+        return new ObjectMovieStore(movies);
+    }
+
+    /**
+     * Content hash of the loaded catalog, used to derive HTTP validators.
+     */
+    public long getCatalogVersion() {
+        return catalog.version;
+    }
+
+    /**
+     * When the catalog was loaded, in epoch milliseconds.
+     */
+    public long getCatalogLastModified() {
+        return catalog.loadedAt;
+    }
+
+    /**
+     * Number of movies in the current catalog.
+     */
+    public int getCatalogSize() {
+        return catalog.size();
     }
 
     public List<Movie> getAllMovies() {
-        return movies;
+        return catalog.movies();
     }
 
     public Optional<Movie> getMovieById(Long id) {
         if (id == null || id <= 0) {
             return Optional.empty();
         }
-        return Optional.ofNullable(movieMap.get(id));
+        Catalog catalog = this.catalog;
+        int ordinal = catalog.ordinalOf(id);
+        return ordinal >= 0 ? Optional.of(catalog.movie(ordinal)) : Optional.empty();
     }
 
     /**
@@ -80,26 +445,268 @@ public class MovieService {
      * @return List of movies matching the search criteria
      */
     public List<Movie> searchMovies(String name, Long id, String genre) {
+        long start = System.nanoTime();
         logger.info("Searching for movies with criteria - name: {}, id: {}, genre: {}", name, id, genre);
-        
-        List<Movie> results = new ArrayList<>();
+        Catalog catalog = this.catalog;
         
         // If all parameters are null or empty, return all movies
         if (isEmptySearchCriteria(name, id, genre)) {
             logger.info("No search criteria provided, returning all movies");
-            return new ArrayList<>(movies);
+            List<Movie> movies = catalog.movies();
+            metrics.record(SearchMetrics.Shape.EMPTY, start, movies.size());
+            return movies;
         }
         
-        for (Movie movie : movies) {
-            if (matchesSearchCriteria(movie, name, id, genre)) {
-                results.add(movie);
-            }
+        int[] matches = matchingOrdinals(catalog, name, id, genre);
+        List<Movie> results = new ArrayList<>(matches.length);
+        for (int ordinal : matches) {
+            results.add(catalog.movie(ordinal));
         }
         
         logger.info("Found {} movies matching search criteria", results.size());
+        metrics.record(SearchMetrics.Shape.of(name, id, genre), start, results.size());
         return results;
     }
 
+    /**
+     * Search movies and return a single sorted page of the results.
+     * Only the movies on the requested page are materialized; the total count comes from
+     * the matching ordinals.
+     * 
+     * @param name Movie name to search for (case-insensitive partial match)
+     * @param id Movie ID to search for (exact match)
+     * @param genre Movie genre to search for (case-insensitive partial match)
+     * @param page Zero-based page number
+     * @param size Page size, capped at {@link #MAX_PAGE_SIZE}
+     * @param sort Result ordering; {@link MovieSort#RELEVANCE} with a name ranks by best
+     *             match over names, directors and descriptions instead of matching substrings
+     * @return The requested page with the total number of matches
+     * @throws IllegalArgumentException if the page is negative or the size is not positive
+     */
+    public MoviePage searchMovies(String name, Long id, String genre, int page, int size, MovieSort sort) {
+        return searchMovies(new MovieFilter.Builder().name(name).id(id).genre(genre).build(), page, size, sort);
+    }
+
+    /**
+     * Search movies by every criterion of {@code filter} and return a single sorted page
+     * of the results. Director and range criteria are planned by {@link MovieQueryPlanner},
+     * starting from the most selective one.
+     * 
+     * @param filter Criteria every movie on the page must match
+     * @param page Zero-based page number
+     * @param size Page size, capped at {@link #MAX_PAGE_SIZE}
+     * @param sort Result ordering; {@link MovieSort#RELEVANCE} with a name ranks by best
+     *             match over names, directors and descriptions instead of matching substrings
+     * @return The requested page with the total number of matches
+     * @throws IllegalArgumentException if the page is negative or the size is not positive
+     */
+    public MoviePage searchMovies(MovieFilter filter, int page, int size, MovieSort sort) {
+        long start = System.nanoTime();
+        if (page < 0) {
+            throw new IllegalArgumentException("Page must not be negative: " + page);
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be positive: " + size);
+        }
+        int pageSize = Math.min(size, MAX_PAGE_SIZE);
+        MovieSort order = sort != null ? sort : MovieSort.CATALOG;
+        logger.info("Searching for movies with criteria {}, page: {}, size: {}, sort: {}",
+                filter, page, pageSize, order);
+
+        Catalog catalog = this.catalog;
+        long offset = (long) page * pageSize;
+
+        if (order == MovieSort.REVIEWS) {
+            int[] matches = filter.isEmpty() ? null : matchingOrdinals(catalog, filter);
+            int total = matches != null ? matches.length : catalog.size();
+            List<Movie> movies = new ArrayList<>(pageSize);
+            if (offset < total) {
+                for (int ordinal : reviewStats.page(catalog, matches, (int) offset, pageSize)) {
+                    movies.add(catalog.movie(ordinal));
+                }
+            }
+            logger.info("Found {} movies matching search criteria, returning {} on page {}", total, movies.size(), page);
+            metrics.record(SearchMetrics.Shape.of(filter), start, total);
+            return new MoviePage(movies, page, pageSize, total, order);
+        }
+
+        if (order == MovieSort.RELEVANCE && filter.getId() == null && filter.getName() != null) {
+            MovieTextIndex.Hits hits = catalog.rank(filter.getName(), filter);
+            List<Movie> movies = new ArrayList<>(pageSize);
+            if (offset < hits.size()) {
+                for (int ordinal : hits.page((int) offset, pageSize)) {
+                    movies.add(catalog.movie(ordinal));
+                }
+            }
+            logger.info("Ranked {} movies for '{}', returning {} on page {}", hits.size(), filter.getName(), movies.size(), page);
+            metrics.record(SearchMetrics.Shape.RANKED, start, hits.size());
+            return new MoviePage(movies, page, pageSize, hits.size(), order);
+        }
+
+        // A null match array stands for the whole catalog
+        int[] matches = filter.isEmpty() ? null : matchingOrdinals(catalog, filter);
+        int total = matches != null ? matches.length : catalog.size();
+
+        List<Movie> movies = new ArrayList<>(pageSize);
+        if (offset < total) {
+            // Relevance needs free text to rank by, so otherwise it falls back to catalog order
+            MovieSort pageOrder = order == MovieSort.RELEVANCE ? MovieSort.CATALOG : order;
+            for (int ordinal : catalog.page(matches, pageOrder, (int) offset, pageSize)) {
+                movies.add(catalog.movie(ordinal));
+            }
+        }
+
+        logger.info("Found {} movies matching search criteria, returning {} on page {}", total, movies.size(), page);
+        metrics.record(SearchMetrics.Shape.of(filter), start, total);
+        return new MoviePage(movies, page, pageSize, total, order);
+    }
+
+    /**
+     * Every movie matching {@code filter} in {@code sort} order, found as the iterator is
+     * advanced instead of collected up front, so the first movies are available at once
+     * and memory stays flat however many movies match. The iterator reads the catalog
+     * current when it was created to the end.
+     *
+     * @throws IllegalArgumentException for an order that cannot be streamed, see
+     *         {@link #streamOrder(MovieFilter, MovieSort)}
+     */
+    public Iterator<Movie> streamMovies(MovieFilter filter, MovieSort sort) {
+        MovieSort order = streamOrder(filter, sort);
+        logger.info("Streaming movies with criteria {}, sort: {}", filter, order);
+        Catalog catalog = this.catalog;
+        PrimitiveIterator.OfInt ordinals = filter.getId() != null
+                ? Arrays.stream(matchingOrdinals(catalog, filter)).iterator()
+                : catalog.scan(filter, order);
+        return new Iterator<Movie>() {
+            @Override
+            public boolean hasNext() {
+                return ordinals.hasNext();
+            }
+
+            @Override
+            public Movie next() {
+                return catalog.movie(ordinals.nextInt());
+            }
+        };
+    }
+
+    /**
+     * The order {@link #streamMovies} uses for {@code sort}. Relevance without a name to
+     * rank by falls back to catalog order, as in paged search.
+     *
+     * @throws IllegalArgumentException for {@link MovieSort#REVIEWS} and ranked relevance,
+     *         which are only available a page at a time
+     */
+    static MovieSort streamOrder(MovieFilter filter, MovieSort sort) {
+        MovieSort order = sort != null ? sort : MovieSort.CATALOG;
+        if (order == MovieSort.RELEVANCE && (filter.getId() != null || filter.getName() == null)) {
+            return MovieSort.CATALOG;
+        }
+        if (order == MovieSort.REVIEWS || order == MovieSort.RELEVANCE) {
+            throw new IllegalArgumentException("Sort order " + order.getParameter()
+                    + " is only available a page at a time, not streamed");
+        }
+        return order;
+    }
+
+    /**
+     * A sorted page of the whole catalog.
+     */
+    public MoviePage getMoviesPage(int page, int size, MovieSort sort) {
+        return searchMovies(MovieFilter.NONE, page, size, sort);
+    }
+
+    /**
+     * Ordinals of the movies matching non-empty criteria, in catalog order
+     */
+    private int[] matchingOrdinals(Catalog catalog, String name, Long id, String genre) {
+        String searchName = normalizeSearchTerm(name);
+        String searchGenre = normalizeSearchTerm(genre);
+        if (id != null) {
+            // An ID pins the result to at most one movie, so verify it directly
+            int ordinal = catalog.ordinalOf(id);
+            return ordinal >= 0 && matchesSearchCriteria(catalog.movie(ordinal), searchName, searchGenre)
+                    ? new int[] {ordinal} : new int[0];
+        }
+        return catalog.find(searchName, searchGenre);
+    }
+
+    private int[] matchingOrdinals(Catalog catalog, MovieFilter filter) {
+        if (filter.getId() != null) {
+            int ordinal = catalog.ordinalOf(filter.getId());
+            return ordinal >= 0 && filter.matches(catalog.movie(ordinal)) ? new int[] {ordinal} : new int[0];
+        }
+        if (filter.hasFieldFilters()) {
+            return catalog.find(filter);
+        }
+        return catalog.find(filter.getName(), filter.getGenre());
+    }
+
+    /**
+     * Number of movies matching {@code filter}, counted on the filter bitmaps without
+     * listing the matches.
+     */
+    public int countMovies(MovieFilter filter) {
+        long start = System.nanoTime();
+        Catalog catalog = this.catalog;
+        int count = filter.getId() != null ? matchingOrdinals(catalog, filter).length : catalog.count(filter);
+        metrics.record(SearchMetrics.Shape.COUNT, start, count);
+        return count;
+    }
+
+    /**
+     * Genre facets of the movies matching {@code filter}, with per-genre counts. Compound
+     * genres count towards each of their components, as in {@link #getGenreFacets()}.
+     *
+     * @return Facets sorted by genre name, leaving out genres with no match
+     */
+    public List<GenreFacet> getGenreFacets(MovieFilter filter) {
+        Catalog catalog = this.catalog;
+        if (filter.getId() == null) {
+            return catalog.facets(filter).facets();
+        }
+        Map<String, Integer> rawCounts = new HashMap<>();
+        for (int ordinal : matchingOrdinals(catalog, filter)) {
+            rawCounts.merge(catalog.movie(ordinal).getGenre(), 1, Integer::sum);
+        }
+        return GenreFacets.of(rawCounts).facets();
+    }
+
+    /**
+     * The aggregate of a movie's reviews, precomputed so no review is read. A movie
+     * without reviews, or not in the catalog, has a count of zero.
+     */
+    public ReviewSummary getReviewSummary(long movieId) {
+        return reviewStats.summary(movieId);
+    }
+
+    /**
+     * Type-ahead suggestions for a search box: movies with a word of their name or
+     * director starting with {@code query}, best rated first.
+     *
+     * @param limit Number of suggestions wanted, capped at {@link MovieSuggestIndex#MAX_SUGGESTIONS}
+     * @return The suggested movies; empty for a blank query
+     * @throws IllegalArgumentException if the limit is not positive
+     */
+    public List<Movie> suggestMovies(String query, int limit) {
+        long start = System.nanoTime();
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive: " + limit);
+        }
+        String prefix = normalizeSearchTerm(query);
+        if (prefix == null) {
+            return Collections.emptyList();
+        }
+        Catalog catalog = this.catalog;
+        int[] ordinals = catalog.suggest(prefix, Math.min(limit, MovieSuggestIndex.MAX_SUGGESTIONS));
+        List<Movie> suggestions = new ArrayList<>(ordinals.length);
+        for (int ordinal : ordinals) {
+            suggestions.add(catalog.movie(ordinal));
+        }
+        metrics.record(SearchMetrics.Shape.SUGGEST, start, suggestions.size());
+        return suggestions;
+    }
+
     /**
      * Check if all search criteria are empty or null
      */
@@ -110,46 +717,45 @@ public class MovieService {
     }
 
     /**
-     * Check if a movie matches the provided search criteria
+     * Trim and lowercase a search term, returning null when there is nothing to match on
      */
-    private boolean matchesSearchCriteria(Movie movie, String name, Long id, String genre) {
-        // Check ID match (exact match if provided)
-        if (id != null && !movie.getId().equals(id)) {
-            return false;
+    private String normalizeSearchTerm(String term) {
+        if (term == null || term.trim().isEmpty()) {
+            return null;
         }
-        
+        return term.trim().toLowerCase();
+    }
+
+    /**
+     * Check if a movie matches already-normalized name and genre terms
+     */
+    private boolean matchesSearchCriteria(Movie movie, String searchName, String searchGenre) {
         // Check name match (case-insensitive partial match if provided)
-        if (name != null && !name.trim().isEmpty()) {
-            String searchName = name.trim().toLowerCase();
-            String movieName = movie.getMovieName().toLowerCase();
-            if (!movieName.contains(searchName)) {
-                return false;
-            }
+        if (searchName != null && !movie.getMovieName().toLowerCase().contains(searchName)) {
+            return false;
         }
         
         // Check genre match (case-insensitive partial match if provided)
-        if (genre != null && !genre.trim().isEmpty()) {
-            String searchGenre = genre.trim().toLowerCase();
-            String movieGenre = movie.getGenre().toLowerCase();
-            if (!movieGenre.contains(searchGenre)) {
-                return false;
-            }
-        }
-        
-        return true;
+        return searchGenre == null || movie.getGenre().toLowerCase().contains(searchGenre);
     }
 
     /**
      * Get all unique genres from the movie collection.
+     * Compound genres like "Crime/Drama" are split into their component genres.
      * Useful for populating genre dropdown in search forms.
      * 
-     * @return List of unique genres
+     * @return Sorted list of unique component genres
      */
     public List<String> getAllGenres() {
-        return movies.stream()
-                .map(Movie::getGenre)
-                .distinct()
-                .sorted()
-                .collect(java.util.stream.Collectors.toList());
+        return catalog.genreFacets.genres();
+    }
+
+    /**
+     * Get the genre facets with per-genre movie counts, precomputed when the catalog loads.
+     * 
+     * @return Facets sorted by genre name
+     */
+    public List<GenreFacet> getGenreFacets() {
+        return catalog.genreFacets.facets();
     }
 }
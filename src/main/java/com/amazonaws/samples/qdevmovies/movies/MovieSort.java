@@ -0,0 +1,58 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * Result orderings supported by paged search. Ties keep catalog order.
+ */
+public enum MovieSort {
+    /** Catalog order, the order movies appear in the catalog file. */
+    CATALOG(""),
+    /** Highest rated first. */
+    RATING("rating"),
+    /** Newest first. */
+    YEAR("year"),
+    /** Shortest first. */
+    DURATION("duration"),
+    /** Alphabetical by name, ignoring case. */
+    NAME("name"),
+    /**
+     * Best match for the name search first, scored over names, directors and descriptions
+     * and tolerant of typos. Without a name to search for, catalog order.
+     */
+    RELEVANCE("relevance"),
+    /**
+     * Best reviewed first, by {@link ReviewSummary#getScore() Bayesian-weighted} review
+     * score, so movies with few reviews lean towards the average of all reviews.
+     */
+    REVIEWS("reviews");
+
+    private final String parameter;
+
+    MovieSort(String parameter) {
+        this.parameter = parameter;
+    }
+
+    /**
+     * The value used for this ordering in the {@code sort} request parameter.
+     */
+    public String getParameter() {
+        return parameter;
+    }
+
+    /**
+     * Parse a {@code sort} request parameter; a missing or blank value means catalog order.
+     *
+     * @throws IllegalArgumentException for an unknown ordering
+     */
+    public static MovieSort fromParameter(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return CATALOG;
+        }
+        String parameter = value.trim().toLowerCase();
+        for (MovieSort sort : values()) {
+            if (sort.parameter.equals(parameter)) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sort order: " + value);
+    }
+}
@@ -0,0 +1,217 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.Arrays;
+
+/**
+ * Presorted ordinal arrays for each {@link MovieSort} with a sort key, all built with the
+ * index so that reads take no lock and never wait for a sort.
+ *
+ * <p>For every ordering the index keeps the ordinals in sorted order plus the inverse
+ * rank of each ordinal. A page of the whole catalog is a slice of the sorted array.
+ * A page of a filtered result keeps a bounded max-heap of the best {@code offset + limit}
+ * ranks, so it costs {@code O(M log K)} integer comparisons for {@code M} matches and
+ * never sorts or copies the full match list.</p>
+ */
+final class MovieSortIndex {
+
+    private static final int[] NO_ORDINALS = new int[0];
+
+    private final MovieStore store;
+    /** Only written by the constructor; the final fields publish them to every reader. */
+    private final int[][] orders = new int[MovieSort.values().length][];
+    private final int[][] ranks = new int[MovieSort.values().length][];
+
+    MovieSortIndex(MovieStore store) {
+        this.store = store;
+        for (MovieSort sort : MovieSort.values()) {
+            OrdinalComparator comparator = comparator(sort);
+            if (comparator == null) {
+                continue;
+            }
+            int[] order = sortOrdinals(comparator);
+            int[] rank = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                rank[order[i]] = i;
+            }
+            orders[sort.ordinal()] = order;
+            ranks[sort.ordinal()] = rank;
+        }
+    }
+
+    /**
+     * Select ordinals {@code [offset, offset + limit)} of {@code matches} under {@code sort}.
+     *
+     * @param matches ascending ordinals, or {@code null} for the whole catalog
+     */
+    int[] page(int[] matches, MovieSort sort, int offset, int limit) {
+        int total = matches != null ? matches.length : store.size();
+        if (offset >= total || limit <= 0) {
+            return NO_ORDINALS;
+        }
+        int end = (int) Math.min((long) offset + limit, total);
+        // Orders without a sort key keep catalog order
+        if (orders[sort.ordinal()] == null) {
+            if (matches != null) {
+                return Arrays.copyOfRange(matches, offset, end);
+            }
+            int[] ordinals = new int[end - offset];
+            for (int i = 0; i < ordinals.length; i++) {
+                ordinals[i] = offset + i;
+            }
+            return ordinals;
+        }
+
+        int[] order = order(sort);
+        if (matches == null) {
+            return Arrays.copyOfRange(order, offset, end);
+        }
+        int[] rank = ranks[sort.ordinal()];
+        int[] best = topRanks(matches, rank, end);
+        int[] ordinals = new int[end - offset];
+        for (int i = 0; i < ordinals.length; i++) {
+            ordinals[i] = order[best[offset + i]];
+        }
+        return ordinals;
+    }
+
+    /**
+     * The {@code k} smallest ranks among {@code matches}, ascending.
+     */
+    private static int[] topRanks(int[] matches, int[] rank, int k) {
+        int[] heap = new int[k];
+        int size = 0;
+        for (int ordinal : matches) {
+            int r = rank[ordinal];
+            if (size < k) {
+                heap[size] = r;
+                siftUp(heap, size++);
+            } else if (r < heap[0]) {
+                heap[0] = r;
+                siftDown(heap, 0, size);
+            }
+        }
+        Arrays.sort(heap, 0, size);
+        return heap;
+    }
+
+    private static void siftUp(int[] heap, int index) {
+        int value = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] >= value) {
+                break;
+            }
+            heap[index] = heap[parent];
+            index = parent;
+        }
+        heap[index] = value;
+    }
+
+    private static void siftDown(int[] heap, int index, int size) {
+        int value = heap[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && heap[child + 1] > heap[child]) {
+                child++;
+            }
+            if (value >= heap[child]) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = value;
+    }
+
+    /**
+     * Ordinals sorted by {@code sort}.
+     *
+     * @throws IllegalArgumentException for an order without a sort key, such as
+     *         {@link MovieSort#CATALOG} or {@link MovieSort#REVIEWS}
+     */
+    int[] order(MovieSort sort) {
+        int[] order = orders[sort.ordinal()];
+        if (order == null) {
+            throw new IllegalArgumentException("Sort order " + sort + " is not presorted");
+        }
+        return order;
+    }
+
+    /**
+     * Reads the sort key into a primitive column first, so sorting never goes back to
+     * the store or allocates per comparison; {@code null} for orders without a key.
+     */
+    private OrdinalComparator comparator(MovieSort sort) {
+        int size = store.size();
+        switch (sort) {
+            case RATING: {
+                double[] ratings = new double[size];
+                for (int i = 0; i < size; i++) {
+                    ratings[i] = store.imdbRating(i);
+                }
+                return (a, b) -> Double.compare(ratings[b], ratings[a]);
+            }
+            case YEAR: {
+                int[] years = new int[size];
+                for (int i = 0; i < size; i++) {
+                    years[i] = store.year(i);
+                }
+                return (a, b) -> Integer.compare(years[b], years[a]);
+            }
+            case DURATION: {
+                int[] durations = new int[size];
+                for (int i = 0; i < size; i++) {
+                    durations[i] = store.duration(i);
+                }
+                return (a, b) -> Integer.compare(durations[a], durations[b]);
+            }
+            case NAME: {
+                String[] names = new String[size];
+                for (int i = 0; i < size; i++) {
+                    names[i] = store.movieName(i);
+                }
+                return (a, b) -> String.CASE_INSENSITIVE_ORDER.compare(names[a], names[b]);
+            }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Stable merge sort of all ordinals, so equal keys stay in catalog order.
+     */
+    private int[] sortOrdinals(OrdinalComparator comparator) {
+        int size = store.size();
+        int[] ordinals = new int[size];
+        for (int i = 0; i < size; i++) {
+            ordinals[i] = i;
+        }
+        int[] buffer = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size; low += 2 * width) {
+                int mid = Math.min(low + width, size);
+                int high = Math.min(low + 2 * width, size);
+                int i = low, j = mid, n = low;
+                while (i < mid && j < high) {
+                    buffer[n++] = comparator.compare(ordinals[j], ordinals[i]) < 0 ? ordinals[j++] : ordinals[i++];
+                }
+                while (i < mid) {
+                    buffer[n++] = ordinals[i++];
+                }
+                while (j < high) {
+                    buffer[n++] = ordinals[j++];
+                }
+            }
+            int[] swap = ordinals;
+            ordinals = buffer;
+            buffer = swap;
+        }
+        return ordinals;
+    }
+
+    @FunctionalInterface
+    private interface OrdinalComparator {
+        int compare(int a, int b);
+    }
+}
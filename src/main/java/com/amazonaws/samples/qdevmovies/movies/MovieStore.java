@@ -0,0 +1,46 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.List;
+
+/**
+ * Read-only storage for the loaded movie catalog. Movies are addressed by a dense ordinal
+ * from {@code 0} to {@code size() - 1} in catalog order, which is what the search indexes
+ * store in their posting lists. The per-field accessors let indexes and filters read a
+ * single column without materializing a {@link Movie}.
+ */
+interface MovieStore {
+
+    int size();
+
+    /**
+     * @return the ordinal of the movie with this id, or {@code -1} if there is none
+     */
+    int ordinalOf(long id);
+
+    /**
+     * Returns the movie at an ordinal. Stores that do not keep {@link Movie} objects
+     * create a new view on every call.
+     */
+    Movie get(int ordinal);
+
+    long id(int ordinal);
+
+    String movieName(int ordinal);
+
+    String director(int ordinal);
+
+    String description(int ordinal);
+
+    int year(int ordinal);
+
+    String genre(int ordinal);
+
+    int duration(int ordinal);
+
+    double imdbRating(int ordinal);
+
+    /**
+     * Unmodifiable list view of the whole catalog in ordinal order.
+     */
+    List<Movie> asList();
+}
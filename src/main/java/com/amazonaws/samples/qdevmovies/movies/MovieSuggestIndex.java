@@ -0,0 +1,314 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Type-ahead suggestions: the best rated movies with a word in their name or director
+ * starting with a prefix.
+ *
+ * <p>Every word start of every name and director is a key, stored as an offset into one
+ * char array of the lowercased texts, and the keys are sorted. The keys starting with a
+ * prefix form a contiguous range, so the sorted array is a trie whose nodes are ranges
+ * found by two binary searches. Each node of more than {@link #SCAN_LIMIT} keys keeps its
+ * best {@link #MAX_SUGGESTIONS} movies, merged bottom-up from its children when the index
+ * is built; smaller nodes are scanned. A lookup therefore reads two binary searches and at
+ * most {@code SCAN_LIMIT} keys whatever the catalog size, and allocates little more than
+ * its result.</p>
+ */
+final class MovieSuggestIndex {
+
+    static final int MAX_SUGGESTIONS = 10;
+    /** Nodes with at most this many keys are scanned instead of precomputed. */
+    static final int SCAN_LIMIT = 128;
+    private static final char END = '\0';
+    private static final int INSERTION_SORT_THRESHOLD = 12;
+    private static final int[] NO_ORDINALS = new int[0];
+
+    private final MovieStore store;
+    /** Lowercased names and distinct directors, each followed by {@link #END}. */
+    private final char[] text;
+    /** Offset in {@link #text} where each key starts, in key order. */
+    private final int[] keys;
+    /** Movie of each key. */
+    private final int[] keyOrdinals;
+    /** Best movies of each node with more than {@link #SCAN_LIMIT} keys, by prefix. */
+    private final Map<String, int[]> best = new HashMap<>();
+
+    MovieSuggestIndex(MovieStore store) {
+        this.store = store;
+        StringBuilder builder = new StringBuilder();
+        MovieSearchIndex.IntList starts = new MovieSearchIndex.IntList();
+        MovieSearchIndex.IntList owners = new MovieSearchIndex.IntList();
+        Map<String, Integer> directors = new HashMap<>();
+        for (int ordinal = 0; ordinal < store.size(); ordinal++) {
+            int name = builder.length();
+            builder.append(store.movieName(ordinal).toLowerCase()).append(END);
+            addWordStarts(builder, name, ordinal, starts, owners);
+
+            // Directors are shared by many movies, so their text is stored once
+            String director = store.director(ordinal);
+            Integer offset = directors.get(director);
+            if (offset == null) {
+                offset = builder.length();
+                builder.append(director.toLowerCase()).append(END);
+                directors.put(director, offset);
+            }
+            addWordStarts(builder, offset, ordinal, starts, owners);
+        }
+        this.text = new char[builder.length()];
+        builder.getChars(0, builder.length(), text, 0);
+
+        this.keys = starts.toArray();
+        this.keyOrdinals = owners.toArray();
+        sortKeys(0, keys.length, 0);
+        precompute(0, keys.length, 0);
+    }
+
+    private static void addWordStarts(CharSequence text, int from, int ordinal,
+                                      MovieSearchIndex.IntList starts, MovieSearchIndex.IntList owners) {
+        boolean previousInWord = false;
+        for (int i = from; text.charAt(i) != END; i++) {
+            boolean inWord = Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && !previousInWord) {
+                starts.add(i);
+                owners.add(ordinal);
+            }
+            previousInWord = inWord;
+        }
+    }
+
+    /**
+     * Three-way radix quicksort of the keys in {@code [lo, hi)}, whose first {@code depth}
+     * chars are equal. Keys sharing a long prefix, like every word start of one director,
+     * compare that prefix once per partition rather than once per comparison. The order of
+     * equal keys is left arbitrary; lookups order by rating and catalog order anyway.
+     */
+    private void sortKeys(int lo, int hi, int depth) {
+        while (hi - lo > INSERTION_SORT_THRESHOLD) {
+            char pivot = text[keys[(lo + hi) >>> 1] + depth];
+            int lt = lo;
+            int gt = hi - 1;
+            int i = lo;
+            while (i <= gt) {
+                char c = text[keys[i] + depth];
+                if (c < pivot) {
+                    swap(lt++, i++);
+                } else if (c > pivot) {
+                    swap(i, gt--);
+                } else {
+                    i++;
+                }
+            }
+            sortKeys(lo, lt, depth);
+            sortKeys(gt + 1, hi, depth);
+            if (pivot == END) {
+                return;
+            }
+            lo = lt;
+            hi = gt + 1;
+            depth++;
+        }
+        for (int i = lo + 1; i < hi; i++) {
+            for (int j = i; j > lo && compareKeys(keys[j - 1] + depth, keys[j] + depth) > 0; j--) {
+                swap(j - 1, j);
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        int key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        int ordinal = keyOrdinals[a];
+        keyOrdinals[a] = keyOrdinals[b];
+        keyOrdinals[b] = ordinal;
+    }
+
+    private int compareKeys(int a, int b) {
+        while (true) {
+            char x = text[a++];
+            char y = text[b++];
+            if (x != y) {
+                return x - y;
+            }
+            if (x == END) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Store the best movies of every node of more than {@link #SCAN_LIMIT} keys within
+     * {@code [lo, hi)}, whose keys share their first {@code depth} chars.
+     *
+     * @return the node's best movies, or {@code null} if it is small enough to scan
+     */
+    private int[] precompute(int lo, int hi, int depth) {
+        if (hi - lo <= SCAN_LIMIT) {
+            return null;
+        }
+        Top top = new Top(MAX_SUGGESTIONS);
+        int i = lo;
+        // Keys that end here sort first
+        while (i < hi && text[keys[i] + depth] == END) {
+            top.offer(keyOrdinals[i++]);
+        }
+        while (i < hi) {
+            char c = text[keys[i] + depth];
+            int j = i + 1;
+            while (j < hi && text[keys[j] + depth] == c) {
+                j++;
+            }
+            int[] child = precompute(i, j, depth + 1);
+            if (child != null) {
+                for (int ordinal : child) {
+                    top.offer(ordinal);
+                }
+            } else {
+                for (int k = i; k < j; k++) {
+                    top.offer(keyOrdinals[k]);
+                }
+            }
+            i = j;
+        }
+        int[] result = top.toArray();
+        if (depth > 0) {
+            best.put(new String(text, keys[lo], depth), result);
+        }
+        return result;
+    }
+
+    /**
+     * Up to {@code limit} ordinals of movies with a name or director word starting with
+     * the lowercase {@code prefix}, best rated first, ties in catalog order.
+     *
+     * @param stale rejects ordinals whose indexed copy is out of date, or {@code null}
+     */
+    int[] suggest(String prefix, int limit, IntPredicate stale) {
+        if (prefix.isEmpty() || prefix.indexOf(END) >= 0 || limit <= 0) {
+            return NO_ORDINALS;
+        }
+        int lo = bound(prefix, false);
+        int hi = bound(prefix, true);
+        if (lo >= hi) {
+            return NO_ORDINALS;
+        }
+        if (hi - lo > SCAN_LIMIT) {
+            int[] precomputed = best.get(prefix);
+            Top top = new Top(limit);
+            boolean skipped = false;
+            for (int ordinal : precomputed) {
+                if (stale != null && stale.test(ordinal)) {
+                    skipped = true;
+                } else {
+                    top.offer(ordinal);
+                }
+            }
+            // Only when edits knock out precomputed movies can others be missing
+            if (!skipped || top.size == limit || precomputed.length < MAX_SUGGESTIONS) {
+                return top.toArray();
+            }
+        }
+        Top top = new Top(limit);
+        for (int k = lo; k < hi; k++) {
+            if (stale == null || !stale.test(keyOrdinals[k])) {
+                top.offer(keyOrdinals[k]);
+            }
+        }
+        return top.toArray();
+    }
+
+    /**
+     * First key index whose key does not sort before {@code prefix}, or with
+     * {@code upper}, first whose key sorts after every key starting with it.
+     */
+    private int bound(String prefix, boolean upper) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = comparePrefix(keys[mid], prefix);
+            if (cmp < 0 || (upper && cmp == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Compare the key at {@code offset}, cut to the length of {@code prefix}, with it.
+     */
+    private int comparePrefix(int offset, String prefix) {
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = text[offset + i];
+            if (c != prefix.charAt(i)) {
+                return c - prefix.charAt(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Whether a word of the lowercase {@code text} starts with {@code prefix}, for movies
+     * that are not in the index.
+     */
+    static boolean matches(String text, String prefix) {
+        boolean previousInWord = false;
+        for (int i = 0; i < text.length(); i++) {
+            boolean inWord = Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && !previousInWord && text.startsWith(prefix, i)) {
+                return true;
+            }
+            previousInWord = inWord;
+        }
+        return false;
+    }
+
+    /**
+     * Best rated distinct ordinals seen, kept sorted by insertion.
+     */
+    private final class Top {
+        private final int[] ordinals;
+        private final double[] ratings;
+        private int size;
+
+        Top(int capacity) {
+            ordinals = new int[capacity];
+            ratings = new double[capacity];
+        }
+
+        void offer(int ordinal) {
+            double rating = store.imdbRating(ordinal);
+            if (size == ordinals.length && !before(rating, ordinal, ratings[size - 1], ordinals[size - 1])) {
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                if (ordinals[i] == ordinal) {
+                    return;
+                }
+            }
+            int i = Math.min(size, ordinals.length - 1);
+            while (i > 0 && before(rating, ordinal, ratings[i - 1], ordinals[i - 1])) {
+                ordinals[i] = ordinals[i - 1];
+                ratings[i] = ratings[i - 1];
+                i--;
+            }
+            ordinals[i] = ordinal;
+            ratings[i] = rating;
+            size = Math.min(size + 1, ordinals.length);
+        }
+
+        private boolean before(double rating, int ordinal, double otherRating, int otherOrdinal) {
+            return rating != otherRating ? rating > otherRating : ordinal < otherOrdinal;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ordinals, size);
+        }
+    }
+}
@@ -0,0 +1,570 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * Relevance-ranked, typo-tolerant search over movie names, directors and descriptions.
+ * The dictionary, postings and BK-tree are built with the index, off the request path
+ * like the {@link MovieSortIndex} orders, so ranked queries never wait for a build.
+ *
+ * <p>Text is split into lowercase letter-or-digit tokens. Each term keeps a posting list
+ * of ordinals with a precomputed BM25F term weight: the per-field counts are length
+ * normalized, weighted (name over director over description) and saturated. A query
+ * token also matches dictionary terms within a small edit distance, found with a
+ * BK-tree over the dictionary, so typos cost a walk of a few branches rather than a
+ * comparison with every term. Each edit discounts the match.</p>
+ *
+ * <p>Postings are accumulated term at a time, rarest query token first. A token whose
+ * postings are far longer than the current candidate set (typically a word like
+ * {@code the}) only re-scores those candidates by binary search instead of adding every
+ * movie that contains it.</p>
+ */
+final class MovieTextIndex {
+
+    static final float K1 = 1.2f;
+    static final float B = 0.75f;
+    /** Weights of the name, director and description fields. */
+    private static final float[] FIELD_WEIGHTS = {3.0f, 1.5f, 1.0f};
+    /** Score multiplier per edit between a query token and the term it matched. */
+    static final float EDIT_DISCOUNT = 0.6f;
+    /** Dictionary terms a single query token may expand to. */
+    static final int MAX_EXPANSIONS = 16;
+    /** A token this many times more frequent than the candidate set only re-scores it. */
+    static final int RESCORE_RATIO = 8;
+
+    private final Dictionary dictionary;
+
+    MovieTextIndex(MovieStore store) {
+        this.dictionary = new Dictionary(store);
+    }
+
+    /**
+     * Lowercase letter-or-digit runs of {@code text}.
+     */
+    static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inToken = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inToken && start < 0) {
+                start = i;
+            } else if (!inToken && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Edits tolerated for a query token: none for short tokens and numbers, one up to seven
+     * characters, two beyond.
+     */
+    static int maxEdits(String token) {
+        if (token.length() < 4 || !hasLetter(token)) {
+            return 0;
+        }
+        return token.length() < 8 ? 1 : 2;
+    }
+
+    private static boolean hasLetter(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.isLetter(token.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Levenshtein distance, or {@code max + 1} as soon as it must exceed {@code max}.
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+
+    /**
+     * Resolve the tokens of {@code text} to the dictionary terms they match.
+     */
+    Query parse(String text) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(tokens(text)));
+        Query query = new Query(tokens.size());
+        for (int t = 0; t < tokens.size(); t++) {
+            String token = tokens.get(t);
+            int edits = maxEdits(token);
+            List<int[]> matches = new ArrayList<>();
+            int exact = dictionary.termId(token);
+            if (exact >= 0) {
+                matches.add(new int[] {exact, 0});
+            }
+            if (edits > 0) {
+                dictionary.tree.collect(token, edits, dictionary.terms, matches);
+            }
+            // Closest terms first, then the most common, so the cap keeps the likeliest intent
+            matches.sort((x, y) -> x[1] != y[1] ? Integer.compare(x[1], y[1])
+                    : Integer.compare(dictionary.postings[y[0]].length, dictionary.postings[x[0]].length));
+            int count = Math.min(matches.size(), MAX_EXPANSIONS);
+            query.tokens[t] = token;
+            query.maxEdits[t] = edits;
+            query.termIds[t] = new int[count];
+            query.weights[t] = new float[count];
+            for (int e = 0; e < count; e++) {
+                int termId = matches.get(e)[0];
+                query.termIds[t][e] = termId;
+                query.weights[t][e] = dictionary.idf(dictionary.postings[termId].length)
+                        * (float) Math.pow(EDIT_DISCOUNT, matches.get(e)[1]);
+                query.postings[t] += dictionary.postings[termId].length;
+            }
+        }
+        return query;
+    }
+
+    /**
+     * Score every indexed movie that matches at least one query token.
+     */
+    Hits search(Query query) {
+        Integer[] order = new Integer[query.tokens.length];
+        for (int t = 0; t < order.length; t++) {
+            order[t] = t;
+        }
+        Arrays.sort(order, (x, y) -> Long.compare(query.postings[x], query.postings[y]));
+
+        Hits hits = new Hits();
+        for (int t : order) {
+            boolean rescoreOnly = hits.size > 0 && query.postings[t] > (long) hits.size * RESCORE_RATIO;
+            for (int e = 0; e < query.termIds[t].length; e++) {
+                int[] postings = dictionary.postings[query.termIds[t][e]];
+                float[] termWeights = dictionary.termWeights[query.termIds[t][e]];
+                float weight = query.weights[t][e];
+                if (rescoreOnly) {
+                    for (int slot = 0; slot < hits.size; slot++) {
+                        int index = Arrays.binarySearch(postings, hits.ordinals[slot]);
+                        if (index >= 0) {
+                            hits.score(slot, t, weight * termWeights[index]);
+                        }
+                    }
+                } else {
+                    for (int i = 0; i < postings.length; i++) {
+                        hits.add(postings[i], t, weight * termWeights[i]);
+                    }
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Score a movie that is not in the index, e.g. one edited since the catalog was
+     * indexed, with the same statistics as indexed movies.
+     *
+     * @return the score, or {@code 0} if no query token matches
+     */
+    float score(Query query, Movie movie) {
+        String[] fields = {movie.getMovieName(), movie.getDirector(), movie.getDescription()};
+        int[] lengths = new int[fields.length];
+        Map<String, int[]> counts = Dictionary.count(fields, lengths);
+        float score = 0;
+        for (int t = 0; t < query.tokens.length; t++) {
+            float best = 0;
+            for (Map.Entry<String, int[]> term : counts.entrySet()) {
+                int edits = distance(query.tokens[t], term.getKey(), query.maxEdits[t]);
+                if (edits > query.maxEdits[t]) {
+                    continue;
+                }
+                int termId = dictionary.termId(term.getKey());
+                float idf = dictionary.idf(termId >= 0 ? dictionary.postings[termId].length : 0);
+                best = Math.max(best, idf * (float) Math.pow(EDIT_DISCOUNT, edits)
+                        * dictionary.termWeight(term.getValue(), lengths));
+            }
+            score += best;
+        }
+        return score;
+    }
+
+    /**
+     * Query tokens with the dictionary terms each expands to and their weights.
+     */
+    static final class Query {
+        final String[] tokens;
+        final int[] maxEdits;
+        final int[][] termIds;
+        final float[][] weights;
+        /** Total postings of each token's terms, to process rare tokens first. */
+        final long[] postings;
+
+        private Query(int size) {
+            this.tokens = new String[size];
+            this.maxEdits = new int[size];
+            this.termIds = new int[size][];
+            this.weights = new float[size][];
+            this.postings = new long[size];
+        }
+    }
+
+    /**
+     * Scored ordinals in no particular order. Each query token contributes its best
+     * matching term, so a movie matching both {@code prison} and {@code prisons} for the
+     * token {@code prisn} is not counted twice.
+     */
+    static final class Hits {
+        private int[] ordinals = new int[16];
+        private float[] scores = new float[16];
+        private float[] tokenScores = new float[16];
+        private int[] lastToken = new int[16];
+        private int size;
+        /** Open-addressing table from ordinal + 1 to slot + 1. */
+        private int[] table = new int[32];
+
+        int size() {
+            return size;
+        }
+
+        void add(int ordinal, int token, float score) {
+            int mask = table.length - 1;
+            int bucket = (ordinal * 0x9E3779B9) >>> 1 & mask;
+            while (table[bucket] != 0) {
+                int slot = table[bucket] - 1;
+                if (ordinals[slot] == ordinal) {
+                    score(slot, token, score);
+                    return;
+                }
+                bucket = (bucket + 1) & mask;
+            }
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+                tokenScores = Arrays.copyOf(tokenScores, size * 2);
+                lastToken = Arrays.copyOf(lastToken, size * 2);
+            }
+            ordinals[size] = ordinal;
+            scores[size] = score;
+            tokenScores[size] = score;
+            lastToken[size] = token;
+            table[bucket] = ++size;
+            if (size * 2 > table.length) {
+                rehash(table.length * 2);
+            }
+        }
+
+        private void score(int slot, int token, float score) {
+            if (lastToken[slot] != token) {
+                lastToken[slot] = token;
+                tokenScores[slot] = score;
+                scores[slot] += score;
+            } else if (score > tokenScores[slot]) {
+                scores[slot] += score - tokenScores[slot];
+                tokenScores[slot] = score;
+            }
+        }
+
+        /**
+         * Drop the hits whose ordinal fails {@code keep}.
+         */
+        void retain(IntPredicate keep) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (keep.test(ordinals[i])) {
+                    ordinals[kept] = ordinals[i];
+                    scores[kept] = scores[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            rehash(table.length);
+        }
+
+        private void rehash(int capacity) {
+            table = new int[capacity];
+            int mask = capacity - 1;
+            for (int slot = 0; slot < size; slot++) {
+                int bucket = (ordinals[slot] * 0x9E3779B9) >>> 1 & mask;
+                while (table[bucket] != 0) {
+                    bucket = (bucket + 1) & mask;
+                }
+                table[bucket] = slot + 1;
+            }
+        }
+
+        /**
+         * Ordinals {@code [offset, offset + limit)} by descending score, ties in catalog
+         * order. Keeps a bounded min-heap of the best {@code offset + limit} hits.
+         */
+        int[] page(int offset, int limit) {
+            int end = (int) Math.min((long) offset + limit, size);
+            if (offset >= end) {
+                return new int[0];
+            }
+            // Scores are positive, so their bits order like the floats; ordinals are inverted
+            long[] heap = new long[end];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                long key = (long) Float.floatToIntBits(scores[i]) << 32 | (Integer.MAX_VALUE - ordinals[i]);
+                if (count < end) {
+                    heap[count] = key;
+                    siftUp(heap, count++);
+                } else if (key > heap[0]) {
+                    heap[0] = key;
+                    siftDown(heap, count);
+                }
+            }
+            Arrays.sort(heap, 0, count);
+            int[] page = new int[end - offset];
+            for (int i = 0; i < page.length; i++) {
+                page[i] = Integer.MAX_VALUE - (int) heap[count - 1 - offset - i];
+            }
+            return page;
+        }
+
+        private static void siftUp(long[] heap, int index) {
+            long value = heap[index];
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (heap[parent] <= value) {
+                    break;
+                }
+                heap[index] = heap[parent];
+                index = parent;
+            }
+            heap[index] = value;
+        }
+
+        private static void siftDown(long[] heap, int size) {
+            long value = heap[0];
+            int index = 0;
+            int half = size >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                if (child + 1 < size && heap[child + 1] < heap[child]) {
+                    child++;
+                }
+                if (value <= heap[child]) {
+                    break;
+                }
+                heap[index] = heap[child];
+                index = child;
+            }
+            heap[index] = value;
+        }
+    }
+
+    /**
+     * Sorted term dictionary with weighted posting lists and the BK-tree used for typos.
+     */
+    private static final class Dictionary {
+        private final int documents;
+        private final String[] terms;
+        private final int[][] postings;
+        private final float[][] termWeights;
+        private final float[] averageLengths = new float[FIELD_WEIGHTS.length];
+        private final BkTree tree;
+
+        Dictionary(MovieStore store) {
+            int size = store.size();
+            this.documents = size;
+            int[][] lengths = new int[FIELD_WEIGHTS.length][size];
+            Map<String, MovieSearchIndex.IntList[]> building = new HashMap<>();
+            int[] movieLengths = new int[FIELD_WEIGHTS.length];
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                String[] fields = {store.movieName(ordinal), store.director(ordinal), store.description(ordinal)};
+                Map<String, int[]> counts = count(fields, movieLengths);
+                for (int f = 0; f < FIELD_WEIGHTS.length; f++) {
+                    lengths[f][ordinal] = movieLengths[f];
+                }
+                for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+                    MovieSearchIndex.IntList[] lists = building.computeIfAbsent(entry.getKey(),
+                            k -> new MovieSearchIndex.IntList[] {new MovieSearchIndex.IntList(), new MovieSearchIndex.IntList()});
+                    int[] tf = entry.getValue();
+                    lists[0].add(ordinal);
+                    // Name and director counts rarely pass a few; descriptions get the wider slot
+                    lists[1].add(Math.min(tf[0], 0x3FF) << 22 | Math.min(tf[1], 0x3FF) << 12 | Math.min(tf[2], 0xFFF));
+                }
+            }
+            for (int f = 0; f < FIELD_WEIGHTS.length; f++) {
+                long total = 0;
+                for (int length : lengths[f]) {
+                    total += length;
+                }
+                averageLengths[f] = size > 0 && total > 0 ? (float) total / size : 1f;
+            }
+
+            this.terms = building.keySet().toArray(new String[0]);
+            Arrays.sort(terms);
+            this.postings = new int[terms.length][];
+            this.termWeights = new float[terms.length][];
+            int[] tf = new int[FIELD_WEIGHTS.length];
+            int[] movieFieldLengths = new int[FIELD_WEIGHTS.length];
+            for (int id = 0; id < terms.length; id++) {
+                MovieSearchIndex.IntList[] lists = building.remove(terms[id]);
+                int[] ordinals = lists[0].toArray();
+                int[] packed = lists[1].toArray();
+                float[] weights = new float[ordinals.length];
+                for (int i = 0; i < ordinals.length; i++) {
+                    tf[0] = packed[i] >>> 22;
+                    tf[1] = packed[i] >>> 12 & 0x3FF;
+                    tf[2] = packed[i] & 0xFFF;
+                    for (int f = 0; f < FIELD_WEIGHTS.length; f++) {
+                        movieFieldLengths[f] = lengths[f][ordinals[i]];
+                    }
+                    weights[i] = termWeight(tf, movieFieldLengths);
+                }
+                postings[id] = ordinals;
+                termWeights[id] = weights;
+            }
+            this.tree = new BkTree(terms);
+        }
+
+        /**
+         * Per-term field counts of one movie; {@code lengths} receives the token count of
+         * each field.
+         */
+        static Map<String, int[]> count(String[] fields, int[] lengths) {
+            Map<String, int[]> counts = new HashMap<>();
+            for (int f = 0; f < fields.length; f++) {
+                List<String> tokens = tokens(fields[f]);
+                lengths[f] = tokens.size();
+                for (String token : tokens) {
+                    counts.computeIfAbsent(token, k -> new int[FIELD_WEIGHTS.length])[f]++;
+                }
+            }
+            return counts;
+        }
+
+        /**
+         * BM25F: length-normalized, weighted field counts, saturated once over all fields.
+         */
+        float termWeight(int[] tf, int[] lengths) {
+            float weighted = 0;
+            for (int f = 0; f < FIELD_WEIGHTS.length; f++) {
+                if (tf[f] > 0) {
+                    weighted += FIELD_WEIGHTS[f] * tf[f] / (1 - B + B * lengths[f] / averageLengths[f]);
+                }
+            }
+            return weighted / (K1 + weighted);
+        }
+
+        float idf(int documentFrequency) {
+            return (float) Math.log(1 + (documents - documentFrequency + 0.5) / (documentFrequency + 0.5));
+        }
+
+        int termId(String term) {
+            int id = Arrays.binarySearch(terms, term);
+            return id >= 0 ? id : -1;
+        }
+    }
+
+    /**
+     * Burkhard-Keller tree over the dictionary terms that contain a letter. Each child hangs
+     * off its parent by their edit distance, so by the triangle inequality a search for
+     * terms within {@code k} edits of a query at distance {@code d} from a node only
+     * descends into children at distances {@code d - k} to {@code d + k}.
+     */
+    private static final class BkTree {
+        private static final int MAX_TERM_LENGTH = 32;
+
+        private final int[] termIds;
+        private final int[] firstChild;
+        private final int[] nextSibling;
+        private final int[] edge;
+        private int size;
+
+        BkTree(String[] terms) {
+            termIds = new int[terms.length];
+            firstChild = new int[terms.length];
+            nextSibling = new int[terms.length];
+            edge = new int[terms.length];
+            Arrays.fill(firstChild, -1);
+            Arrays.fill(nextSibling, -1);
+            for (int id = 0; id < terms.length; id++) {
+                String term = terms[id];
+                if (term.length() >= 3 && term.length() <= MAX_TERM_LENGTH && hasLetter(term)) {
+                    insert(terms, id);
+                }
+            }
+        }
+
+        private void insert(String[] terms, int termId) {
+            int node = size++;
+            termIds[node] = termId;
+            if (node == 0) {
+                return;
+            }
+            int parent = 0;
+            while (true) {
+                int d = distance(terms[termIds[parent]], terms[termId], Integer.MAX_VALUE - 1);
+                int child = firstChild[parent];
+                while (child >= 0 && edge[child] != d) {
+                    child = nextSibling[child];
+                }
+                if (child < 0) {
+                    edge[node] = d;
+                    nextSibling[node] = firstChild[parent];
+                    firstChild[parent] = node;
+                    return;
+                }
+                parent = child;
+            }
+        }
+
+        /**
+         * Add {@code {termId, distance}} for every term within {@code k} edits of
+         * {@code query}, other than the query itself.
+         */
+        void collect(String query, int k, String[] terms, List<int[]> out) {
+            if (size == 0) {
+                return;
+            }
+            int[] stack = new int[64];
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                int node = stack[--top];
+                String term = terms[termIds[node]];
+                int d = distance(query, term, Integer.MAX_VALUE - 1);
+                if (d > 0 && d <= k) {
+                    out.add(new int[] {termIds[node], d});
+                }
+                for (int child = firstChild[node]; child >= 0; child = nextSibling[child]) {
+                    if (edge[child] >= d - k && edge[child] <= d + k) {
+                        if (top == stack.length) {
+                            stack = Arrays.copyOf(stack, top * 2);
+                        }
+                        stack[top++] = child;
+                    }
+                }
+            }
+        }
+    }
+}
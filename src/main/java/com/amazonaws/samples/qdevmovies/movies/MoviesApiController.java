@@ -0,0 +1,452 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * JSON counterpart of {@link MoviesController} for API clients.
+ *
+ * <p>Responses are written field by field with a {@link JsonGenerator} directly to the
+ * response stream, so neither a tree of maps nor the full response body is buffered.
+ * Movie endpoints accept a {@code fields} parameter with a comma-separated list of the
+ * properties to include.</p>
+ *
+ * <p>Movies are added, replaced and deleted through {@code POST}, {@code PUT} and
+ * {@code DELETE}, with bodies in the same format as the catalog file. Changes are
+ * visible to the next request. These are meant for an ingest pipeline on a trusted
+ * network and answer {@code 403} unless {@code movies.api.writes-enabled} is set.
+ * Reviews are added through {@code POST} and go through the {@link ReviewJournal}.</p>
+ */
+@RestController
+@RequestMapping("/api/movies")
+public class MoviesApiController {
+    private static final Logger logger = LogManager.getLogger(MoviesApiController.class);
+    static final int DEFAULT_REVIEW_PAGE_SIZE = 20;
+    static final int DEFAULT_SUGGESTIONS = 8;
+    private static final Set<MovieField> SUGGESTION_FIELDS =
+            EnumSet.of(MovieField.ID, MovieField.MOVIE_NAME, MovieField.DIRECTOR, MovieField.YEAR, MovieField.IMDB_RATING);
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private ReviewJournal reviewJournal;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${movies.api.writes-enabled:false}")
+    private boolean writesEnabled;
+
+    @GetMapping
+    public ResponseEntity<StreamingResponseBody> getMovies(
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "" + MoviesController.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "fields", required = false) String fields) {
+        logger.info("API fetching movies - page: {}, size: {}, sort: {}, fields: {}", page, size, sort, fields);
+        try {
+            Set<MovieField> selected = MovieField.parse(fields);
+            return json(HttpStatus.OK, pageWriter(movieService.getMoviesPage(page, size, MovieSort.fromParameter(sort)), selected));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid API parameters: {}", e.getMessage());
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<StreamingResponseBody> searchMovies(
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "id", required = false) Long id,
+            @RequestParam(value = "genre", required = false) String genre,
+            @RequestParam(value = "director", required = false) String director,
+            @RequestParam(value = "yearFrom", required = false) Integer yearFrom,
+            @RequestParam(value = "yearTo", required = false) Integer yearTo,
+            @RequestParam(value = "minDuration", required = false) Integer minDuration,
+            @RequestParam(value = "maxDuration", required = false) Integer maxDuration,
+            @RequestParam(value = "minRating", required = false) Double minRating,
+            @RequestParam(value = "maxRating", required = false) Double maxRating,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "" + MoviesController.DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "fields", required = false) String fields) {
+        logger.info("API searching movies - name: {}, id: {}, genre: {}, director: {}, years: {}-{}, duration: {}-{}, "
+                        + "rating: {}-{}, page: {}, size: {}, sort: {}, fields: {}",
+                name, id, genre, director, yearFrom, yearTo, minDuration, maxDuration, minRating, maxRating,
+                page, size, sort, fields);
+        if (id != null && id <= 0) {
+            return error(HttpStatus.BAD_REQUEST, "Movie id must be positive: " + id);
+        }
+        try {
+            Set<MovieField> selected = MovieField.parse(fields);
+            MovieFilter filter = new MovieFilter.Builder()
+                    .name(name).id(id).genre(genre).director(director)
+                    .years(yearFrom, yearTo)
+                    .duration(minDuration, maxDuration)
+                    .rating(minRating, maxRating)
+                    .build();
+            MoviePage results = movieService.searchMovies(filter, page, size, MovieSort.fromParameter(sort));
+            return json(HttpStatus.OK, pageWriter(results, selected));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid API parameters: {}", e.getMessage());
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Number of movies matching the search criteria and how they split by genre, counted
+     * without listing them.
+     */
+    @GetMapping("/facets")
+    public ResponseEntity<StreamingResponseBody> getFacets(
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "genre", required = false) String genre,
+            @RequestParam(value = "director", required = false) String director,
+            @RequestParam(value = "yearFrom", required = false) Integer yearFrom,
+            @RequestParam(value = "yearTo", required = false) Integer yearTo,
+            @RequestParam(value = "minDuration", required = false) Integer minDuration,
+            @RequestParam(value = "maxDuration", required = false) Integer maxDuration,
+            @RequestParam(value = "minRating", required = false) Double minRating,
+            @RequestParam(value = "maxRating", required = false) Double maxRating) {
+        logger.info("API counting movies - name: {}, genre: {}, director: {}, years: {}-{}, duration: {}-{}, rating: {}-{}",
+                name, genre, director, yearFrom, yearTo, minDuration, maxDuration, minRating, maxRating);
+        try {
+            MovieFilter filter = new MovieFilter.Builder()
+                    .name(name).genre(genre).director(director)
+                    .years(yearFrom, yearTo)
+                    .duration(minDuration, maxDuration)
+                    .rating(minRating, maxRating)
+                    .build();
+            int total = movieService.countMovies(filter);
+            List<GenreFacet> facets = movieService.getGenreFacets(filter);
+            return json(HttpStatus.OK, generator -> {
+                generator.writeStartObject();
+                generator.writeNumberField("totalElements", total);
+                generator.writeArrayFieldStart("genres");
+                for (GenreFacet facet : facets) {
+                    generator.writeStartObject();
+                    generator.writeStringField("name", facet.getName());
+                    generator.writeNumberField("count", facet.getCount());
+                    generator.writeEndObject();
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            });
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid API parameters: {}", e.getMessage());
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Type-ahead suggestions for the search box, best rated first. Called on every
+     * keystroke, so it logs at debug level only.
+     */
+    @GetMapping("/suggest")
+    public ResponseEntity<StreamingResponseBody> suggestMovies(
+            @RequestParam(value = "q", required = false) String query,
+            @RequestParam(value = "limit", defaultValue = "" + DEFAULT_SUGGESTIONS) int limit,
+            @RequestParam(value = "fields", required = false) String fields) {
+        logger.debug("API suggesting movies - q: {}, limit: {}", query, limit);
+        try {
+            Set<MovieField> selected = fields != null ? MovieField.parse(fields) : SUGGESTION_FIELDS;
+            List<Movie> suggestions = movieService.suggestMovies(query, limit);
+            return json(HttpStatus.OK, generator -> {
+                generator.writeStartObject();
+                generator.writeStringField("query", query != null ? query : "");
+                generator.writeArrayFieldStart("suggestions");
+                for (Movie movie : suggestions) {
+                    writeMovie(generator, movie, selected);
+                }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            });
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid API parameters: {}", e.getMessage());
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<StreamingResponseBody> getMovieDetails(
+            @PathVariable("id") Long movieId,
+            @RequestParam(value = "fields", required = false) String fields) {
+        logger.info("API fetching details for movie ID: {}", movieId);
+        Set<MovieField> selected;
+        try {
+            selected = MovieField.parse(fields);
+        } catch (IllegalArgumentException e) {
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        Optional<Movie> movie = movieService.getMovieById(movieId);
+        if (!movie.isPresent()) {
+            logger.warn("Movie with ID {} not found", movieId);
+            return error(HttpStatus.NOT_FOUND, "Movie " + movieId + " not found");
+        }
+        return json(HttpStatus.OK, generator -> writeMovie(generator, movie.get(), selected));
+    }
+
+    /**
+     * One page of a movie's reviews, newest first unless {@code sort} says otherwise. A
+     * {@code cursor} from the previous page's {@code nextCursor} takes precedence over
+     * {@code page} and keeps paging stable while reviews are added.
+     */
+    @GetMapping("/{id}/reviews")
+    public ResponseEntity<StreamingResponseBody> getReviews(
+            @PathVariable("id") Long movieId,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "" + DEFAULT_REVIEW_PAGE_SIZE) int size,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "cursor", required = false) String cursor) {
+        logger.info("API fetching reviews for movie ID: {} - page: {}, size: {}, sort: {}, cursor: {}",
+                movieId, page, size, sort, cursor);
+        ReviewPage reviews;
+        try {
+            ReviewSort reviewSort = ReviewSort.fromParameter(sort);
+            reviews = cursor != null && !cursor.trim().isEmpty()
+                    ? reviewService.getReviewPage(movieId, reviewSort, cursor, size)
+                    : reviewService.getReviewPage(movieId, reviewSort, page, size);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid review parameters: {}", e.getMessage());
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (!movieService.getMovieById(movieId).isPresent()) {
+            return error(HttpStatus.NOT_FOUND, "Movie " + movieId + " not found");
+        }
+        return json(HttpStatus.OK, generator -> {
+            generator.writeStartObject();
+            if (cursor == null || cursor.trim().isEmpty()) {
+                generator.writeNumberField("page", page);
+            }
+            generator.writeNumberField("size", reviews.getSize());
+            generator.writeNumberField("totalElements", reviews.getTotalElements());
+            generator.writeStringField("sort", reviews.getSort().getParameter());
+            generator.writeStringField("nextCursor", reviews.getNextCursor());
+            generator.writeArrayFieldStart("reviews");
+            for (Review review : reviews.getReviews()) {
+                writeReview(generator, review);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        });
+    }
+
+    /**
+     * Store a review, with a body of the form
+     * {@code {"userName": ..., "avatarEmoji": ..., "rating": 4.5, "comment": ...}}. The
+     * response comes once the review is durable and visible to reads; reviews arriving
+     * together share one write to disk. A full write queue answers {@code 503}.
+     */
+    @PostMapping("/{id}/reviews")
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> createReview(@PathVariable("id") Long movieId,
+                                                                                 @RequestBody String body) {
+        if (!movieService.getMovieById(movieId).isPresent()) {
+            return CompletableFuture.completedFuture(error(HttpStatus.NOT_FOUND, "Movie " + movieId + " not found"));
+        }
+        Review review;
+        CompletableFuture<Integer> stored;
+        try {
+            JSONObject json = new JSONObject(body);
+            review = new Review(json.getString("userName"), json.optString("avatarEmoji", ""),
+                    json.getDouble("rating"), json.optString("comment", ""));
+            stored = reviewJournal.submit(movieId, review);
+        } catch (JSONException | IllegalArgumentException e) {
+            logger.warn("Invalid review: {}", e.getMessage());
+            return CompletableFuture.completedFuture(error(HttpStatus.BAD_REQUEST, e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Rejected review for movie {}: {}", movieId, e.getMessage());
+            return CompletableFuture.completedFuture(error(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage()));
+        }
+        return stored.handle((reviewCount, failure) -> {
+            if (failure != null) {
+                logger.error("Failed to store review for movie {}: {}", movieId, failure.getMessage());
+                return error(HttpStatus.SERVICE_UNAVAILABLE, "Review could not be stored, try again later");
+            }
+            return json(HttpStatus.CREATED, generator -> {
+                generator.writeStartObject();
+                generator.writeNumberField("movieId", movieId);
+                generator.writeNumberField("reviewCount", reviewCount);
+                generator.writeFieldName("review");
+                writeReview(generator, review);
+                generator.writeEndObject();
+            });
+        });
+    }
+
+    @PostMapping
+    public ResponseEntity<StreamingResponseBody> createMovie(@RequestBody String body) {
+        if (!writesEnabled) {
+            return writesDisabled();
+        }
+        try {
+            Movie movie = movieService.addMovie(MovieCatalogLoader.toMovie(new JSONObject(body)));
+            return json(HttpStatus.CREATED, generator -> writeMovie(generator, movie, EnumSet.allOf(MovieField.class)));
+        } catch (JSONException | IllegalArgumentException e) {
+            logger.warn("Invalid movie: {}", e.getMessage());
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            return error(HttpStatus.CONFLICT, e.getMessage());
+        }
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<StreamingResponseBody> updateMovie(@PathVariable("id") Long movieId,
+                                                             @RequestBody String body) {
+        if (!writesEnabled) {
+            return writesDisabled();
+        }
+        Movie movie;
+        try {
+            movie = MovieCatalogLoader.toMovie(new JSONObject(body));
+            if (movie.getId() != movieId) {
+                return error(HttpStatus.BAD_REQUEST, "Movie id " + movie.getId() + " does not match the path id " + movieId);
+            }
+            if (!movieService.updateMovie(movie).isPresent()) {
+                return error(HttpStatus.NOT_FOUND, "Movie " + movieId + " not found");
+            }
+        } catch (JSONException | IllegalArgumentException e) {
+            logger.warn("Invalid movie: {}", e.getMessage());
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return json(HttpStatus.OK, generator -> writeMovie(generator, movie, EnumSet.allOf(MovieField.class)));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<StreamingResponseBody> deleteMovie(@PathVariable("id") Long movieId) {
+        if (!writesEnabled) {
+            return writesDisabled();
+        }
+        if (!movieService.deleteMovie(movieId).isPresent()) {
+            return error(HttpStatus.NOT_FOUND, "Movie " + movieId + " not found");
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Add or replace a JSON array of movies, in the catalog file's format, as one batch.
+     * The array is parsed as it streams in; nothing changes unless every movie is valid.
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<StreamingResponseBody> upsertMovies(Reader body) {
+        if (!writesEnabled) {
+            return writesDisabled();
+        }
+        List<Movie> movies = new ArrayList<>();
+        int added;
+        try {
+            MovieCatalogLoader.read(body, movies::add);
+            added = movieService.upsertMovies(movies);
+        } catch (JSONException | IllegalArgumentException e) {
+            logger.warn("Invalid movie batch: {}", e.getMessage());
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        int total = movieService.getCatalogSize();
+        return json(HttpStatus.OK, generator -> {
+            generator.writeStartObject();
+            generator.writeNumberField("upserted", movies.size());
+            generator.writeNumberField("added", added);
+            generator.writeNumberField("totalElements", total);
+            generator.writeEndObject();
+        });
+    }
+
+    private ResponseEntity<StreamingResponseBody> writesDisabled() {
+        logger.warn("Rejected a catalog change, movies.api.writes-enabled is off");
+        return error(HttpStatus.FORBIDDEN, "Catalog changes are disabled");
+    }
+
+    private JsonWriter pageWriter(MoviePage moviePage, Set<MovieField> fields) {
+        return generator -> {
+            generator.writeStartObject();
+            generator.writeNumberField("page", moviePage.getPage());
+            generator.writeNumberField("size", moviePage.getSize());
+            generator.writeNumberField("totalElements", moviePage.getTotalElements());
+            generator.writeNumberField("totalPages", moviePage.getTotalPages());
+            generator.writeStringField("sort", moviePage.getSort().getParameter());
+            generator.writeArrayFieldStart("movies");
+            for (Movie movie : moviePage.getMovies()) {
+                writeMovie(generator, movie, fields);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        };
+    }
+
+    private void writeMovie(JsonGenerator generator, Movie movie, Set<MovieField> fields) throws IOException {
+        generator.writeStartObject();
+        for (MovieField field : fields) {
+            field.write(generator, movie, movieService::getReviewSummary);
+        }
+        generator.writeEndObject();
+    }
+
+    static void writeReview(JsonGenerator generator, Review review) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("userName", review.getUserName());
+        generator.writeStringField("avatarEmoji", review.getAvatarEmoji());
+        generator.writeNumberField("rating", review.getRating());
+        generator.writeStringField("comment", review.getComment());
+        generator.writeEndObject();
+    }
+
+    private ResponseEntity<StreamingResponseBody> error(HttpStatus status, String message) {
+        return json(status, generator -> {
+            generator.writeStartObject();
+            generator.writeNumberField("status", status.value());
+            generator.writeStringField("error", message);
+            generator.writeEndObject();
+        });
+    }
+
+    private ResponseEntity<StreamingResponseBody> json(HttpStatus status, JsonWriter writer) {
+        StreamingResponseBody body = outputStream -> {
+            // The servlet container owns the response stream; only flush it
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            try {
+                writer.write(generator);
+            } finally {
+                generator.close();
+            }
+        };
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @FunctionalInterface
+    private interface JsonWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+}
@@ -9,12 +9,15 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Controller
 public class MoviesController {
     private static final Logger logger = LogManager.getLogger(MoviesController.class);
+    static final int DEFAULT_PAGE_SIZE = 24;
 
     @Autowired
     private MovieService movieService;
@@ -23,10 +26,20 @@ public class MoviesController {
     private ReviewService reviewService;
 
     @GetMapping("/movies")
-    public String getMovies(org.springframework.ui.Model model) {
-        logger.info("Fetching movies");
-        model.addAttribute("movies", movieService.getAllMovies());
-        model.addAttribute("genres", movieService.getAllGenres());
+    public String getMovies(
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(value = "sort", required = false) String sort,
+            org.springframework.ui.Model model) {
+        logger.info("Fetching movies - page: {}, size: {}, sort: {}", page, size, sort);
+        try {
+            addPage(model, movieService.getMoviesPage(page, size, MovieSort.fromParameter(sort)));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid paging parameters provided: {}", e.getMessage());
+            model.addAttribute("movies", List.of());
+            model.addAttribute("errorMessage", "Shiver me timbers! Invalid page or sort order provided, matey!");
+        }
+        addGenreFacets(model);
         return "movies";
     }
 
@@ -35,16 +48,38 @@ public class MoviesController {
             @RequestParam(value = "name", required = false) String name,
             @RequestParam(value = "id", required = false) Long id,
             @RequestParam(value = "genre", required = false) String genre,
+            @RequestParam(value = "director", required = false) String director,
+            @RequestParam(value = "yearFrom", required = false) Integer yearFrom,
+            @RequestParam(value = "yearTo", required = false) Integer yearTo,
+            @RequestParam(value = "minDuration", required = false) Integer minDuration,
+            @RequestParam(value = "maxDuration", required = false) Integer maxDuration,
+            @RequestParam(value = "minRating", required = false) Double minRating,
+            @RequestParam(value = "maxRating", required = false) Double maxRating,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+            @RequestParam(value = "sort", required = false) String sort,
             org.springframework.ui.Model model) {
         
-        logger.info("Searching movies with criteria - name: {}, id: {}, genre: {}", name, id, genre);
+        logger.info("Searching movies with criteria - name: {}, id: {}, genre: {}, director: {}, years: {}-{}, "
+                        + "duration: {}-{}, rating: {}-{}, page: {}, size: {}, sort: {}",
+                name, id, genre, director, yearFrom, yearTo, minDuration, maxDuration, minRating, maxRating,
+                page, size, sort);
+        
+        // The extra criteria are echoed back into the form whatever the outcome
+        model.addAttribute("searchDirector", director);
+        model.addAttribute("searchYearFrom", yearFrom);
+        model.addAttribute("searchYearTo", yearTo);
+        model.addAttribute("searchMinDuration", minDuration);
+        model.addAttribute("searchMaxDuration", maxDuration);
+        model.addAttribute("searchMinRating", minRating);
+        model.addAttribute("searchMaxRating", maxRating);
         
         try {
             // Validate ID parameter if provided
             if (id != null && id <= 0) {
                 logger.warn("Invalid movie ID provided: {}", id);
                 model.addAttribute("movies", List.of());
-                model.addAttribute("genres", movieService.getAllGenres());
+                addGenreFacets(model);
                 model.addAttribute("searchPerformed", true);
                 model.addAttribute("searchName", name);
                 model.addAttribute("searchId", null); // Don't show invalid ID
@@ -53,37 +88,40 @@ public class MoviesController {
                 return "movies";
             }
             
-            List<Movie> searchResults = movieService.searchMovies(name, id, genre);
+            MovieFilter filter = new MovieFilter.Builder()
+                    .name(name).id(id).genre(genre).director(director)
+                    .years(yearFrom, yearTo)
+                    .duration(minDuration, maxDuration)
+                    .rating(minRating, maxRating)
+                    .build();
+            MoviePage searchResults = movieService.searchMovies(filter, page, size, MovieSort.fromParameter(sort));
             
-            model.addAttribute("movies", searchResults);
-            model.addAttribute("genres", movieService.getAllGenres());
+            addPage(model, searchResults);
+            addGenreFacets(model);
             model.addAttribute("searchPerformed", true);
             model.addAttribute("searchName", name);
             model.addAttribute("searchId", id);
             model.addAttribute("searchGenre", genre);
             
             // Add pirate-themed messages based on results
-            if (searchResults.isEmpty()) {
-                boolean hasSearchCriteria = (name != null && !name.trim().isEmpty()) || 
-                                          id != null || 
-                                          (genre != null && !genre.trim().isEmpty());
-                if (hasSearchCriteria) {
+            if (searchResults.getTotalElements() == 0) {
+                if (!filter.isEmpty()) {
                     model.addAttribute("noResultsMessage", "Arrr! No treasure found with those search terms, ye scurvy dog! Try different criteria to find yer movie bounty!");
                 }
             } else {
-                String treasureMessage = searchResults.size() == 1 ? 
+                String treasureMessage = searchResults.getTotalElements() == 1 ? 
                     "Ahoy! Found 1 movie treasure for ye, matey!" :
-                    "Shiver me timbers! Found " + searchResults.size() + " movie treasures in our chest!";
+                    "Shiver me timbers! Found " + searchResults.getTotalElements() + " movie treasures in our chest!";
                 model.addAttribute("successMessage", treasureMessage);
             }
             
-            logger.info("Search completed. Found {} movies", searchResults.size());
+            logger.info("Search completed. Found {} movies", searchResults.getTotalElements());
             return "movies";
             
         } catch (IllegalArgumentException e) {
             logger.error("Invalid search parameters provided: {}", e.getMessage(), e);
             model.addAttribute("movies", List.of());
-            model.addAttribute("genres", movieService.getAllGenres());
+            addGenreFacets(model);
             model.addAttribute("searchPerformed", true);
             model.addAttribute("searchName", name);
             model.addAttribute("searchId", id);
@@ -93,7 +131,7 @@ public class MoviesController {
         } catch (RuntimeException e) {
             logger.error("Runtime error occurred during movie search: {}", e.getMessage(), e);
             model.addAttribute("movies", List.of());
-            model.addAttribute("genres", movieService.getAllGenres());
+            addGenreFacets(model);
             model.addAttribute("searchPerformed", true);
             model.addAttribute("searchName", name);
             model.addAttribute("searchId", id);
@@ -103,9 +141,16 @@ public class MoviesController {
         }
     }
 
+    /**
+     * Details of a movie with one page of its reviews; {@code reviews} is the cursor of the
+     * page to show, from the previous page's "more reviews" link.
+     */
     @GetMapping("/movies/{id}/details")
-    public String getMovieDetails(@PathVariable("id") Long movieId, org.springframework.ui.Model model) {
-        logger.info("Fetching details for movie ID: {}", movieId);
+    public String getMovieDetails(@PathVariable("id") Long movieId,
+                                  @RequestParam(value = "reviewSort", required = false) String reviewSort,
+                                  @RequestParam(value = "reviews", required = false) String reviewCursor,
+                                  org.springframework.ui.Model model) {
+        logger.info("Fetching details for movie ID: {} - review sort: {}, cursor: {}", movieId, reviewSort, reviewCursor);
         
         Optional<Movie> movieOpt = movieService.getMovieById(movieId);
         if (!movieOpt.isPresent()) {
@@ -118,8 +163,44 @@ public class MoviesController {
         Movie movie = movieOpt.get();
         model.addAttribute("movie", movie);
         model.addAttribute("movieIcon", MovieIconUtils.getMovieIcon(movie.getMovieName()));
-        model.addAttribute("allReviews", reviewService.getReviewsForMovie(movie.getId()));
+        try {
+            model.addAttribute("reviewPage", reviewService.getReviewPage(movie.getId(),
+                    ReviewSort.fromParameter(reviewSort), reviewCursor, MoviesApiController.DEFAULT_REVIEW_PAGE_SIZE));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid review parameters provided: {}", e.getMessage());
+            model.addAttribute("reviewPage", reviewService.getReviewPage(movie.getId(), ReviewSort.NEWEST, 0,
+                    MoviesApiController.DEFAULT_REVIEW_PAGE_SIZE));
+            model.addAttribute("reviewErrorMessage", "Shiver me timbers! That review page be lost at sea, showing the newest instead!");
+        }
+        model.addAttribute("reviewSummary", movieService.getReviewSummary(movie.getId()));
+        RenderedPageCacheFilter.showsReviewsOf(movie.getId());
         
         return "movie-details";
     }
-}
\ No newline at end of file
+
+    private void addPage(org.springframework.ui.Model model, MoviePage moviePage) {
+        model.addAttribute("movies", moviePage.getMovies());
+        model.addAttribute("moviePage", moviePage);
+        model.addAttribute("sort", moviePage.getSort().getParameter());
+        Map<Long, ReviewSummary> reviewSummaries = new HashMap<>();
+        long[] movieIds = new long[moviePage.getMovies().size()];
+        int shown = 0;
+        for (Movie movie : moviePage.getMovies()) {
+            movieIds[shown++] = movie.getId();
+            reviewSummaries.put(movie.getId(), movieService.getReviewSummary(movie.getId()));
+        }
+        model.addAttribute("reviewSummaries", reviewSummaries);
+        if (moviePage.getSort() != MovieSort.REVIEWS) {
+            // A page in review order depends on every review, so it records no movies
+            RenderedPageCacheFilter.showsReviewsOf(movieIds);
+        }
+    }
+
+    /**
+     * Genres and their counts are precomputed with the catalog, so this is two field reads.
+     */
+    private void addGenreFacets(org.springframework.ui.Model model) {
+        model.addAttribute("genres", movieService.getAllGenres());
+        model.addAttribute("genreFacets", movieService.getGenreFacets());
+    }
+}
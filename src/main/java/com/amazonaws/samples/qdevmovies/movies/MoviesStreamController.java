@@ -0,0 +1,177 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Streaming counterpart of {@link MoviesApiController}: every movie matching a search, or
+ * every review of a movie, one JSON object at a time as newline-delimited JSON
+ * ({@code application/x-ndjson}, the default) or as server-sent events
+ * ({@code text/event-stream}), instead of a page at a time.
+ *
+ * <p>Responses are {@link Flux}es from {@link ReactiveMovieService} and
+ * {@link ReactiveReviewService}. Spring MVC asks for the next element only once the
+ * previous one is written, so a slow client slows its search down rather than results
+ * piling up in memory, and the request thread is released while the stream runs.
+ * Invalid parameters answer {@code 400} with a single error object in the requested
+ * format before anything is searched.</p>
+ */
+@RestController
+@RequestMapping("/api/stream/movies")
+public class MoviesStreamController {
+    private static final Logger logger = LogManager.getLogger(MoviesStreamController.class);
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private ReactiveMovieService reactiveMovieService;
+
+    @Autowired
+    private ReactiveReviewService reactiveReviewService;
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<JsonSerializable>> searchMovies(
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "id", required = false) Long id,
+            @RequestParam(value = "genre", required = false) String genre,
+            @RequestParam(value = "director", required = false) String director,
+            @RequestParam(value = "yearFrom", required = false) Integer yearFrom,
+            @RequestParam(value = "yearTo", required = false) Integer yearTo,
+            @RequestParam(value = "minDuration", required = false) Integer minDuration,
+            @RequestParam(value = "maxDuration", required = false) Integer maxDuration,
+            @RequestParam(value = "minRating", required = false) Double minRating,
+            @RequestParam(value = "maxRating", required = false) Double maxRating,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "fields", required = false) String fields) {
+        logger.info("Streaming movies - name: {}, id: {}, genre: {}, director: {}, years: {}-{}, duration: {}-{}, "
+                        + "rating: {}-{}, sort: {}, fields: {}",
+                name, id, genre, director, yearFrom, yearTo, minDuration, maxDuration, minRating, maxRating,
+                sort, fields);
+        if (id != null && id <= 0) {
+            return error(HttpStatus.BAD_REQUEST, "Movie id must be positive: " + id);
+        }
+        try {
+            Set<MovieField> selected = MovieField.parse(fields);
+            MovieFilter filter = new MovieFilter.Builder()
+                    .name(name).id(id).genre(genre).director(director)
+                    .years(yearFrom, yearTo)
+                    .duration(minDuration, maxDuration)
+                    .rating(minRating, maxRating)
+                    .build();
+            Flux<Movie> movies = reactiveMovieService.searchMovies(filter, MovieSort.fromParameter(sort));
+            return ResponseEntity.ok(movies.map(movie -> json(generator -> writeMovie(generator, movie, selected))));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid stream parameters: {}", e.getMessage());
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * The same stream as {@link #searchMovies} with each movie as one server-sent event.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<JsonSerializable>> searchMovieEvents(
+            @RequestParam(value = "name", required = false) String name,
+            @RequestParam(value = "id", required = false) Long id,
+            @RequestParam(value = "genre", required = false) String genre,
+            @RequestParam(value = "director", required = false) String director,
+            @RequestParam(value = "yearFrom", required = false) Integer yearFrom,
+            @RequestParam(value = "yearTo", required = false) Integer yearTo,
+            @RequestParam(value = "minDuration", required = false) Integer minDuration,
+            @RequestParam(value = "maxDuration", required = false) Integer maxDuration,
+            @RequestParam(value = "minRating", required = false) Double minRating,
+            @RequestParam(value = "maxRating", required = false) Double maxRating,
+            @RequestParam(value = "sort", required = false) String sort,
+            @RequestParam(value = "fields", required = false) String fields) {
+        return searchMovies(name, id, genre, director, yearFrom, yearTo, minDuration, maxDuration,
+                minRating, maxRating, sort, fields);
+    }
+
+    @GetMapping(value = "/{id}/reviews", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Flux<JsonSerializable>> getReviews(
+            @PathVariable("id") Long movieId,
+            @RequestParam(value = "sort", required = false) String sort) {
+        logger.info("Streaming reviews for movie ID: {} - sort: {}", movieId, sort);
+        ReviewSort reviewSort;
+        try {
+            reviewSort = ReviewSort.fromParameter(sort);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid review parameters: {}", e.getMessage());
+            return error(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (!movieService.getMovieById(movieId).isPresent()) {
+            return error(HttpStatus.NOT_FOUND, "Movie " + movieId + " not found");
+        }
+        Flux<Review> reviews = reactiveReviewService.getReviews(movieId, reviewSort);
+        return ResponseEntity.ok(reviews.map(review -> json(generator -> MoviesApiController.writeReview(generator, review))));
+    }
+
+    /**
+     * The same stream as {@link #getReviews} with each review as one server-sent event.
+     */
+    @GetMapping(value = "/{id}/reviews", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<JsonSerializable>> getReviewEvents(
+            @PathVariable("id") Long movieId,
+            @RequestParam(value = "sort", required = false) String sort) {
+        return getReviews(movieId, sort);
+    }
+
+    private void writeMovie(JsonGenerator generator, Movie movie, Set<MovieField> fields) throws IOException {
+        generator.writeStartObject();
+        for (MovieField field : fields) {
+            field.write(generator, movie, movieService::getReviewSummary);
+        }
+        generator.writeEndObject();
+    }
+
+    private static ResponseEntity<Flux<JsonSerializable>> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status).body(Flux.just(json(generator -> {
+            generator.writeStartObject();
+            generator.writeNumberField("status", status.value());
+            generator.writeStringField("error", message);
+            generator.writeEndObject();
+        })));
+    }
+
+    /**
+     * One stream element, written by Spring's JSON message converter straight to the
+     * response through {@code writer} when its turn comes.
+     */
+    private static JsonSerializable json(JsonWriter writer) {
+        return new JsonSerializable.Base() {
+            @Override
+            public void serialize(JsonGenerator generator, SerializerProvider serializers) throws IOException {
+                writer.write(generator);
+            }
+
+            @Override
+            public void serializeWithType(JsonGenerator generator, SerializerProvider serializers,
+                                          TypeSerializer typeSerializer) throws IOException {
+                writer.write(generator);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface JsonWriter {
+        void write(JsonGenerator generator) throws IOException;
+    }
+}
@@ -0,0 +1,86 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.amazonaws.samples.qdevmovies.utils.LongIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Default {@link MovieStore}: one {@link Movie} object per title plus a primitive id index.
+ * Best for small and medium catalogs where handing out the same instances matters more
+ * than heap footprint.
+ */
+final class ObjectMovieStore implements MovieStore {
+
+    private final List<Movie> movies;
+    private final LongIntHashMap ordinalsById;
+
+    ObjectMovieStore(List<Movie> movies) {
+        this.movies = Collections.unmodifiableList(new ArrayList<>(movies));
+        this.ordinalsById = new LongIntHashMap(movies.size(), -1);
+        for (int ordinal = 0; ordinal < movies.size(); ordinal++) {
+            ordinalsById.put(movies.get(ordinal).getId(), ordinal);
+        }
+    }
+
+    @Override
+    public int size() {
+        return movies.size();
+    }
+
+    @Override
+    public int ordinalOf(long id) {
+        return ordinalsById.get(id);
+    }
+
+    @Override
+    public Movie get(int ordinal) {
+        return movies.get(ordinal);
+    }
+
+    @Override
+    public long id(int ordinal) {
+        return movies.get(ordinal).getId();
+    }
+
+    @Override
+    public String movieName(int ordinal) {
+        return movies.get(ordinal).getMovieName();
+    }
+
+    @Override
+    public String description(int ordinal) {
+        return movies.get(ordinal).getDescription();
+    }
+
+    @Override
+    public String director(int ordinal) {
+        return movies.get(ordinal).getDirector();
+    }
+
+    @Override
+    public int year(int ordinal) {
+        return movies.get(ordinal).getYear();
+    }
+
+    @Override
+    public String genre(int ordinal) {
+        return movies.get(ordinal).getGenre();
+    }
+
+    @Override
+    public int duration(int ordinal) {
+        return movies.get(ordinal).getDuration();
+    }
+
+    @Override
+    public double imdbRating(int ordinal) {
+        return movies.get(ordinal).getImdbRating();
+    }
+
+    @Override
+    public List<Movie> asList() {
+        return movies;
+    }
+}
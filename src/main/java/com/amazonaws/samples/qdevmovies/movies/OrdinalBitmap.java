@@ -0,0 +1,502 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntPredicate;
+
+/**
+ * Immutable compressed set of movie ordinals, laid out like a roaring bitmap.
+ *
+ * <p>Ordinals are split into chunks of 65536 by their high 16 bits. A chunk with at most
+ * {@link #ARRAY_LIMIT} ordinals stores their low 16 bits as a sorted {@code char[]}; a
+ * denser chunk stores a {@code long[1024]} of bit words. Sparse sets such as one
+ * director's movies cost two bytes an ordinal, dense ones such as a genre one bit, and
+ * intersecting, merging or counting two dense chunks is a straight loop over 1024 words
+ * that the JIT vectorizes. Empty chunks are not stored, so every operation skips them.</p>
+ *
+ * <p>Containers are never modified once built, so results share them with their inputs
+ * wherever an operation leaves a chunk unchanged.</p>
+ */
+final class OrdinalBitmap {
+
+    /** Chunks with more ordinals than this are stored as bit words. */
+    static final int ARRAY_LIMIT = 4096;
+    private static final int WORDS = 1 << 10;
+    private static final char[] NO_VALUES = new char[0];
+
+    static final OrdinalBitmap EMPTY = new OrdinalBitmap(NO_VALUES, new Object[0], new int[0]);
+
+    /** High 16 bits of each chunk, ascending. */
+    private final char[] keys;
+    /** A {@code char[]} or {@code long[]} per chunk. */
+    private final Object[] containers;
+    private final int[] counts;
+    private final int cardinality;
+
+    private OrdinalBitmap(char[] keys, Object[] containers, int[] counts) {
+        this.keys = keys;
+        this.containers = containers;
+        this.counts = counts;
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        this.cardinality = total;
+    }
+
+    /**
+     * @param ordinals distinct ordinals in ascending order
+     */
+    static OrdinalBitmap of(int[] ordinals) {
+        return of(ordinals, ordinals.length);
+    }
+
+    /**
+     * The first {@code length} of distinct ascending {@code ordinals}.
+     */
+    static OrdinalBitmap of(int[] ordinals, int length) {
+        Appender out = new Appender();
+        for (int i = 0; i < length; ) {
+            char key = (char) (ordinals[i] >>> 16);
+            int j = i;
+            while (j < length && ordinals[j] >>> 16 == key) {
+                j++;
+            }
+            if (j - i <= ARRAY_LIMIT) {
+                char[] values = new char[j - i];
+                for (int k = i; k < j; k++) {
+                    values[k - i] = (char) ordinals[k];
+                }
+                out.add(key, values, values.length);
+            } else {
+                long[] words = new long[WORDS];
+                for (int k = i; k < j; k++) {
+                    words[(ordinals[k] >>> 6) & (WORDS - 1)] |= 1L << ordinals[k];
+                }
+                out.add(key, words, j - i);
+            }
+            i = j;
+        }
+        return out.build();
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    boolean contains(int ordinal) {
+        int index = Arrays.binarySearch(keys, (char) (ordinal >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        Object container = containers[index];
+        if (container instanceof char[]) {
+            return Arrays.binarySearch((char[]) container, (char) ordinal) >= 0;
+        }
+        return (((long[]) container)[(ordinal >>> 6) & (WORDS - 1)] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Every ordinal, ascending.
+     */
+    int[] toArray() {
+        int[] ordinals = new int[cardinality];
+        int n = 0;
+        for (int c = 0; c < keys.length; c++) {
+            int base = keys[c] << 16;
+            Object container = containers[c];
+            if (container instanceof char[]) {
+                for (char value : (char[]) container) {
+                    ordinals[n++] = base | value;
+                }
+            } else {
+                long[] words = (long[]) container;
+                for (int w = 0; w < WORDS; w++) {
+                    for (long word = words[w]; word != 0; word &= word - 1) {
+                        ordinals[n++] = base | (w << 6) | Long.numberOfTrailingZeros(word);
+                    }
+                }
+            }
+        }
+        return ordinals;
+    }
+
+    /**
+     * Every ordinal, ascending, found one at a time rather than listed up front.
+     */
+    PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int chunk;
+            /** Index into the chunk's values, or of the word holding {@link #word} in bit chunks. */
+            private int position = -1;
+            private long word;
+
+            @Override
+            public boolean hasNext() {
+                while (chunk < keys.length) {
+                    Object container = containers[chunk];
+                    if (container instanceof char[]) {
+                        if (position + 1 < ((char[]) container).length) {
+                            return true;
+                        }
+                    } else {
+                        long[] words = (long[]) container;
+                        while (word == 0 && position + 1 < WORDS) {
+                            word = words[++position];
+                        }
+                        if (word != 0) {
+                            return true;
+                        }
+                    }
+                    chunk++;
+                    position = -1;
+                }
+                return false;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int base = keys[chunk] << 16;
+                Object container = containers[chunk];
+                if (container instanceof char[]) {
+                    return base | ((char[]) container)[++position];
+                }
+                int ordinal = base | (position << 6) | Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                return ordinal;
+            }
+        };
+    }
+
+    /**
+     * The ordinals in both sets.
+     */
+    OrdinalBitmap and(OrdinalBitmap other) {
+        Appender out = new Appender();
+        for (int i = 0, j = 0; i < keys.length && j < other.keys.length; ) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                out.add(keys[i], and(containers[i++], other.containers[j++]));
+            }
+        }
+        return out.build();
+    }
+
+    /**
+     * Size of {@code this.and(other)}, without building it.
+     */
+    int andCardinality(OrdinalBitmap other) {
+        int count = 0;
+        for (int i = 0, j = 0; i < keys.length && j < other.keys.length; ) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                count += andCount(containers[i++], other.containers[j++]);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The ordinals in this set but not in {@code other}.
+     */
+    OrdinalBitmap andNot(OrdinalBitmap other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        Appender out = new Appender();
+        int j = 0;
+        for (int i = 0; i < keys.length; i++) {
+            while (j < other.keys.length && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.keys.length && other.keys[j] == keys[i]) {
+                out.add(keys[i], andNot(containers[i], other.containers[j]));
+            } else {
+                out.add(keys[i], containers[i], counts[i]);
+            }
+        }
+        return out.build();
+    }
+
+    OrdinalBitmap or(OrdinalBitmap other) {
+        return or(Arrays.asList(this, other));
+    }
+
+    /**
+     * The ordinals in any of {@code bitmaps}. Chunks present in only one input are shared;
+     * the others are merged into one scratch array of words.
+     */
+    static OrdinalBitmap or(List<OrdinalBitmap> bitmaps) {
+        if (bitmaps.isEmpty()) {
+            return EMPTY;
+        }
+        if (bitmaps.size() == 1) {
+            return bitmaps.get(0);
+        }
+        int[] cursors = new int[bitmaps.size()];
+        long[] words = new long[WORDS];
+        Appender out = new Appender();
+        while (true) {
+            int key = Integer.MAX_VALUE;
+            for (int b = 0; b < cursors.length; b++) {
+                OrdinalBitmap bitmap = bitmaps.get(b);
+                if (cursors[b] < bitmap.keys.length) {
+                    key = Math.min(key, bitmap.keys[cursors[b]]);
+                }
+            }
+            if (key == Integer.MAX_VALUE) {
+                return out.build();
+            }
+            Object single = null;
+            int singleCount = 0;
+            int found = 0;
+            for (int b = 0; b < cursors.length; b++) {
+                OrdinalBitmap bitmap = bitmaps.get(b);
+                if (cursors[b] < bitmap.keys.length && bitmap.keys[cursors[b]] == key) {
+                    Object container = bitmap.containers[cursors[b]];
+                    if (++found == 1) {
+                        single = container;
+                        singleCount = bitmap.counts[cursors[b]];
+                    } else {
+                        if (found == 2) {
+                            Arrays.fill(words, 0L);
+                            orInto(words, single);
+                        }
+                        orInto(words, container);
+                    }
+                    cursors[b]++;
+                }
+            }
+            if (found == 1) {
+                out.add((char) key, single, singleCount);
+            } else {
+                out.add((char) key, compact(words, true));
+            }
+        }
+    }
+
+    /**
+     * The ordinals {@code keep} accepts, tested in ascending order.
+     */
+    OrdinalBitmap filter(IntPredicate keep) {
+        int[] ordinals = toArray();
+        int n = 0;
+        for (int ordinal : ordinals) {
+            if (keep.test(ordinal)) {
+                ordinals[n++] = ordinal;
+            }
+        }
+        return n == ordinals.length ? this : of(ordinals, n);
+    }
+
+    private static Object and(Object a, Object b) {
+        if (a instanceof char[] && b instanceof char[]) {
+            char[] x = (char[]) a;
+            char[] y = (char[]) b;
+            char[] out = new char[Math.min(x.length, y.length)];
+            int n = 0;
+            for (int i = 0, j = 0; i < x.length && j < y.length; ) {
+                if (x[i] < y[j]) {
+                    i++;
+                } else if (x[i] > y[j]) {
+                    j++;
+                } else {
+                    out[n++] = x[i++];
+                    j++;
+                }
+            }
+            return n == out.length ? out : Arrays.copyOf(out, n);
+        }
+        if (a instanceof char[] || b instanceof char[]) {
+            char[] values = (char[]) (a instanceof char[] ? a : b);
+            long[] words = (long[]) (a instanceof char[] ? b : a);
+            return select(values, words, true);
+        }
+        long[] x = (long[]) a;
+        long[] y = (long[]) b;
+        long[] out = new long[WORDS];
+        for (int w = 0; w < WORDS; w++) {
+            out[w] = x[w] & y[w];
+        }
+        return compact(out, false);
+    }
+
+    private static int andCount(Object a, Object b) {
+        if (a instanceof char[] && b instanceof char[]) {
+            char[] x = (char[]) a;
+            char[] y = (char[]) b;
+            int count = 0;
+            for (int i = 0, j = 0; i < x.length && j < y.length; ) {
+                if (x[i] < y[j]) {
+                    i++;
+                } else if (x[i] > y[j]) {
+                    j++;
+                } else {
+                    count++;
+                    i++;
+                    j++;
+                }
+            }
+            return count;
+        }
+        if (a instanceof char[] || b instanceof char[]) {
+            char[] values = (char[]) (a instanceof char[] ? a : b);
+            long[] words = (long[]) (a instanceof char[] ? b : a);
+            int count = 0;
+            for (char value : values) {
+                count += (int) (words[value >>> 6] >>> value) & 1;
+            }
+            return count;
+        }
+        long[] x = (long[]) a;
+        long[] y = (long[]) b;
+        int count = 0;
+        for (int w = 0; w < WORDS; w++) {
+            count += Long.bitCount(x[w] & y[w]);
+        }
+        return count;
+    }
+
+    private static Object andNot(Object a, Object b) {
+        if (a instanceof char[]) {
+            char[] x = (char[]) a;
+            if (b instanceof long[]) {
+                return select(x, (long[]) b, false);
+            }
+            char[] y = (char[]) b;
+            char[] out = new char[x.length];
+            int n = 0;
+            for (int i = 0, j = 0; i < x.length; i++) {
+                while (j < y.length && y[j] < x[i]) {
+                    j++;
+                }
+                if (j == y.length || y[j] != x[i]) {
+                    out[n++] = x[i];
+                }
+            }
+            return n == out.length ? out : Arrays.copyOf(out, n);
+        }
+        long[] out = ((long[]) a).clone();
+        if (b instanceof char[]) {
+            for (char value : (char[]) b) {
+                out[value >>> 6] &= ~(1L << value);
+            }
+        } else {
+            long[] y = (long[]) b;
+            for (int w = 0; w < WORDS; w++) {
+                out[w] &= ~y[w];
+            }
+        }
+        return compact(out, false);
+    }
+
+    /**
+     * The values whose bit in {@code words} is set, or with {@code !present}, clear.
+     */
+    private static char[] select(char[] values, long[] words, boolean present) {
+        char[] out = new char[values.length];
+        int n = 0;
+        for (char value : values) {
+            if (((words[value >>> 6] & (1L << value)) != 0) == present) {
+                out[n++] = value;
+            }
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    private static void orInto(long[] words, Object container) {
+        if (container instanceof char[]) {
+            for (char value : (char[]) container) {
+                words[value >>> 6] |= 1L << value;
+            }
+        } else {
+            long[] other = (long[]) container;
+            for (int w = 0; w < WORDS; w++) {
+                words[w] |= other[w];
+            }
+        }
+    }
+
+    /**
+     * The container for a chunk's bit words: the values if there are few enough, the
+     * words otherwise, copied first when {@code scratch} will be reused.
+     */
+    private static Object compact(long[] words, boolean scratch) {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        if (count > ARRAY_LIMIT) {
+            return scratch ? words.clone() : words;
+        }
+        char[] values = new char[count];
+        int n = 0;
+        for (int w = 0; w < WORDS; w++) {
+            for (long word = words[w]; word != 0; word &= word - 1) {
+                values[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+            }
+        }
+        return values;
+    }
+
+    private static int count(Object container) {
+        if (container instanceof char[]) {
+            return ((char[]) container).length;
+        }
+        int count = 0;
+        for (long word : (long[]) container) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Collects chunks in key order, dropping empty ones.
+     */
+    private static final class Appender {
+        private char[] keys = new char[4];
+        private Object[] containers = new Object[4];
+        private int[] counts = new int[4];
+        private int size;
+
+        void add(char key, Object container) {
+            add(key, container, count(container));
+        }
+
+        void add(char key, Object container, int count) {
+            if (count == 0) {
+                return;
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                containers = Arrays.copyOf(containers, size * 2);
+                counts = Arrays.copyOf(counts, size * 2);
+            }
+            keys[size] = key;
+            containers[size] = container;
+            counts[size++] = count;
+        }
+
+        OrdinalBitmap build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            return new OrdinalBitmap(Arrays.copyOf(keys, size), Arrays.copyOf(containers, size), Arrays.copyOf(counts, size));
+        }
+    }
+}
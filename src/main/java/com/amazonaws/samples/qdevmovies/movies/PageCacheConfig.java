@@ -0,0 +1,50 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Enables the {@link RenderedPageCacheFilter} when {@code movies.page-cache.enabled} is set.
+ */
+@Configuration
+@ConditionalOnProperty(name = "movies.page-cache.enabled", havingValue = "true")
+public class PageCacheConfig {
+
+    @Bean
+    public FilterRegistrationBean<RenderedPageCacheFilter> renderedPageCacheFilter(
+            MovieService movieService, ReviewService reviewService,
+            @Value("${movies.page-cache.max-bytes:16777216}") long maxBytes,
+            @Value("${movies.page-cache.gzip:true}") boolean gzip) {
+        FilterRegistrationBean<RenderedPageCacheFilter> registration = new FilterRegistrationBean<>(
+                new RenderedPageCacheFilter(movieService, reviewService, maxBytes, gzip));
+        registration.addUrlPatterns("/movies", "/movies/*");
+        return registration;
+    }
+
+    /**
+     * Hit, miss and eviction counts plus the current size of the page cache.
+     */
+    @Bean
+    public MeterBinder renderedPageCacheMetrics(FilterRegistrationBean<RenderedPageCacheFilter> renderedPageCacheFilter) {
+        RenderedPageCache cache = renderedPageCacheFilter.getFilter().cache();
+        return registry -> {
+            FunctionCounter.builder("movies.page.cache.requests", cache, RenderedPageCache::hits)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("movies.page.cache.requests", cache, RenderedPageCache::misses)
+                    .tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("movies.page.cache.evictions", cache, RenderedPageCache::evictions)
+                    .register(registry);
+            Gauge.builder("movies.page.cache.size", cache, RenderedPageCache::weightBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+}
@@ -0,0 +1,202 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CountedCompleter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.IntPredicate;
+
+/**
+ * Checks a predicate against every candidate ordinal of a scan, such as a name too short
+ * to have a trigram or a criterion the planner cannot intersect.
+ *
+ * <p>Scans over at least {@code threshold} ordinals are split into chunks of
+ * {@link #CHUNK_SIZE}, small enough for a chunk's candidates and matches to stay in cache,
+ * and the chunks are checked on a {@link ForkJoinPool} of {@code parallelism} threads.
+ * Each chunk collects its matches in its own buffer, and the buffers are joined in chunk
+ * order, so the result is in ascending order exactly as from a sequential scan. The pool
+ * is shared by every scan, so however many heavy queries run at once, scans never take
+ * more than {@code parallelism} threads; the request threads only wait for them.</p>
+ */
+final class ParallelScan implements Closeable {
+
+    /** Scans on the calling thread only. */
+    static final ParallelScan SEQUENTIAL = new ParallelScan(1, Integer.MAX_VALUE);
+
+    /** Ordinals checked by one task. */
+    static final int CHUNK_SIZE = 1 << 12;
+
+    private final int parallelism;
+    private final int threshold;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param parallelism most threads checking chunks at once; {@code 1} scans on the
+     *        calling thread, {@code 0} or less uses half the available processors
+     * @param threshold fewest ordinals scanned in parallel
+     */
+    ParallelScan(int parallelism, int threshold) {
+        this.parallelism = parallelism > 0 ? parallelism : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        this.threshold = Math.max(threshold, 2 * CHUNK_SIZE);
+        this.pool = this.parallelism > 1 ? new ForkJoinPool(this.parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("movie-scan-" + thread.getPoolIndex());
+            return thread;
+        }, null, false) : null;
+    }
+
+    int parallelism() {
+        return parallelism;
+    }
+
+    int threshold() {
+        return threshold;
+    }
+
+    /**
+     * Whether a scan over {@code count} ordinals runs in parallel.
+     */
+    boolean isParallel(int count) {
+        return pool != null && count >= threshold && !pool.isShutdown();
+    }
+
+    /**
+     * Stop the pool's threads once the scans already running finish. Later scans run on
+     * the calling thread.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The ordinals among {@code candidates}, or among {@code 0} to {@code size - 1} when
+     * {@code candidates} is {@code null}, that {@code keep} accepts, in the same order.
+     * {@code keep} must be safe to call from several threads.
+     */
+    int[] select(int[] candidates, int size, IntPredicate keep) {
+        int count = candidates != null ? candidates.length : size;
+        if (!isParallel(count)) {
+            int[] matches = new int[count];
+            int found = select(candidates, 0, count, keep, matches);
+            return found == count ? matches : Arrays.copyOf(matches, found);
+        }
+        int[][] chunks = new int[(count + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+        CountDownLatch done = new CountDownLatch(1);
+        ChunkTask scan = new ChunkTask(null, candidates, count, keep, chunks, 0, chunks.length, done);
+        pool.execute(scan);
+        // Wait outside the pool: a thread joining a task may run chunks itself, beyond the cap
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        // Already complete; rethrows whatever keep threw
+        scan.join();
+        int total = 0;
+        for (int[] chunk : chunks) {
+            total += chunk.length;
+        }
+        int[] matches = new int[total];
+        int offset = 0;
+        for (int[] chunk : chunks) {
+            System.arraycopy(chunk, 0, matches, offset, chunk.length);
+            offset += chunk.length;
+        }
+        return matches;
+    }
+
+    /**
+     * The ordinals of {@code bitmap} that {@code keep} accepts.
+     */
+    OrdinalBitmap filter(OrdinalBitmap bitmap, IntPredicate keep) {
+        int cardinality = bitmap.cardinality();
+        if (!isParallel(cardinality)) {
+            return bitmap.filter(keep);
+        }
+        int[] matches = select(bitmap.toArray(), cardinality, keep);
+        return matches.length == cardinality ? bitmap : OrdinalBitmap.of(matches);
+    }
+
+    private static int select(int[] candidates, int from, int to, IntPredicate keep, int[] matches) {
+        int found = 0;
+        for (int i = from; i < to; i++) {
+            int ordinal = candidates != null ? candidates[i] : i;
+            if (keep.test(ordinal)) {
+                matches[found++] = ordinal;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Checks chunks {@code from} to {@code to - 1}: forks the upper halves of the range
+     * until one chunk is left, checks it, and completes once the forked halves have. No
+     * task ever waits for another, so the pool never adds threads to make up for blocked
+     * ones. The root counts down {@code done} when the whole scan completes or fails.
+     */
+    private static final class ChunkTask extends CountedCompleter<Void> {
+        private final int[] candidates;
+        private final int count;
+        private final IntPredicate keep;
+        private final int[][] chunks;
+        private final int from;
+        private final int to;
+        private final CountDownLatch done;
+
+        ChunkTask(ChunkTask parent, int[] candidates, int count, IntPredicate keep, int[][] chunks,
+                  int from, int to, CountDownLatch done) {
+            super(parent);
+            this.candidates = candidates;
+            this.count = count;
+            this.keep = keep;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.done = done;
+        }
+
+        @Override
+        public void compute() {
+            int chunk = from;
+            for (int end = to; end - chunk > 1; ) {
+                int middle = (chunk + end) >>> 1;
+                addToPendingCount(1);
+                new ChunkTask(this, candidates, count, keep, chunks, middle, end, null).fork();
+                end = middle;
+            }
+            int start = chunk * CHUNK_SIZE;
+            int end = Math.min(start + CHUNK_SIZE, count);
+            int[] matches = new int[end - start];
+            int found = select(candidates, start, end, keep, matches);
+            chunks[chunk] = found == matches.length ? matches : Arrays.copyOf(matches, found);
+            tryComplete();
+        }
+
+        @Override
+        public void onCompletion(CountedCompleter<?> caller) {
+            if (done != null) {
+                done.countDown();
+            }
+        }
+
+        @Override
+        public boolean onExceptionalCompletion(Throwable ex, CountedCompleter<?> caller) {
+            if (done != null) {
+                done.countDown();
+            }
+            return true;
+        }
+    }
+}
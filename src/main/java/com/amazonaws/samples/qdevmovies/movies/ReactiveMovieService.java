@@ -0,0 +1,35 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking adapter over {@link MovieService} for streaming clients. A search is a
+ * {@link Flux} that finds each movie only when its subscriber asks for one, on the
+ * parallel scheduler, so a slow subscriber holds the search back instead of results
+ * piling up, and no request thread waits for it meanwhile.
+ */
+@Service
+public class ReactiveMovieService {
+
+    private final MovieService movieService;
+
+    public ReactiveMovieService(MovieService movieService) {
+        this.movieService = movieService;
+    }
+
+    /**
+     * Every movie matching {@code filter}, in {@code sort} order, as described for
+     * {@link MovieService#streamMovies}. Each subscription runs the search again against
+     * the catalog current at the time.
+     *
+     * @throws IllegalArgumentException right away, not on subscription, for an order that
+     *         cannot be streamed
+     */
+    public Flux<Movie> searchMovies(MovieFilter filter, MovieSort sort) {
+        MovieSort order = MovieService.streamOrder(filter, sort);
+        return Flux.fromIterable(() -> movieService.streamMovies(filter, order))
+                .subscribeOn(Schedulers.parallel());
+    }
+}
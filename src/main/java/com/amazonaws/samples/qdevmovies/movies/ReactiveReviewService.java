@@ -0,0 +1,38 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Non-blocking adapter over {@link ReviewService} for streaming clients. A movie's reviews
+ * are read by cursor one page at a time as the subscriber asks for them, so at most two
+ * pages are decoded at once however many reviews the movie has.
+ */
+@Service
+public class ReactiveReviewService {
+
+    /** Reviews decoded per page read from the movie's review log. */
+    static final int PAGE_SIZE = MovieService.MAX_PAGE_SIZE;
+
+    private final ReviewService reviewService;
+
+    public ReactiveReviewService(ReviewService reviewService) {
+        this.reviewService = reviewService;
+    }
+
+    /**
+     * Every review of {@code movieId} in {@code sort} order. Reviews added while the
+     * stream is read show up only where they sort after the reviews already sent, as
+     * with {@link ReviewPage#getNextCursor() cursors}, so none is sent twice or skipped.
+     */
+    public Flux<Review> getReviews(long movieId, ReviewSort sort) {
+        return Mono.fromCallable(() -> reviewService.getReviewPage(movieId, sort, (String) null, PAGE_SIZE))
+                .expand(page -> page.hasNext()
+                        ? Mono.fromCallable(() -> reviewService.getReviewPage(movieId, sort, page.getNextCursor(), PAGE_SIZE))
+                        : Mono.empty())
+                .flatMapIterable(ReviewPage::getReviews, 1)
+                .subscribeOn(Schedulers.parallel());
+    }
+}
@@ -0,0 +1,36 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * A rendered response body with the headers needed to replay it, optionally stored
+ * gzip-compressed.
+ */
+final class RenderedPage {
+    private final byte[] body;
+    private final boolean gzipped;
+    private final String contentType;
+    private final String etag;
+    private final String cacheControl;
+    private final long lastModified;
+
+    /**
+     * @param etag         the page's {@code ETag}, or {@code null}
+     * @param cacheControl the page's {@code Cache-Control}, or {@code null}
+     * @param lastModified the page's {@code Last-Modified} in epoch milliseconds, or {@code -1}
+     */
+    RenderedPage(byte[] body, boolean gzipped, String contentType, String etag, String cacheControl,
+                 long lastModified) {
+        this.body = body;
+        this.gzipped = gzipped;
+        this.contentType = contentType;
+        this.etag = etag;
+        this.cacheControl = cacheControl;
+        this.lastModified = lastModified;
+    }
+
+    byte[] getBody() { return body; }
+    boolean isGzipped() { return gzipped; }
+    String getContentType() { return contentType; }
+    String getEtag() { return etag; }
+    String getCacheControl() { return cacheControl; }
+    long getLastModified() { return lastModified; }
+}
@@ -0,0 +1,315 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Size-bounded LRU cache of rendered pages, keyed by path and normalized parameters.
+ * Keys are spread over up to {@link #MAX_SEGMENTS} segments, each an LRU with its share
+ * of the byte budget and its own lock, so concurrent requests rarely wait on each other.
+ *
+ * <p>Entries are only valid for one catalog version. The first lookup with a different
+ * version drops every entry, and a page rendered under any other version is not stored,
+ * so a request that straddles a reload cannot bring a stale page back.</p>
+ *
+ * <p>Each page also lists the movies whose reviews it shows, or {@code null} when it
+ * depends on every review, such as a page sorted by review score. A new review drops
+ * only the pages of its movie and those of every review. A render takes a {@link Stamp}
+ * before it starts, and its page is not stored if a review it depends on came in since.</p>
+ */
+final class RenderedPageCache {
+
+    static final int MAX_SEGMENTS = 16;
+    /** Smallest budget worth a segment of its own, so small caches stay one exact LRU. */
+    static final long MIN_SEGMENT_BYTES = 1 << 20;
+    /** Movies of a page that shows no reviews. */
+    static final long[] NO_MOVIES = new long[0];
+    private static final int STAMP_STRIPES = 64;
+
+    private final Segment[] segments;
+    /** Keys of the cached pages showing each movie's reviews. */
+    private final ConcurrentHashMap<Long, Set<String>> pagesByMovie = new ConcurrentHashMap<>();
+    private final Set<String> pagesOfAllReviews = ConcurrentHashMap.newKeySet();
+    /** Bumped, by movie id stripe, before the pages of a reviewed movie are dropped. */
+    private final AtomicLongArray movieStamps = new AtomicLongArray(STAMP_STRIPES);
+    /** Bumped before the pages of any review are dropped. */
+    private final AtomicLong reviewStamp = new AtomicLong();
+    private volatile long version;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    RenderedPageCache(long maxBytes, long version) {
+        int count = Integer.highestOneBit((int) Math.max(1, Math.min(MAX_SEGMENTS, maxBytes / MIN_SEGMENT_BYTES)));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(maxBytes / count);
+        }
+        this.version = version;
+    }
+
+    /**
+     * @return the cached page, or {@code null} on a miss
+     */
+    RenderedPage get(String key, long currentVersion) {
+        if (currentVersion != version) {
+            switchVersion(currentVersion);
+        }
+        RenderedPage page = segment(key).get(key);
+        if (page != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return page;
+    }
+
+    private synchronized void switchVersion(long currentVersion) {
+        if (currentVersion != version) {
+            // Written before the pages are dropped, so a put that misses the new version is dropped with them
+            version = currentVersion;
+            clear();
+        }
+    }
+
+    /**
+     * The review stamps to pass to {@link #put} for a page about to be rendered.
+     */
+    Stamp stamp() {
+        return new Stamp();
+    }
+
+    /**
+     * Store a page rendered under {@code renderedVersion}. Pages larger than a segment,
+     * pages from a superseded version and pages whose reviews changed since
+     * {@code stamp} are dropped.
+     *
+     * @param movieIds movies whose reviews the page shows, or {@code null} for every review
+     */
+    void put(String key, RenderedPage page, long renderedVersion, long[] movieIds, Stamp stamp) {
+        Segment segment = segment(key);
+        if (renderedVersion != version || weightOf(key, page) > segment.maxBytes || !stamp.isCurrent(movieIds)) {
+            return;
+        }
+        Entry entry = new Entry(page, movieIds);
+        segment.put(key, entry);
+        // Checked again once registered: either this sees a newer stamp, or the invalidation sees the page
+        if (renderedVersion != version || !stamp.isCurrent(movieIds)) {
+            segment.remove(key, entry);
+        }
+    }
+
+    /**
+     * Drop the pages showing {@code movieId}'s reviews and those depending on every review.
+     */
+    void invalidateMovie(long movieId) {
+        movieStamps.incrementAndGet(stripe(movieId));
+        reviewStamp.incrementAndGet();
+        Set<String> keys = pagesByMovie.remove(movieId);
+        if (keys != null) {
+            for (String key : keys) {
+                segment(key).remove(key, null);
+            }
+        }
+        for (String key : pagesOfAllReviews) {
+            segment(key).remove(key, null);
+        }
+    }
+
+    /**
+     * Drop every page, as after the reviews were reloaded.
+     */
+    void invalidateReviews() {
+        for (int i = 0; i < STAMP_STRIPES; i++) {
+            movieStamps.incrementAndGet(i);
+        }
+        reviewStamp.incrementAndGet();
+        clear();
+    }
+
+    void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    private Segment segment(String key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    private static int stripe(long movieId) {
+        return (int) ((movieId * 0x9E3779B97F4A7C15L) >>> 58);
+    }
+
+    private static long weightOf(String key, RenderedPage page) {
+        return 2L * key.length() + page.getBody().length;
+    }
+
+    private void register(String key, long[] movieIds) {
+        if (movieIds == null) {
+            pagesOfAllReviews.add(key);
+            return;
+        }
+        for (long movieId : movieIds) {
+            pagesByMovie.compute(movieId, (id, keys) -> {
+                Set<String> registered = keys != null ? keys : new HashSet<>();
+                registered.add(key);
+                return registered;
+            });
+        }
+    }
+
+    private void unregister(String key, long[] movieIds) {
+        if (movieIds == null) {
+            pagesOfAllReviews.remove(key);
+            return;
+        }
+        for (long movieId : movieIds) {
+            pagesByMovie.computeIfPresent(movieId, (id, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    long weightBytes() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            weight += segment.weight();
+        }
+        return weight;
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    private static final class Entry {
+        final RenderedPage page;
+        final long[] movieIds;
+
+        Entry(RenderedPage page, long[] movieIds) {
+            this.page = page;
+            this.movieIds = movieIds;
+        }
+    }
+
+    /**
+     * One LRU share of the cache. Pages are registered by movie while their segment's
+     * lock is held, so a page and its registrations come and go together.
+     */
+    private final class Segment {
+        private final long maxBytes;
+        private final LinkedHashMap<String, Entry> pages = new LinkedHashMap<>(64, 0.75f, true);
+        private long weight;
+
+        Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized RenderedPage get(String key) {
+            Entry entry = pages.get(key);
+            return entry != null ? entry.page : null;
+        }
+
+        synchronized void put(String key, Entry entry) {
+            Entry previous = pages.put(key, entry);
+            if (previous != null) {
+                weight -= weightOf(key, previous.page);
+                unregister(key, previous.movieIds);
+            }
+            weight += weightOf(key, entry.page);
+            register(key, entry.movieIds);
+            Iterator<Map.Entry<String, Entry>> eldest = pages.entrySet().iterator();
+            while (weight > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Entry> evicted = eldest.next();
+                weight -= weightOf(evicted.getKey(), evicted.getValue().page);
+                unregister(evicted.getKey(), evicted.getValue().movieIds);
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+
+        /**
+         * Remove {@code key} if it maps to {@code expected}, or to anything when that is {@code null}.
+         */
+        synchronized void remove(String key, Entry expected) {
+            Entry entry = pages.get(key);
+            if (entry != null && (expected == null || entry == expected)) {
+                pages.remove(key);
+                weight -= weightOf(key, entry.page);
+                unregister(key, entry.movieIds);
+            }
+        }
+
+        synchronized void clear() {
+            for (Map.Entry<String, Entry> entry : pages.entrySet()) {
+                unregister(entry.getKey(), entry.getValue().movieIds);
+            }
+            pages.clear();
+            weight = 0;
+        }
+
+        synchronized int size() {
+            return pages.size();
+        }
+
+        synchronized long weight() {
+            return weight;
+        }
+    }
+
+    /**
+     * The review stamps when a render started.
+     */
+    final class Stamp {
+        private final long reviews = reviewStamp.get();
+        private final long[] movies = new long[STAMP_STRIPES];
+
+        private Stamp() {
+            for (int i = 0; i < STAMP_STRIPES; i++) {
+                movies[i] = movieStamps.get(i);
+            }
+        }
+
+        /**
+         * Whether no review that a page of {@code movieIds} shows has come in since.
+         */
+        boolean isCurrent(long[] movieIds) {
+            if (movieIds == null) {
+                return reviewStamp.get() == reviews;
+            }
+            for (long movieId : movieIds) {
+                int stripe = stripe(movieId);
+                if (movieStamps.get(stripe) != movies[stripe]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves the HTML catalog, search and details pages from a {@link RenderedPageCache}.
+ *
+ * <p>A miss runs the controller and Thymeleaf as usual, then stores the rendered bytes
+ * of a successful HTML response together with its {@code ETag}, {@code Last-Modified}
+ * and {@code Cache-Control} headers. A hit replays those headers, answers conditional
+ * requests with {@code 304}, and otherwise writes the stored bytes, gzip-encoded when
+ * they were stored compressed and the client accepts it.</p>
+ *
+ * <p>A new review drops the pages that {@link #showsReviewsOf show that movie's reviews}
+ * and those of pages depending on every review; a review reload drops them all.</p>
+ */
+class RenderedPageCacheFilter extends OncePerRequestFilter {
+    private static final Logger logger = LogManager.getLogger(RenderedPageCacheFilter.class);
+    static final String[] CACHED_PATHS = {"/movies", "/movies/search", "/movies/*/details"};
+    static final String REVIEWED_MOVIES_ATTRIBUTE = RenderedPageCacheFilter.class.getName() + ".reviewedMovies";
+
+    private final MovieService movieService;
+    private final RenderedPageCache cache;
+    private final boolean gzip;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    RenderedPageCacheFilter(MovieService movieService, ReviewService reviewService, long maxBytes, boolean gzip) {
+        this.movieService = movieService;
+        this.cache = new RenderedPageCache(maxBytes, version());
+        this.gzip = gzip;
+        reviewService.addListener(new ReviewService.Listener() {
+            @Override
+            public void reviewsLoaded(Map<Long, List<Review>> reviewsByMovie) {
+                cache.invalidateReviews();
+            }
+
+            @Override
+            public void reviewAdded(long movieId, Review review) {
+                cache.invalidateMovie(movieId);
+            }
+        });
+    }
+
+    /**
+     * Record that the page rendered for the current request shows the reviews of exactly
+     * {@code movieIds}, so only reviews of those movies drop it. A page that records
+     * nothing is dropped by every review.
+     */
+    static void showsReviewsOf(long... movieIds) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(REVIEWED_MOVIES_ATTRIBUTE, movieIds, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    RenderedPageCache cache() {
+        return cache;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String pattern : CACHED_PATHS) {
+            if (pathMatcher.match(pattern, path)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String key = key(request);
+        long version = version();
+        RenderedPage page = cache.get(key, version);
+        if (gzip) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (page != null) {
+            logger.debug("Page cache hit for {}", key);
+            replay(page, request, response);
+            return;
+        }
+
+        RenderedPageCache.Stamp stamp = cache.stamp();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+        String contentType = wrapper.getContentType();
+        if (wrapper.getStatus() == HttpServletResponse.SC_OK && contentType != null
+                && contentType.startsWith("text/html")) {
+            byte[] body = wrapper.getContentAsByteArray();
+            cache.put(key, new RenderedPage(gzip ? gzip(body) : body, gzip, contentType,
+                    wrapper.getHeader(HttpHeaders.ETAG), wrapper.getHeader(HttpHeaders.CACHE_CONTROL),
+                    lastModified(wrapper)), version, (long[]) request.getAttribute(REVIEWED_MOVIES_ATTRIBUTE), stamp);
+            logger.debug("Page cache stored {} ({} bytes), {} pages / {} bytes cached, {} hits, {} misses",
+                    key, body.length, cache.size(), cache.weightBytes(), cache.hits(), cache.misses());
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    private void replay(RenderedPage page, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (page.getCacheControl() != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, page.getCacheControl());
+        }
+        if (page.getEtag() != null
+                && new ServletWebRequest(request, response).checkNotModified(page.getEtag(), page.getLastModified())) {
+            return;
+        }
+        if (page.getLastModified() >= 0) {
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, page.getLastModified());
+        }
+        response.setContentType(page.getContentType());
+        byte[] body = page.getBody();
+        if (page.isGzipped()) {
+            if (acceptsGzip(request)) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            } else {
+                body = gunzip(body);
+            }
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * Path plus the non-empty parameters in name order.
+     */
+    static String key(HttpServletRequest request) {
+        StringBuilder key = new StringBuilder(request.getRequestURI());
+        char separator = '?';
+        for (Map.Entry<String, String[]> entry : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            for (String value : entry.getValue()) {
+                if (value == null || value.isEmpty()) {
+                    continue;
+                }
+                key.append(separator).append(entry.getKey()).append('=').append(value);
+                separator = '&';
+            }
+        }
+        return key.toString();
+    }
+
+    private long version() {
+        return movieService.getCatalogVersion();
+    }
+
+    private static long lastModified(HttpServletResponse response) {
+        String header = response.getHeader(HttpHeaders.LAST_MODIFIED);
+        if (header == null) {
+            return -1;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.LAST_MODIFIED, header);
+        return headers.getLastModified();
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return StreamUtils.copyToByteArray(in);
+        }
+    }
+}
@@ -0,0 +1,580 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjLongConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Durable write path for reviews. Submitted reviews wait in a bounded queue; one writer
+ * thread takes whatever has queued up, appends it to the current segment file with one
+ * write and one fsync, and then adds it to {@link ReviewService}. A burst of reviews thus
+ * costs one fsync per batch instead of one per review, and a submitter learns its review
+ * is stored once the batch holding it is durable and visible to reads.
+ *
+ * <p>Segments are {@code reviews-<n>.log} files in {@code movies.reviews.journal.directory}.
+ * The writer starts a new segment once the current one reaches
+ * {@code movies.reviews.journal.segment-bytes}. Once {@code movies.reviews.journal.compact-segments}
+ * full segments have piled up, a background thread merges them and the previous
+ * compacted file into {@code compacted-<n>.log}, which replaces every file up to segment
+ * {@code n}. On startup, and whenever {@link ReviewService} reloads its reviews, the
+ * compacted file and the segments after it are replayed on top of the loaded reviews. A
+ * record torn by a crash at the end of the last segment is cut off on startup.</p>
+ *
+ * <p>Without a directory, reviews are batched the same way but only kept in memory.</p>
+ *
+ * <p>Record layout, strings as an int byte length and UTF-8 bytes:</p>
+ * <pre>
+ * int payload length, int CRC-32 of the payload, then the payload:
+ *     long movie id, double rating, string userName, string avatarEmoji, string comment
+ * </pre>
+ */
+@Component
+class ReviewJournal implements MeterBinder {
+    private static final Logger logger = LogManager.getLogger(ReviewJournal.class);
+    static final String SEGMENT_PREFIX = "reviews-";
+    static final String COMPACTED_PREFIX = "compacted-";
+    static final String SUFFIX = ".log";
+    /** Larger than any valid review, so a garbled length is not taken for a record. */
+    private static final int MAX_RECORD_BYTES = 1 << 16;
+
+    private final ReviewService reviewService;
+    private final Path directory;
+    private final BlockingQueue<Pending> queue;
+    private final int maxBatch;
+    private final long segmentBytes;
+    private final int compactSegments;
+
+    /** Guards the file set: rolling, publishing a compaction and replaying. */
+    private final Object filesLock = new Object();
+    private final List<Path> sealed = new ArrayList<>();
+    private Path compacted;
+    private boolean compacting;
+    /** Appended to by the writer thread under the review service lock, and rolled under the files lock. */
+    private FileChannel segment;
+    private long segmentSequence;
+    private long segmentSize;
+
+    private volatile boolean running;
+    private Thread writer;
+    private Thread compactor;
+
+    /** No-op until Spring Boot binds the journal to a registry. */
+    private volatile Timer commitTimer = Timer.builder("movies.reviews.journal.commit").register(new CompositeMeterRegistry());
+    private volatile DistributionSummary batchSizes =
+            DistributionSummary.builder("movies.reviews.journal.batch").register(new CompositeMeterRegistry());
+
+    ReviewJournal(ReviewService reviewService,
+                  @Value("${movies.reviews.journal.directory:}") String directory,
+                  @Value("${movies.reviews.journal.queue-capacity:8192}") int queueCapacity,
+                  @Value("${movies.reviews.journal.max-batch:512}") int maxBatch,
+                  @Value("${movies.reviews.journal.segment-bytes:67108864}") long segmentBytes,
+                  @Value("${movies.reviews.journal.compact-segments:4}") int compactSegments) {
+        if (queueCapacity < 1 || maxBatch < 1 || segmentBytes < 1 || compactSegments < 1) {
+            throw new IllegalArgumentException("Review journal queue, batch, segment and compaction limits must be positive");
+        }
+        this.reviewService = reviewService;
+        this.directory = directory == null || directory.trim().isEmpty() ? null : Paths.get(directory.trim());
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatch = maxBatch;
+        this.segmentBytes = segmentBytes;
+        this.compactSegments = compactSegments;
+    }
+
+    /**
+     * Recover the journal, replay it into the review service and start taking reviews.
+     */
+    @PostConstruct
+    void start() throws IOException {
+        if (directory != null) {
+            Files.createDirectories(directory);
+            long last = recover();
+            reviewService.attachJournal(this);
+            openSegment(last + 1);
+            logger.info("Review journal in {} holds {} full segment(s){}", directory, sealed.size(),
+                    compacted != null ? " and " + compacted.getFileName() : "");
+        } else {
+            logger.info("No movies.reviews.journal.directory set, submitted reviews are kept in memory only");
+        }
+        running = true;
+        writer = new Thread(this::write, "review-journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Stop taking reviews, commit the ones already queued and close the segment.
+     */
+    @PreDestroy
+    void stop() throws IOException, InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join();
+        }
+        Thread compaction;
+        synchronized (filesLock) {
+            compaction = compactor;
+        }
+        if (compaction != null) {
+            compaction.join();
+        }
+        for (Pending pending; (pending = queue.poll()) != null; ) {
+            pending.future.completeExceptionally(new RejectedExecutionException("Review journal is stopped"));
+        }
+        if (segment != null) {
+            segment.close();
+        }
+    }
+
+    /**
+     * Queue {@code review} for {@code movieId}.
+     *
+     * @return completes with the movie's number of reviews once the review is durable and
+     *         visible to reads, or exceptionally if it could not be written
+     * @throws IllegalArgumentException for an invalid review
+     * @throws RejectedExecutionException when the queue is full or the journal is stopped
+     */
+    CompletableFuture<Integer> submit(long movieId, Review review) {
+        ReviewService.validate(review);
+        Pending pending = new Pending(movieId, review);
+        if (!running) {
+            throw new RejectedExecutionException("Review journal is stopped");
+        }
+        if (!queue.offer(pending)) {
+            throw new RejectedExecutionException("Review queue is full");
+        }
+        // Stopped meanwhile: take it back unless the writer already has it
+        if (!running && queue.remove(pending)) {
+            throw new RejectedExecutionException("Review journal is stopped");
+        }
+        return pending.future;
+    }
+
+    private void write() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        try {
+            while (running || !queue.isEmpty()) {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                commit(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Make {@code batch} durable with one write and one fsync, then add it to the review
+     * service. Both happen under the service's lock, so a reload replays either all of
+     * the batch or none of it, and never adds it twice.
+     */
+    private void commit(List<Pending> batch) {
+        if (directory != null && segment == null) {
+            for (Pending pending : batch) {
+                pending.future.completeExceptionally(new IOException("Review journal is unavailable"));
+            }
+            return;
+        }
+        long start = System.nanoTime();
+        ByteBuffer records = encode(batch);
+        int[] counts = new int[batch.size()];
+        try {
+            reviewService.withReviews(index -> {
+                if (segment != null) {
+                    append(records);
+                }
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] = reviewService.addReview(batch.get(i).movieId, batch.get(i).review);
+                }
+                return null;
+            });
+        } catch (UncheckedIOException e) {
+            logger.error("Failed to write {} review(s) to the journal: {}", batch.size(), e.getCause().getMessage());
+            for (Pending pending : batch) {
+                pending.future.completeExceptionally(e.getCause());
+            }
+            return;
+        } catch (RuntimeException e) {
+            // Thrown while adding the batch, such as by a listener: the batch is durable and
+            // comes back on the next reload, and the writer keeps going for the batches after it
+            logger.error("Failed to add {} journaled review(s)", batch.size(), e);
+            for (Pending pending : batch) {
+                pending.future.completeExceptionally(e);
+            }
+            return;
+        }
+        commitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        batchSizes.record(batch.size());
+        for (int i = 0; i < counts.length; i++) {
+            batch.get(i).future.complete(counts[i]);
+        }
+        if (segment != null && segmentSize >= segmentBytes) {
+            roll();
+        }
+    }
+
+    private void append(ByteBuffer records) {
+        long position = segmentSize;
+        try {
+            while (records.hasRemaining()) {
+                segment.write(records);
+            }
+            segment.force(false);
+            segmentSize = segment.position();
+        } catch (IOException e) {
+            try {
+                // Drop a partial batch, so it neither comes back on replay nor hides later records
+                segment.truncate(position);
+                segment.position(position);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Seal the current segment and start the next. Holds the files lock throughout, so a
+     * replay sees the segment either as current or as sealed.
+     */
+    private void roll() {
+        synchronized (filesLock) {
+            try {
+                segment.close();
+                sealed.add(segmentPath(segmentSequence));
+                openSegment(segmentSequence + 1);
+            } catch (IOException e) {
+                logger.error("Failed to start review journal segment {}, no longer taking reviews: {}",
+                        segmentSequence + 1, e.getMessage());
+                segment = null;
+                running = false;
+                return;
+            }
+            if (!compacting && sealed.size() >= compactSegments) {
+                compacting = true;
+                compactor = new Thread(this::compact, "review-journal-compactor");
+                compactor.setDaemon(true);
+                compactor.start();
+            }
+        }
+    }
+
+    private void openSegment(long sequence) throws IOException {
+        segment = FileChannel.open(segmentPath(sequence),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        segmentSequence = sequence;
+        segmentSize = 0;
+        syncDirectory();
+    }
+
+    /**
+     * Merge the full segments and the previous compacted file into one compacted file.
+     * Full segments only hold whole records, so they are copied as they are.
+     */
+    private void compact() {
+        List<Path> sources = new ArrayList<>();
+        List<Path> segments;
+        synchronized (filesLock) {
+            if (compacted != null) {
+                sources.add(compacted);
+            }
+            segments = new ArrayList<>(sealed);
+        }
+        sources.addAll(segments);
+        long last = sequenceOf(segments.get(segments.size() - 1));
+        Path target = directory.resolve(COMPACTED_PREFIX + format(last) + SUFFIX);
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try {
+            long start = System.nanoTime();
+            try (FileChannel out = FileChannel.open(temp,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (Path source : sources) {
+                    try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+                        long size = in.size();
+                        for (long copied = 0; copied < size; ) {
+                            copied += in.transferTo(copied, size - copied, out);
+                        }
+                    }
+                }
+                out.force(true);
+            }
+            synchronized (filesLock) {
+                // Once the move is durable, recovery ignores the files it replaces even if they remain
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                syncDirectory();
+                for (Path source : sources) {
+                    Files.deleteIfExists(source);
+                }
+                sealed.removeAll(segments);
+                compacted = target;
+            }
+            logger.info("Compacted {} review journal file(s) into {} in {} ms",
+                    sources.size(), target.getFileName(), (System.nanoTime() - start) / 1_000_000);
+        } catch (IOException e) {
+            logger.error("Failed to compact the review journal, keeping its segments: {}", e.getMessage());
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Removed on the next startup
+            }
+        } finally {
+            synchronized (filesLock) {
+                compacting = false;
+                compactor = null;
+            }
+        }
+    }
+
+    /**
+     * Find the journal files, dropping what an interrupted compaction left behind and
+     * cutting a torn record off the end of the last segment.
+     *
+     * @return the highest sequence in use
+     */
+    private long recover() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        TreeMap<Long, Path> compactions = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    Files.delete(file);
+                } else if (name.endsWith(SUFFIX) && name.startsWith(SEGMENT_PREFIX)) {
+                    segments.put(sequenceOf(file), file);
+                } else if (name.endsWith(SUFFIX) && name.startsWith(COMPACTED_PREFIX)) {
+                    compactions.put(sequenceOf(file), file);
+                }
+            }
+        }
+        long last = 0;
+        if (!compactions.isEmpty()) {
+            last = compactions.lastKey();
+            compacted = compactions.remove(last);
+            for (Path replaced : compactions.values()) {
+                Files.delete(replaced);
+            }
+            for (Path replaced : segments.headMap(last, true).values()) {
+                Files.delete(replaced);
+            }
+        }
+        sealed.addAll(segments.tailMap(last, false).values());
+        if (!sealed.isEmpty()) {
+            Path tail = sealed.get(sealed.size() - 1);
+            last = Math.max(last, sequenceOf(tail));
+            long valid = read(tail, (review, movieId) -> { });
+            if (valid < Files.size(tail)) {
+                logger.warn("Cutting a torn record off review journal segment {} at byte {}", tail.getFileName(), valid);
+                try (FileChannel channel = FileChannel.open(tail, StandardOpenOption.WRITE)) {
+                    channel.truncate(valid);
+                    channel.force(true);
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Feed every journaled review, oldest first, to {@code sink}. Called by
+     * {@link ReviewService} with its lock held, so no batch is committed meanwhile.
+     */
+    void replay(ObjLongConsumer<Review> sink) {
+        synchronized (filesLock) {
+            List<Path> files = new ArrayList<>();
+            if (compacted != null) {
+                files.add(compacted);
+            }
+            files.addAll(sealed);
+            if (segment != null) {
+                files.add(segmentPath(segmentSequence));
+            }
+            int count = 0;
+            for (Path file : files) {
+                try {
+                    long valid = read(file, sink);
+                    if (valid < Files.size(file)) {
+                        logger.error("Review journal file {} is corrupt after byte {}, skipping the rest", file.getFileName(), valid);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to replay review journal file " + file, e);
+                }
+                count++;
+            }
+            logger.info("Replayed {} review journal file(s)", count);
+        }
+    }
+
+    /**
+     * Feed the records of {@code file} to {@code sink} up to the first torn or corrupt one.
+     *
+     * @return the length of the valid records
+     */
+    static long read(Path file, ObjLongConsumer<Review> sink) throws IOException {
+        long valid = 0;
+        CRC32 crc = new CRC32();
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, 1 << 16))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return valid;
+                }
+                byte[] payload;
+                int checksum;
+                try {
+                    checksum = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_BYTES) {
+                        return valid;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    return valid;
+                }
+                crc.reset();
+                crc.update(payload, 0, payload.length);
+                if ((int) crc.getValue() != checksum) {
+                    return valid;
+                }
+                ByteBuffer record = ByteBuffer.wrap(payload);
+                long movieId = record.getLong();
+                double rating = record.getDouble();
+                sink.accept(new Review(string(record), string(record), rating, string(record)), movieId);
+                valid += 2 * Integer.BYTES + length;
+            }
+        }
+    }
+
+    private static String string(ByteBuffer record) {
+        int length = record.getInt();
+        String value = new String(record.array(), record.position(), length, StandardCharsets.UTF_8);
+        record.position(record.position() + length);
+        return value;
+    }
+
+    private static ByteBuffer encode(List<Pending> batch) {
+        ByteArrayOutputStream records = new ByteArrayOutputStream(batch.size() * 256);
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
+        CRC32 crc = new CRC32();
+        try {
+            DataOutputStream out = new DataOutputStream(records);
+            DataOutputStream fields = new DataOutputStream(payload);
+            for (Pending pending : batch) {
+                payload.reset();
+                fields.writeLong(pending.movieId);
+                fields.writeDouble(pending.review.getRating());
+                SnapshotFormat.writeString(fields, pending.review.getUserName());
+                SnapshotFormat.writeString(fields, pending.review.getAvatarEmoji());
+                SnapshotFormat.writeString(fields, pending.review.getComment());
+                byte[] bytes = payload.toByteArray();
+                crc.reset();
+                crc.update(bytes, 0, bytes.length);
+                out.writeInt(bytes.length);
+                out.writeInt((int) crc.getValue());
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return ByteBuffer.wrap(records.toByteArray());
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(SEGMENT_PREFIX + format(sequence) + SUFFIX);
+    }
+
+    /** Zero-padded, so files list in sequence order. */
+    private static String format(long sequence) {
+        return String.format("%019d", sequence);
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        int start = name.startsWith(SEGMENT_PREFIX) ? SEGMENT_PREFIX.length() : COMPACTED_PREFIX.length();
+        return Long.parseLong(name.substring(start, name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Make created and renamed files durable. Not every platform can open a directory;
+     * there the rename is left to the file system.
+     */
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.debug("Cannot sync review journal directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * Registers the queue length, the commit timer, whose count is the number of fsyncs,
+     * and the number of reviews per commit.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("movies.reviews.journal.queue", queue, BlockingQueue::size)
+                .description("Reviews waiting to be written")
+                .register(registry);
+        commitTimer = Timer.builder("movies.reviews.journal.commit")
+                .description("Time taken to write, fsync and apply a batch of reviews")
+                .publishPercentileHistogram()
+                .register(registry);
+        batchSizes = DistributionSummary.builder("movies.reviews.journal.batch")
+                .description("Reviews written per fsync")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static final class Pending {
+        final long movieId;
+        final Review review;
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+
+        Pending(long movieId, Review review) {
+            this.movieId = movieId;
+            this.review = review;
+        }
+    }
+}
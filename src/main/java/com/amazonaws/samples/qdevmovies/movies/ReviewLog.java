@@ -0,0 +1,355 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A movie's reviews as an append-only log. Reviews are encoded one after another in a
+ * byte array, with an offset index by position and, per half-star bucket, the positions
+ * of the reviews in it. A review is decoded only when it is read, so a page of reviews
+ * costs that page whatever the movie's review count.
+ *
+ * <p>A log is an immutable list of the reviews appended so far. {@link #append(Review)}
+ * returns a new log that shares the buffers and only writes past this log's end, so an
+ * append costs the review, not a copy of the movie's reviews. Appending is not thread-safe;
+ * reading is. Appending to a log that is no longer the latest copies the buffers first.</p>
+ *
+ * <p>Record layout, each string as an int byte length ({@code -1} for null) and UTF-8 bytes:</p>
+ * <pre>
+ * string userName, string avatarEmoji, string comment
+ * </pre>
+ */
+final class ReviewLog extends AbstractList<Review> implements RandomAccess {
+
+    private static final int[] NO_POSITIONS = new int[0];
+    /** Bound of a position that starts at the newest review of its step. */
+    private static final int NO_BOUND = Integer.MAX_VALUE;
+
+    /** The reviews of a movie without any. */
+    static final ReviewLog EMPTY = new Buffer(0).snapshot();
+
+    private final byte[] data;
+    private final int[] offsets;
+    private final double[] ratings;
+    /** Per {@link ReviewSummary#bucket half-star bucket}, ascending positions of its reviews. */
+    private final int[][] buckets;
+    private final int[] bucketCounts;
+    private final int size;
+    private final long hash;
+    /** The buffers this log shares with the logs appended to it. */
+    private final Buffer buffer;
+
+    private ReviewLog(Buffer buffer) {
+        this.data = buffer.data;
+        this.offsets = buffer.offsets;
+        this.ratings = buffer.ratings;
+        // The buffer replaces buckets as they grow, and counts on every append
+        this.buckets = buffer.buckets.clone();
+        this.bucketCounts = buffer.bucketCounts.clone();
+        this.size = buffer.size;
+        this.hash = buffer.hash;
+        this.buffer = buffer;
+    }
+
+    /**
+     * A log of {@code reviews}, in their order, for {@code movieId}.
+     */
+    static ReviewLog of(long movieId, List<Review> reviews) {
+        Buffer buffer = new Buffer(movieId);
+        for (Review review : reviews) {
+            buffer.append(review);
+        }
+        return buffer.snapshot();
+    }
+
+    /**
+     * An empty log for {@code movieId}, to append its first review to.
+     */
+    static ReviewLog empty(long movieId) {
+        return new Buffer(movieId).snapshot();
+    }
+
+    /**
+     * This log with {@code review} appended.
+     */
+    ReviewLog append(Review review) {
+        Buffer target = buffer.size == size ? buffer : new Buffer(this);
+        target.append(review);
+        return target.snapshot();
+    }
+
+    /**
+     * Rating of the review at {@code index}, without decoding the review when {@code reviews}
+     * is a log.
+     */
+    static double rating(List<Review> reviews, int index) {
+        return reviews instanceof ReviewLog ? ((ReviewLog) reviews).rating(index) : reviews.get(index).getRating();
+    }
+
+    double rating(int index) {
+        checkIndex(index);
+        return ratings[index];
+    }
+
+    /**
+     * Hash chained over the movie id and the reviews in order, so an append extends it
+     * without reading the reviews back.
+     */
+    long hash() {
+        return hash;
+    }
+
+    @Override
+    public Review get(int index) {
+        checkIndex(index);
+        String[] fields = new String[3];
+        int position = offsets[index];
+        for (int f = 0; f < fields.length; f++) {
+            int length = readInt(data, position);
+            position += Integer.BYTES;
+            if (length >= 0) {
+                fields[f] = new String(data, position, length, StandardCharsets.UTF_8);
+                position += length;
+            }
+        }
+        return new Review(fields[0], fields[1], ratings[index], fields[2]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    /*
+     * A position in an order is a step, the bucket being read or 0 for NEWEST, in the
+     * high int and an exclusive upper bound on the review positions left in that step in
+     * the low int. Review positions only grow, so a position stays valid as reviews are added.
+     */
+
+    /**
+     * Position of the review {@code offset} reviews into {@code sort}.
+     */
+    long position(ReviewSort sort, long offset) {
+        int steps = steps(sort);
+        for (int step = 0; step < steps; step++) {
+            int count = count(sort, step);
+            if (offset < count) {
+                return pack(step, offset == 0 ? NO_BOUND : positionAt(sort, step, count - (int) offset));
+            }
+            offset -= count;
+        }
+        return pack(steps, NO_BOUND);
+    }
+
+    /**
+     * Decode up to {@code limit} reviews in {@code sort} from {@code position} on.
+     */
+    ReviewPage page(ReviewSort sort, long position, int limit) {
+        List<Review> reviews = new ArrayList<>(Math.min(limit, size));
+        int steps = steps(sort);
+        int step = (int) (position >>> 32);
+        int bound = (int) position;
+        while (step < steps) {
+            int end = countBelow(sort, step, bound);
+            while (end > 0 && reviews.size() < limit) {
+                bound = positionAt(sort, step, --end);
+                reviews.add(get(bound));
+            }
+            if (end > 0) {
+                break;
+            }
+            step++;
+            bound = NO_BOUND;
+        }
+        return new ReviewPage(reviews, limit, size, sort, step < steps ? cursor(sort, pack(step, bound)) : null);
+    }
+
+    private static long pack(int step, int bound) {
+        return (long) step << 32 | bound;
+    }
+
+    private static int steps(ReviewSort sort) {
+        return sort == ReviewSort.NEWEST ? 1 : ReviewSummary.BUCKETS;
+    }
+
+    private static int bucket(ReviewSort sort, int step) {
+        return sort == ReviewSort.HIGHEST ? ReviewSummary.BUCKETS - 1 - step : step;
+    }
+
+    private int count(ReviewSort sort, int step) {
+        return sort == ReviewSort.NEWEST ? size : bucketCounts[bucket(sort, step)];
+    }
+
+    /**
+     * The {@code index}th oldest review position of {@code step}.
+     */
+    private int positionAt(ReviewSort sort, int step, int index) {
+        return sort == ReviewSort.NEWEST ? index : buckets[bucket(sort, step)][index];
+    }
+
+    /**
+     * Number of review positions in {@code step} below {@code bound}.
+     */
+    private int countBelow(ReviewSort sort, int step, int bound) {
+        int low = 0;
+        int high = count(sort, step);
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (positionAt(sort, step, middle) < bound) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Opaque cursor for {@code position} in {@code sort}: the sort's initial and the
+     * position in base 36.
+     */
+    static String cursor(ReviewSort sort, long position) {
+        return sort.getParameter().charAt(0) + Long.toString(position, Character.MAX_RADIX);
+    }
+
+    /**
+     * Position of a cursor returned with an earlier page in {@code sort}.
+     *
+     * @throws IllegalArgumentException for a cursor from another order or not a cursor at all
+     */
+    static long position(ReviewSort sort, String cursor) {
+        if (cursor.length() > 1 && cursor.charAt(0) == sort.getParameter().charAt(0)) {
+            try {
+                long position = Long.parseLong(cursor.substring(1), Character.MAX_RADIX);
+                if (position >= 0 && (position >>> 32) <= steps(sort)) {
+                    return position;
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+        }
+        throw new IllegalArgumentException("Invalid review cursor: " + cursor);
+    }
+
+    private static int readInt(byte[] data, int position) {
+        return (data[position] & 0xff) << 24 | (data[position + 1] & 0xff) << 16
+                | (data[position + 2] & 0xff) << 8 | data[position + 3] & 0xff;
+    }
+
+    /**
+     * The growing end of a log. The latest log over a buffer has its size; older logs read
+     * only below their own size, which the buffer never writes again.
+     */
+    private static final class Buffer {
+        byte[] data;
+        int dataLength;
+        int[] offsets;
+        double[] ratings;
+        int[][] buckets;
+        int[] bucketCounts;
+        int size;
+        long hash;
+
+        Buffer(long movieId) {
+            data = new byte[0];
+            offsets = NO_POSITIONS;
+            ratings = new double[0];
+            buckets = new int[ReviewSummary.BUCKETS][];
+            Arrays.fill(buckets, NO_POSITIONS);
+            bucketCounts = new int[ReviewSummary.BUCKETS];
+            hash = CacheKeys.mix(CacheKeys.FNV_OFFSET, movieId);
+        }
+
+        /**
+         * A buffer of its own for {@code log}, whose buffer has moved on.
+         */
+        Buffer(ReviewLog log) {
+            size = log.size;
+            dataLength = size > 0 ? end(log) : 0;
+            data = Arrays.copyOf(log.data, dataLength);
+            offsets = Arrays.copyOf(log.offsets, size);
+            ratings = Arrays.copyOf(log.ratings, size);
+            bucketCounts = log.bucketCounts.clone();
+            buckets = new int[ReviewSummary.BUCKETS][];
+            for (int b = 0; b < buckets.length; b++) {
+                buckets[b] = Arrays.copyOf(log.buckets[b], bucketCounts[b]);
+            }
+            hash = log.hash;
+        }
+
+        private static int end(ReviewLog log) {
+            int position = log.offsets[log.size - 1];
+            for (int f = 0; f < 3; f++) {
+                position += Integer.BYTES + Math.max(0, readInt(log.data, position));
+            }
+            return position;
+        }
+
+        void append(Review review) {
+            byte[][] fields = {utf8(review.getUserName()), utf8(review.getAvatarEmoji()), utf8(review.getComment())};
+            long recordLength = 0;
+            for (byte[] field : fields) {
+                recordLength += Integer.BYTES + (field != null ? field.length : 0);
+            }
+            if (dataLength + recordLength > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Review log is full");
+            }
+            if (dataLength + recordLength > data.length) {
+                data = Arrays.copyOf(data, grow(data.length, (int) (dataLength + recordLength)));
+            }
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, grow(size, size + 1));
+                ratings = Arrays.copyOf(ratings, offsets.length);
+            }
+            offsets[size] = dataLength;
+            for (byte[] field : fields) {
+                writeInt(field != null ? field.length : -1);
+                if (field != null) {
+                    System.arraycopy(field, 0, data, dataLength, field.length);
+                    dataLength += field.length;
+                }
+            }
+            double rating = review.getRating();
+            ratings[size] = rating;
+            int bucket = ReviewSummary.bucket(rating);
+            if (bucketCounts[bucket] == buckets[bucket].length) {
+                buckets[bucket] = Arrays.copyOf(buckets[bucket], grow(bucketCounts[bucket], bucketCounts[bucket] + 1));
+            }
+            buckets[bucket][bucketCounts[bucket]++] = size;
+            hash = CacheKeys.mix(hash, review.getUserName());
+            hash = CacheKeys.mix(hash, review.getAvatarEmoji());
+            hash = CacheKeys.mix(hash, Double.doubleToLongBits(rating));
+            hash = CacheKeys.mix(hash, review.getComment());
+            size++;
+        }
+
+        ReviewLog snapshot() {
+            return new ReviewLog(this);
+        }
+
+        private void writeInt(int value) {
+            data[dataLength++] = (byte) (value >>> 24);
+            data[dataLength++] = (byte) (value >>> 16);
+            data[dataLength++] = (byte) (value >>> 8);
+            data[dataLength++] = (byte) value;
+        }
+
+        private static byte[] utf8(String value) {
+            return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+        }
+
+        private static int grow(int capacity, int needed) {
+            return (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, capacity + (capacity >> 1) + 4L));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.List;
+
+/**
+ * One page of a movie's reviews, with the total number of reviews and a cursor to the
+ * next page.
+ */
+public class ReviewPage {
+    private final List<Review> reviews;
+    private final int size;
+    private final int totalElements;
+    private final ReviewSort sort;
+    private final String nextCursor;
+
+    public ReviewPage(List<Review> reviews, int size, int totalElements, ReviewSort sort, String nextCursor) {
+        this.reviews = reviews;
+        this.size = size;
+        this.totalElements = totalElements;
+        this.sort = sort;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Review> getReviews() { return reviews; }
+    public int getSize() { return size; }
+    public int getTotalElements() { return totalElements; }
+    public ReviewSort getSort() { return sort; }
+
+    /**
+     * Opaque cursor of the page after this one in the same order, or {@code null} on the
+     * last page. Reviews added since this page was read don't shift the following pages.
+     */
+    public String getNextCursor() { return nextCursor; }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
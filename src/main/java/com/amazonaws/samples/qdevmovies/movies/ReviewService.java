@@ -1,33 +1,343 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 @Service
-public class ReviewService {
+public class ReviewService implements MeterBinder {
     private static final Logger logger = LogManager.getLogger(ReviewService.class);
+    static final String DEFAULT_REVIEWS_RESOURCE = "mock-reviews.json";
+    static final int MAX_USER_NAME_LENGTH = 100;
+    static final int MAX_COMMENT_LENGTH = 4000;
 
-    public List<Review> getReviewsForMovie(long movieId) {
-        List<Review> reviews = new ArrayList<>();
+    private final String reviewsResource;
+    private final String snapshotDirectory;
+    private final boolean writeSnapshot;
+
+    /**
+     * Told about every review change, e.g. to keep aggregates such as {@link ReviewStats}
+     * current without reading reviews back. Calls hold the service lock, like
+     * {@link #withReviews(Function)}.
+     */
+    interface Listener {
+        /**
+         * The whole index was replaced.
+         */
+        void reviewsLoaded(Map<Long, List<Review>> reviewsByMovie);
+
+        /**
+         * {@code review} was appended to {@code movieId}'s reviews.
+         */
+        void reviewAdded(long movieId, Review review);
+    }
+
+    /**
+     * Review logs indexed by movie id. Every log is an immutable list; adding a review
+     * appends to the log and replaces it with the longer one, so callers holding the
+     * previous log keep a stable view. {@link #reload()} swaps in a new index.
+     */
+    private volatile Map<Long, ReviewLog> reviewsByMovie;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    /** Reviews submitted since the bundled reviews, replayed after every load. */
+    private volatile ReviewJournal journal;
+
+    /**
+     * Version and load time of {@link #reviewsByMovie}. Written after the index, so a
+     * reader that sees a new version also sees the new reviews.
+     */
+    private volatile long reviewsVersion;
+    private volatile long loadedAt;
+    private volatile long loadNanos;
+    private volatile int reviewCount;
+
+    /** No-op until Spring Boot binds the service to a registry. */
+    private volatile Timer lookupTimer = Timer.builder("movies.reviews.lookup").register(new CompositeMeterRegistry());
+
+    public ReviewService() {
+        this(DEFAULT_REVIEWS_RESOURCE, "", false);
+    }
+
+    /**
+     * Reviews come from a snapshot in {@code movies.snapshot.directory} when one matches
+     * the reviews resource, otherwise from the JSON resource.
+     */
+    @Autowired
+    public ReviewService(@Value("${movies.reviews.resource:" + DEFAULT_REVIEWS_RESOURCE + "}") String reviewsResource,
+                         @Value("${movies.snapshot.directory:}") String snapshotDirectory,
+                         @Value("${movies.snapshot.write-on-startup:false}") boolean writeSnapshot) {
+        this.reviewsResource = reviewsResource;
+        this.snapshotDirectory = snapshotDirectory;
+        this.writeSnapshot = writeSnapshot;
         try {
-            InputStream inputStream = getClass().getClassLoader().getResourceAsStream("mock-reviews.json");
-            if (inputStream != null) {
-                Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name());
-                String jsonContent = scanner.useDelimiter("\\A").next();
+            install(loadReviews(false));
+        } catch (IOException e) {
+            // A lenient load logs its failures instead of throwing
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Serve an already built index, e.g. synthetic reviews in benchmarks. {@link #reload()}
+     * replaces it with the bundled reviews.
+     */
+    ReviewService(Map<Long, List<Review>> reviewsByMovie) {
+        this.reviewsResource = DEFAULT_REVIEWS_RESOURCE;
+        this.snapshotDirectory = "";
+        this.writeSnapshot = false;
+        install(Collections.unmodifiableMap(reviewsByMovie));
+    }
+
+    /**
+     * Re-read the reviews and atomically replace the review index.
+     * Requests already holding a review list keep using the previous one.
+     * If the load fails or yields no reviews the current index stays in place.
+     *
+     * @throws IOException if the reviews source is missing, unreadable or malformed
+     */
+    public synchronized void reload() throws IOException {
+        Map<Long, List<Review>> index = loadReviews(true);
+        if (index.isEmpty()) {
+            throw new IOException("Reloaded reviews are empty, keeping the current ones");
+        }
+        install(index);
+    }
+
+    private void install(Map<Long, List<Review>> index) {
+        Map<Long, ReviewLog> logs = new ConcurrentHashMap<>(index.size() * 4 / 3 + 1);
+        int count = 0;
+        long version = index.size();
+        for (Map.Entry<Long, List<Review>> entry : index.entrySet()) {
+            ReviewLog log = ReviewLog.of(entry.getKey(), entry.getValue());
+            logs.put(entry.getKey(), log);
+            count += log.size();
+            // Order-independent: the per-movie hashes are summed, as map order is not stable across loads
+            version += log.hash();
+        }
+        if (journal != null) {
+            Map<Long, ReviewLog> loaded = new HashMap<>(logs);
+            journal.replay((review, movieId) -> {
+                ReviewLog log = logs.get(movieId);
+                logs.put(movieId, (log != null ? log : ReviewLog.empty(movieId)).append(review));
+            });
+            for (Map.Entry<Long, ReviewLog> entry : logs.entrySet()) {
+                ReviewLog before = loaded.get(entry.getKey());
+                count += entry.getValue().size() - (before != null ? before.size() : 0);
+                version += entry.getValue().hash() - (before != null ? before.hash() : -1);
+            }
+        }
+        this.reviewCount = count;
+        this.reviewsByMovie = logs;
+        if (loadedAt == 0 || version != reviewsVersion) {
+            // Reloading unchanged reviews keeps Last-Modified, so clients stay cached
+            this.reviewsVersion = version;
+            this.loadedAt = System.currentTimeMillis();
+        }
+        for (Listener listener : listeners) {
+            listener.reviewsLoaded(reviewIndex());
+        }
+    }
+
+    /**
+     * Replay the reviews in {@code journal} on top of the current ones, and again after
+     * every {@link #reload()}.
+     */
+    synchronized void attachJournal(ReviewJournal journal) {
+        journal.replay((review, movieId) -> addReview(movieId, review));
+        this.journal = journal;
+    }
+
+    /**
+     * Register {@code listener} for review changes from now on.
+     */
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Apply {@code reader} to the review index with no review added or reload published
+     * meanwhile, so a {@link Listener} can build from the index and then rely on its calls
+     * for every later change.
+     */
+    synchronized <T> T withReviews(Function<Map<Long, List<Review>>, T> reader) {
+        return reader.apply(reviewIndex());
+    }
+
+    /**
+     * Append a review to a movie's review log. Nothing is copied but the review, and the
+     * version moves by that movie's hash alone.
+     *
+     * @return the movie's number of reviews, including this one
+     * @throws IllegalArgumentException for an invalid review, see {@link #validate(Review)}
+     */
+    public synchronized int addReview(long movieId, Review review) {
+        validate(review);
+        ReviewLog previous = reviewsByMovie.get(movieId);
+        ReviewLog reviews = (previous != null ? previous : ReviewLog.empty(movieId)).append(review);
+        reviewsByMovie.put(movieId, reviews);
+        reviewCount++;
+        this.reviewsVersion = reviewsVersion + reviews.hash() - (previous != null ? previous.hash() : -1);
+        this.loadedAt = System.currentTimeMillis();
+        for (Listener listener : listeners) {
+            listener.reviewAdded(movieId, review);
+        }
+        return reviews.size();
+    }
+
+    /**
+     * Check that a review can be stored.
+     *
+     * @throws IllegalArgumentException if the review has no user name, avatar or comment,
+     *         a user name or comment that is too long, or a rating not between 0.5 and 5
+     */
+    static void validate(Review review) {
+        if (review == null || review.getUserName() == null || review.getUserName().trim().isEmpty()
+                || review.getAvatarEmoji() == null || review.getComment() == null) {
+            throw new IllegalArgumentException("Review needs a user name, an avatar and a comment");
+        }
+        if (review.getUserName().length() > MAX_USER_NAME_LENGTH || review.getAvatarEmoji().length() > MAX_USER_NAME_LENGTH
+                || review.getComment().length() > MAX_COMMENT_LENGTH) {
+            throw new IllegalArgumentException("Review user names and avatars are limited to " + MAX_USER_NAME_LENGTH
+                    + " characters and comments to " + MAX_COMMENT_LENGTH);
+        }
+        if (!(review.getRating() >= 0.5 && review.getRating() <= 5)) {
+            throw new IllegalArgumentException("Review rating must be from 0.5 to 5: " + review.getRating());
+        }
+    }
+
+    /**
+     * Content hash of the loaded reviews, used to derive HTTP validators.
+     */
+    public long getReviewsVersion() {
+        return reviewsVersion;
+    }
+
+    /**
+     * When the reviews were last loaded, in epoch milliseconds.
+     */
+    public long getReviewsLastModified() {
+        return loadedAt;
+    }
+
+    Map<Long, List<Review>> reviewIndex() {
+        return Collections.<Long, List<Review>>unmodifiableMap(reviewsByMovie);
+    }
+
+    /**
+     * Registers the review lookup timer along with the number of loaded reviews and how
+     * long the last load took.
+     */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("movies.reviews.count", this, service -> service.reviewCount)
+                .description("Number of loaded reviews")
+                .register(registry);
+        TimeGauge.builder("movies.reviews.load", this, TimeUnit.NANOSECONDS, service -> service.loadNanos)
+                .description("Time taken by the last review load, from a snapshot or JSON")
+                .register(registry);
+        lookupTimer = Timer.builder("movies.reviews.lookup")
+                .description("Time taken to look up the reviews of a movie")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    /**
+     * Load the reviews from a snapshot or JSON. A strict load throws on a missing or
+     * malformed source; otherwise the failure is logged and the reviews read before it
+     * are kept.
+     */
+    private Map<Long, List<Review>> loadReviews(boolean strict) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return readReviews(strict);
+        } finally {
+            loadNanos = System.nanoTime() - start;
+        }
+    }
+
+    private Map<Long, List<Review>> readReviews(boolean strict) throws IOException {
+        if (snapshotDirectory == null || snapshotDirectory.trim().isEmpty()) {
+            return loadReviewsFromJson(strict);
+        }
+        Path snapshot = Paths.get(snapshotDirectory.trim(), SnapshotFormat.REVIEWS_FILE);
+        long fingerprint;
+        try {
+            fingerprint = SnapshotFormat.fingerprint(null, reviewsResource);
+        } catch (IOException e) {
+            logger.warn("Cannot fingerprint reviews resource {}, skipping snapshot: {}", reviewsResource, e.getMessage());
+            return loadReviewsFromJson(strict);
+        }
+
+        long start = System.nanoTime();
+        Map<Long, List<Review>> index = ReviewSnapshot.read(snapshot, fingerprint);
+        if (index != null) {
+            logger.info("Read reviews for {} movies from snapshot {} in {} ms",
+                    index.size(), snapshot, (System.nanoTime() - start) / 1_000_000);
+            return index;
+        }
+
+        index = loadReviewsFromJson(strict);
+        if (writeSnapshot) {
+            try {
+                ReviewSnapshot.write(snapshot, index, fingerprint);
+                logger.info("Wrote review snapshot {}", snapshot);
+            } catch (IOException e) {
+                logger.warn("Failed to write review snapshot {}: {}", snapshot, e.getMessage());
+            }
+        }
+        return index;
+    }
+
+    private Map<Long, List<Review>> loadReviewsFromJson(boolean strict) throws IOException {
+        long start = System.nanoTime();
+        Map<Long, List<Review>> index = new HashMap<>();
+        int reviewCount = 0;
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(reviewsResource)) {
+            if (inputStream == null) {
+                throw new IOException("Reviews resource " + reviewsResource + " not found on the classpath");
+            }
+            Scanner scanner = new Scanner(inputStream, StandardCharsets.UTF_8.name());
+            if (scanner.useDelimiter("\\A").hasNext()) {
+                String jsonContent = scanner.next();
                 scanner.close();
-                
+
                 JSONObject reviewsData = new JSONObject(jsonContent);
-                if (reviewsData.has(String.valueOf(movieId))) {
-                    JSONArray movieReviews = reviewsData.getJSONArray(String.valueOf(movieId));
+                for (String key : reviewsData.keySet()) {
+                    long movieId;
+                    try {
+                        movieId = Long.parseLong(key);
+                    } catch (NumberFormatException e) {
+                        logger.warn("Skipping reviews with non-numeric movie id: {}", key);
+                        continue;
+                    }
+                    JSONArray movieReviews = reviewsData.getJSONArray(key);
+                    List<Review> reviews = new ArrayList<>(movieReviews.length());
                     for (int i = 0; i < movieReviews.length(); i++) {
                         JSONObject reviewObj = movieReviews.getJSONObject(i);
                         reviews.add(new Review(
@@ -37,11 +347,68 @@ public class ReviewService {
                             reviewObj.getString("comment")
                         ));
                     }
+                    index.put(movieId, Collections.unmodifiableList(reviews));
+                    reviewCount += reviews.size();
                 }
+            } else {
+                throw new IOException("Reviews resource " + reviewsResource + " is empty");
+            }
+        } catch (IOException | RuntimeException e) {
+            if (strict) {
+                throw e instanceof IOException ? (IOException) e
+                        : new IOException("Malformed reviews in " + reviewsResource + ": " + e.getMessage(), e);
             }
-        } catch (Exception e) {
-            logger.error("Failed to load reviews for movie {}: {}", movieId, e.getMessage());
+            logger.error("Failed to load reviews from {}: {}", reviewsResource, e.getMessage());
         }
-        return reviews;
+        logger.info("Indexed {} reviews for {} movies in {} ms",
+                reviewCount, index.size(), (System.nanoTime() - start) / 1_000_000);
+        return Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * Returns the reviews for a movie. The returned list is shared and immutable, and
+     * decodes each review as it is read; prefer a {@link #getReviewPage page} for display.
+     */
+    public List<Review> getReviewsForMovie(long movieId) {
+        return reviewLog(movieId);
+    }
+
+    /**
+     * Returns page {@code page} of a movie's reviews in {@code sort}.
+     *
+     * @throws IllegalArgumentException if the page is negative or the size not positive
+     */
+    public ReviewPage getReviewPage(long movieId, ReviewSort sort, int page, int size) {
+        if (page < 0 || size < 1) {
+            throw new IllegalArgumentException("Page must not be negative and size must be positive");
+        }
+        int pageSize = Math.min(size, MovieService.MAX_PAGE_SIZE);
+        ReviewLog reviews = reviewLog(movieId);
+        return reviews.page(sort, reviews.position(sort, (long) page * pageSize), pageSize);
+    }
+
+    /**
+     * Returns the page of a movie's reviews that starts at {@code cursor}, the
+     * {@link ReviewPage#getNextCursor() next cursor} of an earlier page in the same order,
+     * or the first page when {@code cursor} is blank. Only the reviews on the page are decoded.
+     *
+     * @throws IllegalArgumentException for an invalid cursor or a size that is not positive
+     */
+    public ReviewPage getReviewPage(long movieId, ReviewSort sort, String cursor, int size) {
+        if (cursor == null || cursor.trim().isEmpty()) {
+            return getReviewPage(movieId, sort, 0, size);
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("Page must not be negative and size must be positive");
+        }
+        long position = ReviewLog.position(sort, cursor.trim());
+        return reviewLog(movieId).page(sort, position, Math.min(size, MovieService.MAX_PAGE_SIZE));
+    }
+
+    private ReviewLog reviewLog(long movieId) {
+        long start = System.nanoTime();
+        ReviewLog reviews = reviewsByMovie.get(movieId);
+        lookupTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return reviews != null ? reviews : ReviewLog.EMPTY;
     }
 }
@@ -0,0 +1,74 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary snapshot of the review index.
+ *
+ * <p>Payload layout after the {@link SnapshotFormat} header, with one block per movie:</p>
+ * <pre>
+ * long movie id, int review count, then per review:
+ *     double rating, string userName, string avatarEmoji, string comment
+ * </pre>
+ */
+final class ReviewSnapshot {
+
+    private ReviewSnapshot() {
+    }
+
+    /**
+     * Decode a review snapshot into an immutable index, or return {@code null} when it is
+     * missing, stale or invalid.
+     */
+    static Map<Long, List<Review>> read(Path file, long sourceFingerprint) {
+        MappedRegion region = SnapshotFormat.open(file, SnapshotFormat.KIND_REVIEWS, sourceFingerprint);
+        if (region == null) {
+            return null;
+        }
+        int movieCount = region.getInt(40);
+        Map<Long, List<Review>> index = new HashMap<>(movieCount * 2);
+        long position = region.getLong(SnapshotFormat.SECTION_OFFSETS);
+        for (int m = 0; m < movieCount; m++) {
+            long movieId = region.getLong(position);
+            int reviewCount = region.getInt(position + Long.BYTES);
+            position += Long.BYTES + Integer.BYTES;
+            List<Review> reviews = new ArrayList<>(reviewCount);
+            for (int r = 0; r < reviewCount; r++) {
+                double rating = region.getDouble(position);
+                position += Double.BYTES;
+                String userName = region.getString(position);
+                position += Integer.BYTES + region.getInt(position);
+                String avatarEmoji = region.getString(position);
+                position += Integer.BYTES + region.getInt(position);
+                String comment = region.getString(position);
+                position += Integer.BYTES + region.getInt(position);
+                reviews.add(new Review(userName, avatarEmoji, rating, comment));
+            }
+            index.put(movieId, Collections.unmodifiableList(reviews));
+        }
+        return Collections.unmodifiableMap(index);
+    }
+
+    static void write(Path file, Map<Long, List<Review>> reviewsByMovie, long sourceFingerprint) throws IOException {
+        SnapshotFormat.write(file, SnapshotFormat.KIND_REVIEWS, sourceFingerprint, reviewsByMovie.size(),
+                (out, position, sections) -> {
+                    sections[0] = position.position();
+                    for (Map.Entry<Long, List<Review>> entry : reviewsByMovie.entrySet()) {
+                        out.writeLong(entry.getKey());
+                        out.writeInt(entry.getValue().size());
+                        for (Review review : entry.getValue()) {
+                            out.writeDouble(review.getRating());
+                            SnapshotFormat.writeString(out, review.getUserName());
+                            SnapshotFormat.writeString(out, review.getAvatarEmoji());
+                            SnapshotFormat.writeString(out, review.getComment());
+                        }
+                    }
+                });
+    }
+}
@@ -0,0 +1,44 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * Orderings of a movie's reviews. Ties keep the newest review first.
+ */
+public enum ReviewSort {
+    /** Most recently added first. */
+    NEWEST("newest"),
+    /** Highest rated first, by half star. */
+    HIGHEST("highest"),
+    /** Lowest rated first, by half star. */
+    LOWEST("lowest");
+
+    private final String parameter;
+
+    ReviewSort(String parameter) {
+        this.parameter = parameter;
+    }
+
+    /**
+     * The value used for this ordering in the review {@code sort} request parameter.
+     */
+    public String getParameter() {
+        return parameter;
+    }
+
+    /**
+     * Parse a review {@code sort} request parameter; a missing or blank value means newest first.
+     *
+     * @throws IllegalArgumentException for an unknown ordering
+     */
+    public static ReviewSort fromParameter(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return NEWEST;
+        }
+        String parameter = value.trim().toLowerCase();
+        for (ReviewSort sort : values()) {
+            if (sort.parameter.equals(parameter)) {
+                return sort;
+            }
+        }
+        throw new IllegalArgumentException("Unknown review sort order: " + value);
+    }
+}
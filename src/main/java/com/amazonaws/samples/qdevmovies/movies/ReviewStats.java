@@ -0,0 +1,309 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Review aggregates for every movie of a store, in primitive arrays indexed by ordinal:
+ * review count, rating sum and a half-star histogram. Built once from the review index
+ * when the store is indexed, reading ratings straight from the {@link ReviewLog}s, and then
+ * kept current one review at a time, so a summary or a page sorted by review score never
+ * looks at a {@link Review}.
+ *
+ * <p>Scores are Bayesian-weighted: each movie counts as having {@link #PRIOR_REVIEWS}
+ * extra reviews at the mean rating of all stored reviews, so a single five-star review
+ * does not outrank a hundred reviews averaging 4.8.</p>
+ *
+ * <p>Writes come from one thread at a time, holding {@link ReviewService}'s lock so the
+ * reviews cannot change under a build. Readers don't lock. They read the arrays once
+ * through a single {@link Aggregates} reference, so growing them never pairs a longer
+ * array with a shorter one, and may see a movie's count and sum from either side of a
+ * review being added, which is harmless for a displayed average. A page computes each
+ * candidate's score once, so its ordering stays consistent while reviews come in.</p>
+ */
+final class ReviewStats {
+
+    static final int PRIOR_REVIEWS = 5;
+    private static final int[] NO_ORDINALS = new int[0];
+
+    /** The store whose ordinals index the arrays. */
+    final MovieStore store;
+    /** The latest catalog on {@link #store} that the arrays cover. */
+    private volatile Catalog catalog;
+    /** Replaced, never resized in place, when the store grows past its capacity. */
+    private volatile Aggregates aggregates;
+    private double totalSum;
+    /** Written last by every update, so readers that read it first see the counts it covers. */
+    private volatile long totalCount;
+
+    ReviewStats(Catalog catalog, Map<Long, List<Review>> reviewsByMovie) {
+        this.store = catalog.store;
+        this.catalog = catalog;
+        int capacity = Math.max(catalog.ordinalLimit(), 1);
+        Aggregates aggregates = new Aggregates(capacity);
+        long total = 0;
+        for (Map.Entry<Long, List<Review>> entry : reviewsByMovie.entrySet()) {
+            int ordinal = ordinalOf(catalog, entry.getKey());
+            List<Review> reviews = entry.getValue();
+            for (int i = 0; i < reviews.size(); i++) {
+                double rating = ReviewLog.rating(reviews, i);
+                if (ordinal >= 0) {
+                    aggregates.count(ordinal, rating);
+                }
+                totalSum += rating;
+            }
+            total += reviews.size();
+        }
+        this.aggregates = aggregates;
+        this.totalCount = total;
+    }
+
+    /**
+     * Cover the movies {@code next} added on top of {@link #store}, taking their reviews
+     * from {@code reviewsByMovie}. Their ratings are already in the mean.
+     */
+    void extend(Catalog next, Map<Long, List<Review>> reviewsByMovie) {
+        int from = catalog.ordinalLimit();
+        int to = next.ordinalLimit();
+        Aggregates aggregates = this.aggregates;
+        if (to > aggregates.capacity()) {
+            aggregates = aggregates.grow(Math.max(to, aggregates.capacity() + (aggregates.capacity() >> 1)));
+        }
+        for (int ordinal = from; ordinal < to; ordinal++) {
+            int index = next.delta.indexOf(ordinal);
+            Movie movie = index >= 0 ? next.delta.movieAt(index) : null;
+            List<Review> reviews = movie != null ? reviewsByMovie.get(movie.getId()) : null;
+            if (reviews != null) {
+                for (int i = 0; i < reviews.size(); i++) {
+                    aggregates.count(ordinal, ReviewLog.rating(reviews, i));
+                }
+            }
+        }
+        // Published before the catalog, so readers of the new catalog see arrays that cover it
+        this.aggregates = aggregates;
+        catalog = next;
+    }
+
+    /**
+     * Count a review just stored for {@code movieId}. A movie not in the catalog yet only
+     * moves the mean; {@link #extend} picks up its reviews once it is added.
+     */
+    void add(long movieId, double rating) {
+        int ordinal = ordinalOf(catalog, movieId);
+        Aggregates aggregates = this.aggregates;
+        if (ordinal >= 0 && ordinal < aggregates.capacity()) {
+            aggregates.count(ordinal, rating);
+        }
+        totalSum += rating;
+        totalCount = totalCount + 1;
+    }
+
+    /**
+     * Ordinal of {@code id} whether or not it is live, so a movie deleted and added back
+     * finds its reviews again.
+     */
+    private static int ordinalOf(Catalog catalog, long id) {
+        int ordinal = catalog.store.ordinalOf(id);
+        return ordinal >= 0 ? ordinal : catalog.delta.addedOrdinalOf(id);
+    }
+
+    /**
+     * The aggregate of {@code movieId}'s reviews; zero reviews for an unknown movie.
+     */
+    ReviewSummary summary(long movieId) {
+        double mean = mean();
+        int ordinal = ordinalOf(catalog, movieId);
+        Aggregates aggregates = this.aggregates;
+        if (ordinal < 0 || ordinal >= aggregates.capacity()) {
+            return new ReviewSummary(0, 0, mean, new int[ReviewSummary.BUCKETS]);
+        }
+        int count = aggregates.counts[ordinal];
+        double sum = aggregates.sums[ordinal];
+        int from = ordinal * ReviewSummary.BUCKETS;
+        return new ReviewSummary(count, count > 0 ? sum / count : 0, score(count, sum, mean),
+                Arrays.copyOfRange(aggregates.histograms, from, from + ReviewSummary.BUCKETS));
+    }
+
+    private double mean() {
+        long total = totalCount;
+        return total > 0 ? totalSum / total : 0;
+    }
+
+    private static double score(int count, double sum, double mean) {
+        return (PRIOR_REVIEWS * mean + sum) / (PRIOR_REVIEWS + count);
+    }
+
+    /**
+     * Select ordinals {@code [offset, offset + limit)} of {@code matches} in {@code catalog},
+     * best score first and catalog order among equal scores. Keeps a bounded heap of the
+     * best {@code offset + limit} like {@link MovieSortIndex}, each with the score it had
+     * when offered, and sorts them by those scores.
+     *
+     * @param matches ascending ordinals, or {@code null} for every live movie
+     */
+    int[] page(Catalog catalog, int[] matches, int offset, int limit) {
+        int total = matches != null ? matches.length : catalog.size();
+        if (offset >= total || limit <= 0) {
+            return NO_ORDINALS;
+        }
+        int k = (int) Math.min((long) offset + limit, total);
+        Scores scores = new Scores(catalog);
+        Heap heap = new Heap(k);
+        if (matches == null && catalog.delta.isEmpty()) {
+            for (int ordinal = 0; ordinal < total; ordinal++) {
+                heap.offer(ordinal, scores.score(ordinal));
+            }
+        } else {
+            for (int ordinal : matches != null ? matches : catalog.delta.liveOrdinals(0, total)) {
+                heap.offer(ordinal, scores.score(ordinal));
+            }
+        }
+        int[] best = heap.sort();
+        return Arrays.copyOfRange(best, offset, best.length);
+    }
+
+    /**
+     * Negative when the ordinal {@code a} with score {@code scoreA} sorts before {@code b}:
+     * higher score, then lower ordinal.
+     */
+    private static int compare(int a, double scoreA, int b, double scoreB) {
+        int result = Double.compare(scoreB, scoreA);
+        return result != 0 ? result : Integer.compare(a, b);
+    }
+
+    /**
+     * The best ordinals offered so far with their scores, in a bounded heap whose root is
+     * the worst one kept.
+     */
+    private static final class Heap {
+        private final int[] ordinals;
+        private final double[] scores;
+        private int size;
+
+        Heap(int capacity) {
+            this.ordinals = new int[capacity];
+            this.scores = new double[capacity];
+        }
+
+        void offer(int ordinal, double score) {
+            if (size < ordinals.length) {
+                int index = size++;
+                while (index > 0) {
+                    int parent = (index - 1) >>> 1;
+                    if (compare(ordinals[parent], scores[parent], ordinal, score) >= 0) {
+                        break;
+                    }
+                    move(parent, index);
+                    index = parent;
+                }
+                set(index, ordinal, score);
+            } else if (compare(ordinal, score, ordinals[0], scores[0]) < 0) {
+                siftDown(ordinal, score, size);
+            }
+        }
+
+        /** Put {@code ordinal} at the root of the first {@code limit} entries and sift it down. */
+        private void siftDown(int ordinal, double score, int limit) {
+            int index = 0;
+            int half = limit >>> 1;
+            while (index < half) {
+                int child = 2 * index + 1;
+                if (child + 1 < limit && compare(ordinals[child + 1], scores[child + 1], ordinals[child], scores[child]) > 0) {
+                    child++;
+                }
+                if (compare(ordinal, score, ordinals[child], scores[child]) >= 0) {
+                    break;
+                }
+                move(child, index);
+                index = child;
+            }
+            set(index, ordinal, score);
+        }
+
+        /**
+         * The kept ordinals best first. Sorts in place by moving the worst remaining entry
+         * to the end, so the heap is spent afterwards.
+         */
+        int[] sort() {
+            for (int end = size - 1; end > 0; end--) {
+                int ordinal = ordinals[end];
+                double score = scores[end];
+                move(0, end);
+                siftDown(ordinal, score, end);
+            }
+            return size == ordinals.length ? ordinals : Arrays.copyOf(ordinals, size);
+        }
+
+        private void move(int from, int to) {
+            ordinals[to] = ordinals[from];
+            scores[to] = scores[from];
+        }
+
+        private void set(int index, int ordinal, double score) {
+            ordinals[index] = ordinal;
+            scores[index] = score;
+        }
+    }
+
+    /**
+     * Count, rating sum and half-star histogram per ordinal, replaced as a whole when it
+     * grows so a reader never mixes arrays of different lengths.
+     */
+    private static final class Aggregates {
+        final int[] counts;
+        final double[] sums;
+        /** {@link ReviewSummary#BUCKETS} counts per ordinal. */
+        final int[] histograms;
+
+        Aggregates(int capacity) {
+            this(new int[capacity], new double[capacity], new int[capacity * ReviewSummary.BUCKETS]);
+        }
+
+        private Aggregates(int[] counts, double[] sums, int[] histograms) {
+            this.counts = counts;
+            this.sums = sums;
+            this.histograms = histograms;
+        }
+
+        int capacity() {
+            return counts.length;
+        }
+
+        Aggregates grow(int capacity) {
+            return new Aggregates(Arrays.copyOf(counts, capacity), Arrays.copyOf(sums, capacity),
+                    Arrays.copyOf(histograms, capacity * ReviewSummary.BUCKETS));
+        }
+
+        void count(int ordinal, double rating) {
+            counts[ordinal]++;
+            sums[ordinal] += rating;
+            histograms[ordinal * ReviewSummary.BUCKETS + ReviewSummary.bucket(rating)]++;
+        }
+    }
+
+    /**
+     * Scores of one page request, for the ordinals of {@code catalog}. Right after a
+     * reload the catalog can be on a newer store than these arrays; its movies are then
+     * looked up by id until the arrays are rebuilt.
+     */
+    private final class Scores {
+        private final Catalog requested;
+        private final boolean aligned;
+        private final double mean;
+        private final Aggregates aggregates;
+
+        Scores(Catalog requested) {
+            this.mean = mean();
+            this.requested = requested;
+            this.aligned = requested.store == store;
+            this.aggregates = ReviewStats.this.aggregates;
+        }
+
+        double score(int ordinal) {
+            int own = aligned ? ordinal : ordinalOf(catalog, requested.movie(ordinal).getId());
+            return own >= 0 && own < aggregates.capacity()
+                    ? ReviewStats.score(aggregates.counts[own], aggregates.sums[own], mean) : mean;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+/**
+ * Aggregate of a movie's reviews: how many there are, their average, how they spread over
+ * the half-star ratings, and a Bayesian-weighted score that pulls movies with few reviews
+ * towards the average of all reviews.
+ */
+public final class ReviewSummary {
+
+    /** Half-star buckets from 0.5 to 5 stars. */
+    public static final int BUCKETS = 10;
+
+    private final int count;
+    private final double average;
+    private final double score;
+    private final int[] histogram;
+
+    ReviewSummary(int count, double average, double score, int[] histogram) {
+        this.count = count;
+        this.average = average;
+        this.score = score;
+        this.histogram = histogram;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Mean rating, or 0 without reviews.
+     */
+    public double getAverage() {
+        return average;
+    }
+
+    /**
+     * Bayesian-weighted rating used by the {@code reviews} sort order.
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * Number of reviews per half star, index 0 for 0.5 stars up to index 9 for 5 stars.
+     */
+    public int[] getHistogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * Number of reviews rated {@code stars}, rounded to the nearest half star.
+     */
+    public int getCount(double stars) {
+        return histogram[bucket(stars)];
+    }
+
+    /**
+     * Histogram bucket of a rating; ratings outside 0.5 to 5 go to the nearest end.
+     */
+    static int bucket(double rating) {
+        return Math.max(0, Math.min(BUCKETS - 1, (int) Math.round(rating * 2) - 1));
+    }
+}
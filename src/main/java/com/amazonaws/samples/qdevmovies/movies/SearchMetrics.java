@@ -0,0 +1,76 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search latency and result-count meters. Every meter is registered up front, one timer
+ * per criteria shape, so recording a search is an array read plus a lock-free histogram
+ * update with no tag or meter lookup.
+ */
+final class SearchMetrics {
+
+    /**
+     * Which criteria a search was given; the {@code shape} tag of the search timer.
+     * Relevance-ranked searches and type-ahead suggestions are timed apart from substring
+     * matches, and searches with a director or range criterion are timed together. Counts
+     * for facets are timed on their own.
+     */
+    enum Shape {
+        EMPTY, ID, NAME, GENRE, NAME_AND_GENRE, FILTERED, COUNT, RANKED, SUGGEST;
+
+        final String tag = name().toLowerCase();
+
+        static Shape of(String name, Long id, String genre) {
+            if (id != null) {
+                return ID;
+            }
+            boolean hasName = name != null && !name.trim().isEmpty();
+            boolean hasGenre = genre != null && !genre.trim().isEmpty();
+            if (hasName) {
+                return hasGenre ? NAME_AND_GENRE : NAME;
+            }
+            return hasGenre ? GENRE : EMPTY;
+        }
+
+        static Shape of(MovieFilter filter) {
+            if (filter.getId() == null && filter.hasFieldFilters()) {
+                return FILTERED;
+            }
+            return of(filter.getName(), filter.getId(), filter.getGenre());
+        }
+    }
+
+    /** Meters that record nothing, used until a registry is bound. */
+    static final SearchMetrics NOOP = new SearchMetrics(new CompositeMeterRegistry());
+
+    private final Timer[] latency = new Timer[Shape.values().length];
+    private final DistributionSummary results;
+
+    SearchMetrics(MeterRegistry registry) {
+        for (Shape shape : Shape.values()) {
+            latency[shape.ordinal()] = Timer.builder("movies.search")
+                    .description("Movie search latency by criteria shape")
+                    .tag("shape", shape.tag)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        this.results = DistributionSummary.builder("movies.search.results")
+                .description("Number of movies matching a search")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    void record(Shape shape, long startNanos, int resultCount) {
+        latency[shape.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        results.record(resultCount);
+    }
+
+    Timer latency(Shape shape) {
+        return latency[shape.ordinal()];
+    }
+}
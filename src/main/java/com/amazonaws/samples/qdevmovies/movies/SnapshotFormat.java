@@ -0,0 +1,219 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Shared header, checksum and I/O helpers for the binary catalog and review snapshots.
+ *
+ * <p>Every snapshot starts with a fixed {@value #HEADER_SIZE}-byte header:</p>
+ * <pre>
+ *  0  int   magic "QDMV"
+ *  4  int   format version
+ *  8  int   kind (catalog or reviews)
+ * 16  long  fingerprint of the JSON source the snapshot was written from
+ * 24  long  payload length in bytes
+ * 32  long  CRC32 of the payload
+ * 40  int   record count
+ * 48  long  section offsets used by the individual snapshot kinds
+ * </pre>
+ * <p>A snapshot is only used when magic, version, kind, source fingerprint and payload
+ * checksum all match; otherwise callers fall back to the JSON loaders. All numbers are
+ * big-endian, strings are an {@code int} byte length followed by UTF-8 bytes.</p>
+ */
+final class SnapshotFormat {
+    private static final Logger logger = LogManager.getLogger(SnapshotFormat.class);
+
+    static final int MAGIC = 0x51444D56;
+    static final int VERSION = 1;
+    static final int KIND_CATALOG = 1;
+    static final int KIND_REVIEWS = 2;
+    static final int HEADER_SIZE = 96;
+    static final int SECTION_OFFSETS = 48;
+    static final int MAX_SECTIONS = 6;
+
+    static final String CATALOG_FILE = "catalog.snapshot";
+    static final String REVIEWS_FILE = "reviews.snapshot";
+
+    private SnapshotFormat() {
+    }
+
+    /**
+     * Fingerprint of a catalog source: size and modification time for an external file,
+     * or a CRC32 of the bytes for a classpath resource.
+     */
+    static long fingerprint(String externalPath, String classpathResource) throws IOException {
+        if (externalPath != null && !externalPath.trim().isEmpty()) {
+            Path path = Paths.get(externalPath.trim());
+            return Files.size(path) * 31 + Files.getLastModifiedTime(path).toMillis();
+        }
+        CRC32 crc = new CRC32();
+        try (InputStream in = SnapshotFormat.class.getClassLoader().getResourceAsStream(classpathResource)) {
+            if (in == null) {
+                throw new IOException("Resource " + classpathResource + " not found on the classpath");
+            }
+            byte[] buffer = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, n);
+            }
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Open and validate a snapshot. Returns {@code null}, after logging why, when the file
+     * is missing, from another format version or kind, stale, or corrupt.
+     */
+    static MappedRegion open(Path file, int kind, long expectedFingerprint) {
+        if (!Files.isRegularFile(file)) {
+            logger.info("No snapshot at {}, loading from JSON", file);
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                logger.warn("Snapshot {} is truncated, ignoring it", file);
+                return null;
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION || header.getInt(8) != kind) {
+                logger.warn("Snapshot {} has an unknown format, version or kind, ignoring it", file);
+                return null;
+            }
+            if (header.getLong(16) != expectedFingerprint) {
+                logger.info("Snapshot {} is stale for the current JSON source, ignoring it", file);
+                return null;
+            }
+            long payloadLength = header.getLong(24);
+            if (channel.size() != HEADER_SIZE + payloadLength) {
+                logger.warn("Snapshot {} has the wrong length, ignoring it", file);
+                return null;
+            }
+            MappedRegion region = new MappedRegion(channel, channel.size());
+            if (region.crc32(HEADER_SIZE, payloadLength) != header.getLong(32)) {
+                logger.warn("Snapshot {} failed its checksum, ignoring it", file);
+                return null;
+            }
+            return region;
+        } catch (IOException e) {
+            logger.warn("Failed to open snapshot {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Write a snapshot through a temporary file that is atomically moved into place, so a
+     * reader never maps a half-written snapshot.
+     */
+    static void write(Path file, int kind, long fingerprint, int count, PayloadWriter payload) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            long[] sections = new long[MAX_SECTIONS];
+            long payloadLength;
+            try (OutputStream fileOut = Files.newOutputStream(temp)) {
+                fileOut.write(new byte[HEADER_SIZE]);
+                CountingOutputStream counting = new CountingOutputStream(
+                        new CheckedOutputStream(new BufferedOutputStream(fileOut, 64 * 1024), crc), HEADER_SIZE);
+                DataOutputStream out = new DataOutputStream(counting);
+                payload.write(out, counting, sections);
+                out.flush();
+                payloadLength = counting.position() - HEADER_SIZE;
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(temp.toFile(), "rw")) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, kind)
+                        .putLong(16, fingerprint).putLong(24, payloadLength).putLong(32, crc.getValue())
+                        .putInt(40, count);
+                for (int i = 0; i < MAX_SECTIONS; i++) {
+                    header.putLong(SECTION_OFFSETS + i * Long.BYTES, sections[i]);
+                }
+                raf.write(header.array());
+                raf.getFD().sync();
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MappedRegion.MAX_VALUE_BYTES - Integer.BYTES) {
+            throw new IOException("String of " + bytes.length + " bytes is too long for a snapshot");
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static int encodedLength(String value) {
+        return Integer.BYTES + value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Writes a snapshot payload. {@code position} reports absolute file offsets, which the
+     * writer records in {@code sections} for the header.
+     */
+    interface PayloadWriter {
+        void write(DataOutputStream out, CountingOutputStream position, long[] sections) throws IOException;
+    }
+
+    /**
+     * Output stream that tracks the absolute file position of the next byte.
+     */
+    static final class CountingOutputStream extends OutputStream {
+        private final OutputStream delegate;
+        private long position;
+
+        CountingOutputStream(OutputStream delegate, long start) {
+            this.delegate = delegate;
+            this.position = start;
+        }
+
+        long position() {
+            return position;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            position++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            position += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
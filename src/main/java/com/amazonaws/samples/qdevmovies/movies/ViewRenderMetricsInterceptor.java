@@ -0,0 +1,57 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times Thymeleaf rendering separately from the controller. {@code postHandle} runs after
+ * the controller returns and before the view renders, {@code afterCompletion} after it
+ * has rendered. Timers are cached per view name; {@code http.server.requests} already
+ * covers whole-request latency per endpoint.
+ */
+class ViewRenderMetricsInterceptor implements HandlerInterceptor {
+    private static final String RENDER_START = ViewRenderMetricsInterceptor.class.getName() + ".start";
+    private static final String RENDER_VIEW = ViewRenderMetricsInterceptor.class.getName() + ".view";
+
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+
+    ViewRenderMetricsInterceptor(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        if (modelAndView != null && modelAndView.getViewName() != null) {
+            request.setAttribute(RENDER_VIEW, modelAndView.getViewName());
+            request.setAttribute(RENDER_START, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object start = request.getAttribute(RENDER_START);
+        if (start == null) {
+            return;
+        }
+        timer((String) request.getAttribute(RENDER_VIEW)).record(System.nanoTime() - (Long) start, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(String view) {
+        return timers.computeIfAbsent(view, name -> Timer.builder("movies.view.render")
+                .description("Time taken to render a Thymeleaf view")
+                .tag("view", name)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+}
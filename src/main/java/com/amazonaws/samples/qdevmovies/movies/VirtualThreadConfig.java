@@ -0,0 +1,54 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.apache.coyote.ProtocolHandler;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Runs Tomcat request handling and Spring's application task executor, used for
+ * asynchronous MVC requests and {@code @Async} work, on virtual threads when
+ * {@code movies.threads.virtual} is set, as the {@code virtual-threads} profile does.
+ * A request blocked on I/O then parks its virtual thread instead of holding one of
+ * Tomcat's 200 platform threads. Needs Java 21 or later; startup fails on older JVMs.
+ * Both executors are beans, shut down when the context closes.
+ */
+@Configuration
+@ConditionalOnProperty(name = "movies.threads.virtual", havingValue = "true")
+public class VirtualThreadConfig {
+    private static final Logger logger = LogManager.getLogger(VirtualThreadConfig.class);
+
+    /**
+     * Runs each request on a new virtual thread. Created eagerly so an older JVM fails at
+     * startup instead of serving on platform threads.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualRequestExecutor() {
+        return VirtualThreads.newExecutor("http-");
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService virtualTaskExecutor() {
+        return VirtualThreads.newExecutor("task-");
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadRequests() {
+        ExecutorService executor = virtualRequestExecutor();
+        logger.info("Serving requests on virtual threads");
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(virtualTaskExecutor());
+    }
+}
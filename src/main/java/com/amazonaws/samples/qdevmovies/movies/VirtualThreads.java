@@ -0,0 +1,74 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual-thread executors on Java 21 and later. The build targets Java 8, so the
+ * {@code Thread.ofVirtual()} builder is looked up reflectively once. Java 19 and 20 have
+ * the same methods as a preview feature that throws unless enabled, so they count as
+ * having no virtual threads.
+ */
+final class VirtualThreads {
+
+    /** First Java release with virtual threads outside preview. */
+    static final int MIN_FEATURE_VERSION = 21;
+
+    /** {@code Thread.ofVirtual()}, {@code Thread.Builder.name(String, long)} and {@code factory()}, or null before Java 21. */
+    private static final Method[] BUILDER = featureVersion() >= MIN_FEATURE_VERSION ? lookup() : null;
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Whether this JVM runs virtual threads.
+     */
+    static boolean available() {
+        return BUILDER != null;
+    }
+
+    /**
+     * An executor that runs each task on a new virtual thread named {@code prefix} and a
+     * counter.
+     *
+     * @throws IllegalStateException on a JVM without virtual threads
+     */
+    static ExecutorService newExecutor(String prefix) {
+        if (BUILDER == null) {
+            throw new IllegalStateException("Virtual threads need Java " + MIN_FEATURE_VERSION
+                    + " or later, this is Java " + featureVersion());
+        }
+        try {
+            Object builder = BUILDER[1].invoke(BUILDER[0].invoke(null), prefix, 0L);
+            ThreadFactory factory = (ThreadFactory) BUILDER[2].invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Could not create virtual threads", e);
+        }
+    }
+
+    /**
+     * The running Java release, as {@code Runtime.version().feature()} gives it from Java 10
+     * on: 8 for {@code 1.8}, 21 for {@code 21}.
+     */
+    static int featureVersion() {
+        String version = System.getProperty("java.specification.version");
+        return Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+    }
+
+    private static Method[] lookup() {
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            return new Method[] {
+                    Thread.class.getMethod("ofVirtual"),
+                    builder.getMethod("name", String.class, long.class),
+                    builder.getMethod("factory")
+            };
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
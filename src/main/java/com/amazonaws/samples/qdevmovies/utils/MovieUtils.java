@@ -7,7 +7,7 @@ public class MovieUtils {
      * @param movieName The name of the movie to validate
      * @return true if the movie name is valid, false otherwise
      */
-    public static boolean isValidMovie(String movieName, int movieId) {
+    public static boolean isValidMovie(String movieName, long movieId) {
         if (movieName == null || movieName.trim().isEmpty()) {
             return false;
         }
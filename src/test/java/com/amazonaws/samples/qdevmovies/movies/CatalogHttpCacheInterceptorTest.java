@@ -0,0 +1,95 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the conditional GET handling of catalog pages.
+ */
+public class CatalogHttpCacheInterceptorTest {
+
+    private MovieService movieService;
+    private ReviewService reviewService;
+    private CatalogHttpCacheInterceptor interceptor;
+
+    @BeforeEach
+    public void setUp() {
+        movieService = new MovieService();
+        reviewService = new ReviewService();
+        interceptor = new CatalogHttpCacheInterceptor(movieService, reviewService, true, "public, max-age=60", "1.0");
+    }
+
+    @Test
+    @DisplayName("Should answer a matching If-None-Match with 304 before the controller runs")
+    public void testIfNoneMatch_ReturnsNotModified() throws Exception {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        assertTrue(interceptor.preHandle(get("/movies/1/details"), first, null));
+        String etag = first.getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        assertTrue(etag.startsWith("\""));
+        assertEquals("public, max-age=60", first.getHeader(HttpHeaders.CACHE_CONTROL));
+        assertNotNull(first.getHeader(HttpHeaders.LAST_MODIFIED));
+
+        MockHttpServletRequest revalidate = get("/movies/1/details");
+        revalidate.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        assertFalse(interceptor.preHandle(revalidate, second, null));
+        assertEquals(304, second.getStatus());
+        assertEquals("public, max-age=60", second.getHeader(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    @DisplayName("Should answer an up-to-date If-Modified-Since with 304")
+    public void testIfModifiedSince_ReturnsNotModified() throws Exception {
+        MockHttpServletRequest request = get("/movies");
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, System.currentTimeMillis() + 60_000);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertFalse(interceptor.preHandle(request, response, null));
+        assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    @DisplayName("Should derive ETags from the path and parameters but not their order")
+    public void testEtag_DependsOnParameters() {
+        MockHttpServletRequest dramas = get("/movies/search", "genre", "drama", "sort", "rating");
+        MockHttpServletRequest reordered = get("/movies/search", "sort", "rating", "genre", "drama");
+        MockHttpServletRequest withEmptyName = get("/movies/search", "name", "", "genre", "drama", "sort", "rating");
+        MockHttpServletRequest actions = get("/movies/search", "genre", "action", "sort", "rating");
+
+        assertEquals(interceptor.etag(dramas), interceptor.etag(reordered));
+        assertEquals(interceptor.etag(dramas), interceptor.etag(withEmptyName));
+        assertNotEquals(interceptor.etag(dramas), interceptor.etag(actions));
+        assertNotEquals(interceptor.etag(get("/movies/1/details")), interceptor.etag(get("/movies/2/details")));
+    }
+
+    @Test
+    @DisplayName("Should change ETags when the catalog or release changes")
+    public void testEtag_DependsOnCatalogAndRelease() {
+        MockHttpServletRequest request = get("/movies");
+        String etag = interceptor.etag(request);
+
+        assertEquals(etag, new CatalogHttpCacheInterceptor(new MovieService(), reviewService, true, "", "1.0").etag(request));
+        assertNotEquals(etag, new CatalogHttpCacheInterceptor(movieService, reviewService, true, "", "1.1").etag(request));
+
+        MovieService edited = new MovieService(Arrays.asList(
+                new Movie(1L, "The Prison Escape", "John Director", 1994, "Drama", "Edited", 142, 5.0)));
+        assertNotEquals(etag, new CatalogHttpCacheInterceptor(edited, reviewService, true, "", "1.0").etag(request));
+    }
+
+    private static MockHttpServletRequest get(String uri, String... parameters) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        for (int i = 0; i < parameters.length; i += 2) {
+            request.addParameter(parameters[i], parameters[i + 1]);
+        }
+        return request;
+    }
+}
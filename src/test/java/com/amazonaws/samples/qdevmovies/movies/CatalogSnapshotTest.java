@@ -0,0 +1,119 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the binary catalog and review snapshots.
+ */
+public class CatalogSnapshotTest {
+
+    private static final long FINGERPRINT = 42L;
+
+    @TempDir
+    Path tempDir;
+
+    private List<Movie> movies;
+    private Path catalogFile;
+
+    @BeforeEach
+    public void setUp() {
+        movies = MovieCatalogLoader.loadFromClasspath(MovieCatalogLoader.DEFAULT_CATALOG_RESOURCE);
+        catalogFile = tempDir.resolve(SnapshotFormat.CATALOG_FILE);
+    }
+
+    @Test
+    @DisplayName("Should read back every movie from a mapped catalog snapshot")
+    public void testCatalogSnapshot_RoundTrip() throws IOException {
+        MappedMovieStore.write(catalogFile, new ObjectMovieStore(movies), FINGERPRINT);
+        MappedMovieStore store = MappedMovieStore.open(catalogFile, FINGERPRINT);
+
+        assertNotNull(store);
+        assertEquals(movies.size(), store.size());
+        for (int ordinal = 0; ordinal < movies.size(); ordinal++) {
+            Movie expected = movies.get(ordinal);
+            Movie actual = store.get(ordinal);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getMovieName(), actual.getMovieName());
+            assertEquals(expected.getDirector(), actual.getDirector());
+            assertEquals(expected.getGenre(), actual.getGenre());
+            assertEquals(expected.getDescription(), actual.getDescription());
+            assertEquals(expected.getYear(), actual.getYear());
+            assertEquals(expected.getDuration(), actual.getDuration());
+            assertEquals(expected.getImdbRating(), actual.getImdbRating());
+            assertEquals(ordinal, store.ordinalOf(expected.getId()));
+        }
+        assertEquals(-1, store.ordinalOf(999L));
+    }
+
+    @Test
+    @DisplayName("Should reject a snapshot written from a different JSON source")
+    public void testCatalogSnapshot_StaleFingerprint_Rejected() throws IOException {
+        MappedMovieStore.write(catalogFile, new ObjectMovieStore(movies), FINGERPRINT);
+
+        assertNull(MappedMovieStore.open(catalogFile, FINGERPRINT + 1));
+    }
+
+    @Test
+    @DisplayName("Should reject a snapshot whose payload was corrupted")
+    public void testCatalogSnapshot_Corrupted_Rejected() throws IOException {
+        MappedMovieStore.write(catalogFile, new ObjectMovieStore(movies), FINGERPRINT);
+        try (RandomAccessFile raf = new RandomAccessFile(catalogFile.toFile(), "rw")) {
+            raf.seek(raf.length() - 1);
+            raf.write(raf.read() ^ 0xFF);
+        }
+
+        assertNull(MappedMovieStore.open(catalogFile, FINGERPRINT));
+    }
+
+    @Test
+    @DisplayName("Should read back the review index from a review snapshot")
+    public void testReviewSnapshot_RoundTrip() throws IOException {
+        Map<Long, List<Review>> reviews = new ReviewService().reviewIndex();
+        Path reviewFile = tempDir.resolve(SnapshotFormat.REVIEWS_FILE);
+        ReviewSnapshot.write(reviewFile, reviews, FINGERPRINT);
+
+        Map<Long, List<Review>> read = ReviewSnapshot.read(reviewFile, FINGERPRINT);
+
+        assertNotNull(read);
+        assertEquals(reviews.keySet(), read.keySet());
+        Review expected = reviews.get(1L).get(0);
+        Review actual = read.get(1L).get(0);
+        assertEquals(expected.getUserName(), actual.getUserName());
+        assertEquals(expected.getAvatarEmoji(), actual.getAvatarEmoji());
+        assertEquals(expected.getRating(), actual.getRating());
+        assertEquals(expected.getComment(), actual.getComment());
+    }
+
+    @Test
+    @DisplayName("Should write snapshots on first start and serve from them on the next")
+    public void testServices_WriteThenMapSnapshots() throws IOException {
+        String directory = tempDir.toString();
+        MovieService first = new MovieService("", false, MovieService.OBJECT_STORE, directory, true,
+                1, MovieService.DEFAULT_PARALLEL_THRESHOLD);
+        new ReviewService(ReviewService.DEFAULT_REVIEWS_RESOURCE, directory, true);
+
+        assertTrue(Files.exists(catalogFile));
+        assertTrue(Files.exists(tempDir.resolve(SnapshotFormat.REVIEWS_FILE)));
+
+        MovieService second = new MovieService("", false, MovieService.OBJECT_STORE, directory, false,
+                1, MovieService.DEFAULT_PARALLEL_THRESHOLD);
+        ReviewService reviews = new ReviewService(ReviewService.DEFAULT_REVIEWS_RESOURCE, directory, false);
+
+        assertEquals(first.getAllMovies().size(), second.getAllMovies().size());
+        assertEquals("The Prison Escape", second.getMovieById(1L).get().getMovieName());
+        assertEquals(first.searchMovies("the", null, "drama").size(), second.searchMovies("the", null, "drama").size());
+        assertEquals(3, reviews.getReviewsForMovie(1L).size());
+    }
+}
@@ -0,0 +1,234 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for incremental catalog edits.
+ * After any mix of edits, every query must answer exactly like a catalog indexed from
+ * scratch with the same movies in the same order.
+ */
+public class CatalogTest {
+
+    private static final String[] NAMES = {"Treasure", "Island", "Kraken", "Harbor", "Storm"};
+    private static final String[] GENRES = {"Drama", "Action/Adventure", "Crime/Drama", "Comedy"};
+
+    @Test
+    @DisplayName("Should answer like a full rebuild after random edits, on both store layouts")
+    public void testEdits_MatchFullRebuild() {
+        for (String layout : new String[] {MovieService.OBJECT_STORE, MovieService.COLUMNAR_STORE}) {
+            Random random = new Random(7);
+            List<Movie> initial = new ArrayList<>();
+            for (int i = 1; i <= 1500; i++) {
+                initial.add(movie(random, i));
+            }
+            MovieService service = new MovieService(store(initial, layout));
+            Map<Long, Movie> expected = new HashMap<>();
+            for (Movie movie : initial) {
+                expected.put(movie.getId(), movie);
+            }
+
+            long nextId = 1501;
+            // Enough edits to compact the delta at least once
+            for (int round = 0; round < 12; round++) {
+                for (int op = 0; op < 150; op++) {
+                    long id = 1 + random.nextInt((int) nextId + 20);
+                    switch (random.nextInt(4)) {
+                        case 0: {
+                            Movie movie = movie(random, nextId++);
+                            service.addMovie(movie);
+                            expected.put(movie.getId(), movie);
+                            break;
+                        }
+                        case 1: {
+                            Movie movie = movie(random, id);
+                            assertEquals(expected.containsKey(id), service.updateMovie(movie).isPresent());
+                            if (expected.containsKey(id)) {
+                                expected.put(id, movie);
+                            }
+                            break;
+                        }
+                        case 2:
+                            assertEquals(expected.remove(id) != null, service.deleteMovie(id).isPresent());
+                            break;
+                        default: {
+                            List<Movie> batch = new ArrayList<>();
+                            for (int i = 0; i < 5; i++) {
+                                batch.add(movie(random, 1 + random.nextInt((int) nextId - 1)));
+                            }
+                            service.upsertMovies(batch);
+                            for (Movie movie : batch) {
+                                expected.put(movie.getId(), movie);
+                            }
+                        }
+                    }
+                }
+                assertMatchesRebuild(service, expected, layout + " round " + round);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should keep an edited movie in place and revive a deleted one at its old position")
+    public void testEdits_KeepCatalogPositions() {
+        Random random = new Random(3);
+        List<Movie> initial = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            initial.add(movie(random, i));
+        }
+        MovieService service = new MovieService(initial);
+
+        service.updateMovie(new Movie(2, "Renamed", "d", 2000, "Drama", "d", 100, 5.0));
+        service.deleteMovie(3);
+        service.addMovie(new Movie(6, "New", "d", 2000, "Drama", "d", 100, 5.0));
+        assertEquals(Arrays.asList(1L, 2L, 4L, 5L, 6L), ids(service.getAllMovies()));
+        assertEquals("Renamed", service.getAllMovies().get(1).getMovieName());
+
+        service.addMovie(initial.get(2));
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 6L), ids(service.getAllMovies()));
+    }
+
+    private static void assertMatchesRebuild(MovieService service, Map<Long, Movie> expected, String message) {
+        List<Movie> all = service.getAllMovies();
+        assertEquals(expected.size(), all.size(), message);
+        assertEquals(expected.size(), service.getCatalogSize(), message);
+        for (Movie movie : all) {
+            assertEquals(describe(expected.get(movie.getId())), describe(movie), message);
+        }
+        MovieService rebuilt = new MovieService(new ArrayList<>(all));
+
+        for (Movie movie : expected.values()) {
+            assertEquals(describe(movie), describe(service.getMovieById(movie.getId()).orElse(null)), message);
+        }
+        assertFalse(service.getMovieById(999_999L).isPresent());
+        assertEquals(facets(rebuilt), facets(service), message);
+
+        for (String prefix : new String[] {"k", "tre", "storm 1", "dir"}) {
+            assertEquals(ids(rebuilt.suggestMovies(prefix, 10)), ids(service.suggestMovies(prefix, 10)), message + " " + prefix);
+        }
+
+        String[][] queries = {{"tre", null}, {null, "drama"}, {"is", "action"}, {"kraken 1", null}, {null, null}};
+        for (String[] query : queries) {
+            assertEquals(ids(rebuilt.searchMovies(query[0], null, query[1])),
+                    ids(service.searchMovies(query[0], null, query[1])), message);
+            for (MovieSort sort : MovieSort.values()) {
+                if (sort == MovieSort.RELEVANCE && query[0] != null) {
+                    // Edited movies are scored with the store's term statistics, so only the hits must agree
+                    assertEquals(rankedIds(rebuilt, query), rankedIds(service, query), message + " " + sort);
+                    continue;
+                }
+                for (int page = 0; page < 40; page += 7) {
+                    assertEquals(ids(rebuilt.searchMovies(query[0], null, query[1], page, 50, sort).getMovies()),
+                            ids(service.searchMovies(query[0], null, query[1], page, 50, sort).getMovies()),
+                            message + " " + sort + " page " + page);
+                }
+            }
+        }
+        assertFiltersMatchRebuild(service, rebuilt, message);
+        assertStreamMatchesPages(service, MovieFilter.NONE, message);
+    }
+
+    private static void assertFiltersMatchRebuild(MovieService service, MovieService rebuilt, String message) {
+        MovieFilter[] filters = {
+                new MovieFilter.Builder().years(1990, 1999).build(),
+                new MovieFilter.Builder().name("kraken").rating(4.0, null).build(),
+                new MovieFilter.Builder().genre("drama").duration(100, 120).rating(null, 6.5).build(),
+                new MovieFilter.Builder().director("director").years(2015, null).build()
+        };
+        for (MovieFilter filter : filters) {
+            for (MovieSort sort : new MovieSort[] {MovieSort.CATALOG, MovieSort.RATING, MovieSort.RELEVANCE}) {
+                assertEquals(ids(rebuilt.searchMovies(filter, 1, 50, sort).getMovies()),
+                        ids(service.searchMovies(filter, 1, 50, sort).getMovies()), message + " " + filter + " " + sort);
+            }
+            assertStreamMatchesPages(service, filter, message);
+            assertEquals(rebuilt.countMovies(filter), service.countMovies(filter), message + " " + filter);
+            assertEquals(describe(rebuilt.getGenreFacets(filter)), describe(service.getGenreFacets(filter)), message + " " + filter);
+        }
+    }
+
+    /**
+     * Streaming a search must visit the same movies in the same order as reading every page.
+     */
+    private static void assertStreamMatchesPages(MovieService service, MovieFilter filter, String message) {
+        for (MovieSort sort : MovieSort.values()) {
+            if (sort == MovieSort.REVIEWS || (sort == MovieSort.RELEVANCE && filter.getName() != null)) {
+                assertThrows(IllegalArgumentException.class, () -> service.streamMovies(filter, sort));
+                continue;
+            }
+            List<Long> paged = new ArrayList<>();
+            for (int page = 0; ; page++) {
+                List<Movie> movies = service.searchMovies(filter, page, MovieService.MAX_PAGE_SIZE, sort).getMovies();
+                if (movies.isEmpty()) {
+                    break;
+                }
+                paged.addAll(ids(movies));
+            }
+            List<Long> streamed = new ArrayList<>();
+            service.streamMovies(filter, sort).forEachRemaining(movie -> streamed.add(movie.getId()));
+            assertEquals(paged, streamed, message + " " + filter + " " + sort);
+        }
+    }
+
+    private static List<Long> rankedIds(MovieService service, String[] query) {
+        List<Long> ids = new ArrayList<>();
+        for (int page = 0; ; page++) {
+            List<Movie> movies = service.searchMovies(query[0], null, query[1], page, MovieService.MAX_PAGE_SIZE,
+                    MovieSort.RELEVANCE).getMovies();
+            if (movies.isEmpty()) {
+                Collections.sort(ids);
+                return ids;
+            }
+            ids.addAll(ids(movies));
+        }
+    }
+
+    private static Movie movie(Random random, long id) {
+        return new Movie(id, NAMES[random.nextInt(NAMES.length)] + " " + random.nextInt(30), "Director",
+                1980 + random.nextInt(40), GENRES[random.nextInt(GENRES.length)], "d", 80 + random.nextInt(60),
+                random.nextInt(20) / 2.0);
+    }
+
+    private static String describe(Movie movie) {
+        return movie == null ? null : movie.getId() + "|" + movie.getMovieName() + "|" + movie.getYear() + "|"
+                + movie.getGenre() + "|" + movie.getDuration() + "|" + movie.getImdbRating();
+    }
+
+    private static MovieStore store(List<Movie> movies, String layout) {
+        if (MovieService.OBJECT_STORE.equals(layout)) {
+            return new ObjectMovieStore(movies);
+        }
+        ColumnarMovieStore.Builder builder = new ColumnarMovieStore.Builder();
+        movies.forEach(builder::add);
+        return builder.build();
+    }
+
+    private static List<Long> ids(List<Movie> movies) {
+        List<Long> ids = new ArrayList<>();
+        for (Movie movie : movies) {
+            ids.add(movie.getId());
+        }
+        return ids;
+    }
+
+    private static List<String> describe(List<GenreFacet> facets) {
+        List<String> described = new ArrayList<>();
+        for (GenreFacet facet : facets) {
+            described.add(facet.getName() + "=" + facet.getCount());
+        }
+        return described;
+    }
+
+    private static List<String> facets(MovieService service) {
+        return describe(service.getGenreFacets());
+    }
+}
@@ -0,0 +1,70 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the columnar movie store.
+ * The columnar layout must expose exactly the same catalog as the object layout.
+ */
+public class ColumnarMovieStoreTest {
+
+    private List<Movie> movies;
+    private ColumnarMovieStore store;
+
+    @BeforeEach
+    public void setUp() {
+        movies = MovieCatalogLoader.loadFromClasspath(MovieCatalogLoader.DEFAULT_CATALOG_RESOURCE);
+        store = ColumnarMovieStore.of(movies);
+    }
+
+    @Test
+    @DisplayName("Should expose every field of every movie through the columns")
+    public void testColumns_MatchSourceMovies() {
+        assertEquals(movies.size(), store.size());
+        for (int ordinal = 0; ordinal < movies.size(); ordinal++) {
+            Movie expected = movies.get(ordinal);
+            Movie actual = store.get(ordinal);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getMovieName(), actual.getMovieName());
+            assertEquals(expected.getDirector(), actual.getDirector());
+            assertEquals(expected.getYear(), actual.getYear());
+            assertEquals(expected.getGenre(), actual.getGenre());
+            assertEquals(expected.getDescription(), actual.getDescription());
+            assertEquals(expected.getDuration(), actual.getDuration());
+            assertEquals(expected.getImdbRating(), actual.getImdbRating());
+            assertEquals(expected.getGenre(), store.genre(ordinal));
+        }
+    }
+
+    @Test
+    @DisplayName("Should resolve ids to ordinals and report missing ids")
+    public void testOrdinalOf_KnownAndUnknownIds() {
+        for (int ordinal = 0; ordinal < movies.size(); ordinal++) {
+            assertEquals(ordinal, store.ordinalOf(movies.get(ordinal).getId()));
+        }
+        assertEquals(-1, store.ordinalOf(999L));
+        assertEquals(-1, store.ordinalOf(0L));
+    }
+
+    @Test
+    @DisplayName("Should give MovieService the same search results as the object store")
+    public void testMovieService_ColumnarAndObjectStoresAgree() {
+        MovieService objects = new MovieService(new ObjectMovieStore(movies));
+        MovieService columnar = new MovieService(store);
+
+        assertEquals(ids(objects.searchMovies("the", null, "drama")), ids(columnar.searchMovies("the", null, "drama")));
+        assertEquals(ids(objects.searchMovies(null, 3L, null)), ids(columnar.searchMovies(null, 3L, null)));
+        assertEquals(objects.getAllGenres(), columnar.getAllGenres());
+        assertEquals("Dream Heist", columnar.getMovieById(6L).get().getMovieName());
+    }
+
+    private List<Long> ids(List<Movie> movies) {
+        return movies.stream().map(Movie::getId).collect(java.util.stream.Collectors.toList());
+    }
+}
@@ -0,0 +1,83 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.handler.MappedInterceptor;
+import org.springframework.web.util.ServletRequestPathUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for which endpoints' validators follow the reviews.
+ */
+public class HttpCacheConfigTest {
+
+    private ReviewService reviewService;
+    private List<Object> interceptors;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        reviewService = new ReviewService();
+        HttpCacheConfig config = new HttpCacheConfig();
+        inject(config, "movieService", new MovieService());
+        inject(config, "reviewService", reviewService);
+        inject(config, "enabled", true);
+        inject(config, "release", "1.0");
+        Registry registry = new Registry();
+        config.addInterceptors(registry);
+        interceptors = registry.interceptors();
+    }
+
+    @Test
+    @DisplayName("Should change catalog and search ETags when a review is posted")
+    public void testPostedReview_ChangesCatalogEtags() {
+        String[] reviewed = {"/movies", "/api/movies", "/movies/search", "/api/movies/search",
+                "/movies/1/details", "/api/movies/1", "/api/movies/1/reviews"};
+        String[] before = new String[reviewed.length];
+        for (int i = 0; i < reviewed.length; i++) {
+            before[i] = etag(reviewed[i]);
+        }
+        String suggestions = etag("/api/movies/suggest");
+
+        reviewService.addReview(2L, new Review("Reviewer", "🦜", 5.0, "Shiver me timbers"));
+
+        for (int i = 0; i < reviewed.length; i++) {
+            assertNotEquals(before[i], etag(reviewed[i]), reviewed[i]);
+        }
+        assertEquals(suggestions, etag("/api/movies/suggest"));
+    }
+
+    private String etag(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.addParameter("sort", "reviews");
+        ServletRequestPathUtils.parseAndCache(request);
+        CatalogHttpCacheInterceptor match = null;
+        for (Object interceptor : interceptors) {
+            MappedInterceptor mapped = (MappedInterceptor) interceptor;
+            if (mapped.matches(request)) {
+                assertNull(match, "Several cache interceptors for " + uri);
+                match = (CatalogHttpCacheInterceptor) mapped.getInterceptor();
+            }
+        }
+        assertNotNull(match, "No cache interceptor for " + uri);
+        return match.etag(request);
+    }
+
+    private static void inject(HttpCacheConfig config, String field, Object value) throws Exception {
+        java.lang.reflect.Field declared = HttpCacheConfig.class.getDeclaredField(field);
+        declared.setAccessible(true);
+        declared.set(config, value);
+    }
+
+    /** Exposes the registered interceptors, which the registry keeps to itself. */
+    private static class Registry extends InterceptorRegistry {
+        List<Object> interceptors() {
+            return getInterceptors();
+        }
+    }
+}
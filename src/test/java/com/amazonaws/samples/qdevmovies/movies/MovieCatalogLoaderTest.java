@@ -0,0 +1,103 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.json.JSONException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the streaming movie catalog loader.
+ */
+public class MovieCatalogLoaderTest {
+
+    private static final String TWO_MOVIES = "[\n"
+            + "  {\"id\": 1, \"movieName\": \"First\", \"director\": \"A\", \"year\": 2001, \"genre\": \"Drama\","
+            + " \"description\": \"One\", \"duration\": 100, \"imdbRating\": 4.5},\n"
+            + "  {\"id\": 2, \"movieName\": \"Second\", \"director\": \"B\", \"year\": 2002, \"genre\": \"Action\","
+            + " \"description\": \"Two\", \"duration\": 110, \"imdbRating\": 3.0}\n"
+            + "]";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should stream every movie in the array in order")
+    public void testRead_StreamsMoviesInOrder() {
+        List<Movie> movies = new ArrayList<>();
+        int count = MovieCatalogLoader.read(new StringReader(TWO_MOVIES), movies::add);
+
+        assertEquals(2, count);
+        assertEquals("First", movies.get(0).getMovieName());
+        assertEquals(2002, movies.get(1).getYear());
+        assertEquals(3.0, movies.get(1).getImdbRating());
+    }
+
+    @Test
+    @DisplayName("Should accept an empty array")
+    public void testRead_EmptyArray_ReturnsZero() {
+        assertEquals(0, MovieCatalogLoader.read(new StringReader("  [ ] "), movie -> fail("no movies expected")));
+    }
+
+    @Test
+    @DisplayName("Should reject documents that are not a JSON array")
+    public void testRead_NotAnArray_Throws() {
+        assertThrows(JSONException.class, () -> MovieCatalogLoader.read(new StringReader("{}"), movie -> { }));
+    }
+
+    @Test
+    @DisplayName("Should load the same movies from a plain and a memory-mapped file")
+    public void testLoadFromFile_PlainAndMapped_Match() throws IOException {
+        Path file = tempDir.resolve("movies.json");
+        Files.write(file, TWO_MOVIES.getBytes(StandardCharsets.UTF_8));
+
+        List<Movie> plain = MovieCatalogLoader.load(file.toString(), false);
+        List<Movie> mapped = MovieCatalogLoader.load(file.toString(), true);
+
+        assertEquals(2, plain.size());
+        assertEquals(2, mapped.size());
+        assertEquals(plain.get(1).getMovieName(), mapped.get(1).getMovieName());
+    }
+
+    @Test
+    @DisplayName("Should read a memory-mapped file byte for byte")
+    public void testMappedFileInputStream_ReadsAllBytes() throws IOException {
+        Path file = tempDir.resolve("bytes.bin");
+        byte[] bytes = new byte[10_000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        Files.write(file, bytes);
+
+        byte[] read = new byte[bytes.length];
+        int total = 0;
+        try (InputStream in = new MovieCatalogLoader.MappedFileInputStream(file)) {
+            int n;
+            while ((n = in.read(read, total, Math.min(4096, read.length - total))) > 0) {
+                total += n;
+            }
+            assertEquals(-1, in.read());
+        }
+        assertEquals(bytes.length, total);
+        assertArrayEquals(bytes, read);
+    }
+
+    @Test
+    @DisplayName("Should fall back to the bundled catalog when no path is configured")
+    public void testLoad_NoPath_UsesClasspathCatalog() {
+        List<Movie> movies = MovieCatalogLoader.load("", false);
+
+        assertEquals(12, movies.size());
+        assertEquals("The Prison Escape", movies.get(0).getMovieName());
+    }
+}
@@ -0,0 +1,116 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for director and range filters.
+ * Every plan must find exactly the movies a scan with {@link MovieFilter#matches(Movie)} finds,
+ * with one bucket per distinct value and with coarse buckets that straddle range bounds.
+ */
+public class MovieQueryPlannerTest {
+
+    private static final String[] NAMES = {"Treasure", "Island", "Kraken", "Harbor", "Storm"};
+    private static final String[] GENRES = {"Drama", "Action/Adventure", "Crime/Drama", "Comedy"};
+
+    private List<Movie> movies;
+    private MovieQueryPlanner planner;
+    private MovieQueryPlanner coarsePlanner;
+
+    @BeforeEach
+    public void setUp() {
+        Random random = new Random(11);
+        movies = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            movies.add(new Movie(i + 1, NAMES[random.nextInt(NAMES.length)] + " " + random.nextInt(300),
+                    "Director " + random.nextInt(60), 1950 + random.nextInt(70), GENRES[random.nextInt(GENRES.length)],
+                    "d", 80 + random.nextInt(100), random.nextInt(21) / 2.0));
+        }
+        MovieStore store = new ObjectMovieStore(movies);
+        MovieSearchIndex searchIndex = new MovieSearchIndex(store);
+        MovieSortIndex sortIndex = new MovieSortIndex(store);
+        planner = new MovieQueryPlanner(store, searchIndex, new MovieBitmapIndex(store, sortIndex));
+        coarsePlanner = new MovieQueryPlanner(store, searchIndex, new MovieBitmapIndex(store, sortIndex, 7));
+    }
+
+    @Test
+    @DisplayName("Should find what a scan finds for random combinations of criteria")
+    public void testFind_MatchesScan() {
+        Random random = new Random(4);
+        for (int i = 0; i < 500; i++) {
+            MovieFilter.Builder builder = new MovieFilter.Builder();
+            if (random.nextInt(3) == 0) {
+                builder.name(random.nextBoolean() ? NAMES[random.nextInt(NAMES.length)] : "" + random.nextInt(30));
+            }
+            if (random.nextInt(3) == 0) {
+                builder.genre(random.nextBoolean() ? "drama" : "Comedy");
+            }
+            if (random.nextInt(3) == 0) {
+                builder.director("director " + random.nextInt(70));
+            }
+            if (random.nextBoolean()) {
+                int from = 1940 + random.nextInt(90);
+                builder.years(random.nextBoolean() ? from : null, random.nextBoolean() ? from + random.nextInt(20) : null);
+            }
+            if (random.nextBoolean()) {
+                int min = 70 + random.nextInt(120);
+                builder.duration(random.nextBoolean() ? min : null, random.nextBoolean() ? min + random.nextInt(30) : null);
+            }
+            if (random.nextBoolean()) {
+                double min = random.nextInt(22) / 2.0;
+                builder.rating(random.nextBoolean() ? min : null, random.nextBoolean() ? min + random.nextInt(6) / 2.0 : null);
+            }
+            MovieFilter filter = builder.build();
+            for (MovieQueryPlanner candidate : new MovieQueryPlanner[] {planner, coarsePlanner}) {
+                OrdinalBitmap found = candidate.find(filter);
+                assertEquals(scan(filter), found != null ? boxed(found.toArray()) : scan(MovieFilter.NONE), filter.toString());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should start from the most selective predicate")
+    public void testPlan_OrdersBySelectivity() {
+        MovieFilter filter = new MovieFilter.Builder().genre("drama").director("Director 7").years(2000, 2001).build();
+        List<MovieQueryPlanner.Predicate> plan = planner.plan(filter);
+        assertEquals(3, plan.size());
+        for (int i = 1; i < plan.size(); i++) {
+            assertTrue(plan.get(i - 1).estimate <= plan.get(i).estimate);
+        }
+        // One director of sixty is rarer than half the genres or two years of seventy
+        assertEquals(scan(new MovieFilter.Builder().director("director 7").build()).size(), plan.get(0).estimate);
+        assertEquals(scan(new MovieFilter.Builder().years(2000, 2001).build()).size(), plan.get(1).estimate,
+                "Ranges over few distinct values should be counted exactly");
+    }
+
+    @Test
+    @DisplayName("Should reject empty ranges")
+    public void testBuild_RejectsEmptyRanges() {
+        assertThrows(IllegalArgumentException.class, () -> new MovieFilter.Builder().years(2001, 2000).build());
+        assertThrows(IllegalArgumentException.class, () -> new MovieFilter.Builder().rating(4.0, 3.5).build());
+        assertThrows(IllegalArgumentException.class, () -> new MovieFilter.Builder().rating(Double.NaN, null).build());
+        assertTrue(new MovieFilter.Builder().name("  ").director("").build().isEmpty());
+    }
+
+    private List<Integer> scan(MovieFilter filter) {
+        List<Integer> matches = new ArrayList<>();
+        for (int ordinal = 0; ordinal < movies.size(); ordinal++) {
+            if (filter.matches(movies.get(ordinal))) {
+                matches.add(ordinal);
+            }
+        }
+        return matches;
+    }
+
+    private static List<Integer> boxed(int[] values) {
+        return Arrays.asList(Arrays.stream(values).boxed().toArray(Integer[]::new));
+    }
+}
@@ -0,0 +1,82 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the trigram and genre search index.
+ * The index must return exactly what a plain lowercase contains scan returns.
+ */
+public class MovieSearchIndexTest {
+
+    private List<Movie> movies;
+    private MovieSearchIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        movies = Arrays.asList(
+            new Movie(1L, "The Prison Escape", "John Director", 1994, "Drama", "d", 142, 5.0),
+            new Movie(2L, "The Family Boss", "Michael Filmmaker", 1972, "Crime/Drama", "d", 175, 5.0),
+            new Movie(3L, "Space Wars: The Beginning", "Galaxy Director", 1977, "Adventure/Sci-Fi", "d", 121, 4.0),
+            new Movie(4L, "Dream Heist", "Vision Maker", 2010, "Action/Sci-Fi", "d", 148, 4.5),
+            new Movie(5L, "aaaa", "Repeat Director", 2001, "Drama", "d", 90, 3.0),
+            new Movie(6L, "Ab", "Short Director", 2002, "Comedy", "d", 80, 2.5)
+        );
+        index = new MovieSearchIndex(new ObjectMovieStore(movies));
+    }
+
+    @Test
+    @DisplayName("Should match a brute-force scan for every substring of every name")
+    public void testFind_EverySubstring_MatchesScan() {
+        for (Movie movie : movies) {
+            String name = movie.getMovieName().toLowerCase();
+            for (int start = 0; start < name.length(); start++) {
+                for (int end = start + 1; end <= name.length(); end++) {
+                    String term = name.substring(start, end);
+                    assertArrayEquals(scan(term, null), index.find(term, null), "name term: " + term);
+                    assertArrayEquals(scan(term, "drama"), index.find(term, "drama"), "name term: " + term);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should match a brute-force scan for genre-only queries")
+    public void testFind_GenreOnly_MatchesScan() {
+        for (String genre : Arrays.asList("drama", "sci", "-", "/", "action/sci-fi", "comedy", "western")) {
+            assertArrayEquals(scan(null, genre), index.find(null, genre), "genre term: " + genre);
+        }
+    }
+
+    @Test
+    @DisplayName("Should return nothing when a query trigram is not indexed")
+    public void testFind_UnknownTrigram_ReturnsEmpty() {
+        assertEquals(0, index.find("xyz", null).length);
+        assertEquals(0, index.find("prison", "comedy").length);
+    }
+
+    @Test
+    @DisplayName("Should return every ordinal when no terms are given")
+    public void testFind_NoTerms_ReturnsAll() {
+        assertArrayEquals(new int[] {0, 1, 2, 3, 4, 5}, index.find(null, null));
+    }
+
+    private int[] scan(String name, String genre) {
+        List<Integer> ordinals = new ArrayList<>();
+        for (int i = 0; i < movies.size(); i++) {
+            Movie movie = movies.get(i);
+            if ((name == null || movie.getMovieName().toLowerCase().contains(name))
+                    && (genre == null || movie.getGenre().toLowerCase().contains(genre))) {
+                ordinals.add(i);
+            }
+        }
+        return ordinals.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
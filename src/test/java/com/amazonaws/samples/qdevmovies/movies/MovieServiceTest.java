@@ -1,9 +1,14 @@
 package com.amazonaws.samples.qdevmovies.movies;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -149,6 +154,63 @@ public class MovieServiceTest {
         assertEquals(sortedGenres, genres);
     }
 
+    @Test
+    @DisplayName("Should split compound genres into component genres")
+    public void testGetAllGenres_SplitsCompoundGenres() {
+        List<String> genres = movieService.getAllGenres();
+
+        assertTrue(genres.contains("Crime"));
+        assertTrue(genres.contains("Drama"));
+        for (String genre : genres) {
+            assertFalse(genre.contains("/"));
+        }
+    }
+
+    @Test
+    @DisplayName("Should count movies per component genre")
+    public void testGetGenreFacets_CountsComponentGenres() {
+        MovieService service = new MovieService(Arrays.asList(
+                new Movie(1L, "First", "Director", 2000, "Crime/Drama", "Description", 120, 4.0),
+                new Movie(2L, "Second", "Director", 2001, "Drama", "Description", 110, 3.5),
+                new Movie(3L, "Third", "Director", 2002, "Action/Crime", "Description", 100, 3.0)));
+
+        List<GenreFacet> facets = service.getGenreFacets();
+
+        assertEquals(Arrays.asList("Action", "Crime", "Drama"), service.getAllGenres());
+        assertEquals(3, facets.size());
+        assertEquals("Action", facets.get(0).getName());
+        assertEquals(1, facets.get(0).getCount());
+        assertEquals("Crime", facets.get(1).getName());
+        assertEquals(2, facets.get(1).getCount());
+        assertEquals("Drama", facets.get(2).getName());
+        assertEquals(2, facets.get(2).getCount());
+        assertSame(facets, service.getGenreFacets());
+    }
+
+    @Test
+    @DisplayName("Should return a sorted page with the total match count")
+    public void testSearchMovies_Paged_ReturnsSortedPage() {
+        MoviePage page = movieService.searchMovies(null, null, "drama", 0, 2, MovieSort.RATING);
+        List<Movie> allDrama = movieService.searchMovies(null, null, "drama");
+
+        assertEquals(allDrama.size(), page.getTotalElements());
+        assertEquals(2, page.getMovies().size());
+        assertTrue(page.hasNext());
+        assertFalse(page.hasPrevious());
+        assertTrue(page.getMovies().get(0).getImdbRating() >= page.getMovies().get(1).getImdbRating());
+        for (Movie movie : allDrama) {
+            assertTrue(movie.getImdbRating() <= page.getMovies().get(0).getImdbRating());
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject negative pages and non-positive sizes")
+    public void testSearchMovies_Paged_InvalidPaging_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> movieService.getMoviesPage(-1, 10, MovieSort.CATALOG));
+        assertThrows(IllegalArgumentException.class, () -> movieService.getMoviesPage(0, 0, MovieSort.CATALOG));
+        assertEquals(MovieService.MAX_PAGE_SIZE, movieService.getMoviesPage(0, 10_000, null).getSize());
+    }
+
     @Test
     @DisplayName("Should get movie by valid ID")
     public void testGetMovieById_ValidId_ReturnsMovie() {
@@ -197,4 +259,112 @@ public class MovieServiceTest {
                 .anyMatch(movie -> "The Prison Escape".equals(movie.getMovieName()));
         assertTrue(hasExpectedMovie);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should record search latency by criteria shape and result counts once bound")
+    public void testMetrics_RecordedPerShape() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        movieService.bindTo(registry);
+
+        movieService.searchMovies("the", null, null);
+        movieService.searchMovies(null, null, "drama", 0, 5, MovieSort.RATING);
+        movieService.searchMovies("the", null, "drama");
+        movieService.searchMovies(null, null, null);
+
+        assertEquals(1, registry.get("movies.search").tag("shape", "name").timer().count());
+        assertEquals(1, registry.get("movies.search").tag("shape", "genre").timer().count());
+        assertEquals(1, registry.get("movies.search").tag("shape", "name_and_genre").timer().count());
+        assertEquals(1, registry.get("movies.search").tag("shape", "empty").timer().count());
+        assertEquals(4, registry.get("movies.search.results").summary().count());
+        assertEquals(movieService.getAllMovies().size(), registry.get("movies.catalog.size").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should publish a reloaded catalog while a held snapshot stays consistent")
+    public void testReload_SwapsCatalog() throws IOException {
+        List<Movie> original = Arrays.asList(
+                new Movie(1L, "The Prison Escape", "John Director", 1994, "Drama", "d", 142, 5.0));
+        List<Movie> edited = Arrays.asList(
+                new Movie(1L, "The Prison Escape", "John Director", 1994, "Drama", "d", 142, 5.0),
+                new Movie(2L, "The Family Boss", "Michael Filmmaker", 1972, "Crime/Drama", "d", 175, 5.0));
+        MovieService service = new MovieService(new ObjectMovieStore(original), () -> new ObjectMovieStore(edited));
+        List<Movie> before = service.getAllMovies();
+        long version = service.getCatalogVersion();
+
+        assertTrue(service.reload());
+
+        assertEquals(1, before.size());
+        assertEquals(2, service.getAllMovies().size());
+        assertNotEquals(version, service.getCatalogVersion());
+        assertEquals(1, service.searchMovies("family", null, null).size());
+        assertTrue(service.getAllGenres().contains("Crime"));
+        assertFalse(service.reload(), "Reloading the same movies should keep the catalog");
+    }
+
+    @Test
+    @DisplayName("Should keep the current catalog when a reload fails or is empty")
+    public void testReload_FailureKeepsCatalog() {
+        MovieService failing = new MovieService(new ObjectMovieStore(movieService.getAllMovies()), () -> {
+            throw new IOException("truncated");
+        });
+        MovieService empty = new MovieService(new ObjectMovieStore(movieService.getAllMovies()),
+                () -> new ObjectMovieStore(Collections.<Movie>emptyList()));
+
+        assertThrows(IOException.class, failing::reload);
+        assertThrows(IOException.class, empty::reload);
+        assertEquals(movieService.getAllMovies().size(), failing.getCatalogSize());
+        assertEquals(movieService.getAllMovies().size(), empty.getCatalogSize());
+        assertThrows(IllegalStateException.class, new MovieService(Collections.<Movie>emptyList())::reload);
+    }
+
+    @Test
+    @DisplayName("Should rank by best match, including edited movies, when sorting by relevance")
+    public void testSearch_Relevance() {
+        MoviePage page = movieService.searchMovies("prisn escpe", null, null, 0, 5, MovieSort.RELEVANCE);
+        assertEquals("The Prison Escape", page.getMovies().get(0).getMovieName());
+        assertEquals(MovieSort.RELEVANCE, page.getSort());
+
+        List<String> before = names(movieService.searchMovies("the war", null, null, 0, 20, MovieSort.RELEVANCE).getMovies());
+        movieService.updateMovie(movieService.getMovieById(7L).get());
+        assertEquals(before, names(movieService.searchMovies("the war", null, null, 0, 20, MovieSort.RELEVANCE).getMovies()),
+                "An unchanged movie in the delta should rank exactly as before");
+
+        movieService.addMovie(new Movie(13L, "Kraken Harbor", "Jane Director", 2020, "Adventure", "d", 100, 4.0));
+        assertEquals("Kraken Harbor", movieService.searchMovies("krakn", null, null, 0, 5, MovieSort.RELEVANCE)
+                .getMovies().get(0).getMovieName());
+        assertEquals(0, movieService.searchMovies("krakn", null, "drama", 0, 5, MovieSort.RELEVANCE).getTotalElements());
+        assertEquals(movieService.getAllMovies().subList(0, 5),
+                movieService.searchMovies(null, null, null, 0, 5, MovieSort.RELEVANCE).getMovies(),
+                "Without a name relevance falls back to catalog order");
+    }
+
+    @Test
+    @DisplayName("Should filter by director and ranges together with name and genre")
+    public void testSearch_Filter() {
+        MovieFilter nineties = new MovieFilter.Builder().years(1990, 1999).duration(140, null).build();
+        MoviePage page = movieService.searchMovies(nineties, 0, 20, MovieSort.YEAR);
+        assertFalse(page.getMovies().isEmpty());
+        for (Movie movie : page.getMovies()) {
+            assertTrue(movie.getYear() >= 1990 && movie.getYear() <= 1999 && movie.getDuration() >= 140, movie.getMovieName());
+        }
+
+        MovieFilter chris = new MovieFilter.Builder().director("CHRIS MOVIEMAKER").rating(4.5, 5.0).build();
+        assertEquals(Arrays.asList("The Masked Hero", "Dream Heist"),
+                names(movieService.searchMovies(chris, 0, 20, MovieSort.RATING).getMovies()));
+        assertEquals(0, movieService.searchMovies(new MovieFilter.Builder().director("Chris").build(), 0, 20, null)
+                .getTotalElements(), "Directors should match exactly");
+
+        movieService.addMovie(new Movie(13L, "Kraken Harbor", "Chris Moviemaker", 2020, "Adventure", "d", 100, 4.5));
+        assertEquals("Kraken Harbor", movieService.searchMovies(chris.withName("kraken"), 0, 20, MovieSort.RELEVANCE)
+                .getMovies().get(0).getMovieName());
+        assertEquals(3, movieService.searchMovies(chris, 0, 20, null).getTotalElements());
+    }
+
+    private static List<String> names(List<Movie> movies) {
+        List<String> names = new ArrayList<>();
+        for (Movie movie : movies) {
+            names.add(movie.getMovieName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,125 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for presorted top-K paging.
+ * Every page must equal the same slice of a full stable sort of the matches.
+ */
+public class MovieSortIndexTest {
+
+    private List<Movie> movies;
+    private MovieSortIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        Random random = new Random(42);
+        movies = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            // Few distinct values so ties are common and order stability is exercised
+            movies.add(new Movie(i + 1, "Movie " + (char) ('a' + random.nextInt(6)), "Director", 1990 + random.nextInt(10),
+                    "Drama", "d", 90 + random.nextInt(5), random.nextInt(10) / 2.0));
+        }
+        index = new MovieSortIndex(new ObjectMovieStore(movies));
+    }
+
+    @Test
+    @DisplayName("Should page the whole catalog like a full stable sort")
+    public void testPage_WholeCatalog_MatchesFullSort() {
+        int[] all = new int[movies.size()];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+        for (MovieSort sort : MovieSort.values()) {
+            int[] expected = sorted(all, sort);
+            for (int offset = 0; offset < movies.size(); offset += 37) {
+                assertArrayEquals(slice(expected, offset, 25), index.page(null, sort, offset, 25), sort + " offset " + offset);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should page a filtered match list like a full stable sort")
+    public void testPage_FilteredMatches_MatchesFullSort() {
+        int[] matches = new int[movies.size() / 3];
+        for (int i = 0; i < matches.length; i++) {
+            matches[i] = i * 3 + 1;
+        }
+        for (MovieSort sort : MovieSort.values()) {
+            int[] expected = sorted(matches, sort);
+            for (int offset = 0; offset <= matches.length; offset += 11) {
+                assertArrayEquals(slice(expected, offset, 10), index.page(matches, sort, offset, 10), sort + " offset " + offset);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should hold every keyed order once built, and no order without a key")
+    public void testOrder_BuiltWithIndex() {
+        for (MovieSort sort : new MovieSort[] {MovieSort.RATING, MovieSort.YEAR, MovieSort.DURATION, MovieSort.NAME}) {
+            assertSame(index.order(sort), index.order(sort));
+            assertEquals(movies.size(), index.order(sort).length);
+        }
+        assertThrows(IllegalArgumentException.class, () -> index.order(MovieSort.CATALOG));
+        assertThrows(IllegalArgumentException.class, () -> index.order(MovieSort.REVIEWS));
+    }
+
+    @Test
+    @DisplayName("Should return nothing past the last match")
+    public void testPage_OffsetPastEnd_ReturnsEmpty() {
+        assertEquals(0, index.page(null, MovieSort.RATING, movies.size(), 10).length);
+        assertEquals(0, index.page(new int[] {1, 2}, MovieSort.NAME, 2, 10).length);
+    }
+
+    @Test
+    @DisplayName("Should parse sort parameters and reject unknown ones")
+    public void testFromParameter() {
+        assertEquals(MovieSort.CATALOG, MovieSort.fromParameter(null));
+        assertEquals(MovieSort.CATALOG, MovieSort.fromParameter(" "));
+        assertEquals(MovieSort.RATING, MovieSort.fromParameter("Rating"));
+        assertThrows(IllegalArgumentException.class, () -> MovieSort.fromParameter("budget"));
+    }
+
+    private int[] sorted(int[] ordinals, MovieSort sort) {
+        Comparator<Integer> comparator;
+        switch (sort) {
+            case RATING:
+                comparator = Comparator.comparingDouble((Integer o) -> movies.get(o).getImdbRating()).reversed();
+                break;
+            case YEAR:
+                comparator = Comparator.comparingInt((Integer o) -> movies.get(o).getYear()).reversed();
+                break;
+            case DURATION:
+                comparator = Comparator.comparingInt((Integer o) -> movies.get(o).getDuration());
+                break;
+            case NAME:
+                comparator = Comparator.comparing((Integer o) -> movies.get(o).getMovieName(), String.CASE_INSENSITIVE_ORDER);
+                break;
+            default:
+                comparator = (a, b) -> 0;
+        }
+        List<Integer> list = new ArrayList<>();
+        for (int ordinal : ordinals) {
+            list.add(ordinal);
+        }
+        list.sort(comparator);
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] slice(int[] values, int offset, int limit) {
+        int from = Math.min(offset, values.length);
+        int to = Math.min(from + limit, values.length);
+        int[] out = new int[to - from];
+        System.arraycopy(values, from, out, 0, out.length);
+        return out;
+    }
+}
@@ -0,0 +1,93 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for type-ahead suggestions.
+ * Every lookup must equal a scan of all movies for a name or director word with the prefix.
+ */
+public class MovieSuggestIndexTest {
+
+    private static final String[] WORDS = {"Silent", "Silver", "Storm", "Harbor", "Harvest", "Kraken", "Island", "The"};
+
+    private List<Movie> movies;
+    private MovieSuggestIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        Random random = new Random(21);
+        movies = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // Few words and ratings, so nodes are large enough to be precomputed and ties are common
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            movies.add(new Movie(i + 1, name, "Director " + random.nextInt(40), 2000, "Drama", "d", 100,
+                    random.nextInt(10) / 2.0));
+        }
+        index = new MovieSuggestIndex(new ObjectMovieStore(movies));
+    }
+
+    @Test
+    @DisplayName("Should suggest like a scan of every movie, for large and small nodes")
+    public void testSuggest_MatchesScan() {
+        String[] prefixes = {"s", "si", "silv", "the s", "harv", "kraken 1", "director 3", "director 39", "1999", "x", "silent silver 12"};
+        for (String prefix : prefixes) {
+            for (int limit : new int[] {1, 5, MovieSuggestIndex.MAX_SUGGESTIONS}) {
+                assertEquals(scan(prefix, limit, null), boxed(index.suggest(prefix, limit, null)), prefix + " limit " + limit);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should skip stale movies and still fill the limit")
+    public void testSuggest_SkipsStale() {
+        // Rejecting the best rated movies empties precomputed lists and forces a scan
+        IntPredicate stale = ordinal -> movies.get(ordinal).getImdbRating() >= 4.0;
+        for (String prefix : new String[] {"s", "harbor", "director 1"}) {
+            List<Integer> suggested = boxed(index.suggest(prefix, 5, stale));
+            assertEquals(scan(prefix, 5, stale), suggested, prefix);
+            assertEquals(5, suggested.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Should match word starts only")
+    public void testMatches() {
+        assertTrue(MovieSuggestIndex.matches("the prison escape", "esc"));
+        assertTrue(MovieSuggestIndex.matches("space wars: the beginning", "the b"));
+        assertFalse(MovieSuggestIndex.matches("the prison escape", "scape"));
+    }
+
+    private List<Integer> scan(String prefix, int limit, IntPredicate stale) {
+        List<Integer> matches = new ArrayList<>();
+        for (int ordinal = 0; ordinal < movies.size(); ordinal++) {
+            Movie movie = movies.get(ordinal);
+            if ((stale == null || !stale.test(ordinal))
+                    && (MovieSuggestIndex.matches(movie.getMovieName().toLowerCase(), prefix)
+                    || MovieSuggestIndex.matches(movie.getDirector().toLowerCase(), prefix))) {
+                matches.add(ordinal);
+            }
+        }
+        matches.sort((a, b) -> {
+            int result = Double.compare(movies.get(b).getImdbRating(), movies.get(a).getImdbRating());
+            return result != 0 ? result : Integer.compare(a, b);
+        });
+        return matches.subList(0, Math.min(limit, matches.size()));
+    }
+
+    private static List<Integer> boxed(int[] values) {
+        List<Integer> list = new ArrayList<>();
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,126 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for relevance-ranked, typo-tolerant text search.
+ */
+public class MovieTextIndexTest {
+
+    private List<Movie> movies;
+    private MovieTextIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        movies = new MovieService().getAllMovies();
+        index = new MovieTextIndex(new ObjectMovieStore(movies));
+    }
+
+    @Test
+    @DisplayName("Should split text into lowercase letter-or-digit tokens")
+    public void testTokens() {
+        assertEquals(Arrays.asList("space", "wars", "the", "beginning", "2"),
+                MovieTextIndex.tokens("Space Wars: The Beginning (2)"));
+        assertTrue(MovieTextIndex.tokens(null).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should compute bounded edit distances")
+    public void testDistance() {
+        assertEquals(0, MovieTextIndex.distance("prison", "prison", 2));
+        assertEquals(1, MovieTextIndex.distance("prisn", "prison", 2));
+        assertEquals(2, MovieTextIndex.distance("heist", "hesit", 2));
+        assertEquals(3, MovieTextIndex.distance("kraken", "prison", 2), "Over the bound should report bound + 1");
+    }
+
+    @Test
+    @DisplayName("Should find titles despite typos")
+    public void testSearch_ToleratesTypos() {
+        assertEquals("The Prison Escape", top("prisn escpe"));
+        assertEquals("Dream Heist", top("dreem"));
+        assertEquals("Underground Club", top("undergrond club"));
+        assertEquals(0, hits("ab").size(), "Short tokens must match exactly");
+    }
+
+    @Test
+    @DisplayName("Should rank name matches above description matches")
+    public void testSearch_NameOutranksDescription() {
+        // "underground" is in one name and in another movie's description
+        int[] page = hits("underground").page(0, 10);
+        assertTrue(page.length >= 2);
+        assertEquals("Underground Club", movies.get(page[0]).getMovieName());
+        assertTrue(names(page).contains("The Virtual World"));
+    }
+
+    @Test
+    @DisplayName("Should match directors")
+    public void testSearch_MatchesDirectors() {
+        List<String> names = names(hits("moviemaker").page(0, 10));
+        assertTrue(names.containsAll(Arrays.asList("The Masked Hero", "Dream Heist")));
+    }
+
+    @Test
+    @DisplayName("Should page hits by descending score like a full sort")
+    public void testPage_MatchesFullSort() {
+        Random random = new Random(5);
+        MovieTextIndex.Hits hits = new MovieTextIndex.Hits();
+        float[] scores = new float[300];
+        for (int ordinal = 0; ordinal < scores.length; ordinal++) {
+            // Few distinct scores so ties, which keep catalog order, are common
+            scores[ordinal] = 1 + random.nextInt(8);
+            hits.add(ordinal, 0, scores[ordinal]);
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (int ordinal = 0; ordinal < scores.length; ordinal++) {
+            expected.add(ordinal);
+        }
+        expected.sort((a, b) -> scores[a] != scores[b] ? Float.compare(scores[b], scores[a]) : Integer.compare(a, b));
+        for (int offset = 0; offset <= scores.length; offset += 23) {
+            int[] page = hits.page(offset, 20);
+            assertEquals(expected.subList(offset, Math.min(offset + 20, scores.length)), boxed(page), "offset " + offset);
+        }
+    }
+
+    @Test
+    @DisplayName("Should score movies outside the index, typos included")
+    public void testScore_UnindexedMovie() {
+        MovieTextIndex.Query query = index.parse("prisn escape");
+        Movie sequel = new Movie(99, "The Prison Escape II", "John Director", 2001, "Drama", "d", 120, 4.0);
+        assertTrue(index.score(query, sequel) > 0);
+        assertEquals(0, index.score(query, movies.get(5)), 0.0, "Dream Heist shares no term with the query");
+    }
+
+    private MovieTextIndex.Hits hits(String query) {
+        return index.search(index.parse(query));
+    }
+
+    private String top(String query) {
+        int[] page = hits(query).page(0, 1);
+        return page.length > 0 ? movies.get(page[0]).getMovieName() : null;
+    }
+
+    private List<String> names(int[] ordinals) {
+        List<String> names = new ArrayList<>();
+        for (int ordinal : ordinals) {
+            names.add(movies.get(ordinal).getMovieName());
+        }
+        return names;
+    }
+
+    private static List<Integer> boxed(int[] values) {
+        List<Integer> list = new ArrayList<>();
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,247 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the JSON API, run against the bundled catalog and reviews.
+ */
+public class MoviesApiControllerTest {
+
+    private MoviesApiController controller;
+    private ReviewJournal reviewJournal;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        controller = new MoviesApiController();
+        MovieService movieService = new MovieService();
+        ReviewService reviewService = new ReviewService();
+        movieService.setReviewService(reviewService);
+        reviewJournal = new ReviewJournal(reviewService, "", 16, 8, 1 << 20, 4);
+        reviewJournal.start();
+        inject("movieService", movieService);
+        inject("reviewService", reviewService);
+        inject("reviewJournal", reviewJournal);
+        inject("objectMapper", new ObjectMapper());
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        reviewJournal.stop();
+    }
+
+    @Test
+    @DisplayName("Should stream a sorted page with only the requested fields")
+    public void testSearchMovies_SparseFields() throws Exception {
+        ResponseEntity<StreamingResponseBody> response =
+                controller.searchMovies(null, null, "drama", null, null, null, null, null, null, null, 0, 3, "rating", "id,movieName");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        JSONObject body = read(response);
+        assertEquals(3, body.getInt("size"));
+        assertEquals("rating", body.getString("sort"));
+        assertTrue(body.getInt("totalElements") > 3);
+        JSONArray movies = body.getJSONArray("movies");
+        assertEquals(3, movies.length());
+        JSONObject first = movies.getJSONObject(0);
+        assertEquals(2, first.length());
+        assertTrue(first.has("id"));
+        assertTrue(first.has("movieName"));
+    }
+
+    @Test
+    @DisplayName("Should return every field of a movie by default")
+    public void testGetMovieDetails_AllFields() throws Exception {
+        JSONObject movie = read(controller.getMovieDetails(1L, null));
+
+        assertEquals(1L, movie.getLong("id"));
+        assertEquals(MovieField.values().length, movie.length());
+    }
+
+    @Test
+    @DisplayName("Should return 404 for unknown movies and 400 for unknown fields")
+    public void testErrors() throws Exception {
+        ResponseEntity<StreamingResponseBody> missing = controller.getMovieDetails(999L, null);
+        assertEquals(HttpStatus.NOT_FOUND, missing.getStatusCode());
+        assertEquals(404, read(missing).getInt("status"));
+
+        ResponseEntity<StreamingResponseBody> badField = controller.getMovies(0, 10, null, "id,budget");
+        assertEquals(HttpStatus.BAD_REQUEST, badField.getStatusCode());
+        assertTrue(read(badField).getString("error").contains("budget"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, controller.searchMovies(null, -1L, null, null, null, null, null, null, null, null, 0, 10, null, null).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.searchMovies(null, null, null, null, 2000, 1990, null, null, null, null, 0, 10, null, null).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should sort by review score and show each movie's review aggregate")
+    public void testSearchMovies_ByReviews() throws Exception {
+        JSONArray movies = read(controller.searchMovies(null, null, null, null, null, null, null, null, null, null, 0, 12, "reviews", "id,reviewStats"))
+                .getJSONArray("movies");
+        assertEquals(12, movies.length());
+        double previous = Double.MAX_VALUE;
+        for (int i = 0; i < movies.length(); i++) {
+            JSONObject stats = movies.getJSONObject(i).getJSONObject("reviewStats");
+            assertTrue(stats.getDouble("score") <= previous);
+            previous = stats.getDouble("score");
+            int total = 0;
+            JSONArray histogram = stats.getJSONArray("histogram");
+            for (int b = 0; b < histogram.length(); b++) {
+                total += histogram.getInt(b);
+            }
+            assertEquals(stats.getInt("count"), total);
+        }
+    }
+
+    @Test
+    @DisplayName("Should count matches and split them by genre")
+    public void testFacets() throws Exception {
+        JSONObject body = read(controller.getFacets(null, null, null, 1990, 1999, null, null, null, null));
+        assertEquals(read(controller.searchMovies(null, null, null, null, 1990, 1999, null, null, null, null, 0, 1, null, "id"))
+                .getInt("totalElements"), body.getInt("totalElements"));
+        int dramas = 0;
+        for (int i = 0; i < body.getJSONArray("genres").length(); i++) {
+            JSONObject facet = body.getJSONArray("genres").getJSONObject(i);
+            if (facet.getString("name").equals("Drama")) {
+                dramas = facet.getInt("count");
+            }
+        }
+        assertEquals(read(controller.searchMovies(null, null, "drama", null, 1990, 1999, null, null, null, null, 0, 1, null, "id"))
+                .getInt("totalElements"), dramas);
+        assertEquals(HttpStatus.BAD_REQUEST, controller.getFacets(null, null, null, null, null, null, null, 5.0, 1.0).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should suggest movies for a prefix, best rated first")
+    public void testSuggestMovies() throws Exception {
+        JSONObject body = read(controller.suggestMovies("Chr", 5, null));
+
+        assertEquals("Chr", body.getString("query"));
+        JSONArray suggestions = body.getJSONArray("suggestions");
+        assertEquals(2, suggestions.length(), "Both of Chris Moviemaker's movies");
+        assertEquals("Chris Moviemaker", suggestions.getJSONObject(0).getString("director"));
+        assertTrue(suggestions.getJSONObject(0).getDouble("imdbRating") >= suggestions.getJSONObject(1).getDouble("imdbRating"));
+        assertEquals(0, read(controller.suggestMovies(" ", 5, null)).getJSONArray("suggestions").length());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.suggestMovies("the", 0, null).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should page a movie's reviews")
+    public void testGetReviews_Paged() throws Exception {
+        JSONObject all = read(controller.getReviews(1L, 0, 100, null, null));
+        int total = all.getInt("totalElements");
+        assertTrue(total > 0);
+        assertEquals("newest", all.getString("sort"));
+        assertTrue(all.isNull("nextCursor"));
+
+        JSONObject single = read(controller.getReviews(1L, 0, 1, null, null));
+        assertEquals(total, single.getInt("totalElements"));
+        assertEquals(1, single.getJSONArray("reviews").length());
+        assertEquals(all.getJSONArray("reviews").getJSONObject(0).getString("userName"),
+                single.getJSONArray("reviews").getJSONObject(0).getString("userName"));
+
+        // Following cursors through the highest rated first visits every review once
+        double previous = Double.MAX_VALUE;
+        int seen = 0;
+        String cursor = null;
+        do {
+            JSONObject page = read(controller.getReviews(1L, 0, 1, "highest", cursor));
+            for (int i = 0; i < page.getJSONArray("reviews").length(); i++) {
+                double rating = page.getJSONArray("reviews").getJSONObject(i).getDouble("rating");
+                assertTrue(rating <= previous);
+                previous = rating;
+                seen++;
+            }
+            cursor = page.isNull("nextCursor") ? null : page.getString("nextCursor");
+        } while (cursor != null);
+        assertEquals(total, seen);
+
+        assertEquals(HttpStatus.BAD_REQUEST, controller.getReviews(1L, 0, 1, "loudest", null).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.getReviews(1L, 0, 1, "lowest", "h0").getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, controller.getReviews(999L, 0, 1, null, null).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should store a posted review and show it first")
+    public void testCreateReview() throws Exception {
+        int before = read(controller.getReviews(2L, 0, 1, null, null)).getInt("totalElements");
+        String review = "{\"userName\": \"Anne Bonny\", \"avatarEmoji\": \"🏴‍☠️\", \"rating\": 4.5, \"comment\": \"Arrr\"}";
+
+        ResponseEntity<StreamingResponseBody> created = controller.createReview(2L, review).get(10, TimeUnit.SECONDS);
+        assertEquals(HttpStatus.CREATED, created.getStatusCode());
+        assertEquals(before + 1, read(created).getInt("reviewCount"));
+        JSONObject newest = read(controller.getReviews(2L, 0, 1, "newest", null));
+        assertEquals(before + 1, newest.getInt("totalElements"));
+        assertEquals("Anne Bonny", newest.getJSONArray("reviews").getJSONObject(0).getString("userName"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, controller.createReview(2L, review.replace("4.5", "7")).get().getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, controller.createReview(2L, "{\"rating\": 4}").get().getStatusCode());
+        assertEquals(HttpStatus.CREATED, controller.createReview(2L, "{\"userName\": \"Mary\", \"rating\": 4}").get().getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, controller.createReview(999L, review).get().getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Should create, update, bulk upsert and delete movies only when writes are enabled")
+    public void testWrites() throws Exception {
+        String movie = "{\"id\": 100, \"movieName\": \"The Kraken Returns\", \"director\": \"Anne Bonny\", "
+                + "\"year\": 2024, \"genre\": \"Adventure\", \"description\": \"d\", \"duration\": 120, \"imdbRating\": 4.5}";
+
+        // Off by default
+        assertEquals(HttpStatus.FORBIDDEN, controller.createMovie(movie).getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, controller.updateMovie(1L, movie.replace("\"id\": 100", "\"id\": 1")).getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, controller.upsertMovies(new StringReader("[" + movie + "]")).getStatusCode());
+        assertEquals(HttpStatus.FORBIDDEN, controller.deleteMovie(1L).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, controller.getMovieDetails(100L, null).getStatusCode());
+        assertEquals(HttpStatus.OK, controller.getMovieDetails(1L, null).getStatusCode());
+
+        inject("writesEnabled", true);
+        ResponseEntity<StreamingResponseBody> created = controller.createMovie(movie);
+        assertEquals(HttpStatus.CREATED, created.getStatusCode());
+        assertEquals("The Kraken Returns", read(created).getString("movieName"));
+        assertEquals(HttpStatus.CONFLICT, controller.createMovie(movie).getStatusCode());
+        assertEquals(1, read(controller.searchMovies("kraken", null, null, null, null, null, null, null, null, null, 0, 10, null, "id")).getInt("totalElements"));
+
+        String renamed = movie.replace("The Kraken Returns", "The Kraken Sleeps");
+        assertEquals(HttpStatus.OK, controller.updateMovie(100L, renamed).getStatusCode());
+        assertEquals("The Kraken Sleeps", read(controller.getMovieDetails(100L, null)).getString("movieName"));
+        assertEquals(HttpStatus.BAD_REQUEST, controller.updateMovie(101L, renamed).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST,
+                controller.createMovie(movie.replace("\"id\": 100", "\"id\": 0")).getStatusCode());
+
+        JSONObject bulk = read(controller.upsertMovies(new StringReader(
+                "[" + renamed + ", " + movie.replace("\"id\": 100", "\"id\": 101") + "]")));
+        assertEquals(2, bulk.getInt("upserted"));
+        assertEquals(1, bulk.getInt("added"));
+
+        assertEquals(HttpStatus.NO_CONTENT, controller.deleteMovie(100L).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, controller.deleteMovie(100L).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, controller.getMovieDetails(100L, null).getStatusCode());
+    }
+
+    private void inject(String field, Object value) throws Exception {
+        java.lang.reflect.Field declared = MoviesApiController.class.getDeclaredField(field);
+        declared.setAccessible(true);
+        declared.set(controller, value);
+    }
+
+    private static JSONObject read(ResponseEntity<StreamingResponseBody> response) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return new JSONObject(new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
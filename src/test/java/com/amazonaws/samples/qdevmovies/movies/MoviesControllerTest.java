@@ -63,7 +63,7 @@ public class MoviesControllerTest {
                     }
                     
                     if (matches && id != null) {
-                        matches = movie.getId().equals(id);
+                        matches = movie.getId() == id;
                     }
                     
                     if (matches && genre != null && !genre.trim().isEmpty()) {
@@ -78,6 +78,19 @@ public class MoviesControllerTest {
                 return results;
             }
             
+            @Override
+            public MoviePage searchMovies(MovieFilter filter, int page, int size, MovieSort sort) {
+                List<Movie> results = searchMovies(filter.getName(), filter.getId(), filter.getGenre());
+                int from = Math.min(page * size, results.size());
+                int to = Math.min(from + size, results.size());
+                return new MoviePage(results.subList(from, to), page, size, results.size(), sort);
+            }
+            
+            @Override
+            public MoviePage getMoviesPage(int page, int size, MovieSort sort) {
+                return searchMovies(MovieFilter.NONE, page, size, sort);
+            }
+            
             @Override
             public List<String> getAllGenres() {
                 return Arrays.asList("Action", "Drama");
@@ -108,7 +121,7 @@ public class MoviesControllerTest {
     @Test
     @DisplayName("Should return movies template with all movies and genres")
     public void testGetMovies() {
-        String result = moviesController.getMovies(model);
+        String result = moviesController.getMovies(0, MoviesController.DEFAULT_PAGE_SIZE, null, model);
         
         assertNotNull(result);
         assertEquals("movies", result);
@@ -127,19 +140,19 @@ public class MoviesControllerTest {
     @Test
     @DisplayName("Should return movie details for valid ID")
     public void testGetMovieDetails() {
-        String result = moviesController.getMovieDetails(1L, model);
+        String result = moviesController.getMovieDetails(1L, null, null, model);
         
         assertNotNull(result);
         assertEquals("movie-details", result);
         assertTrue(model.containsAttribute("movie"));
         assertTrue(model.containsAttribute("movieIcon"));
-        assertTrue(model.containsAttribute("allReviews"));
+        assertTrue(model.containsAttribute("reviewPage"));
     }
 
     @Test
     @DisplayName("Should return error page for invalid movie ID")
     public void testGetMovieDetailsNotFound() {
-        String result = moviesController.getMovieDetails(999L, model);
+        String result = moviesController.getMovieDetails(999L, null, null, model);
         
         assertNotNull(result);
         assertEquals("error", result);
@@ -154,7 +167,7 @@ public class MoviesControllerTest {
     @Test
     @DisplayName("Should search movies with no criteria and return all movies")
     public void testSearchMovies_NoCriteria_ReturnsAllMovies() {
-        String result = moviesController.searchMovies(null, null, null, model);
+        String result = moviesController.searchMovies(null, null, null, null, null, null, null, null, null, null, 0, MoviesController.DEFAULT_PAGE_SIZE, null, model);
         
         assertEquals("movies", result);
         assertTrue(model.containsAttribute("movies"));
@@ -171,7 +184,7 @@ public class MoviesControllerTest {
     @Test
     @DisplayName("Should search movies by name and return matching results")
     public void testSearchMovies_ByName_ReturnsMatchingMovies() {
-        String result = moviesController.searchMovies("Test", null, null, model);
+        String result = moviesController.searchMovies("Test", null, null, null, null, null, null, null, null, null, 0, MoviesController.DEFAULT_PAGE_SIZE, null, model);
         
         assertEquals("movies", result);
         assertTrue(model.containsAttribute("movies"));
@@ -194,7 +207,7 @@ public class MoviesControllerTest {
     @Test
     @DisplayName("Should search movies by ID and return exact match")
     public void testSearchMovies_ById_ReturnsExactMatch() {
-        String result = moviesController.searchMovies(null, 2L, null, model);
+        String result = moviesController.searchMovies(null, 2L, null, null, null, null, null, null, null, null, 0, MoviesController.DEFAULT_PAGE_SIZE, null, model);
         
         assertEquals("movies", result);
         assertTrue(model.containsAttribute("movies"));
@@ -212,7 +225,7 @@ public class MoviesControllerTest {
     @Test
     @DisplayName("Should search movies by genre and return matching results")
     public void testSearchMovies_ByGenre_ReturnsMatchingMovies() {
-        String result = moviesController.searchMovies(null, null, "Drama", model);
+        String result = moviesController.searchMovies(null, null, "Drama", null, null, null, null, null, null, null, 0, MoviesController.DEFAULT_PAGE_SIZE, null, model);
         
         assertEquals("movies", result);
         assertTrue(model.containsAttribute("movies"));
@@ -230,7 +243,7 @@ public class MoviesControllerTest {
     @Test
     @DisplayName("Should handle invalid ID gracefully")
     public void testSearchMovies_InvalidId_ReturnsErrorMessage() {
-        String result = moviesController.searchMovies(null, -1L, null, model);
+        String result = moviesController.searchMovies(null, -1L, null, null, null, null, null, null, null, null, 0, MoviesController.DEFAULT_PAGE_SIZE, null, model);
         
         assertEquals("movies", result);
         assertTrue(model.containsAttribute("errorMessage"));
@@ -248,7 +261,7 @@ public class MoviesControllerTest {
     @Test
     @DisplayName("Should return no results message when no movies match criteria")
     public void testSearchMovies_NoMatches_ReturnsNoResultsMessage() {
-        String result = moviesController.searchMovies("NonexistentMovie", null, null, model);
+        String result = moviesController.searchMovies("NonexistentMovie", null, null, null, null, null, null, null, null, null, 0, MoviesController.DEFAULT_PAGE_SIZE, null, model);
         
         assertEquals("movies", result);
         assertTrue(model.containsAttribute("noResultsMessage"));
@@ -266,7 +279,7 @@ public class MoviesControllerTest {
     @Test
     @DisplayName("Should search with multiple criteria")
     public void testSearchMovies_MultipleCriteria_ReturnsMatchingResults() {
-        String result = moviesController.searchMovies("Test", 1L, "Drama", model);
+        String result = moviesController.searchMovies("Test", 1L, "Drama", null, null, null, null, null, null, null, 0, MoviesController.DEFAULT_PAGE_SIZE, null, model);
         
         assertEquals("movies", result);
         assertTrue(model.containsAttribute("movies"));
@@ -287,7 +300,7 @@ public class MoviesControllerTest {
     @Test
     @DisplayName("Should include genres in all search responses")
     public void testSearchMovies_AlwaysIncludesGenres() {
-        String result = moviesController.searchMovies("Test", null, null, model);
+        String result = moviesController.searchMovies("Test", null, null, null, null, null, null, null, null, null, 0, MoviesController.DEFAULT_PAGE_SIZE, null, model);
         
         assertEquals("movies", result);
         assertTrue(model.containsAttribute("genres"));
@@ -296,12 +309,13 @@ public class MoviesControllerTest {
         List<String> genres = (List<String>) model.getAttribute("genres");
         assertNotNull(genres);
         assertEquals(2, genres.size());
+        assertTrue(model.containsAttribute("genreFacets"));
     }
 
     @Test
     @DisplayName("Should handle search with empty string parameters")
     public void testSearchMovies_EmptyStringParameters_TreatedAsNull() {
-        String result = moviesController.searchMovies("", null, "", model);
+        String result = moviesController.searchMovies("", null, "", null, null, null, null, null, null, null, 0, MoviesController.DEFAULT_PAGE_SIZE, null, model);
         
         assertEquals("movies", result);
         assertTrue(model.containsAttribute("movies"));
@@ -318,7 +332,7 @@ public class MoviesControllerTest {
         Long testId = 1L;
         String testGenre = "Drama";
         
-        String result = moviesController.searchMovies(testName, testId, testGenre, model);
+        String result = moviesController.searchMovies(testName, testId, testGenre, null, null, null, null, null, null, null, 0, MoviesController.DEFAULT_PAGE_SIZE, null, model);
         
         assertEquals("movies", result);
         assertEquals(testName, model.getAttribute("searchName"));
@@ -334,4 +348,33 @@ public class MoviesControllerTest {
         assertEquals("Test Movie", movies.get(0).getMovieName());
         assertEquals("Action Movie", movies.get(1).getMovieName());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should return the requested page with the total match count")
+    public void testSearchMovies_Paging_ReturnsRequestedPage() {
+        String result = moviesController.searchMovies(null, null, null, null, null, null, null, null, null, null, 1, 1, null, model);
+        
+        assertEquals("movies", result);
+        MoviePage moviePage = (MoviePage) model.getAttribute("moviePage");
+        assertNotNull(moviePage);
+        assertEquals(2, moviePage.getTotalElements());
+        assertEquals(2, moviePage.getTotalPages());
+        assertFalse(moviePage.hasNext());
+        
+        @SuppressWarnings("unchecked")
+        List<Movie> movies = (List<Movie>) model.getAttribute("movies");
+        assertEquals(1, movies.size());
+        assertEquals("Action Movie", movies.get(0).getMovieName());
+        assertEquals("Shiver me timbers! Found 2 movie treasures in our chest!", model.getAttribute("successMessage"));
+    }
+
+    @Test
+    @DisplayName("Should show error message for an unknown sort order")
+    public void testSearchMovies_UnknownSort_ShowsErrorMessage() {
+        String result = moviesController.searchMovies("Test", null, null, null, null, null, null, null, null, null, 0, MoviesController.DEFAULT_PAGE_SIZE, "treasure", model);
+        
+        assertEquals("movies", result);
+        assertTrue(model.containsAttribute("errorMessage"));
+        assertTrue(model.containsAttribute("genres"));
+    }
+}
@@ -0,0 +1,162 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.json.JSONObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the streaming API, run against the bundled catalog and a movie with
+ * more reviews than fit in one page.
+ */
+public class MoviesStreamControllerTest {
+
+    private static final int REVIEWS = 2 * ReactiveReviewService.PAGE_SIZE + 17;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private MoviesStreamController controller;
+    private MovieService movieService;
+    private ReviewService reviewService;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        List<Review> reviews = new ArrayList<>();
+        for (int i = 0; i < REVIEWS; i++) {
+            reviews.add(new Review("user" + i, "🦜", (i % 11) / 2.0, "Review " + i));
+        }
+        Map<Long, List<Review>> reviewsByMovie = new HashMap<>();
+        reviewsByMovie.put(1L, reviews);
+        movieService = new MovieService();
+        reviewService = new ReviewService(reviewsByMovie);
+        movieService.setReviewService(reviewService);
+
+        controller = new MoviesStreamController();
+        inject("movieService", movieService);
+        inject("reactiveMovieService", new ReactiveMovieService(movieService));
+        inject("reactiveReviewService", new ReactiveReviewService(reviewService));
+    }
+
+    @Test
+    @DisplayName("Should stream every matching movie in page order with only the requested fields")
+    public void testSearchMovies_MatchesPages() throws Exception {
+        ResponseEntity<Flux<JsonSerializable>> response = controller.searchMovies(
+                null, null, "drama", null, null, null, null, null, null, null, "year", "id,year");
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        List<JSONObject> movies = read(response);
+
+        MovieFilter filter = new MovieFilter.Builder().genre("drama").build();
+        List<Movie> expected = movieService.searchMovies(filter, 0, MovieService.MAX_PAGE_SIZE, MovieSort.YEAR).getMovies();
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), movies.size());
+        for (int i = 0; i < movies.size(); i++) {
+            assertEquals(expected.get(i).getId(), movies.get(i).getLong("id"));
+            assertEquals(expected.get(i).getYear(), movies.get(i).getInt("year"));
+            assertEquals(2, movies.get(i).length());
+        }
+    }
+
+    @Test
+    @DisplayName("Should find movies only as fast as the subscriber requests them")
+    public void testSearchMovies_Backpressure() throws Exception {
+        List<Movie> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch requested = new CountDownLatch(2);
+        BaseSubscriber<Movie> subscriber = new BaseSubscriber<Movie>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(2);
+            }
+
+            @Override
+            protected void hookOnNext(Movie movie) {
+                received.add(movie);
+                requested.countDown();
+            }
+        };
+        new ReactiveMovieService(movieService).searchMovies(MovieFilter.NONE, MovieSort.NAME).subscribe(subscriber);
+        assertTrue(requested.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(2, received.size());
+        subscriber.dispose();
+
+        assertEquals(movieService.getMoviesPage(0, 3, MovieSort.NAME).getMovies().get(2).getId(),
+                new ReactiveMovieService(movieService).searchMovies(MovieFilter.NONE, MovieSort.NAME)
+                        .take(3).blockLast().getId());
+    }
+
+    @Test
+    @DisplayName("Should stream every review across pages in each sort order")
+    public void testGetReviews_AllPages() throws Exception {
+        for (ReviewSort sort : ReviewSort.values()) {
+            List<JSONObject> reviews = read(controller.getReviews(1L, sort.getParameter()));
+            assertEquals(REVIEWS, reviews.size(), sort.getParameter());
+
+            List<Review> expected = new ArrayList<>();
+            String cursor = null;
+            do {
+                ReviewPage page = reviewService.getReviewPage(1L, sort, cursor, 40);
+                expected.addAll(page.getReviews());
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+            for (int i = 0; i < REVIEWS; i++) {
+                assertEquals(expected.get(i).getUserName(), reviews.get(i).getString("userName"), sort + " " + i);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should return 400 for unstreamable orders and bad parameters, 404 for unknown movies")
+    public void testErrors() throws Exception {
+        assertError(HttpStatus.BAD_REQUEST, controller.searchMovies(
+                null, null, null, null, null, null, null, null, null, null, "reviews", null));
+        assertError(HttpStatus.BAD_REQUEST, controller.searchMovies(
+                "the", null, null, null, null, null, null, null, null, null, "relevance", null));
+        assertError(HttpStatus.BAD_REQUEST, controller.searchMovies(
+                null, 0L, null, null, null, null, null, null, null, null, null, null));
+        assertError(HttpStatus.BAD_REQUEST, controller.searchMovieEvents(
+                null, null, null, null, null, null, null, null, null, null, null, "budget"));
+        assertError(HttpStatus.BAD_REQUEST, controller.getReviews(1L, "loudest"));
+        assertError(HttpStatus.NOT_FOUND, controller.getReviewEvents(999L, null));
+
+        // Relevance without a name to rank by streams in catalog order
+        assertEquals(movieService.getAllMovies().size(), read(controller.searchMovies(
+                null, null, null, null, null, null, null, null, null, null, "relevance", "id")).size());
+    }
+
+    private void assertError(HttpStatus status, ResponseEntity<Flux<JsonSerializable>> response) throws Exception {
+        assertEquals(status, response.getStatusCode());
+        List<JSONObject> body = read(response);
+        assertEquals(1, body.size());
+        assertEquals(status.value(), body.get(0).getInt("status"));
+    }
+
+    private List<JSONObject> read(ResponseEntity<Flux<JsonSerializable>> response) throws Exception {
+        List<JSONObject> objects = new ArrayList<>();
+        for (JsonSerializable element : response.getBody().collectList().block()) {
+            objects.add(new JSONObject(objectMapper.writeValueAsString(element)));
+        }
+        return objects;
+    }
+
+    private void inject(String field, Object value) throws Exception {
+        java.lang.reflect.Field declared = MoviesStreamController.class.getDeclaredField(field);
+        declared.setAccessible(true);
+        declared.set(controller, value);
+    }
+}
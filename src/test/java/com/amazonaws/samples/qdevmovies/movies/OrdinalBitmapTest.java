@@ -0,0 +1,106 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for compressed ordinal bitmaps.
+ * Every operation must agree with {@link BitSet} for sparse, dense and mixed chunks.
+ */
+public class OrdinalBitmapTest {
+
+    private static final int UNIVERSE = 5 << 16;
+
+    @Test
+    @DisplayName("Should combine and count like BitSet across array and word chunks")
+    public void testSetAlgebra_MatchesBitSet() {
+        Random random = new Random(9);
+        for (int round = 0; round < 40; round++) {
+            BitSet a = randomSet(random);
+            BitSet b = randomSet(random);
+            OrdinalBitmap x = bitmap(a);
+            OrdinalBitmap y = bitmap(b);
+
+            BitSet and = (BitSet) a.clone();
+            and.and(b);
+            BitSet or = (BitSet) a.clone();
+            or.or(b);
+            BitSet andNot = (BitSet) a.clone();
+            andNot.andNot(b);
+
+            assertArrayEquals(ordinals(a), x.toArray());
+            assertArrayEquals(ordinals(a), toArray(x.iterator()), "iterator, round " + round);
+            assertEquals(a.cardinality(), x.cardinality());
+            assertArrayEquals(ordinals(and), x.and(y).toArray(), "and, round " + round);
+            assertEquals(and.cardinality(), x.andCardinality(y), "andCardinality, round " + round);
+            assertArrayEquals(ordinals(or), x.or(y).toArray(), "or, round " + round);
+            assertArrayEquals(ordinals(andNot), x.andNot(y).toArray(), "andNot, round " + round);
+            for (int i = 0; i < 200; i++) {
+                int ordinal = random.nextInt(UNIVERSE);
+                assertEquals(a.get(ordinal), x.contains(ordinal));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should union many bitmaps and filter one")
+    public void testOrAndFilter() {
+        Random random = new Random(2);
+        BitSet all = new BitSet();
+        OrdinalBitmap[] parts = new OrdinalBitmap[12];
+        for (int i = 0; i < parts.length; i++) {
+            BitSet part = randomSet(random);
+            all.or(part);
+            parts[i] = bitmap(part);
+        }
+        OrdinalBitmap union = OrdinalBitmap.or(Arrays.asList(parts));
+        assertArrayEquals(ordinals(all), union.toArray());
+
+        BitSet even = new BitSet();
+        for (int ordinal : ordinals(all)) {
+            if (ordinal % 2 == 0) {
+                even.set(ordinal);
+            }
+        }
+        assertArrayEquals(ordinals(even), union.filter(ordinal -> ordinal % 2 == 0).toArray());
+        assertTrue(OrdinalBitmap.EMPTY.and(union).isEmpty());
+        assertSame(union, union.andNot(OrdinalBitmap.EMPTY));
+    }
+
+    /**
+     * Each chunk is empty, sparse or dense at random, so every pair of container kinds meets.
+     */
+    private static BitSet randomSet(Random random) {
+        BitSet set = new BitSet(UNIVERSE);
+        for (int chunk = 0; chunk < UNIVERSE >>> 16; chunk++) {
+            int density = new int[] {0, 50, 3000, 20000, 65000}[random.nextInt(5)];
+            for (int i = 0; i < density; i++) {
+                set.set((chunk << 16) | random.nextInt(1 << 16));
+            }
+        }
+        return set;
+    }
+
+    private static OrdinalBitmap bitmap(BitSet set) {
+        return OrdinalBitmap.of(ordinals(set));
+    }
+
+    private static int[] toArray(PrimitiveIterator.OfInt iterator) {
+        IntStream.Builder ordinals = IntStream.builder();
+        iterator.forEachRemaining((IntConsumer) ordinals::add);
+        return ordinals.build().toArray();
+    }
+
+    private static int[] ordinals(BitSet set) {
+        return set.stream().toArray();
+    }
+}
@@ -0,0 +1,173 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for parallel scans.
+ * A parallel scan must find exactly what a sequential one finds, in the same order,
+ * without ever running on more threads than its parallelism.
+ */
+public class ParallelScanTest {
+
+    private static final String[] NAMES = {"Treasure", "Island", "Kraken", "Harbor", "Storm"};
+    private static final String[] GENRES = {"Drama", "Action/Adventure", "Crime/Drama", "Comedy"};
+
+    @Test
+    @DisplayName("Should select like a sequential loop across chunk boundaries")
+    public void testSelect_MatchesSequential() {
+        try (ParallelScan scan = new ParallelScan(4, 0)) {
+            assertSelectMatchesSequential(scan);
+            assertTrue(scan.isParallel(2 * ParallelScan.CHUNK_SIZE));
+            assertFalse(scan.isParallel(ParallelScan.CHUNK_SIZE));
+        }
+        assertFalse(ParallelScan.SEQUENTIAL.isParallel(Integer.MAX_VALUE));
+        assertEquals(1, new ParallelScan(1, 0).parallelism());
+        try (ParallelScan scan = new ParallelScan(0, 0)) {
+            assertTrue(scan.parallelism() >= 1);
+        }
+    }
+
+    private static void assertSelectMatchesSequential(ParallelScan scan) {
+        Random random = new Random(5);
+        int[] sizes = {0, 1, ParallelScan.CHUNK_SIZE - 1, ParallelScan.CHUNK_SIZE, 2 * ParallelScan.CHUNK_SIZE,
+                7 * ParallelScan.CHUNK_SIZE + 13, 50_000};
+        for (int size : sizes) {
+            IntPredicate keep = ordinal -> (ordinal * 0x9E3779B9) >>> 29 == 3;
+            assertArrayEquals(ParallelScan.SEQUENTIAL.select(null, size, keep), scan.select(null, size, keep),
+                    "all of " + size);
+
+            int[] candidates = new int[size];
+            for (int i = 0, ordinal = 0; i < size; i++) {
+                ordinal += 1 + random.nextInt(5);
+                candidates[i] = ordinal;
+            }
+            assertArrayEquals(ParallelScan.SEQUENTIAL.select(candidates, 0, keep), scan.select(candidates, 0, keep),
+                    size + " candidates");
+            assertArrayEquals(candidates, scan.select(candidates, 0, ordinal -> true));
+        }
+    }
+
+    @Test
+    @DisplayName("Should answer scanning searches like a sequential catalog")
+    public void testSearches_MatchSequential() {
+        Random random = new Random(13);
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 1; i <= 60_000; i++) {
+            movies.add(new Movie(i, NAMES[random.nextInt(NAMES.length)] + " " + random.nextInt(1000),
+                    "Director " + random.nextInt(200), 1950 + random.nextInt(70), GENRES[random.nextInt(GENRES.length)],
+                    "d", 80 + random.nextInt(100), random.nextInt(21) / 2.0));
+        }
+        MovieService sequential = new MovieService(new ObjectMovieStore(movies));
+        MovieService parallel = new MovieService(new ObjectMovieStore(movies), new ParallelScan(3, 0));
+        try {
+            assertSearchesMatch(sequential, parallel);
+        } finally {
+            parallel.stop();
+        }
+    }
+
+    private static void assertSearchesMatch(MovieService sequential, MovieService parallel) {
+        // Names too short for a trigram, and a common trigram, are checked movie by movie
+        for (String name : new String[] {"1", "ar", "7 ", "an", "isl"}) {
+            for (String genre : new String[] {null, "drama"}) {
+                assertEquals(ids(sequential.searchMovies(name, null, genre)), ids(parallel.searchMovies(name, null, genre)),
+                        name + " " + genre);
+            }
+        }
+        MovieFilter[] filters = {
+                new MovieFilter.Builder().name("4").years(1960, null).build(),
+                new MovieFilter.Builder().name("or").rating(2.0, 8.0).duration(90, null).build(),
+                new MovieFilter.Builder().genre("a").years(null, 2010).rating(1.0, null).build(),
+                new MovieFilter.Builder().years(1955, 2015).duration(85, 175).rating(0.5, 9.5).build()
+        };
+        for (MovieFilter filter : filters) {
+            for (MovieSort sort : new MovieSort[] {MovieSort.CATALOG, MovieSort.NAME}) {
+                assertEquals(ids(sequential.searchMovies(filter, 3, 50, sort).getMovies()),
+                        ids(parallel.searchMovies(filter, 3, 50, sort).getMovies()), filter + " " + sort);
+            }
+            assertEquals(sequential.countMovies(filter), parallel.countMovies(filter), filter.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Should never check chunks on more threads than its parallelism")
+    public void testConcurrentScans_StayWithinParallelism() throws Exception {
+        ParallelScan scan = new ParallelScan(2, 0);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger mostRunning = new AtomicInteger();
+        IntPredicate keep = ordinal -> {
+            if (ordinal % ParallelScan.CHUNK_SIZE == 0) {
+                mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+            }
+            return ordinal % 3 == 0;
+        };
+        ExecutorService requests = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<int[]>> scans = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                scans.add(requests.submit(() -> scan.select(null, 64 * ParallelScan.CHUNK_SIZE, keep)));
+            }
+            int[] expected = ParallelScan.SEQUENTIAL.select(null, 64 * ParallelScan.CHUNK_SIZE, ordinal -> ordinal % 3 == 0);
+            for (Future<int[]> result : scans) {
+                assertArrayEquals(expected, result.get());
+            }
+        } finally {
+            requests.shutdown();
+            scan.close();
+        }
+        assertTrue(mostRunning.get() <= 2, "Chunks checked at once: " + mostRunning.get());
+    }
+
+    @Test
+    @DisplayName("Should stop its threads when the service stops and scan on the caller afterwards")
+    public void testStop_ShutsDownPool() throws Exception {
+        ParallelScan scan = new ParallelScan(2, 0);
+        MovieService service = new MovieService(new ObjectMovieStore(new ArrayList<>()), scan);
+        Set<Thread> workers = ConcurrentHashMap.newKeySet();
+        IntPredicate keep = ordinal -> {
+            if (Thread.currentThread().getName().startsWith("movie-scan-")) {
+                workers.add(Thread.currentThread());
+            }
+            return ordinal % 5 == 0;
+        };
+        int[] expected = ParallelScan.SEQUENTIAL.select(null, 4 * ParallelScan.CHUNK_SIZE, ordinal -> ordinal % 5 == 0);
+        assertArrayEquals(expected, scan.select(null, 4 * ParallelScan.CHUNK_SIZE, keep));
+        assertFalse(workers.isEmpty());
+
+        service.stop();
+        assertFalse(scan.isParallel(Integer.MAX_VALUE));
+        assertArrayEquals(expected, scan.select(null, 4 * ParallelScan.CHUNK_SIZE, keep));
+        for (Thread worker : workers) {
+            worker.join(5000);
+            assertFalse(worker.isAlive(), worker.getName());
+        }
+    }
+
+    private static List<Long> ids(List<Movie> movies) {
+        List<Long> ids = new ArrayList<>();
+        for (Movie movie : movies) {
+            ids.add(movie.getId());
+        }
+        return ids;
+    }
+}
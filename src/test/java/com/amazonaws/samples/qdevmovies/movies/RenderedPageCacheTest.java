@@ -0,0 +1,231 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the rendered page cache and the filter serving from it.
+ */
+public class RenderedPageCacheTest {
+
+    @Test
+    @DisplayName("Should evict least recently used pages once the byte budget is exceeded")
+    public void testEviction_LeastRecentlyUsed() {
+        RenderedPageCache cache = new RenderedPageCache(3 * 100 + 3 * 2 * 2, 1L);
+        cache.put("/a", page(100), 1L, RenderedPageCache.NO_MOVIES, cache.stamp());
+        cache.put("/b", page(100), 1L, RenderedPageCache.NO_MOVIES, cache.stamp());
+        cache.put("/c", page(100), 1L, RenderedPageCache.NO_MOVIES, cache.stamp());
+        assertNotNull(cache.get("/a", 1L));
+
+        cache.put("/d", page(100), 1L, RenderedPageCache.NO_MOVIES, cache.stamp());
+
+        assertEquals(3, cache.size());
+        assertNull(cache.get("/b", 1L));
+        assertNotNull(cache.get("/a", 1L));
+        assertNotNull(cache.get("/d", 1L));
+        assertEquals(1, cache.evictions());
+        assertEquals(3, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    @DisplayName("Should drop all pages when the catalog version changes")
+    public void testVersionChange_InvalidatesPages() {
+        RenderedPageCache cache = new RenderedPageCache(1 << 20, 1L);
+        cache.put("/movies", page(10), 1L, RenderedPageCache.NO_MOVIES, cache.stamp());
+
+        assertNull(cache.get("/movies", 2L));
+        assertEquals(0, cache.weightBytes());
+
+        // A render that started before the reload must not repopulate the cache
+        cache.put("/movies", page(10), 1L, RenderedPageCache.NO_MOVIES, cache.stamp());
+        assertNull(cache.get("/movies", 2L));
+        cache.put("/movies", page(10), 2L, RenderedPageCache.NO_MOVIES, cache.stamp());
+        assertNotNull(cache.get("/movies", 2L));
+    }
+
+    @Test
+    @DisplayName("Should drop only the pages showing a reviewed movie or depending on every review")
+    public void testReview_InvalidatesOnlyAffectedPages() {
+        RenderedPageCache cache = new RenderedPageCache(1 << 20, 1L);
+        cache.put("/movies/1/details", page(10), 1L, new long[] {1}, cache.stamp());
+        cache.put("/movies/3/details", page(10), 1L, new long[] {3}, cache.stamp());
+        cache.put("/movies?page=0", page(10), 1L, new long[] {1, 2}, cache.stamp());
+        cache.put("/movies?page=1", page(10), 1L, new long[] {3, 4}, cache.stamp());
+        cache.put("/movies?sort=reviews", page(10), 1L, null, cache.stamp());
+
+        RenderedPageCache.Stamp rendering = cache.stamp();
+        cache.invalidateMovie(1);
+
+        assertNull(cache.get("/movies/1/details", 1L));
+        assertNull(cache.get("/movies?page=0", 1L));
+        assertNull(cache.get("/movies?sort=reviews", 1L));
+        assertNotNull(cache.get("/movies/3/details", 1L));
+        assertNotNull(cache.get("/movies?page=1", 1L));
+        assertEquals(2, cache.size());
+
+        // Renders that read reviews before the new one must not be stored
+        cache.put("/movies/1/details", page(10), 1L, new long[] {1}, rendering);
+        cache.put("/movies?sort=reviews", page(10), 1L, null, rendering);
+        cache.put("/movies/5/details", page(10), 1L, new long[] {5}, rendering);
+        assertNull(cache.get("/movies/1/details", 1L));
+        assertNull(cache.get("/movies?sort=reviews", 1L));
+        assertNotNull(cache.get("/movies/5/details", 1L));
+
+        cache.invalidateReviews();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weightBytes());
+    }
+
+    @Test
+    @DisplayName("Should spread large caches over segments and keep them consistent under concurrent use")
+    public void testConcurrentUse_KeepsWeightConsistent() throws Exception {
+        RenderedPageCache cache = new RenderedPageCache(RenderedPageCache.MAX_SEGMENTS * RenderedPageCache.MIN_SEGMENT_BYTES, 1L);
+        Thread[] threads = new Thread[4];
+        AtomicInteger failures = new AtomicInteger();
+        for (int t = 0; t < threads.length; t++) {
+            int seed = t;
+            threads[t] = new Thread(() -> {
+                try {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 20_000; i++) {
+                        long movieId = random.nextInt(50);
+                        String key = "/movies/" + movieId + "/details?p=" + random.nextInt(40);
+                        switch (random.nextInt(4)) {
+                            case 0:
+                                cache.invalidateMovie(movieId);
+                                break;
+                            case 1:
+                                cache.get(key, 1L);
+                                break;
+                            default:
+                                cache.put(key, page(1 + random.nextInt(64 * 1024)), 1L, new long[] {movieId}, cache.stamp());
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    failures.incrementAndGet();
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, failures.get());
+        assertTrue(cache.weightBytes() <= RenderedPageCache.MAX_SEGMENTS * RenderedPageCache.MIN_SEGMENT_BYTES);
+
+        // Whatever survived is still registered under its movie
+        for (long movieId = 0; movieId < 50; movieId++) {
+            cache.invalidateMovie(movieId);
+        }
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weightBytes());
+    }
+
+    @Test
+    @DisplayName("Should keep other movies' pages when a review is posted")
+    public void testFilter_PostedReviewDropsOnlyItsMovie() throws Exception {
+        ReviewService reviewService = new ReviewService();
+        RenderedPageCacheFilter filter = new RenderedPageCacheFilter(new MovieService(), reviewService, 1 << 20, false);
+        AtomicInteger renders = new AtomicInteger();
+        HttpServlet view = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                renders.incrementAndGet();
+                String id = request.getRequestURI().split("/")[2];
+                request.setAttribute(RenderedPageCacheFilter.REVIEWED_MOVIES_ATTRIBUTE, new long[] {Long.parseLong(id)});
+                response.setContentType("text/html;charset=UTF-8");
+                response.getWriter().write("<html>" + reviewService.getReviewsForMovie(Long.parseLong(id)).size() + "</html>");
+            }
+        };
+        for (String uri : new String[] {"/movies/1/details", "/movies/2/details"}) {
+            filter.doFilter(new MockHttpServletRequest("GET", uri), new MockHttpServletResponse(), new MockFilterChain(view));
+        }
+
+        reviewService.addReview(1, new Review("Captain", "🦜", 4.0, "Arrr"));
+
+        MockHttpServletResponse reviewed = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/movies/1/details"), reviewed, new MockFilterChain(view));
+        assertEquals("<html>4</html>", reviewed.getContentAsString());
+        MockHttpServletResponse other = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("GET", "/movies/2/details"), other, new MockFilterChain(view));
+        assertEquals("<html>3</html>", other.getContentAsString());
+        assertEquals(3, renders.get());
+    }
+
+    @Test
+    @DisplayName("Should render once and replay gzip or plain bytes on later requests")
+    public void testFilter_ReplaysRenderedPage() throws Exception {
+        RenderedPageCacheFilter filter = new RenderedPageCacheFilter(new MovieService(), new ReviewService(), 1 << 20, true);
+        AtomicInteger renders = new AtomicInteger();
+        HttpServlet view = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) throws IOException {
+                renders.incrementAndGet();
+                response.setContentType("text/html;charset=UTF-8");
+                response.setHeader(HttpHeaders.ETAG, "\"abc\"");
+                response.getWriter().write("<html>Ahoy</html>");
+            }
+        };
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(get("genre", "drama", "sort", "rating"), first, new MockFilterChain(view));
+        assertEquals("<html>Ahoy</html>", first.getContentAsString());
+
+        MockHttpServletRequest gzipRequest = get("sort", "rating", "genre", "drama");
+        gzipRequest.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        MockHttpServletResponse gzipped = new MockHttpServletResponse();
+        filter.doFilter(gzipRequest, gzipped, new MockFilterChain(view));
+        assertEquals("gzip", gzipped.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("<html>Ahoy</html>", gunzip(gzipped.getContentAsByteArray()));
+
+        MockHttpServletResponse plain = new MockHttpServletResponse();
+        filter.doFilter(get("genre", "drama", "sort", "rating"), plain, new MockFilterChain(view));
+        assertNull(plain.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("<html>Ahoy</html>", plain.getContentAsString());
+        assertEquals("\"abc\"", plain.getHeader(HttpHeaders.ETAG));
+
+        MockHttpServletRequest revalidate = get("genre", "drama", "sort", "rating");
+        revalidate.addHeader(HttpHeaders.IF_NONE_MATCH, "\"abc\"");
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        filter.doFilter(revalidate, notModified, new MockFilterChain(view));
+        assertEquals(304, notModified.getStatus());
+
+        assertEquals(1, renders.get());
+        assertEquals(3, filter.cache().hits());
+    }
+
+    private static RenderedPage page(int bytes) {
+        return new RenderedPage(new byte[bytes], false, "text/html", null, null, -1);
+    }
+
+    private static MockHttpServletRequest get(String... parameters) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/movies/search");
+        for (int i = 0; i < parameters.length; i += 2) {
+            request.addParameter(parameters[i], parameters[i + 1]);
+        }
+        return request;
+    }
+
+    private static String gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return new String(org.springframework.util.StreamUtils.copyToByteArray(in), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the review write path.
+ * Whatever was acknowledged must be readable right away and come back, in the same order,
+ * after a restart, a torn write, a compaction or a reload of the bundled reviews.
+ */
+public class ReviewJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should make concurrent reviews visible and replay them in order after a restart")
+    public void testSubmit_ReplaysAfterRestart() throws Exception {
+        ReviewService reviews = new ReviewService(base());
+        ReviewJournal journal = journal(reviews, 1 << 20, 4);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        journal.bindTo(registry);
+        journal.start();
+
+        int threads = 8;
+        int perThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<CompletableFuture<Integer>>>> submitters = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            submitters.add(executor.submit(() -> {
+                List<CompletableFuture<Integer>> stored = new ArrayList<>();
+                for (int i = 0; i < perThread; i++) {
+                    stored.add(journal.submit(1 + (i % 5), review("Thread " + thread, i)));
+                }
+                return stored;
+            }));
+        }
+        for (Future<List<CompletableFuture<Integer>>> submitter : submitters) {
+            for (CompletableFuture<Integer> stored : submitter.get()) {
+                assertTrue(stored.get(10, TimeUnit.SECONDS) > 0);
+            }
+        }
+        executor.shutdown();
+        assertEquals(2 + threads * perThread, total(reviews));
+        long commits = registry.get("movies.reviews.journal.commit").timer().count();
+        assertTrue(commits > 0 && commits <= threads * perThread);
+        assertEquals(threads * perThread, (long) registry.get("movies.reviews.journal.batch").summary().totalAmount());
+        journal.stop();
+
+        ReviewService restarted = new ReviewService(base());
+        ReviewJournal reopened = journal(restarted, 1 << 20, 4);
+        reopened.start();
+        assertSameReviews(reviews, restarted);
+        assertEquals(reviews.getReviewsVersion(), restarted.getReviewsVersion());
+        reopened.stop();
+    }
+
+    @Test
+    @DisplayName("Should cut a torn record off the last segment and keep the ones before it")
+    public void testRecover_TornRecord() throws Exception {
+        ReviewService reviews = new ReviewService(base());
+        ReviewJournal journal = journal(reviews, 1 << 20, 4);
+        journal.start();
+        for (int i = 0; i < 10; i++) {
+            journal.submit(2, review("Crash", i)).get(10, TimeUnit.SECONDS);
+        }
+        journal.stop();
+        Path segment = files(ReviewJournal.SEGMENT_PREFIX).get(0);
+        long size = Files.size(segment);
+        // Half a record, as left by a crash in the middle of a write
+        Files.write(segment, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        ReviewService restarted = new ReviewService(base());
+        ReviewJournal reopened = journal(restarted, 1 << 20, 4);
+        reopened.start();
+        assertEquals(size, Files.size(segment));
+        assertSameReviews(reviews, restarted);
+        reopened.submit(2, review("After", 0)).get(10, TimeUnit.SECONDS);
+        reopened.stop();
+
+        ReviewService again = new ReviewService(base());
+        ReviewJournal third = journal(again, 1 << 20, 4);
+        third.start();
+        assertEquals(10 + 1, again.getReviewsForMovie(2).size());
+        assertEquals("After", again.getReviewPage(2, ReviewSort.NEWEST, 0, 1).getReviews().get(0).getUserName());
+        third.stop();
+    }
+
+    @Test
+    @DisplayName("Should compact full segments without losing or repeating reviews")
+    public void testCompaction_KeepsReviews() throws Exception {
+        ReviewService reviews = new ReviewService(base());
+        // Every batch fills a segment, so segments pile up and get compacted
+        ReviewJournal journal = journal(reviews, 1, 3);
+        journal.start();
+        for (int i = 0; i < 40; i++) {
+            journal.submit(3, review("Compact", i)).get(10, TimeUnit.SECONDS);
+        }
+        journal.stop();
+        assertEquals(1, files(ReviewJournal.COMPACTED_PREFIX).size());
+        assertTrue(files(ReviewJournal.SEGMENT_PREFIX).size() < 40);
+
+        ReviewService restarted = new ReviewService(base());
+        ReviewJournal reopened = journal(restarted, 1, 3);
+        reopened.start();
+        assertSameReviews(reviews, restarted);
+        assertEquals(40, restarted.getReviewsForMovie(3).size());
+
+        // Reloading the bundled reviews keeps the submitted ones on top
+        int bundled = new ReviewService().getReviewsForMovie(3).size();
+        restarted.reload();
+        assertEquals(bundled + 40, restarted.getReviewsForMovie(3).size());
+        assertEquals("Compact", restarted.getReviewPage(3, ReviewSort.NEWEST, 0, 1).getReviews().get(0).getUserName());
+        reopened.stop();
+    }
+
+    @Test
+    @DisplayName("Should reject invalid reviews, and reviews after stopping")
+    public void testSubmit_Rejects() throws Exception {
+        ReviewService reviews = new ReviewService(base());
+        ReviewJournal journal = new ReviewJournal(reviews, "", 16, 8, 1 << 20, 4);
+        journal.start();
+        assertThrows(IllegalArgumentException.class, () -> journal.submit(1, new Review("x", "🦜", 0, "c")));
+        assertThrows(IllegalArgumentException.class, () -> journal.submit(1, new Review(" ", "🦜", 3, "c")));
+        assertThrows(IllegalArgumentException.class,
+                () -> journal.submit(1, new Review("x", "🦜", 3, new String(new char[ReviewService.MAX_COMMENT_LENGTH + 1]))));
+        assertEquals(3, journal.submit(1, review("Memory", 0)).get(10, TimeUnit.SECONDS));
+        journal.stop();
+        assertThrows(RejectedExecutionException.class, () -> journal.submit(1, review("Late", 0)));
+    }
+
+    @Test
+    @DisplayName("Should fail only the batch whose listener throws and keep writing")
+    public void testSubmit_ListenerThrows() throws Exception {
+        ReviewService reviews = new ReviewService(base());
+        reviews.addListener(new ReviewService.Listener() {
+            @Override
+            public void reviewsLoaded(Map<Long, List<Review>> reviewsByMovie) {
+            }
+
+            @Override
+            public void reviewAdded(long movieId, Review review) {
+                if ("Boom".equals(review.getUserName())) {
+                    throw new IllegalStateException("Listener failed");
+                }
+            }
+        });
+        ReviewJournal journal = journal(reviews, 1 << 20, 4);
+        journal.start();
+        CompletableFuture<Integer> failed = journal.submit(4, review("Boom", 0));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IllegalStateException);
+
+        assertEquals(2, journal.submit(4, review("After", 0)).get(10, TimeUnit.SECONDS));
+        journal.stop();
+
+        // The failed batch was already durable, so it comes back on replay
+        ReviewService restarted = new ReviewService(base());
+        ReviewJournal reopened = journal(restarted, 1 << 20, 4);
+        reopened.start();
+        assertEquals(2, restarted.getReviewsForMovie(4).size());
+        reopened.stop();
+    }
+
+    private ReviewJournal journal(ReviewService reviews, long segmentBytes, int compactSegments) {
+        return new ReviewJournal(reviews, directory.toString(), 4096, 64, segmentBytes, compactSegments);
+    }
+
+    private static Map<Long, List<Review>> base() {
+        Map<Long, List<Review>> index = new HashMap<>();
+        List<Review> reviews = new ArrayList<>();
+        reviews.add(new Review("Anne", "🏴‍☠️", 4.5, "Aye"));
+        reviews.add(new Review("Mary", "🦜", 3.0, "Fair winds"));
+        index.put(1L, reviews);
+        return index;
+    }
+
+    private static Review review(String user, int i) {
+        return new Review(user, "⚓", 0.5 + (i % 10) / 2.0, "Review " + i + " ünïcödé");
+    }
+
+    private static int total(ReviewService reviews) {
+        int total = 0;
+        for (List<Review> movieReviews : reviews.reviewIndex().values()) {
+            total += movieReviews.size();
+        }
+        return total;
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + ReviewJournal.SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        return files;
+    }
+
+    private static void assertSameReviews(ReviewService expected, ReviewService actual) {
+        assertEquals(expected.reviewIndex().keySet(), actual.reviewIndex().keySet());
+        for (Map.Entry<Long, List<Review>> entry : expected.reviewIndex().entrySet()) {
+            List<Review> actualReviews = actual.getReviewsForMovie(entry.getKey());
+            assertEquals(entry.getValue().size(), actualReviews.size(), "movie " + entry.getKey());
+            for (int i = 0; i < actualReviews.size(); i++) {
+                Review e = entry.getValue().get(i);
+                Review a = actualReviews.get(i);
+                String message = "movie " + entry.getKey() + " review " + i;
+                assertEquals(e.getUserName(), a.getUserName(), message);
+                assertEquals(e.getAvatarEmoji(), a.getAvatarEmoji(), message);
+                assertEquals(e.getRating(), a.getRating(), message);
+                assertEquals(e.getComment(), a.getComment(), message);
+            }
+        }
+    }
+}
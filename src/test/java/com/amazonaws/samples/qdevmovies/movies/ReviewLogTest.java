@@ -0,0 +1,174 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for append-only review logs and review paging.
+ * Pages read by offset or by cursor must match the reviews sorted in memory, and a cursor
+ * must keep its place while reviews are added.
+ */
+public class ReviewLogTest {
+
+    @Test
+    @DisplayName("Should read back appended reviews, including from logs appended to twice")
+    public void testAppend_KeepsSnapshots() {
+        Random random = new Random(3);
+        List<Review> expected = new ArrayList<>();
+        ReviewLog log = ReviewLog.empty(7);
+        List<ReviewLog> snapshots = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            Review review = review(random, i);
+            expected.add(review);
+            log = log.append(review);
+            snapshots.add(log);
+        }
+        assertReviews(expected, log);
+        assertEquals(ReviewLog.of(7, expected).hash(), log.hash());
+
+        // Appending to an old log branches off without touching the logs after it
+        ReviewLog old = snapshots.get(99);
+        ReviewLog branch = old.append(new Review("branch", "🦜", 1.0, null));
+        assertEquals(101, branch.size());
+        assertEquals("branch", branch.get(100).getUserName());
+        assertNull(branch.get(100).getComment());
+        assertReviews(expected.subList(0, 100), old);
+        assertReviews(expected, log);
+        for (int i = 0; i < snapshots.size(); i += 50) {
+            assertReviews(expected.subList(0, i + 1), snapshots.get(i));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> old.get(100));
+    }
+
+    @Test
+    @DisplayName("Should page by offset and by cursor in every order")
+    public void testPages_MatchSortedReviews() {
+        Random random = new Random(8);
+        List<Review> reviews = new ArrayList<>();
+        for (int i = 0; i < 237; i++) {
+            reviews.add(review(random, i));
+        }
+        ReviewLog log = ReviewLog.of(1, reviews);
+        for (ReviewSort sort : ReviewSort.values()) {
+            List<Review> sorted = sorted(reviews, sort);
+            for (int size : new int[] {1, 10, 237, 500}) {
+                List<Review> byCursor = new ArrayList<>();
+                ReviewPage page = log.page(sort, log.position(sort, 0), size);
+                while (true) {
+                    assertEquals(237, page.getTotalElements());
+                    byCursor.addAll(page.getReviews());
+                    if (!page.hasNext()) {
+                        break;
+                    }
+                    assertEquals(size, page.getReviews().size());
+                    page = log.page(sort, ReviewLog.position(sort, page.getNextCursor()), size);
+                }
+                assertSameReviews(sorted, byCursor, sort + " by " + size);
+
+                for (int offset = 0; offset < 240; offset += 7) {
+                    List<Review> byOffset = log.page(sort, log.position(sort, offset), size).getReviews();
+                    assertSameReviews(sorted.subList(Math.min(offset, 237), Math.min(offset + size, 237)), byOffset,
+                            sort + " from " + offset);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should continue from a cursor without repeating or skipping reviews as reviews are added")
+    public void testCursor_StableUnderAppends() {
+        Random random = new Random(2);
+        Map<Long, List<Review>> index = new HashMap<>();
+        List<Review> initial = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            initial.add(review(random, i));
+        }
+        index.put(1L, initial);
+        for (ReviewSort sort : ReviewSort.values()) {
+            ReviewService service = new ReviewService(index);
+            List<Review> expected = sorted(service.getReviewsForMovie(1), sort);
+            List<Review> seen = new ArrayList<>();
+            ReviewPage page = service.getReviewPage(1, sort, (String) null, 15);
+            while (true) {
+                seen.addAll(page.getReviews());
+                // Newer reviews sort before the cursor, so later pages are unaffected
+                service.addReview(1, new Review("late", "🦜", 0.5 + random.nextInt(10) / 2.0, "Arrr"));
+                if (!page.hasNext()) {
+                    break;
+                }
+                page = service.getReviewPage(1, sort, page.getNextCursor(), 15);
+            }
+            // Late reviews only show up where they sort after the cursor, never newest first
+            List<Review> original = new ArrayList<>();
+            for (Review review : seen) {
+                if (!"late".equals(review.getUserName())) {
+                    original.add(review);
+                }
+            }
+            assertSameReviews(expected, original, sort.toString());
+            if (sort == ReviewSort.NEWEST) {
+                assertEquals(expected.size(), seen.size());
+            }
+        }
+        ReviewService service = new ReviewService(index);
+        assertEquals(0, service.getReviewPage(99, ReviewSort.NEWEST, 0, 10).getTotalElements());
+        assertThrows(IllegalArgumentException.class, () -> service.getReviewPage(1, ReviewSort.NEWEST, "h5", 10));
+        assertThrows(IllegalArgumentException.class, () -> service.getReviewPage(1, ReviewSort.HIGHEST, "h!", 10));
+        assertThrows(IllegalArgumentException.class, () -> service.getReviewPage(1, ReviewSort.NEWEST, -1, 10));
+    }
+
+    /**
+     * {@code reviews} in {@code sort}: by half star where it is by rating, newest first otherwise.
+     */
+    private static List<Review> sorted(List<Review> reviews, ReviewSort sort) {
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < reviews.size(); i++) {
+            positions.add(i);
+        }
+        Comparator<Integer> newest = Comparator.reverseOrder();
+        Comparator<Integer> order;
+        if (sort == ReviewSort.NEWEST) {
+            order = newest;
+        } else {
+            Comparator<Integer> byBucket = Comparator.comparingInt(i -> ReviewSummary.bucket(reviews.get(i).getRating()));
+            order = (sort == ReviewSort.HIGHEST ? byBucket.reversed() : byBucket).thenComparing(newest);
+        }
+        positions.sort(order);
+        List<Review> sorted = new ArrayList<>();
+        for (int position : positions) {
+            sorted.add(reviews.get(position));
+        }
+        return sorted;
+    }
+
+    private static void assertReviews(List<Review> expected, List<Review> actual) {
+        assertSameReviews(expected, actual, "log of " + expected.size());
+    }
+
+    private static void assertSameReviews(List<Review> expected, List<Review> actual, String context) {
+        assertEquals(expected.size(), actual.size(), context);
+        for (int i = 0; i < expected.size(); i++) {
+            Review e = expected.get(i);
+            Review a = actual.get(i);
+            String message = context + " at " + i;
+            assertEquals(e.getUserName(), a.getUserName(), message);
+            assertEquals(e.getAvatarEmoji(), a.getAvatarEmoji(), message);
+            assertEquals(e.getRating(), a.getRating(), message);
+            assertEquals(e.getComment(), a.getComment(), message);
+        }
+    }
+
+    private static Review review(Random random, int i) {
+        return new Review("Pirate " + i, random.nextBoolean() ? "🏴‍☠️" : "🦜",
+                (1 + random.nextInt(10)) / 2.0, "Review " + i + " of the seven seas, ünïcödé ⚓");
+    }
+}
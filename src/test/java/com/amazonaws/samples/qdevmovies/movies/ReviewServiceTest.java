@@ -0,0 +1,63 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for loading and reloading reviews.
+ * A failed reload must never replace the reviews already served.
+ */
+public class ReviewServiceTest {
+
+    @Test
+    @DisplayName("Should index the bundled reviews by movie id")
+    public void testLoad_IndexesReviewsByMovie() {
+        ReviewService service = new ReviewService();
+
+        Map<Long, List<Review>> index = service.reviewIndex();
+        assertEquals(12, index.size());
+        List<Review> reviews = service.getReviewsForMovie(1);
+        assertEquals(3, reviews.size());
+        assertEquals("MovieBuff87", reviews.get(0).getUserName());
+        assertEquals(5.0, reviews.get(0).getRating());
+        assertFalse(reviews.get(0).getComment().isEmpty());
+        assertNotEquals(0, service.getReviewsLastModified());
+        assertEquals(service.getReviewsVersion(), new ReviewService().getReviewsVersion());
+    }
+
+    @Test
+    @DisplayName("Should have no reviews for an unknown movie id")
+    public void testUnknownMovie_HasNoReviews() {
+        ReviewService service = new ReviewService();
+
+        assertTrue(service.getReviewsForMovie(999).isEmpty());
+        assertTrue(service.getReviewsForMovie(-1).isEmpty());
+        ReviewPage page = service.getReviewPage(999, ReviewSort.NEWEST, 0, 10);
+        assertTrue(page.getReviews().isEmpty());
+        assertFalse(page.hasNext());
+    }
+
+    @Test
+    @DisplayName("Should keep the current reviews when a reload fails")
+    public void testReload_FailureKeepsCurrentReviews() {
+        ReviewService truncated = new ReviewService("truncated-reviews.json", "", false);
+        truncated.addReview(1, new Review("Captain", "🦜", 4.0, "Arrr"));
+        long version = truncated.getReviewsVersion();
+
+        IOException malformed = assertThrows(IOException.class, truncated::reload);
+        assertTrue(malformed.getMessage().contains("truncated-reviews.json"), malformed.getMessage());
+        assertEquals(1, truncated.getReviewsForMovie(1).size());
+        assertEquals(version, truncated.getReviewsVersion());
+
+        ReviewService missing = new ReviewService("no-such-reviews.json", "", false);
+        missing.addReview(2, new Review("Captain", "🦜", 3.0, "Arrr"));
+        assertThrows(IOException.class, missing::reload);
+        assertEquals(1, missing.getReviewsForMovie(2).size());
+    }
+}
@@ -0,0 +1,228 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for precomputed review aggregates.
+ * Whatever reviews are added and movies edited, each summary must match one computed
+ * from the movie's reviews, and the reviews order must follow the summaries' scores.
+ */
+public class ReviewStatsTest {
+
+    private static final String[] GENRES = {"Drama", "Action/Adventure", "Crime/Drama", "Comedy"};
+
+    @Test
+    @DisplayName("Should match aggregates computed from the reviews through review adds and catalog edits")
+    public void testAggregates_MatchReviews() {
+        Random random = new Random(5);
+        List<Movie> initial = new ArrayList<>();
+        for (int i = 1; i <= 300; i++) {
+            initial.add(movie(random, i));
+        }
+        Map<Long, List<Review>> reviewsByMovie = new HashMap<>();
+        for (long id = 1; id <= 340; id++) {
+            List<Review> reviews = new ArrayList<>();
+            for (int r = random.nextInt(6); r > 0; r--) {
+                reviews.add(review(random));
+            }
+            reviewsByMovie.put(id, reviews);
+        }
+        ReviewService reviews = new ReviewService(reviewsByMovie);
+        MovieService service = new MovieService(initial);
+        service.setReviewService(reviews);
+        assertMatchesReviews(service, reviews);
+
+        long nextId = 301;
+        for (int round = 0; round < 8; round++) {
+            for (int op = 0; op < 60; op++) {
+                switch (random.nextInt(4)) {
+                    case 0:
+                        service.addMovie(movie(random, nextId++));
+                        break;
+                    case 1:
+                        // Store movies only, so some come back below under their old ordinal
+                        service.deleteMovie(1 + random.nextInt(300));
+                        break;
+                    case 2: {
+                        Movie movie = movie(random, 1 + random.nextInt(300));
+                        if (!service.updateMovie(movie).isPresent()) {
+                            service.addMovie(movie);
+                        }
+                        break;
+                    }
+                    default:
+                        // Including movies the catalog doesn't have yet
+                        reviews.addReview(1 + random.nextInt((int) nextId + 40), review(random));
+                }
+            }
+            if (round == 4) {
+                // Past the compaction threshold, so the aggregates move to a new store
+                List<Movie> batch = new ArrayList<>();
+                for (int i = 0; i < Catalog.MIN_COMPACT_THRESHOLD; i++) {
+                    batch.add(movie(random, nextId++));
+                }
+                service.upsertMovies(batch);
+            }
+            assertMatchesReviews(service, reviews);
+        }
+    }
+
+    @Test
+    @DisplayName("Should pull movies with few reviews towards the mean of all reviews")
+    public void testScore_IsBayesian() {
+        Map<Long, List<Review>> reviewsByMovie = new HashMap<>();
+        reviewsByMovie.put(1L, listOf(5.0));
+        List<Review> good = new ArrayList<>();
+        List<Review> poor = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            good.add(new Review("user" + i, "🏴‍☠️", 4.5, "Aye"));
+            poor.add(new Review("user" + i, "🏴‍☠️", 2.0, "Nay"));
+        }
+        reviewsByMovie.put(2L, good);
+        reviewsByMovie.put(3L, poor);
+        List<Movie> movies = new ArrayList<>();
+        Random random = new Random(1);
+        for (int i = 1; i <= 4; i++) {
+            movies.add(movie(random, i));
+        }
+        MovieService service = new MovieService(movies);
+        service.setReviewService(new ReviewService(reviewsByMovie));
+
+        ReviewSummary single = service.getReviewSummary(1);
+        assertEquals(5.0, single.getAverage());
+        assertEquals(1, single.getCount(5.0));
+        assertTrue(single.getScore() < service.getReviewSummary(2).getScore(),
+                "One five-star review should not outrank forty at 4.5");
+        assertEquals(0, service.getReviewSummary(4).getCount());
+        assertEquals(2, service.searchMovies(MovieFilter.NONE, 0, 4, MovieSort.REVIEWS).getMovies().get(0).getId());
+        assertThrows(IllegalArgumentException.class, () -> new ReviewService(reviewsByMovie).addReview(1, new Review("x", "🦜", 6, "")));
+    }
+
+    @Test
+    @DisplayName("Should page and summarize while reviews are added and the arrays grow")
+    public void testConcurrentReads_WhileWriting() throws Exception {
+        Random random = new Random(11);
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 1; i <= 200; i++) {
+            movies.add(movie(random, i));
+        }
+        ReviewService reviews = new ReviewService(new HashMap<>());
+        MovieService service = new MovieService(movies);
+        service.setReviewService(reviews);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                while (writing.get()) {
+                    List<Movie> page = service.searchMovies(MovieFilter.NONE, 0, 100, MovieSort.REVIEWS).getMovies();
+                    assertEquals(100, page.size());
+                    for (Movie movie : page) {
+                        assertNotNull(service.getReviewSummary(movie.getId()));
+                    }
+                }
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        reader.start();
+        try {
+            long nextId = 201;
+            for (int i = 0; i < 20_000 && failure.get() == null; i++) {
+                if (i % 10 == 0) {
+                    service.addMovie(movie(random, nextId++));
+                }
+                reviews.addReview(1 + random.nextInt((int) nextId - 1), review(random));
+            }
+        } finally {
+            writing.set(false);
+            reader.join();
+        }
+        assertNull(failure.get(), String.valueOf(failure.get()));
+        assertMatchesReviews(service, reviews);
+    }
+
+    private static void assertMatchesReviews(MovieService service, ReviewService reviews) {
+        double sum = 0;
+        int count = 0;
+        for (List<Review> movieReviews : reviews.reviewIndex().values()) {
+            for (Review review : movieReviews) {
+                sum += review.getRating();
+                count++;
+            }
+        }
+        double mean = sum / count;
+        for (Movie movie : service.getAllMovies()) {
+            ReviewSummary summary = service.getReviewSummary(movie.getId());
+            List<Review> movieReviews = reviews.getReviewsForMovie(movie.getId());
+            double movieSum = 0;
+            int[] histogram = new int[ReviewSummary.BUCKETS];
+            for (Review review : movieReviews) {
+                movieSum += review.getRating();
+                histogram[(int) (review.getRating() * 2) - 1]++;
+            }
+            String context = "movie " + movie.getId();
+            assertEquals(movieReviews.size(), summary.getCount(), context);
+            assertEquals(movieReviews.isEmpty() ? 0 : movieSum / movieReviews.size(), summary.getAverage(), 1e-9, context);
+            assertArrayEquals(histogram, summary.getHistogram(), context);
+            assertEquals((ReviewStats.PRIOR_REVIEWS * mean + movieSum) / (ReviewStats.PRIOR_REVIEWS + movieReviews.size()),
+                    summary.getScore(), 1e-9, context);
+        }
+
+        assertEquals(expectedOrder(service, MovieFilter.NONE, 30),
+                ids(service.searchMovies(MovieFilter.NONE, 0, 30, MovieSort.REVIEWS).getMovies()));
+        MovieFilter dramas = new MovieFilter.Builder().genre("drama").build();
+        assertEquals(expectedOrder(service, dramas, 40).subList(20, 40),
+                ids(service.searchMovies(dramas, 1, 20, MovieSort.REVIEWS).getMovies()));
+    }
+
+    /**
+     * The first {@code limit} matches, by summary score and then catalog order.
+     */
+    private static List<Long> expectedOrder(MovieService service, MovieFilter filter, int limit) {
+        List<Movie> matches = new ArrayList<>();
+        for (Movie movie : service.getAllMovies()) {
+            if (filter.matches(movie)) {
+                matches.add(movie);
+            }
+        }
+        // List.sort is stable, so equal scores keep catalog order
+        matches.sort(Comparator.comparingDouble((Movie movie) -> -service.getReviewSummary(movie.getId()).getScore()));
+        return ids(matches.subList(0, Math.min(limit, matches.size())));
+    }
+
+    private static List<Long> ids(List<Movie> movies) {
+        List<Long> ids = new ArrayList<>();
+        for (Movie movie : movies) {
+            ids.add(movie.getId());
+        }
+        return ids;
+    }
+
+    private static List<Review> listOf(double rating) {
+        List<Review> reviews = new ArrayList<>();
+        reviews.add(new Review("captain", "🦜", rating, "Arrr"));
+        return reviews;
+    }
+
+    private static Review review(Random random) {
+        return new Review("user" + random.nextInt(100), "🏴‍☠️", (1 + random.nextInt(10)) / 2.0, "Aye");
+    }
+
+    private static Movie movie(Random random, long id) {
+        return new Movie(id, "Treasure " + random.nextInt(500), "Director " + random.nextInt(40),
+                1950 + random.nextInt(70), GENRES[random.nextInt(GENRES.length)], "d",
+                80 + random.nextInt(100), random.nextInt(11) / 2.0);
+    }
+}
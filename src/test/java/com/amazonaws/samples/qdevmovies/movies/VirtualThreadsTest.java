@@ -0,0 +1,58 @@
+package com.amazonaws.samples.qdevmovies.movies;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Unit tests for virtual-thread executors, which exist from Java 21 on and must refuse to
+ * start before that.
+ */
+public class VirtualThreadsTest {
+
+    @Test
+    @DisplayName("Should run tasks on named virtual threads from Java 21, and refuse before")
+    public void testNewExecutor() throws Exception {
+        boolean modern = VirtualThreads.featureVersion() >= VirtualThreads.MIN_FEATURE_VERSION;
+        assertEquals(modern, VirtualThreads.available());
+        if (!modern) {
+            assertThrows(IllegalStateException.class, () -> VirtualThreads.newExecutor("http-"));
+            return;
+        }
+        ExecutorService executor = VirtualThreads.newExecutor("http-");
+        Thread thread = executor.submit(Thread::currentThread).get(10, TimeUnit.SECONDS);
+        assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(thread));
+        assertTrue(thread.getName().startsWith("http-"));
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should shut down the request and task executors when the context closes")
+    public void testConfig_ShutsDownExecutorsOnClose() {
+        assumeTrue(VirtualThreads.available(), "virtual threads need Java 21");
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(
+                new MapPropertySource("test", Collections.singletonMap("movies.threads.virtual", "true")));
+        context.register(VirtualThreadConfig.class);
+        context.refresh();
+        ExecutorService requests = context.getBean("virtualRequestExecutor", ExecutorService.class);
+        ExecutorService tasks = context.getBean("virtualTaskExecutor", ExecutorService.class);
+        assertFalse(requests.isShutdown());
+        context.getBean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME, AsyncTaskExecutor.class)
+                .execute(() -> { });
+
+        context.close();
+        assertTrue(requests.isShutdown());
+        assertTrue(tasks.isShutdown());
+    }
+}
@@ -0,0 +1,42 @@
+package com.amazonaws.samples.qdevmovies.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the primitive long to int hash map.
+ */
+public class LongIntHashMapTest {
+
+    @Test
+    @DisplayName("Should keep every entry while growing past its initial size")
+    public void testPut_GrowsAndKeepsEntries() {
+        LongIntHashMap map = new LongIntHashMap(2, -1);
+        for (int i = 0; i < 10_000; i++) {
+            map.put(i * 7919L + 1, i);
+        }
+
+        assertEquals(10_000, map.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, map.get(i * 7919L + 1));
+        }
+        assertEquals(-1, map.get(2L));
+    }
+
+    @Test
+    @DisplayName("Should overwrite existing keys and support zero and negative keys")
+    public void testPut_OverwritesAndHandlesSpecialKeys() {
+        LongIntHashMap map = new LongIntHashMap(4, -1);
+        map.put(0L, 10);
+        map.put(-5L, 20);
+        map.put(-5L, 30);
+
+        assertEquals(2, map.size());
+        assertEquals(10, map.get(0L));
+        assertEquals(30, map.get(-5L));
+        assertTrue(map.containsKey(0L));
+        assertFalse(map.containsKey(1L));
+    }
+}